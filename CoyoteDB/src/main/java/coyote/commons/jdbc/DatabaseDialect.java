@@ -9,6 +9,7 @@ package coyote.commons.jdbc;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import coyote.commons.StringUtil;
@@ -28,8 +29,10 @@ import coyote.loader.log.LogMsg;
 public class DatabaseDialect {
 
   public static final String ALTER_COLUMN = "column_change";
+  public static final String COLUMN_NAME_SYM = "columnName";
   public static final String CREATE = "create";
   public static final String CREATE_SCHEMA = "create_schema";
+  public static final String CREATE_STAGING = "create_staging";
   public static final String DATABASE_MAJOR_SYM = "dbMajorVersion";
   public static final String DATABASE_MINOR_SYM = "dbMinorVersion";
   public static final String DATABASE_SYM = "database";
@@ -41,6 +44,7 @@ public class DatabaseDialect {
   public static final String DRIVER_MINOR_SYM = "dvrMinorVersion";
   public static final String DB_SCHEMA_SYM = "schemaName";
   public static final String DELETE = "delete";
+  public static final String DROP = "drop";
   public static final String FIELD_DEF_SYM = "fielddefinitions";
   public static final String FIELD_MAP_SYM = "fieldmap";
   public static final String FIELD_NAMES_SYM = "fieldnames";
@@ -49,13 +53,19 @@ public class DatabaseDialect {
   public static final String GRANT = "grant";
   public static final String H2 = "H2";
   public static final String INSERT = "insert";
+  public static final String KEY_MATCH_SYM = "keymatch";
+  public static final String KEY_NAMES_SYM = "keynames";
+  public static final String MERGE = "merge";
   public static final String MSQL = "MICROSOFT SQL SERVER";
   public static final String MYSQL = "MySQL";
   public static final String NOT_NULL = "not_null";
   public static final String NULLABLE = "nullable";
   // Database Technologies supported
   public static final String ORACLE = "Oracle";
+  public static final String POSTGRESQL = "PostgreSQL";
   public static final String PRIMARY_KEY = "primary_key";
+  public static final String SOURCE_NAMES_SYM = "sourcenames";
+  public static final String SOURCE_TABLE_SYM = "sourceTable";
   public static final String SYS_ID_SYM = "sysid";
   // The symbols we expect to find in the symbol table
   public static final String TABLE_NAME_SYM = "tableName";
@@ -64,6 +74,10 @@ public class DatabaseDialect {
   public static final String TRUNCATE = "truncate";
   public static final String UNIQUE = "unique";
   public static final String UPDATE = "update";
+  public static final String UPDATE_MAP_SYM = "updatemap";
+  public static final String UPSERT = "upsert";
+  public static final String UPSERT_ASSIGN = "upsert_assign";
+  public static final String UPSERT_VALUE = "upsert_value";
   public static final String USERNAME_SYM = "username";
 
   private static final String DEFAULT = "default";
@@ -102,6 +116,11 @@ public class DatabaseDialect {
     map.put(NULLABLE, "NULL");
     map.put(NOT_NULL, "NOT NULL");
     map.put(CREATE_SCHEMA, "CREATE SCHEMA IF NOT EXISTS [#$" + DB_SCHEMA_SYM + "#]");
+    map.put(UPSERT, "INSERT INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ([#$" + FIELD_NAMES_SYM + "#]) VALUES ([#$" + FIELD_VALUES_SYM + "#]) ON DUPLICATE KEY UPDATE [#$" + UPDATE_MAP_SYM + "#]");
+    map.put(MERGE, "INSERT INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ([#$" + FIELD_NAMES_SYM + "#]) SELECT [#$" + FIELD_NAMES_SYM + "#] FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] ON DUPLICATE KEY UPDATE [#$" + UPDATE_MAP_SYM + "#]");
+    map.put(UPSERT_ASSIGN, "[#$" + COLUMN_NAME_SYM + "#] = VALUES([#$" + COLUMN_NAME_SYM + "#])");
+    map.put(CREATE_STAGING, "CREATE TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] AS SELECT * FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] WHERE 1=0");
+    map.put(DROP, "DROP TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#]");
 
     // Oracle dialect
     map = new HashMap<String, String>();
@@ -134,6 +153,12 @@ public class DatabaseDialect {
     map.put(NULLABLE, "NULL");
     map.put(NOT_NULL, "NOT NULL");
     map.put(CREATE_SCHEMA, "CREATE SCHEMA IF NOT EXISTS [#$" + DB_SCHEMA_SYM + "#]");
+    map.put(UPSERT, "MERGE INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] t USING (SELECT [#$" + FIELD_VALUES_SYM + "#] FROM DUAL) s ON ([#$" + KEY_MATCH_SYM + "#]) WHEN MATCHED THEN UPDATE SET [#$" + UPDATE_MAP_SYM + "#] WHEN NOT MATCHED THEN INSERT ([#$" + FIELD_NAMES_SYM + "#]) VALUES ([#$" + SOURCE_NAMES_SYM + "#])");
+    map.put(MERGE, "MERGE INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] t USING [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] s ON ([#$" + KEY_MATCH_SYM + "#]) WHEN MATCHED THEN UPDATE SET [#$" + UPDATE_MAP_SYM + "#] WHEN NOT MATCHED THEN INSERT ([#$" + FIELD_NAMES_SYM + "#]) VALUES ([#$" + SOURCE_NAMES_SYM + "#])");
+    map.put(UPSERT_ASSIGN, "t.[#$" + COLUMN_NAME_SYM + "#] = s.[#$" + COLUMN_NAME_SYM + "#]");
+    map.put(UPSERT_VALUE, "? AS [#$" + COLUMN_NAME_SYM + "#]");
+    map.put(CREATE_STAGING, "CREATE TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] AS SELECT * FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] WHERE 1=0");
+    map.put(DROP, "DROP TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#]");
 
     // H2 Dialect
     map = new HashMap<String, String>();
@@ -166,6 +191,10 @@ public class DatabaseDialect {
     map.put(NULLABLE, "NULL");
     map.put(NOT_NULL, "NOT NULL");
     map.put(CREATE_SCHEMA, "CREATE SCHEMA IF NOT EXISTS [#$" + DB_SCHEMA_SYM + "#] AUTHORIZATION [#$" + USERNAME_SYM + "#]");
+    map.put(UPSERT, "MERGE INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ([#$" + FIELD_NAMES_SYM + "#]) KEY ([#$" + KEY_NAMES_SYM + "#]) VALUES ([#$" + FIELD_VALUES_SYM + "#])");
+    map.put(MERGE, "MERGE INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ([#$" + FIELD_NAMES_SYM + "#]) KEY ([#$" + KEY_NAMES_SYM + "#]) SELECT [#$" + FIELD_NAMES_SYM + "#] FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#]");
+    map.put(CREATE_STAGING, "CREATE TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] AS SELECT * FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] WHERE 1=0");
+    map.put(DROP, "DROP TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#]");
 
     // Microsoft SQL Server Dialect
     map = new HashMap<String, String>();
@@ -198,6 +227,47 @@ public class DatabaseDialect {
     map.put(NULLABLE, "NULL");
     map.put(NOT_NULL, "NOT NULL");
     map.put(CREATE_SCHEMA, "CREATE SCHEMA IF NOT EXISTS [#$" + DB_SCHEMA_SYM + "#] AUTHORIZATION [#$" + USERNAME_SYM + "#]");
+    map.put(UPSERT, "MERGE INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] AS t USING (VALUES ([#$" + FIELD_VALUES_SYM + "#])) AS s ([#$" + FIELD_NAMES_SYM + "#]) ON ([#$" + KEY_MATCH_SYM + "#]) WHEN MATCHED THEN UPDATE SET [#$" + UPDATE_MAP_SYM + "#] WHEN NOT MATCHED THEN INSERT ([#$" + FIELD_NAMES_SYM + "#]) VALUES ([#$" + SOURCE_NAMES_SYM + "#]);");
+    map.put(MERGE, "MERGE INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] AS t USING [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] AS s ON ([#$" + KEY_MATCH_SYM + "#]) WHEN MATCHED THEN UPDATE SET [#$" + UPDATE_MAP_SYM + "#] WHEN NOT MATCHED THEN INSERT ([#$" + FIELD_NAMES_SYM + "#]) VALUES ([#$" + SOURCE_NAMES_SYM + "#]);");
+    map.put(UPSERT_ASSIGN, "t.[#$" + COLUMN_NAME_SYM + "#] = s.[#$" + COLUMN_NAME_SYM + "#]");
+    map.put(CREATE_STAGING, "SELECT * INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] WHERE 1=0");
+    map.put(DROP, "DROP TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#]");
+
+    // PostgreSQL Dialect
+    map = new HashMap<String, String>();
+    TYPES.put(POSTGRESQL, map);
+    map.put("STR", "VARCHAR(#)");
+    map.put("BOL", "BOOLEAN");
+    map.put("S8", "SMALLINT");
+    map.put("U8", "SMALLINT");
+    map.put("S16", "SMALLINT");
+    map.put("U16", "INTEGER");
+    map.put("S32", "INTEGER");
+    map.put("U32", "BIGINT");
+    map.put("S64", "BIGINT");
+    map.put("U64", "BIGINT");
+    map.put("DBL", "DOUBLE PRECISION");
+    map.put("DAT", "TIMESTAMP");
+    map.put("FLT", "REAL");
+    map.put(DEFAULT, "VARCHAR(#)");
+    map = new HashMap<String, String>();
+    SYNTAX.put(POSTGRESQL, map);
+    map.put(CREATE, "CREATE TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ( [#$" + FIELD_DEF_SYM + "#] )");
+    map.put(GRANT, "");
+    map.put(INSERT, "INSERT INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ([#$" + FIELD_NAMES_SYM + "#]) VALUES ([#$" + FIELD_VALUES_SYM + "#])");
+    map.put(UPDATE, "UPDATE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] SET [#$" + FIELD_MAP_SYM + "#] WHERE SYSID='[#$" + SYS_ID_SYM + "#]'");
+    map.put(DELETE, "DELETE FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] WHERE SYSID='[#$" + SYS_ID_SYM + "#]'");
+    map.put(TRUNCATE, "TRUNCATE TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#]");
+    map.put(ALTER_COLUMN, "ALTER TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ALTER COLUMN [#$columnName#] TYPE [#$columnType#]");
+    map.put(PRIMARY_KEY, "PRIMARY KEY");
+    map.put(NULLABLE, "NULL");
+    map.put(NOT_NULL, "NOT NULL");
+    map.put(CREATE_SCHEMA, "CREATE SCHEMA IF NOT EXISTS [#$" + DB_SCHEMA_SYM + "#] AUTHORIZATION [#$" + USERNAME_SYM + "#]");
+    map.put(UPSERT, "INSERT INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ([#$" + FIELD_NAMES_SYM + "#]) VALUES ([#$" + FIELD_VALUES_SYM + "#]) ON CONFLICT ([#$" + KEY_NAMES_SYM + "#]) DO UPDATE SET [#$" + UPDATE_MAP_SYM + "#]");
+    map.put(MERGE, "INSERT INTO [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] ([#$" + FIELD_NAMES_SYM + "#]) SELECT [#$" + FIELD_NAMES_SYM + "#] FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] ON CONFLICT ([#$" + KEY_NAMES_SYM + "#]) DO UPDATE SET [#$" + UPDATE_MAP_SYM + "#]");
+    map.put(UPSERT_ASSIGN, "[#$" + COLUMN_NAME_SYM + "#] = EXCLUDED.[#$" + COLUMN_NAME_SYM + "#]");
+    map.put(CREATE_STAGING, "CREATE TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + SOURCE_TABLE_SYM + "#] AS SELECT * FROM [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#] WHERE 1=0");
+    map.put(DROP, "DROP TABLE [#$" + DB_SCHEMA_SYM + "#].[#$" + TABLE_NAME_SYM + "#]");
 
   }
 
@@ -400,6 +470,146 @@ public class DatabaseDialect {
 
 
 
+  /**
+   * Generate the SQL command which inserts a row or updates the existing row
+   * with the same key values.
+   *
+   * <p>The command contains one parameter marker for each column in the
+   * order given so it can be prepared and executed in batches exactly like
+   * an insert.</p>
+   *
+   * @param database the name of the database dialect to use (e.g. Oracle)
+   * @param schemaName the schema of the table
+   * @param tableName the table to update
+   * @param columns the names of the columns being written
+   * @param keys the names of the columns which identify a row
+   *
+   * @return the upsert command or null if the database does not support it
+   */
+  public static String getUpsert(final String database, final String schemaName, final String tableName, final List<String> columns, final List<String> keys) {
+    return getSQL(database, UPSERT, getMergeSymbols(database, schemaName, tableName, null, columns, keys));
+  }
+
+
+
+
+  /**
+   * Generate the SQL command which merges all the rows of a staging table
+   * into a table in a single set-based operation.
+   *
+   * @param database the name of the database dialect to use (e.g. Oracle)
+   * @param schemaName the schema of both tables
+   * @param tableName the table to update
+   * @param stagingTable the table holding the rows to merge
+   * @param columns the names of the columns being written
+   * @param keys the names of the columns which identify a row
+   *
+   * @return the merge command or null if the database does not support it
+   */
+  public static String getMerge(final String database, final String schemaName, final String tableName, final String stagingTable, final List<String> columns, final List<String> keys) {
+    return getSQL(database, MERGE, getMergeSymbols(database, schemaName, tableName, stagingTable, columns, keys));
+  }
+
+
+
+
+  /**
+   * Generate the SQL command which creates an empty staging table with the
+   * same columns as the given table.
+   *
+   * @param database the name of the database dialect to use (e.g. Oracle)
+   * @param schemaName the schema of both tables
+   * @param tableName the table to copy
+   * @param stagingTable the name of the table to create
+   *
+   * @return the create command or null if the database does not support it
+   */
+  @SuppressWarnings("unchecked")
+  public static String getCreateStaging(final String database, final String schemaName, final String tableName, final String stagingTable) {
+    final SymbolTable symbols = new SymbolTable();
+    symbols.put(DB_SCHEMA_SYM, schemaName);
+    symbols.put(TABLE_NAME_SYM, tableName);
+    symbols.put(SOURCE_TABLE_SYM, stagingTable);
+    return getSQL(database, CREATE_STAGING, symbols);
+  }
+
+
+
+
+  /**
+   * Populate the symbols used by the upsert and merge templates.
+   *
+   * <p>The column assignments and parameter markers vary between databases
+   * so they are generated from the per-column templates of the dialect.</p>
+   */
+  @SuppressWarnings("unchecked")
+  private static SymbolTable getMergeSymbols(final String database, final String schemaName, final String tableName, final String stagingTable, final List<String> columns, final List<String> keys) {
+    final SymbolTable symbols = new SymbolTable();
+    symbols.put(DB_SCHEMA_SYM, schemaName);
+    symbols.put(TABLE_NAME_SYM, tableName);
+    if (stagingTable != null) {
+      symbols.put(SOURCE_TABLE_SYM, stagingTable);
+    }
+
+    final String assign = getSQL(database, UPSERT_ASSIGN, null);
+    final String value = getSQL(database, UPSERT_VALUE, null);
+    final SymbolTable columnSymbols = new SymbolTable();
+
+    final StringBuffer names = new StringBuffer();
+    final StringBuffer values = new StringBuffer();
+    final StringBuffer sources = new StringBuffer();
+    final StringBuffer updates = new StringBuffer();
+    for (final String column : columns) {
+      columnSymbols.put(COLUMN_NAME_SYM, column);
+      names.append(column).append(", ");
+      values.append(value != null ? new Template(value, columnSymbols).toString() : "?").append(", ");
+      sources.append("s.").append(column).append(", ");
+      if (assign != null && !containsIgnoreCase(keys, column)) {
+        updates.append(new Template(assign, columnSymbols).toString()).append(", ");
+      }
+    }
+
+    final StringBuffer keyNames = new StringBuffer();
+    final StringBuffer keyMatch = new StringBuffer();
+    for (final String key : keys) {
+      keyNames.append(key).append(", ");
+      keyMatch.append("t.").append(key).append(" = s.").append(key).append(" AND ");
+    }
+
+    symbols.put(FIELD_NAMES_SYM, trim(names, 2));
+    symbols.put(FIELD_VALUES_SYM, trim(values, 2));
+    symbols.put(SOURCE_NAMES_SYM, trim(sources, 2));
+    symbols.put(UPDATE_MAP_SYM, trim(updates, 2));
+    symbols.put(KEY_NAMES_SYM, trim(keyNames, 2));
+    symbols.put(KEY_MATCH_SYM, trim(keyMatch, 5));
+    return symbols;
+  }
+
+
+
+
+  private static boolean containsIgnoreCase(final List<String> list, final String value) {
+    for (final String item : list) {
+      if (item.equalsIgnoreCase(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+
+  private static String trim(final StringBuffer buffer, final int length) {
+    if (buffer.length() >= length) {
+      buffer.delete(buffer.length() - length, buffer.length());
+    }
+    return buffer.toString();
+  }
+
+
+
+
   /**
    * Retrieve the syntax for a command for a particular database product.
    *
@@ -416,7 +626,16 @@ public class DatabaseDialect {
    */
   public static String getSQL(final String database, final String command, final SymbolTable symbols) {
     // find the map of commands for this database
-    final Map<String, String> map = SYNTAX.get(database);
+    Map<String, String> map = SYNTAX.get(database);
+    if (map == null && database != null) {
+      // product names are not always reported in the same case
+      for (final Map.Entry<String, Map<String, String>> entry : SYNTAX.entrySet()) {
+        if (entry.getKey().equalsIgnoreCase(database)) {
+          map = entry.getValue();
+          break;
+        }
+      }
+    }
 
     // If this database is supported
     if (map != null) {
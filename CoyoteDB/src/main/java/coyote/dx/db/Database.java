@@ -137,6 +137,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
    */
   public void setAutoCreate(boolean value) {
     configuration.put(ConfigTag.AUTO_CREATE, value);
+    invalidateConfiguration();
   }
 
 
@@ -176,6 +177,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
    */
   public void setTarget(final String value) {
     configuration.put(ConfigTag.TARGET, value);
+    invalidateConfiguration();
   }
 
 
@@ -212,6 +214,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
    */
   public void setUsername(String value) {
     configuration.put(ConfigTag.USERNAME, value);
+    invalidateConfiguration();
   }
 
 
@@ -219,6 +222,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
 
   public void setName(String value) {
     configuration.put(ConfigTag.NAME, value);
+    invalidateConfiguration();
   }
 
 
@@ -358,6 +362,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
    */
   public void setLibrary(String library) {
     configuration.set(ConfigTag.LIBRARY, library);
+    invalidateConfiguration();
   }
 
 
@@ -368,6 +373,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
    */
   public void setDriver(String driver) {
     configuration.set(ConfigTag.DRIVER, driver);
+    invalidateConfiguration();
   }
 
 
@@ -378,6 +384,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
    */
   public void setPassword(String password) {
     configuration.set(ConfigTag.PASSWORD, password);
+    invalidateConfiguration();
   }
 
 
@@ -388,6 +395,7 @@ public class Database extends AbstractConfigurableComponent implements Configura
    */
   public void setSchema(String schema) {
     configuration.set(ConfigTag.SCHEMA, schema);
+    invalidateConfiguration();
   }
 
 
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.db;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import coyote.dataframe.DataFrame;
+import coyote.dx.context.TransformContext;
+
+
+/**
+ * A least-recently-used cache of the data frames read from a FrameStore
+ * table, keyed by the system identifier of the frame.
+ *
+ * <p>The ReadRecord, UpdateRecord and DeleteRecord listeners of a job share
+ * one cache for each table so a frame read once is served from memory until
+ * it is modified or deleted through any of them. CreateRecord does not use
+ * the cache; a new frame is cached the first time it is read.
+ *
+ * <p>Frames are copied into and out of the cache so callers are free to
+ * modify the frames they receive.
+ */
+public class FrameCache {
+
+  /** The default number of frames held in each cache */
+  public static final int DEFAULT_SIZE = 1000;
+
+  /** Caches shared by the components of each transform context */
+  private static final Map<TransformContext, Map<String, FrameCache>> CACHES = new WeakHashMap<TransformContext, Map<String, FrameCache>>();
+
+  private final Map<String, DataFrame> entries;
+  private long hits = 0;
+  private long misses = 0;
+
+
+
+
+  /**
+   * Create a cache holding up to the given number of frames.
+   *
+   * @param capacity the maximum number of frames to cache
+   */
+  public FrameCache(final int capacity) {
+    entries = new LinkedHashMap<String, DataFrame>(16, 0.75F, true) {
+      private static final long serialVersionUID = 1L;
+
+
+
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, DataFrame> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+
+
+
+  /**
+   * Retrieve the cache for the named table shared by all the components in
+   * the given context.
+   *
+   * @param context the transform context
+   * @param table the qualified name of the table (e.g. schema.table)
+   * @param capacity the capacity of the cache if it must be created
+   *
+   * @return the shared cache for the table
+   */
+  public static FrameCache forContext(final TransformContext context, final String table, final int capacity) {
+    synchronized (CACHES) {
+      Map<String, FrameCache> tables = CACHES.get(context);
+      if (tables == null) {
+        tables = new HashMap<String, FrameCache>();
+        CACHES.put(context, tables);
+      }
+      final String key = table.toUpperCase();
+      FrameCache retval = tables.get(key);
+      if (retval == null) {
+        retval = new FrameCache(capacity);
+        tables.put(key, retval);
+      }
+      return retval;
+    }
+  }
+
+
+
+
+  /**
+   * @param sysid the system identifier of the frame
+   *
+   * @return a copy of the cached frame or null if it is not cached
+   */
+  public synchronized DataFrame get(final String sysid) {
+    final DataFrame frame = sysid != null ? entries.get(sysid) : null;
+    if (frame != null) {
+      hits++;
+      return (DataFrame)frame.clone();
+    }
+    misses++;
+    return null;
+  }
+
+
+
+
+  /**
+   * Place a copy of the frame in the cache.
+   *
+   * @param sysid the system identifier of the frame
+   * @param frame the frame to cache
+   */
+  public synchronized void put(final String sysid, final DataFrame frame) {
+    if (sysid != null && frame != null) {
+      entries.put(sysid, (DataFrame)frame.clone());
+    }
+  }
+
+
+
+
+  /**
+   * Remove the frame from the cache after it has been modified.
+   *
+   * @param sysid the system identifier of the frame
+   */
+  public synchronized void invalidate(final String sysid) {
+    if (sysid != null) {
+      entries.remove(sysid);
+    }
+  }
+
+
+
+
+  /**
+   * Remove all the frames from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+
+
+
+  /**
+   * @return the number of frames in the cache
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+
+
+
+  /**
+   * @return the number of reads served from the cache
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+
+
+
+  /**
+   * @return the number of reads not found in the cache
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+}
@@ -12,9 +12,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import coyote.commons.ExceptionUtil;
 import coyote.commons.GUID;
@@ -42,19 +49,28 @@ import coyote.loader.log.Log;
  * frame. More simply, if a sysid in a parent column does not point to a 
  * field, that sysid represents the root data frame.
  * 
+ * <p>Every field also records the sysid of its root frame in the 
+ * {@code Root} column so an entire frame tree is retrieved with one indexed 
+ * query and assembled in memory. Tables created before the {@code Root} 
+ * column was added are altered to add it (VARCHAR(36), indexed) the first 
+ * time they are used. If the table can not be altered, frames are stored 
+ * and read without it, one level at a time, and cannot be updated or 
+ * deleted. Frames stored without a root are always read one level at a 
+ * time.
+ * 
  * <p>This class uses FieldSlots to hold the field data for later assembley 
  * into frames or creation of batch insert or update commands. This 
- * intermediate format allows for recursive SQL calls over the same 
- * connection but outside the result set. This also allows the system to 
- * create batches of insert and update commands in contrast with creating a 
- * command for each field. One batch insert can create the entire frame at 
- * once. The same is true for updates and deletions. 
+ * intermediate format allows the system to create batches of insert and 
+ * update commands in contrast with creating a command for each field. One 
+ * batch insert can create the entire frame at once. The same is true for 
+ * updates and deletions. 
  */
 public abstract class FrameStore {
 
   public static final String SYSID = "SysId";
   public static final String ACTIVE = "Active";
   public static final String PARENT = "Parent";
+  public static final String ROOT = "Root";
   public static final String SEQUENCE = "Sequence";
   public static final String NAME = "Name";
   public static final String VALUE = "Value";
@@ -67,6 +83,17 @@ public abstract class FrameStore {
   // Size of the batch of inserts and updates to send at once
   private static final int BATCH_SIZE = 250;
 
+  /** Whether each table has a Root column, by database URL and table name */
+  private static final Map<String, Boolean> ROOT_COLUMNS = new ConcurrentHashMap<String, Boolean>();
+
+  /** Orders the slots of a frame by their position in the frame */
+  private static final Comparator<FieldSlot> SEQUENCE_ORDER = new Comparator<FieldSlot>() {
+    @Override
+    public int compare(FieldSlot slot1, FieldSlot slot2) {
+      return Integer.compare(slot1.getSequence(), slot2.getSequence());
+    }
+  };
+
 
 
 
@@ -85,7 +112,8 @@ public abstract class FrameStore {
    * 
    * <p>This performs a batch insert of all the fields in the given frame and 
    * its children. If there are too many fields in the frame, multiple batches 
-   * will be executed.
+   * will be executed, all of them committed together so a frame is never 
+   * partly stored.
    * 
    * @param frame the frame to store in the database
    * @param conn the JDBC connection to the database
@@ -97,72 +125,44 @@ public abstract class FrameStore {
    * 
    * @return the system identifier of the new frame
    */
-  @SuppressWarnings("unchecked")
   public static String create(DataFrame frame, Connection conn, String entity, String schema, String table, String dialect) {
     String retval = GUID.randomSecureGUID().toString();
     Log.info("Creating Frame Id:" + retval);
-    String databaseProduct = dialect;
-    if (StringUtil.isBlank(databaseProduct)) {
-      databaseProduct = DatabaseUtil.getProduct(conn);
-    }
 
     List<FieldSlot> slots = getSlots(frame, retval);
 
-    final SymbolTable sqlsymbols = new SymbolTable();
-    sqlsymbols.put(DatabaseDialect.DB_SCHEMA_SYM, schema);
-    sqlsymbols.put(DatabaseDialect.TABLE_NAME_SYM, table);
-    sqlsymbols.put(DatabaseDialect.FIELD_NAMES_SYM, SYSID + ", " + ACTIVE + ", " + PARENT + ", " + SEQUENCE + ", " + NAME + ", " + VALUE + ", " + TYPE + ", " + CREATED_BY + ", " + CREATED_ON + ", " + MODIFIED_BY + ", " + MODIFIED_ON);
-    sqlsymbols.put(DatabaseDialect.FIELD_VALUES_SYM, "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?");
-    final String sql = DatabaseDialect.getSQL(databaseProduct, DatabaseDialect.INSERT, sqlsymbols);
+    final boolean rooted = hasRoot(conn, schema, table);
+    final String sql = getInsertSQL(conn, schema, table, dialect, rooted);
     if (sql != null) {
       PreparedStatement preparedStatement = null;
       try {
         conn.setAutoCommit(false);
         preparedStatement = conn.prepareStatement(sql);
+        Timestamp now = new Timestamp(new Date().getTime());
         int count = 0;
         for (FieldSlot slot : slots) {
-          preparedStatement.setString(1, slot.getSysId());
-          preparedStatement.setBoolean(2, slot.isActive());
-          preparedStatement.setString(3, slot.getParent());
-          preparedStatement.setInt(4, slot.getSequence());
-          preparedStatement.setString(5, slot.getName());
-          preparedStatement.setString(6, slot.getValue());
-          preparedStatement.setShort(7, slot.getType());
-          preparedStatement.setString(8, entity);
-          preparedStatement.setTimestamp(9, new java.sql.Timestamp(new Date().getTime()));
-          preparedStatement.setString(10, entity);
-          preparedStatement.setTimestamp(11, new java.sql.Timestamp(new Date().getTime()));
-          preparedStatement.addBatch();
-
+          addInsert(preparedStatement, slot, rooted ? retval : null, entity, now);
           count++;
           if (count % BATCH_SIZE == 0) {
             int[] result = preparedStatement.executeBatch();
-            conn.commit();
-            Log.debug("Commited a batch of " + result.length+" rows");
+            Log.debug("Sent a batch of " + result.length + " rows");
             count = 0;
           }
         }
 
         if (count > 0) {
           int[] result = preparedStatement.executeBatch();
-          Log.debug("Commited batch of " + result.length+" rows");
-          conn.commit();
+          Log.debug("Sent a batch of " + result.length + " rows");
         }
+        conn.commit();
 
       } catch (final SQLException e) {
         Log.fatal(ExceptionUtil.toString(e));
         Log.debug(ExceptionUtil.stackTrace(e));
-        try {
-          conn.rollback();
-        } catch (SQLException e1) {
-          Log.warn("Could not roll-back inserts: " + e1.getMessage());
-        }
+        rollback(conn);
       } finally {
-        if (preparedStatement != null)
-          DatabaseUtil.closeQuietly(preparedStatement);
+        DatabaseUtil.closeQuietly(preparedStatement);
       }
-    } else {
-      Log.error("Cannot support " + databaseProduct + " database product");
     }
 
     return retval;
@@ -174,12 +174,9 @@ public abstract class FrameStore {
   /**
    * Retrieve a dataframe from the database with the given system identifier.
    * 
-   * <p>This is a naive recursion into the database for 2 reasons, the varing 
-   * capabilities of different databases make comming up with a good recursive 
-   * SQL statement difficult and the type of data used in the framework tends 
-   * not to be hierarchical so the number of times this will become a 
-   * performance issues should be very small. For these reasons this method
-   * performs multiple select calls to build the frame hierarchy. 
+   * <p>All the fields of the frame and its nested frames are retrieved with 
+   * a single query on the root identifier and assembled in memory. Frames 
+   * stored without a root identifier are retrieved one level at a time.
    * 
    * @param sysid the system identifier of the frame to retrieve
    * @param conn the JDBC connection to the database
@@ -193,36 +190,92 @@ public abstract class FrameStore {
    */
   public static DataFrame read(String sysid, Connection conn, String entity, String schema, String table, String dialect) {
     DataFrame retval = null;
-    String query = "SELECT * FROM " + schema + "." + table + " WHERE parent = '" + sysid + "' ORDER BY " + SEQUENCE + " ASC";
-    ResultSet result = null;
-    List<FieldSlot> slots = new ArrayList<FieldSlot>();
+    if (conn != null && sysid != null) {
+      List<FieldSlot> slots = hasRoot(conn, schema, table) ? readSlots(conn, schema, table, ROOT, sysid) : new ArrayList<FieldSlot>();
+      if (slots.size() > 0) {
+        retval = assembleFrame(sysid, groupByParent(slots));
+      } else {
+        Log.debug("No fields with a root of '" + sysid + "', reading the frame one level at a time");
+        retval = readLevel(sysid, conn, schema, table);
+      }
+    }
+    return retval;
+  }
 
-    Log.debug(String.format("Executing query: '%s'", query));
 
-    if (conn != null) {
-      try {
-        Statement statement = conn.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY);
-        result = statement.executeQuery(query);
-
-        if (result != null) {
-          try {
-            while (result.next()) {
-              slots.add(new FieldSlot(result.getString(SYSID), result.getString(PARENT), result.getInt(SEQUENCE), result.getBoolean(ACTIVE), result.getString(NAME), result.getShort(TYPE), result.getString(VALUE)));
-            }
-          } catch (Exception e) {
-            e.printStackTrace();
-          }
+
+
+  /**
+   * Read the active slots with the given value in the given column.
+   * 
+   * @return the slots read, may be empty but never null
+   */
+  private static List<FieldSlot> readSlots(Connection conn, String schema, String table, String column, String value) {
+    List<FieldSlot> retval = new ArrayList<FieldSlot>();
+    String query = "SELECT " + SYSID + ", " + PARENT + ", " + SEQUENCE + ", " + ACTIVE + ", " + NAME + ", " + TYPE + ", " + VALUE + " FROM " + schema + "." + table + " WHERE " + column + " = ? AND " + ACTIVE + " = ?";
+    Log.debug(String.format("Executing query: '%s' with '%s'", query, value));
+
+    try (PreparedStatement statement = conn.prepareStatement(query)) {
+      statement.setString(1, value);
+      statement.setBoolean(2, true);
+      try (ResultSet result = statement.executeQuery()) {
+        while (result.next()) {
+          retval.add(new FieldSlot(result.getString(SYSID), result.getString(PARENT), result.getInt(SEQUENCE), result.getBoolean(ACTIVE), result.getString(NAME), result.getShort(TYPE), result.getString(VALUE)));
         }
-      } catch (SQLException e) {
-        String emsg = String.format("Error querying database: '%s' - query = '%s'", e.getMessage().trim(), query);
-        Log.error(emsg);
       }
+    } catch (SQLException e) {
+      String emsg = String.format("Error querying database: '%s' - query = '%s'", String.valueOf(e.getMessage()).trim(), query);
+      Log.error(emsg);
     }
+    return retval;
+  }
+
 
+
+
+  /**
+   * Read a frame stored without a root identifier, one query for each 
+   * nested frame.
+   * 
+   * @return the frame or null if there are no fields with the given parent
+   */
+  private static DataFrame readLevel(String parent, Connection conn, String schema, String table) {
+    DataFrame retval = null;
+    List<FieldSlot> slots = readSlots(conn, schema, table, PARENT, parent);
     if (slots.size() > 0) {
-      retval = assembleFrame(slots, conn, entity, schema, table, dialect);
+      Collections.sort(slots, SEQUENCE_ORDER);
+      retval = new DataFrame();
+      for (FieldSlot slot : slots) {
+        if (slot.getType() == DataField.FRAMETYPE) {
+          retval.add(slot.getName(), readLevel(slot.getSysId(), conn, schema, table));
+        } else {
+          retval.add(slot.getName(), DataField.parse(slot.getValue(), slot.getType()));
+        }
+      }
     }
+    return retval;
+  }
 
+
+
+
+  /**
+   * Index the given slots by the identifier of their parent, each list 
+   * ordered by sequence.
+   */
+  private static Map<String, List<FieldSlot>> groupByParent(List<FieldSlot> slots) {
+    Map<String, List<FieldSlot>> retval = new HashMap<String, List<FieldSlot>>();
+    for (FieldSlot slot : slots) {
+      List<FieldSlot> children = retval.get(slot.getParent());
+      if (children == null) {
+        children = new ArrayList<FieldSlot>();
+        retval.put(slot.getParent(), children);
+      }
+      children.add(slot);
+    }
+    for (List<FieldSlot> children : retval.values()) {
+      Collections.sort(children, SEQUENCE_ORDER);
+    }
     return retval;
   }
 
@@ -230,32 +283,23 @@ public abstract class FrameStore {
 
 
   /**
-   * Assemble the given list of field slots into a data frame.
-   * 
-   * <p>With the exception of {@code slots}, all the arguments are used when
-   * calling {@link #read(String, Connection, String, String, String, String)}
-   * to retrieve a filed that itself contains other fields (i.e. a DataFrame).
+   * Assemble the field slots with the given parent into a data frame.
    * 
-   * @param slots the list of filed slots representing the fields in the frame
-   * @param sysid the system identifier of the frame to retrieve
-   * @param conn the JDBC connection to the database
-   * @param entity the entity reading the dataframe
-   * @param schema the schema in the database where the data is stored
-   * @param table the table in the schema where the data is stored
-   * @param dialect the database product being used, if null, the connection 
-   *        metadata will be queried
+   * @param parent the system identifier of the frame to assemble
+   * @param slots all the slots of the frame tree indexed by parent
    *
    * @return a data frame comprised of the data from the field slots 
    */
-  private static DataFrame assembleFrame(List<FieldSlot> slots, Connection conn, String entity, String schema, String table, String dialect) {
+  private static DataFrame assembleFrame(String parent, Map<String, List<FieldSlot>> slots) {
     DataFrame retval = new DataFrame();
-    for (FieldSlot slot : slots) {
-      if (slot.getType() == DataField.FRAMETYPE) {
-        DataFrame childframe = read(slot.getSysId(), conn, entity, schema, table, dialect);
-        retval.add(slot.getName(), childframe);
-      } else {
-        final Object contextValue = DataField.parse(slot.getValue(), slot.getType());
-        retval.add(slot.getName(), contextValue);
+    List<FieldSlot> children = slots.get(parent);
+    if (children != null) {
+      for (FieldSlot slot : children) {
+        if (slot.getType() == DataField.FRAMETYPE) {
+          retval.add(slot.getName(), assembleFrame(slot.getSysId(), slots));
+        } else {
+          retval.add(slot.getName(), DataField.parse(slot.getValue(), slot.getType()));
+        }
       }
     }
     return retval;
@@ -277,14 +321,194 @@ public abstract class FrameStore {
    * @return true if the update was successful, false if the update failed
    */
   public static boolean update(String sysid, DataFrame frame, Connection conn, String entity, String schema, String table) {
+    return update(sysid, frame, conn, entity, schema, table, null);
+  }
+
+
+
+
+  /**
+   * Update the data frame with the given identifier with the given data frame.
+   * 
+   * <p>The stored fields are compared to the given frame position by 
+   * position. Only the fields whose values changed are updated, fields which 
+   * no longer exist (or changed name or kind) are marked inactive and new 
+   * fields are inserted. All the changes are sent in batches and committed 
+   * together.
+   * 
+   * @param sysid the system identifier of the data frame to update
+   * @param frame the data frame representing the end state of the update
+   * @param conn the JDBC connection to the database
+   * @param entity the entity updating the dataframe
+   * @param schema the schema in the database where the data is stored
+   * @param table the table in the schema where the data is stored
+   * @param dialect the database product being used, if null, the connection 
+   *        metadata will be queried
+   * 
+   * @return true if the update was successful, false if the frame was not 
+   *         found or the update failed
+   */
+  public static boolean update(String sysid, DataFrame frame, Connection conn, String entity, String schema, String table, String dialect) {
+    if (conn == null || sysid == null || frame == null) {
+      return false;
+    }
+
+    if (!hasRoot(conn, schema, table)) {
+      Log.warn("Frames in " + schema + "." + table + " can not be updated without a " + ROOT + " column");
+      return false;
+    }
+
+    Map<String, List<FieldSlot>> existing = groupByParent(readSlots(conn, schema, table, ROOT, sysid));
+    if (existing.isEmpty()) {
+      Log.warn("No frame with a root of '" + sysid + "' to update");
+      return false;
+    }
+
+    List<FieldSlot> inserts = new ArrayList<FieldSlot>();
+    List<FieldSlot> changes = new ArrayList<FieldSlot>();
+    List<String> removals = new ArrayList<String>();
+    diff(frame, sysid, existing, inserts, changes, removals);
+    Log.debug("Updating frame " + sysid + ": " + inserts.size() + " inserts, " + changes.size() + " changes, " + removals.size() + " removals");
+    if (inserts.isEmpty() && changes.isEmpty() && removals.isEmpty()) {
+      return true;
+    }
+
+    final String insertSql = getInsertSQL(conn, schema, table, dialect, true);
+    if (insertSql == null) {
+      return false;
+    }
+    final String changeSql = "UPDATE " + schema + "." + table + " SET " + SEQUENCE + " = ?, " + VALUE + " = ?, " + TYPE + " = ?, " + MODIFIED_BY + " = ?, " + MODIFIED_ON + " = ? WHERE " + SYSID + " = ?";
+    final String removeSql = "UPDATE " + schema + "." + table + " SET " + ACTIVE + " = ?, " + MODIFIED_BY + " = ?, " + MODIFIED_ON + " = ? WHERE " + SYSID + " = ?";
+
     boolean retval = false;
+    PreparedStatement insert = null;
+    PreparedStatement change = null;
+    PreparedStatement remove = null;
+    try {
+      conn.setAutoCommit(false);
+      Timestamp now = new Timestamp(new Date().getTime());
+
+      insert = conn.prepareStatement(insertSql);
+      int count = 0;
+      for (FieldSlot slot : inserts) {
+        addInsert(insert, slot, sysid, entity, now);
+        if (++count % BATCH_SIZE == 0) {
+          insert.executeBatch();
+        }
+      }
+      if (count % BATCH_SIZE != 0) {
+        insert.executeBatch();
+      }
 
+      change = conn.prepareStatement(changeSql);
+      count = 0;
+      for (FieldSlot slot : changes) {
+        change.setInt(1, slot.getSequence());
+        change.setString(2, slot.getValue());
+        change.setShort(3, slot.getType());
+        change.setString(4, entity);
+        change.setTimestamp(5, now);
+        change.setString(6, slot.getSysId());
+        change.addBatch();
+        if (++count % BATCH_SIZE == 0) {
+          change.executeBatch();
+        }
+      }
+      if (count % BATCH_SIZE != 0) {
+        change.executeBatch();
+      }
+
+      remove = conn.prepareStatement(removeSql);
+      count = 0;
+      for (String id : removals) {
+        remove.setBoolean(1, false);
+        remove.setString(2, entity);
+        remove.setTimestamp(3, now);
+        remove.setString(4, id);
+        remove.addBatch();
+        if (++count % BATCH_SIZE == 0) {
+          remove.executeBatch();
+        }
+      }
+      if (count % BATCH_SIZE != 0) {
+        remove.executeBatch();
+      }
+
+      conn.commit();
+      retval = true;
+    } catch (final SQLException e) {
+      Log.error("Could not update frame " + sysid + ": " + ExceptionUtil.toString(e));
+      rollback(conn);
+    } finally {
+      DatabaseUtil.closeQuietly(insert);
+      DatabaseUtil.closeQuietly(change);
+      DatabaseUtil.closeQuietly(remove);
+    }
     return retval;
   }
 
 
 
 
+  /**
+   * Compare the fields of the given frame to the stored slots with the same 
+   * parent, recording the slots to insert, change and remove.
+   */
+  private static void diff(DataFrame frame, String parent, Map<String, List<FieldSlot>> existing, List<FieldSlot> inserts, List<FieldSlot> changes, List<String> removals) {
+    List<FieldSlot> current = existing.get(parent);
+    if (current == null) {
+      current = Collections.emptyList();
+    }
+
+    int seq = 0;
+    for (DataField field : frame.getFields()) {
+      FieldSlot slot = seq < current.size() ? current.get(seq) : null;
+      if (slot != null && Objects.equals(slot.getName(), field.getName()) && (slot.getType() == DataField.FRAMETYPE) == field.isFrame()) {
+        boolean changed = slot.getSequence() != seq;
+        slot.setSequence(seq);
+        if (field.isFrame()) {
+          diff((DataFrame)field.getObjectValue(), slot.getSysId(), existing, inserts, changes, removals);
+        } else if (slot.getType() != field.getType() || !Objects.equals(slot.getValue(), field.getStringValue())) {
+          slot.setType(field.getType());
+          slot.setValue(field.getStringValue());
+          changed = true;
+        }
+        if (changed) {
+          changes.add(slot);
+        }
+      } else {
+        if (slot != null) {
+          remove(slot, existing, removals);
+        }
+        addSlots(inserts, field, parent, seq);
+      }
+      seq++;
+    }
+
+    for (int x = seq; x < current.size(); x++) {
+      remove(current.get(x), existing, removals);
+    }
+  }
+
+
+
+
+  /**
+   * Record the given slot and all its descendants for removal.
+   */
+  private static void remove(FieldSlot slot, Map<String, List<FieldSlot>> existing, List<String> removals) {
+    removals.add(slot.getSysId());
+    List<FieldSlot> children = existing.get(slot.getSysId());
+    if (children != null) {
+      for (FieldSlot child : children) {
+        remove(child, existing, removals);
+      }
+    }
+  }
+
+
+
+
   /**
    * Delete the data frame with the given identifier.
    * 
@@ -302,13 +526,159 @@ public abstract class FrameStore {
    */
   public static boolean delete(String sysid, Connection conn, String entity, String schema, String table) {
     boolean retval = false;
+    if (conn != null && sysid != null) {
+      if (!hasRoot(conn, schema, table)) {
+        Log.warn("Frames in " + schema + "." + table + " can not be deleted without a " + ROOT + " column");
+        return false;
+      }
+      final String sql = "UPDATE " + schema + "." + table + " SET " + ACTIVE + " = ?, " + MODIFIED_BY + " = ?, " + MODIFIED_ON + " = ? WHERE " + ROOT + " = ? AND " + ACTIVE + " = ?";
+      try (PreparedStatement statement = conn.prepareStatement(sql)) {
+        conn.setAutoCommit(false);
+        statement.setBoolean(1, false);
+        statement.setString(2, entity);
+        statement.setTimestamp(3, new Timestamp(new Date().getTime()));
+        statement.setString(4, sysid);
+        statement.setBoolean(5, true);
+        int count = statement.executeUpdate();
+        conn.commit();
+        Log.debug("Deactivated " + count + " fields of frame " + sysid);
+        retval = count > 0;
+      } catch (final SQLException e) {
+        Log.error("Could not delete frame " + sysid + ": " + ExceptionUtil.toString(e));
+        rollback(conn);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Determine if the given table has a Root column, adding the column and its 
+   * index to tables created before it existed.
+   * 
+   * <p>The result is determined once for each table and cached.
+   * 
+   * @return true if the fields of the table record their root frame
+   */
+  private static boolean hasRoot(Connection conn, String schema, String table) {
+    String key;
+    try {
+      key = conn.getMetaData().getURL() + "|" + schema + "." + table;
+    } catch (SQLException e) {
+      key = schema + "." + table;
+    }
+
+    Boolean retval = ROOT_COLUMNS.get(key);
+    if (retval == null) {
+      TableDefinition tabledef = DatabaseUtil.getTableSchema(conn, table);
+      if (tabledef == null || tabledef.findColumn(ROOT) != null) {
+        retval = true;
+      } else {
+        retval = addRoot(conn, schema, table);
+      }
+      ROOT_COLUMNS.put(key, retval);
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Add the Root column and its index to a table created before it existed.
+   * 
+   * @return true if the table was altered, false if the table must be used 
+   *         without a Root column
+   */
+  private static boolean addRoot(Connection conn, String schema, String table) {
+    boolean retval = false;
+    try (Statement statement = conn.createStatement()) {
+      statement.executeUpdate("ALTER TABLE " + schema + "." + table + " ADD " + ROOT + " VARCHAR(36)");
+      statement.executeUpdate(getRootIndex(table, schema));
+      if (!conn.getAutoCommit()) {
+        conn.commit();
+      }
+      Log.info("Added the " + ROOT + " column to " + schema + "." + table);
+      retval = true;
+    } catch (final SQLException e) {
+      Log.warn("Could not add the " + ROOT + " column to " + schema + "." + table + ", frames will be stored without it: " + e.getMessage());
+      rollback(conn);
+    }
+    return retval;
+  }
 
+
+
+
+  /**
+   * Generate the SQL which inserts one field slot.
+   * 
+   * @param rooted true to include the Root column
+   * 
+   * @return the insert SQL or null if the database product is not supported
+   */
+  @SuppressWarnings("unchecked")
+  private static String getInsertSQL(Connection conn, String schema, String table, String dialect, boolean rooted) {
+    String databaseProduct = dialect;
+    if (StringUtil.isBlank(databaseProduct)) {
+      databaseProduct = DatabaseUtil.getProduct(conn);
+    }
+    final SymbolTable sqlsymbols = new SymbolTable();
+    sqlsymbols.put(DatabaseDialect.DB_SCHEMA_SYM, schema);
+    sqlsymbols.put(DatabaseDialect.TABLE_NAME_SYM, table);
+    sqlsymbols.put(DatabaseDialect.FIELD_NAMES_SYM, SYSID + ", " + ACTIVE + ", " + PARENT + ", " + (rooted ? ROOT + ", " : "") + SEQUENCE + ", " + NAME + ", " + VALUE + ", " + TYPE + ", " + CREATED_BY + ", " + CREATED_ON + ", " + MODIFIED_BY + ", " + MODIFIED_ON);
+    sqlsymbols.put(DatabaseDialect.FIELD_VALUES_SYM, rooted ? "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?" : "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?");
+    final String retval = DatabaseDialect.getSQL(databaseProduct, DatabaseDialect.INSERT, sqlsymbols);
+    if (retval == null) {
+      Log.error("Cannot support " + databaseProduct + " database product");
+    }
     return retval;
   }
 
 
 
 
+  /**
+   * Add the insert of the given slot to the batch of the statement.
+   * 
+   * @param root the root of the slot, null if the statement has no Root 
+   *        column
+   */
+  private static void addInsert(PreparedStatement preparedStatement, FieldSlot slot, String root, String entity, Timestamp now) throws SQLException {
+    int indx = 1;
+    preparedStatement.setString(indx++, slot.getSysId());
+    preparedStatement.setBoolean(indx++, slot.isActive());
+    preparedStatement.setString(indx++, slot.getParent());
+    if (root != null) {
+      preparedStatement.setString(indx++, root);
+    }
+    preparedStatement.setInt(indx++, slot.getSequence());
+    preparedStatement.setString(indx++, slot.getName());
+    preparedStatement.setString(indx++, slot.getValue());
+    preparedStatement.setShort(indx++, slot.getType());
+    preparedStatement.setString(indx++, entity);
+    preparedStatement.setTimestamp(indx++, now);
+    preparedStatement.setString(indx++, entity);
+    preparedStatement.setTimestamp(indx++, now);
+    preparedStatement.addBatch();
+  }
+
+
+
+
+  private static void rollback(Connection conn) {
+    try {
+      conn.rollback();
+    } catch (SQLException e) {
+      Log.warn("Could not roll-back changes: " + e.getMessage());
+    }
+  }
+
+
+
+
   /**
    * Retrieve a list of slots representing the fields comprising this frame.
    * 
@@ -330,13 +700,7 @@ public abstract class FrameStore {
     List<FieldSlot> retval = new ArrayList<FieldSlot>();
     int seq = 0;
     for (DataField field : frame.getFields()) {
-      String sysid = GUID.randomSecureGUID().toString();
-      if (field.isFrame()) {
-        retval.add(new FieldSlot(sysid, parent, seq++, true, field.getName(), field.getType(), null));
-        retval.addAll(getSlots((DataFrame)field.getObjectValue(), sysid));
-      } else {
-        retval.add(new FieldSlot(sysid, parent, seq++, true, field.getName(), field.getType(), field.getStringValue()));
-      }
+      addSlots(retval, field, parent, seq++);
     }
     return retval;
   }
@@ -344,6 +708,23 @@ public abstract class FrameStore {
 
 
 
+  /**
+   * Add the slot for the given field, and the slots of its fields if it is a 
+   * frame, to the list.
+   */
+  private static void addSlots(List<FieldSlot> slots, DataField field, String parent, int seq) {
+    String sysid = GUID.randomSecureGUID().toString();
+    if (field.isFrame()) {
+      slots.add(new FieldSlot(sysid, parent, seq, true, field.getName(), field.getType(), null));
+      slots.addAll(getSlots((DataFrame)field.getObjectValue(), sysid));
+    } else {
+      slots.add(new FieldSlot(sysid, parent, seq, true, field.getName(), field.getType(), field.getStringValue()));
+    }
+  }
+
+
+
+
   /**
    * Get a table definition for storing data frame fields in a table.
    * 
@@ -358,6 +739,7 @@ public abstract class FrameStore {
     retval.addColumn(new ColumnDefinition(SYSID, ColumnType.STRING).setLength(36).setPrimaryKey(true));
     retval.addColumn(new ColumnDefinition(ACTIVE, ColumnType.BOOLEAN));
     retval.addColumn(new ColumnDefinition(PARENT, ColumnType.STRING).setLength(36).setNullable(true));
+    retval.addColumn(new ColumnDefinition(ROOT, ColumnType.STRING).setLength(36).setNullable(true));
     retval.addColumn(new ColumnDefinition(SEQUENCE, ColumnType.INT).setNullable(true));
     retval.addColumn(new ColumnDefinition(NAME, ColumnType.STRING).setLength(64).setNullable(true));
     retval.addColumn(new ColumnDefinition(VALUE, ColumnType.STRING).setLength(4096).setNullable(true));
@@ -368,4 +750,21 @@ public abstract class FrameStore {
     retval.addColumn(new ColumnDefinition(MODIFIED_ON, ColumnType.DATE));
     return retval;
   }
+
+
+
+
+  /**
+   * Get the SQL which indexes the root identifier of the fields so frames 
+   * can be retrieved with a single query.
+   * 
+   * @param table the name of the table
+   * @param schema name of the schema
+   * 
+   * @return the SQL to create the index
+   */
+  public static String getRootIndex(String table, String schema) {
+    return "CREATE INDEX " + table + "_" + ROOT + "_IDX ON " + schema + "." + table + " (" + ROOT + ", " + ACTIVE + ")";
+  }
+
 }
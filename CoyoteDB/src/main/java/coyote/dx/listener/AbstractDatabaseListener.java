@@ -29,6 +29,7 @@ import coyote.dx.context.TransactionContext;
 import coyote.dx.context.TransformContext;
 import coyote.dx.db.Database;
 import coyote.dx.db.DatabaseConnector;
+import coyote.dx.db.FrameCache;
 import coyote.dx.db.FrameStore;
 import coyote.loader.Loader;
 import coyote.loader.cfg.Config;
@@ -59,6 +60,7 @@ public abstract class AbstractDatabaseListener extends AbstractListener implemen
 
   private boolean initialized = false;
   private static final String SIMPLE_MODE = "SimpleMode";
+  private static final String CACHE = "cache";
   private static final String DEFAULT_IDENTITY = "00000000-0000-0000-0000-000000000000";
 
 
@@ -133,6 +135,7 @@ public abstract class AbstractDatabaseListener extends AbstractListener implemen
           // if there is no schema in the configuration, set it to the same as the username
           if (StringUtil.isBlank(getString(ConfigTag.SCHEMA))) {
             getConfiguration().set(ConfigTag.SCHEMA, database.getUserName());
+            invalidateConfiguration();
           }
         }
       } else {
@@ -487,6 +490,7 @@ public abstract class AbstractDatabaseListener extends AbstractListener implemen
         try {
           stmt = conn.createStatement();
           stmt.executeUpdate(command);
+          stmt.executeUpdate(FrameStore.getRootIndex(table, schema));
 
         } catch (Exception e) {
           Log.error(LogMsg.createMsg(CDX.MSG, "Writer.jdbc_table_create_error", table, e.getMessage()));
@@ -661,6 +665,34 @@ public abstract class AbstractDatabaseListener extends AbstractListener implemen
 
 
 
+  /**
+   * Retrieve the cache of frames shared by all the listeners of this job 
+   * working with the same table.
+   * 
+   * <p>The size of the cache is set with the {@code cache} configuration 
+   * attribute and defaults to {@value FrameCache#DEFAULT_SIZE} frames. A 
+   * size less than 1 disables caching.
+   * 
+   * @return the frame cache for the table or null if caching is disabled
+   */
+  protected FrameCache getCache() {
+    int size = FrameCache.DEFAULT_SIZE;
+    if (configuration.containsIgnoreCase(CACHE)) {
+      try {
+        size = configuration.getAsInt(CACHE);
+      } catch (final DataFrameException e) {
+        Log.warn("Invalid " + CACHE + " size, using default of " + size + ": " + e.getMessage());
+      }
+    }
+    if (size < 1) {
+      return null;
+    }
+    return FrameCache.forContext(getContext(), determineSchema() + "." + getTable(), size);
+  }
+
+
+
+
   /**
    * @return true if this is to serialize the entire frame into the value 
    *         field, false to store each field in a separate row.
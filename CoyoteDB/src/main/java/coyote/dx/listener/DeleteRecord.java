@@ -10,8 +10,11 @@ package coyote.dx.listener;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import coyote.dataframe.DataFrame;
 import coyote.dx.context.ContextListener;
 import coyote.dx.context.TransactionContext;
+import coyote.dx.db.FrameCache;
+import coyote.dx.db.FrameStore;
 import coyote.loader.log.Log;
 
 
@@ -28,6 +31,9 @@ import coyote.loader.log.Log;
  */
 public class DeleteRecord extends AbstractDatabaseListener implements ContextListener {
 
+  /**
+   * @see coyote.dx.listener.AbstractDatabaseListener#execute(coyote.dx.context.TransactionContext)
+   */
   @Override
   public void execute(TransactionContext cntxt) {
     Log.info("Delete Record Listener handling target frame of " + cntxt.getTargetFrame());
@@ -38,6 +44,20 @@ public class DeleteRecord extends AbstractDatabaseListener implements ContextLis
     // The idea is that in-active records will be purged at a later date.
     // This gives the system the ability to maintain historical context
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
+    DataFrame frame = cntxt.getTargetFrame();
+    if (frame != null && frame.containsIgnoreCase(FrameStore.SYSID)) {
+      String sysid = frame.getFieldIgnoreCase(FrameStore.SYSID).getStringValue();
+      boolean deleted = FrameStore.delete(sysid, conn, getIdentity(), determineSchema(), getTable());
+      FrameCache cache = getCache();
+      if (cache != null) {
+        cache.invalidate(sysid);
+      }
+      if (!deleted) {
+        Log.warn("No frame with a SysId of '" + sysid + "' was deleted");
+      }
+    } else {
+      Log.error("No frame from which to retrive the system identifier");
+    }
 
     // if the connector pools connections, it is safe to close the connection
     // otherwise, we should keep it open for later use by this component.
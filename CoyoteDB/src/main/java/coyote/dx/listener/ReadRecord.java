@@ -13,6 +13,7 @@ import java.sql.SQLException;
 import coyote.dataframe.DataFrame;
 import coyote.dx.context.ContextListener;
 import coyote.dx.context.TransactionContext;
+import coyote.dx.db.FrameCache;
 import coyote.dx.db.FrameStore;
 import coyote.loader.log.Log;
 
@@ -25,6 +26,10 @@ import coyote.loader.log.Log;
  * 
  * <p>Transforms can be used to generate the appropriate key values.
  * 
+ * <p>Frames read are cached (see the {@code cache} attribute) and served from
+ * memory until they are updated or deleted by the record listeners of this 
+ * job.
+ * 
  * <p>This listener operates at the end of the transaction context, giving all 
  * other components a chance to process the working frame.
  */
@@ -43,7 +48,14 @@ public class ReadRecord extends AbstractDatabaseListener implements ContextListe
       if (frame.containsIgnoreCase(FrameStore.SYSID)) {
         String sysid = frame.getFieldIgnoreCase(FrameStore.SYSID).getStringValue();
 
-        DataFrame result = FrameStore.read(sysid, connection, getIdentity(), determineSchema(), getTable(), getDatabaseProduct());
+        FrameCache cache = getCache();
+        DataFrame result = (cache != null) ? cache.get(sysid) : null;
+        if (result == null) {
+          result = FrameStore.read(sysid, connection, getIdentity(), determineSchema(), getTable(), getDatabaseProduct());
+          if (cache != null) {
+            cache.put(sysid, result);
+          }
+        }
 
         if (result == null) {
           Log.warn("No results for frame with a SysId of '" + sysid + "'");
@@ -7,12 +7,17 @@
  */
 package coyote.dx.listener;
 
-import coyote.dx.CDX;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import coyote.dataframe.DataField;
+import coyote.dataframe.DataFrame;
+import coyote.dx.ConfigTag;
 import coyote.dx.context.ContextListener;
-import coyote.dx.context.OperationalContext;
 import coyote.dx.context.TransactionContext;
+import coyote.dx.db.FrameCache;
+import coyote.dx.db.FrameStore;
 import coyote.loader.log.Log;
-import coyote.loader.log.LogMsg;
 
 
 /**
@@ -30,44 +35,53 @@ import coyote.loader.log.LogMsg;
  * <p>This listener operates at the end of the transaction context, giving all 
  * other components a chance to process the working frame and the mapper to 
  * generate a properly formatted record for updating in the database.
+ * 
+ * <p>The target frame must contain the {@code SysId} of the stored frame. 
+ * Only the fields which differ from the stored frame are written.
  */
 public class UpdateRecord extends AbstractDatabaseListener implements ContextListener {
 
   /**
-   * @see coyote.dx.listener.AbstractListener#onEnd(coyote.dx.context.OperationalContext)
+   * @see coyote.dx.listener.AbstractDatabaseListener#execute(coyote.dx.context.TransactionContext)
    */
   @Override
-  public void onEnd(OperationalContext context) {
-    if (context instanceof TransactionContext) {
-      TransactionContext cntxt = (TransactionContext)context;
-      if (isEnabled()) {
-        if (getCondition() != null) {
-          try {
-            if (evaluator.evaluateBoolean(getCondition())) {
-              performCreate(cntxt);
-            } else {
-              if (Log.isLogging(Log.DEBUG_EVENTS)) {
-                Log.debug(LogMsg.createMsg(CDX.MSG, "Listener.boolean_evaluation_false", getCondition()));
-              }
-            }
-          } catch (final IllegalArgumentException e) {
-            Log.error(LogMsg.createMsg(CDX.MSG, "Listener.boolean_evaluation_error", getCondition(), e.getMessage()));
-          }
-        } else {
-          performCreate(cntxt);
-        }
-      }
-    }
-  }
+  public void execute(TransactionContext cntxt) {
+    Log.info("Update Record Listener handling target frame of " + cntxt.getTargetFrame());
+    Connection conn = getConnector().getConnection();
 
+    DataFrame frame = cntxt.getTargetFrame();
+    if (frame != null && frame.containsIgnoreCase(FrameStore.SYSID)) {
+      String sysid = frame.getFieldIgnoreCase(FrameStore.SYSID).getStringValue();
 
+      // the system identifier is not part of the stored frame
+      DataFrame record = new DataFrame();
+      for (DataField field : frame.getFields()) {
+        if (!FrameStore.SYSID.equalsIgnoreCase(field.getName())) {
+          record.add(field.getName(), field.getObjectValue());
+        }
+      }
 
+      boolean updated = FrameStore.update(sysid, record, conn, getIdentity(), determineSchema(), getTable(), getDatabaseProduct());
+      FrameCache cache = getCache();
+      if (cache != null) {
+        cache.invalidate(sysid);
+      }
+      if (updated) {
+        cntxt.setProcessingResult(new DataFrame().set(ConfigTag.ID, sysid));
+      } else {
+        Log.warn("Could not update frame with a SysId of '" + sysid + "'");
+      }
+    } else {
+      Log.error("No frame from which to retrive the system identifier");
+    }
 
-  /**
-   * @param cntxt
-   */
-  private void performCreate(TransactionContext cntxt) {
-    Log.info("Update Record Listener handling target frame of " + cntxt.getTargetFrame());
+    if (getConnector().isPooled()) {
+      try {
+        conn.close();
+      } catch (SQLException e) {
+        Log.warn(this.getClass().getName() + " experienced problems closing the database connection: " + e.getMessage());
+      }
+    }
   }
 
 }
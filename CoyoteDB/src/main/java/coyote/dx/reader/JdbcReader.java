@@ -9,15 +9,19 @@ package coyote.dx.reader;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import coyote.commons.StringUtil;
 import coyote.commons.jdbc.DatabaseDialect;
 import coyote.commons.jdbc.DatabaseUtil;
 import coyote.commons.template.Template;
+import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dx.CDB;
 import coyote.dx.CDX;
@@ -35,8 +39,66 @@ import coyote.loader.log.LogMsg;
 
 /**
  * This is a frame reader which uses a JDBC result set to create frames.
+ * 
+ * <p>Results are read through a forward-only, read-only cursor so drivers 
+ * can stream rows instead of materializing the entire result set. The 
+ * number of rows the driver fetches in each round trip is controlled by the 
+ * {@code fetchsize} attribute (default is 1000, 0 uses the driver default).
+ * 
+ * <p>Large extractions can be split into several queries run in parallel, 
+ * each on its own connection and thread, by adding a {@code partition} 
+ * section:<pre>
+ * "Reader": {
+ *   "class": "JdbcReader",
+ *   "source": "jdbc:h2:./data",
+ *   "query": "select * from orders",
+ *   "fetchsize": 5000,
+ *   "partition": { "column": "order_id", "count": 8, "mode": "range" }
+ * }</pre>
+ * 
+ * <p>In {@code range} mode (the default) the minimum and maximum values of 
+ * the numeric column are queried (unless {@code min} and {@code max} are 
+ * given) and the range is divided evenly between the partitions. In 
+ * {@code modulus} mode each partition reads the rows whose column value 
+ * modulo the partition count equals its partition number, negative values 
+ * being shifted into that range. Rows with a null partition column are read 
+ * by the first partition. Frames from all the partitions are merged into the 
+ * engine as they arrive so the order of the frames is not defined.
+ * 
+ * <p>Only the rows added or changed since the last run are read when a 
+ * {@code watermark} section is configured:<pre>
+ * "watermark": { "column": "updated_on", "type": "timestamp", "overlap": 300 }</pre>
+ * 
+ * <p>The largest value of the column (a {@code timestamp} or a monotonically 
+ * increasing {@code number}) read in a run is saved in the transform context 
+ * and only rows with a greater value are selected in the next run. Use a 
+ * persistent context (e.g. FileContext or DatabaseContext) to carry the 
+ * watermark between runs. The watermark is only advanced when all the rows 
+ * were read without error. The {@code overlap} (seconds for timestamps, 
+ * units for numbers) re-reads rows just below the watermark to pick up rows 
+ * which were committed late. An {@code initial} value can limit the first 
+ * run, which otherwise reads all the rows, and {@code name} sets the name of 
+ * the context property holding the watermark.
  */
 public class JdbcReader extends AbstractFrameReader {
+  private static final String FETCH_SIZE = "fetchsize";
+  private static final String PARTITION = "partition";
+  private static final String COLUMN = "column";
+  private static final String COUNT = "count";
+  private static final String MIN = "min";
+  private static final String MAX = "max";
+  private static final String RANGE = "range";
+  private static final String MODULUS = "modulus";
+  private static final String WATERMARK = "watermark";
+
+  /** The default number of rows fetched from the database in each round trip */
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  /** The number of frames each partition can queue ahead of the engine */
+  private static final int QUEUE_DEPTH_PER_PARTITION = 1024;
+
+  /** Placed in the queue by each partition when it has no more rows */
+  private static final Object END_OF_PARTITION = new Object();
 
   /** The thing we use to get connections to the database */
   private DatabaseConnector connector = null;
@@ -45,11 +107,28 @@ public class JdbcReader extends AbstractFrameReader {
   protected Connection connection;
 
   private ResultSet result = null;
-  private Statement statement = null;
+  private PreparedStatement statement = null;
   private volatile boolean EOF = true;
   private ResultSetMetaData rsmd = null;
   private int columnCount = 0;
 
+  /** The row read ahead of the engine to detect the last frame */
+  private boolean hasRow = false;
+
+  /** Frames read by the partitions waiting to be passed to the engine */
+  private BlockingQueue<Object> partitionQueue = null;
+  private Thread[] partitionThreads = null;
+  private int activePartitions = 0;
+  private DataFrame nextFrame = null;
+  private volatile boolean stopPartitions = false;
+  private volatile String partitionError = null;
+
+  /** The high-water mark of incremental reads, null to read all rows */
+  private Watermark watermark = null;
+
+  /** The lower bound set on the watermark parameter of each query */
+  private Object watermarkBound = null;
+
 
 
 
@@ -122,6 +201,7 @@ public class JdbcReader extends AbstractFrameReader {
           // if there is no schema in the configuration, set it to the same as the username
           if (StringUtil.isBlank(getString(ConfigTag.SCHEMA))) {
             getConfiguration().set(ConfigTag.SCHEMA, database.getUserName());
+            invalidateConfiguration();
           }
         }
       } else {
@@ -132,20 +212,37 @@ public class JdbcReader extends AbstractFrameReader {
 
       if (connection != null) {
         String query = getString(ConfigTag.QUERY);
-        Log.debug(LogMsg.createMsg(CDX.MSG, "Component.using_query", this.getClass().getSimpleName(), query));
 
-        try {
-          statement = connection.createStatement(ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_READ_ONLY);
-          result = statement.executeQuery(query);
-          rsmd = result.getMetaData();
-          columnCount = rsmd.getColumnCount();
+        DataField mark = getConfiguration().getFieldIgnoreCase(WATERMARK);
+        if (mark != null && mark.isFrame()) {
+          try {
+            watermark = new Watermark(new Config((DataFrame)mark.getObjectValue()), getClass().getSimpleName());
+            watermark.load(context);
+            watermarkBound = watermark.getLowerBound();
+            query = watermark.apply(query);
+            Log.debug(getClass().getSimpleName() + " reading rows after " + watermark.getName() + " value of " + watermarkBound);
+          } catch (ConfigurationException | IllegalArgumentException e) {
+            context.setError(getClass().getSimpleName() + " invalid " + WATERMARK + " configuration: " + e.getMessage());
+            return;
+          }
+        }
+        Log.debug(LogMsg.createMsg(CDX.MSG, "Component.using_query", this.getClass().getSimpleName(), query));
 
-          if (result.isBeforeFirst()) {
-            EOF = false;
+        DataField partition = getConfiguration().getFieldIgnoreCase(PARTITION);
+        if (partition != null && partition.isFrame()) {
+          openPartitions(query, new Config((DataFrame)partition.getObjectValue()));
+        } else {
+          try {
+            statement = prepareStatement(connection, query);
+            result = statement.executeQuery();
+            rsmd = result.getMetaData();
+            columnCount = rsmd.getColumnCount();
+            hasRow = result.next();
+            EOF = !hasRow;
+          } catch (SQLException e) {
+            String msg = LogMsg.createMsg(CDB.MSG, "Component.error_quering_database", getClass().getSimpleName(), e.getMessage().trim(), query).toString();
+            context.setError(msg);
           }
-        } catch (SQLException e) {
-          String msg = LogMsg.createMsg(CDB.MSG, "Component.error_quering_database", getClass().getSimpleName(), e.getMessage().trim(), query).toString();
-          context.setError(msg);
         }
       } else {
         String msg = LogMsg.createMsg(CDX.MSG, "Component.could_not_connect_to_source", getClass().getSimpleName(), getSource()).toString();
@@ -169,30 +266,44 @@ public class JdbcReader extends AbstractFrameReader {
   public DataFrame read(TransactionContext context) {
     DataFrame retval = null;
 
-    if (result != null) {
+    if (partitionQueue != null) {
+      if (fetchPartitionFrame()) {
+        retval = nextFrame;
+        nextFrame = null;
+        if (!fetchPartitionFrame()) {
+          EOF = true;
+          context.setLastFrame(true);
+        }
+      } else {
+        EOF = true;
+      }
+      if (partitionError != null) {
+        context.setError(partitionError);
+      }
+      if (watermark != null) {
+        watermark.track(retval);
+      }
+    } else if (result != null && hasRow) {
       try {
-        if (result.next()) {
-          retval = new DataFrame();
-
-          if (result.isLast()) {
-            EOF = true;
-            context.setLastFrame(true);
-          }
-
-          for (int i = 1; i <= columnCount; i++) {
-            retval.add(rsmd.getColumnName(i), DatabaseDialect.resolveValue(result.getObject(i), rsmd.getColumnType(i)));
-          }
+        retval = createFrame(result, rsmd, columnCount);
+        if (watermark != null) {
+          watermark.track(retval);
+        }
 
-          context.setLastFrame(result.isLast());
-        } else {
-          Log.error("Read past EOF");
+        // read ahead; forward-only cursors do not reliably support isLast()
+        hasRow = result.next();
+        if (!hasRow) {
           EOF = true;
+          context.setLastFrame(true);
         }
       } catch (SQLException e) {
         e.printStackTrace();
         EOF = true;
       }
     } else {
+      if (result != null) {
+        Log.error("Read past EOF");
+      }
       EOF = true;
     }
 
@@ -213,12 +324,330 @@ public class JdbcReader extends AbstractFrameReader {
 
 
 
+  /**
+   * Create a frame from the current row of the result set.
+   * 
+   * @param result the result set positioned on the row to read
+   * @param rsmd the metadata of the result set
+   * @param columnCount the number of columns in the result set
+   * 
+   * @return a frame containing the values of the current row
+   * 
+   * @throws SQLException if the row could not be read
+   */
+  private static DataFrame createFrame(ResultSet result, ResultSetMetaData rsmd, int columnCount) throws SQLException {
+    DataFrame retval = new DataFrame();
+    for (int i = 1; i <= columnCount; i++) {
+      retval.add(rsmd.getColumnName(i), DatabaseDialect.resolveValue(result.getObject(i), rsmd.getColumnType(i)));
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Prepare a forward-only, read-only statement using the configured fetch 
+   * size, binding the lower bound of the watermark if there is one.
+   * 
+   * @param conn the connection on which to create the statement
+   * @param sql the query to prepare
+   * 
+   * @return a statement suitable for streaming results
+   * 
+   * @throws SQLException if the statement could not be created
+   */
+  private PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+    PreparedStatement retval = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    int fetchSize = getFetchSize();
+    if (fetchSize != 0) {
+      retval.setFetchSize(fetchSize);
+    }
+    if (watermarkBound != null) {
+      retval.setObject(1, watermarkBound);
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @return the number of rows to fetch in each round trip to the database
+   */
+  public int getFetchSize() {
+    if (getConfiguration().containsIgnoreCase(FETCH_SIZE)) {
+      return getInteger(FETCH_SIZE);
+    }
+    return DEFAULT_FETCH_SIZE;
+  }
+
+
+
+
+  /**
+   * Start a thread for each partition of the query.
+   * 
+   * @param query the query to partition
+   * @param cfg the partition configuration
+   */
+  private void openPartitions(String query, Config cfg) {
+    String column = cfg.getString(COLUMN);
+    int count = 0;
+    String value = cfg.getString(COUNT);
+    if (StringUtil.isNotBlank(value)) {
+      try {
+        count = Integer.parseInt(value.trim());
+      } catch (NumberFormatException ignore) {
+        // reported below
+      }
+    }
+    if (StringUtil.isBlank(column) || count < 1) {
+      getContext().setError(getClass().getSimpleName() + " partition requires a '" + COLUMN + "' and a positive '" + COUNT + "'");
+      return;
+    }
+
+    String[] queries;
+    try {
+      String mode = cfg.getString(ConfigTag.MODE);
+      if (StringUtil.isBlank(mode) || RANGE.equalsIgnoreCase(mode)) {
+        queries = rangePartitions(query, column, count, cfg.getString(MIN), cfg.getString(MAX));
+      } else if (MODULUS.equalsIgnoreCase(mode)) {
+        queries = modulusPartitions(query, column, count, DatabaseUtil.getProduct(connection));
+      } else {
+        getContext().setError(getClass().getSimpleName() + " unsupported partition mode '" + mode + "'");
+        return;
+      }
+    } catch (SQLException | NumberFormatException e) {
+      String msg = LogMsg.createMsg(CDB.MSG, "Component.error_quering_database", getClass().getSimpleName(), e.getMessage().trim(), query).toString();
+      getContext().setError(msg);
+      return;
+    }
+
+    partitionQueue = new ArrayBlockingQueue<Object>(QUEUE_DEPTH_PER_PARTITION * queries.length);
+    partitionThreads = new Thread[queries.length];
+    activePartitions = queries.length;
+    stopPartitions = false;
+    partitionError = null;
+    for (int x = 0; x < queries.length; x++) {
+      final String partitionQuery = queries[x];
+      Log.debug(getClass().getSimpleName() + " partition " + x + " query: " + partitionQuery);
+      partitionThreads[x] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          readPartition(partitionQuery);
+        }
+      }, getClass().getSimpleName() + "-partition-" + x);
+      partitionThreads[x].setDaemon(true);
+      partitionThreads[x].start();
+    }
+    EOF = false;
+  }
+
+
+
+
+  /**
+   * Generate the queries which split the given query into evenly sized 
+   * ranges of the partition column.
+   * 
+   * @return one query for each partition
+   * 
+   * @throws SQLException if the bounds of the column could not be queried
+   */
+  private String[] rangePartitions(String query, String column, int count, String min, String max) throws SQLException {
+    long low;
+    long high;
+    if (StringUtil.isNotBlank(min) && StringUtil.isNotBlank(max)) {
+      low = Long.parseLong(min.trim());
+      high = Long.parseLong(max.trim());
+    } else {
+      try (PreparedStatement stmt = prepareStatement(connection, "SELECT MIN(" + column + "), MAX(" + column + ") FROM (" + query + ") cdx_bounds"); ResultSet rs = stmt.executeQuery()) {
+        if (!rs.next() || rs.getObject(1) == null) {
+          // no rows with a value; the first partition will read any null values
+          return new String[]{partitionQuery(query, column + " IS NULL")};
+        }
+        low = rs.getLong(1);
+        high = rs.getLong(2);
+      }
+    }
+
+    long width = Math.max(1, (high - low) / count + 1);
+    String[] retval = new String[count];
+    for (int x = 0; x < count; x++) {
+      long start = low + (width * x);
+      StringBuilder b = new StringBuilder();
+      if (x == 0) {
+        b.append("(").append(column).append(" IS NULL OR ").append(column).append(" < ").append(start + width).append(")");
+      } else if (x == count - 1) {
+        b.append(column).append(" >= ").append(start);
+      } else {
+        b.append(column).append(" >= ").append(start).append(" AND ").append(column).append(" < ").append(start + width);
+      }
+      retval[x] = partitionQuery(query, b.toString());
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Generate the queries which split the given query by the remainder of the 
+   * partition column divided by the partition count.
+   * 
+   * @return one query for each partition
+   */
+  private static String[] modulusPartitions(String query, String column, int count, String product) {
+    String[] retval = new String[count];
+    for (int x = 0; x < count; x++) {
+      String remainder;
+      // the remainder of a negative value is negative on most databases, so 
+      // shift it into the range of the partition numbers
+      if (DatabaseDialect.MSQL.equalsIgnoreCase(product)) {
+        remainder = "((" + column + " % " + count + ") + " + count + ") % " + count;
+      } else {
+        remainder = "MOD(MOD(" + column + ", " + count + ") + " + count + ", " + count + ")";
+      }
+      if (x == 0) {
+        retval[x] = partitionQuery(query, "(" + column + " IS NULL OR " + remainder + " = 0)");
+      } else {
+        retval[x] = partitionQuery(query, remainder + " = " + x);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  private static String partitionQuery(String query, String predicate) {
+    return "SELECT * FROM (" + query + ") cdx_partition WHERE " + predicate;
+  }
+
+
+
+
+  /**
+   * Run by each partition thread to read its query into the queue on its own 
+   * connection.
+   * 
+   * @param query the query for this partition
+   */
+  private void readPartition(String query) {
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
+    try {
+      conn = getConnector().getConnection();
+      if (conn == null) {
+        throw new SQLException("Could not connect to source");
+      }
+      stmt = prepareStatement(conn, query);
+      rs = stmt.executeQuery();
+      ResultSetMetaData meta = rs.getMetaData();
+      int columns = meta.getColumnCount();
+      while (!stopPartitions && rs.next()) {
+        enqueue(createFrame(rs, meta, columns));
+      }
+    } catch (SQLException e) {
+      if (partitionError == null) {
+        partitionError = LogMsg.createMsg(CDB.MSG, "Component.error_quering_database", getClass().getSimpleName(), String.valueOf(e.getMessage()).trim(), query).toString();
+        Log.error(partitionError);
+      }
+      stopPartitions = true;
+    } finally {
+      DatabaseUtil.closeQuietly(rs);
+      DatabaseUtil.closeQuietly(stmt);
+      if (conn != connection) {
+        DatabaseUtil.closeQuietly(conn);
+      }
+      enqueue(END_OF_PARTITION);
+    }
+  }
+
+
+
+
+  /**
+   * Place the object in the queue, waiting for space unless the partitions 
+   * are being stopped.
+   */
+  private void enqueue(Object obj) {
+    try {
+      while (!partitionQueue.offer(obj, 100, TimeUnit.MILLISECONDS)) {
+        if (stopPartitions && obj != END_OF_PARTITION) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+
+
+  /**
+   * Make sure the next frame from the partitions is available, waiting for 
+   * the partitions if necessary.
+   * 
+   * @return true if there is a frame to read, false if all the partitions 
+   *         have completed
+   */
+  private boolean fetchPartitionFrame() {
+    try {
+      while (nextFrame == null && activePartitions > 0) {
+        Object obj = partitionQueue.take();
+        if (obj == END_OF_PARTITION) {
+          activePartitions--;
+        } else {
+          nextFrame = (DataFrame)obj;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      activePartitions = 0;
+    }
+    return nextFrame != null;
+  }
+
+
+
+
   /**
    * @see coyote.dx.reader.AbstractFrameReader#close()
    */
   @Override
   public void close() throws IOException {
+    if (partitionThreads != null) {
+      stopPartitions = true;
+      for (Thread thread : partitionThreads) {
+        try {
+          // drain the queue so partitions waiting for space can end
+          while (thread.isAlive()) {
+            partitionQueue.clear();
+            thread.join(100);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      partitionThreads = null;
+      partitionQueue = null;
+    }
+
+    // only advance the watermark when all the rows were read successfully
+    if (watermark != null && EOF && getContext() != null && getContext().isNotInError() && partitionError == null) {
+      if (watermark.save(getContext())) {
+        Log.debug(getClass().getSimpleName() + " advanced " + watermark.getName() + " to " + watermark.getHighValue());
+      }
+    }
+    watermark = null;
+    watermarkBound = null;
     DatabaseUtil.closeQuietly(result);
+    DatabaseUtil.closeQuietly(statement);
     DatabaseUtil.closeQuietly(connection);
     super.close();
   }
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import coyote.commons.StringUtil;
+import coyote.dataframe.DataField;
+import coyote.dataframe.DataFrame;
+import coyote.dx.CDX;
+import coyote.dx.context.TransformContext;
+import coyote.loader.cfg.Config;
+import coyote.loader.cfg.ConfigurationException;
+import coyote.loader.log.Log;
+
+
+/**
+ * The high-water mark of an incremental extraction.
+ *
+ * <p>The watermark is the largest value of a column (a timestamp or a
+ * monotonically increasing number) read in the last successful run. It is
+ * kept in the transform context so persistent contexts carry it from one run
+ * to the next, and only rows with a column value greater than the watermark
+ * are selected in the next run.
+ *
+ * <p>An {@code overlap} (seconds for timestamps, units for numbers) moves the
+ * lower bound back from the watermark so rows which were committed late with
+ * values just below the watermark are still read. Rows in the overlap window
+ * are read again, so the writer should be able to update existing records.
+ */
+class Watermark {
+  static final String COLUMN = "column";
+  static final String TYPE = "type";
+  static final String OVERLAP = "overlap";
+  static final String INITIAL = "initial";
+  static final String NAME = "name";
+  static final String TIMESTAMP = "timestamp";
+  static final String NUMBER = "number";
+
+  private final String column;
+  private final String name;
+  private final boolean timestamp;
+  private final long overlap;
+  private final String initial;
+
+  /** The watermark of the previous run, null if this is the first run */
+  private Object previous = null;
+
+  /** The largest value read in this run */
+  private Object high = null;
+
+
+
+
+  /**
+   * @param cfg the watermark section of the reader configuration
+   * @param prefix prefix of the default context property name
+   *
+   * @throws ConfigurationException if the configuration is not valid
+   */
+  Watermark(final Config cfg, final String prefix) throws ConfigurationException {
+    column = cfg.getString(COLUMN);
+    if (StringUtil.isBlank(column)) {
+      throw new ConfigurationException("Watermark requires a '" + COLUMN + "'");
+    }
+
+    final String type = cfg.getString(TYPE);
+    if (StringUtil.isBlank(type) || TIMESTAMP.equalsIgnoreCase(type)) {
+      timestamp = true;
+    } else if (NUMBER.equalsIgnoreCase(type)) {
+      timestamp = false;
+    } else {
+      throw new ConfigurationException("Unsupported watermark type '" + type + "'");
+    }
+
+    final String value = cfg.getString(OVERLAP);
+    if (StringUtil.isNotBlank(value)) {
+      try {
+        overlap = Long.parseLong(value.trim());
+      } catch (final NumberFormatException e) {
+        throw new ConfigurationException("Watermark " + OVERLAP + " must be a whole number: '" + value + "'");
+      }
+    } else {
+      overlap = 0;
+    }
+
+    final String property = cfg.getString(NAME);
+    name = StringUtil.isNotBlank(property) ? property : prefix + "." + column + ".watermark";
+    initial = cfg.getString(INITIAL);
+  }
+
+
+
+
+  /**
+   * Retrieve the watermark of the previous run from the context, falling
+   * back to the configured initial value.
+   *
+   * @param context the context holding the persisted watermark
+   *
+   * @throws IllegalArgumentException if the watermark could not be parsed
+   */
+  void load(final TransformContext context) {
+    Object value = context.get(name);
+    if (value == null || StringUtil.isBlank(value.toString())) {
+      value = initial;
+    }
+    previous = parse(value);
+    high = null;
+  }
+
+
+
+
+  /**
+   * @return the value above which rows are selected, or null to select all
+   *         the rows
+   */
+  Object getLowerBound() {
+    if (previous == null || overlap == 0) {
+      return previous;
+    }
+    if (timestamp) {
+      return new Timestamp(((Timestamp)previous).getTime() - (overlap * 1000));
+    } else {
+      return ((BigDecimal)previous).subtract(BigDecimal.valueOf(overlap));
+    }
+  }
+
+
+
+
+  /**
+   * Restrict the given query to the rows above the lower bound.
+   *
+   * <p>The returned query contains one parameter marker which is to be bound
+   * to the lower bound.
+   *
+   * @param query the query to restrict
+   *
+   * @return the restricted query or the given query if there is no lower
+   *         bound
+   */
+  String apply(final String query) {
+    if (previous == null) {
+      return query;
+    }
+    return "SELECT * FROM (" + query + ") cdx_watermark WHERE " + column + " > ?";
+  }
+
+
+
+
+  /**
+   * Record the watermark column of the given frame.
+   *
+   * <p>A value which cannot be parsed is logged and ignored, leaving the
+   * watermark unchanged, so one bad row does not end the read.
+   *
+   * @param frame the frame read
+   */
+  void track(final DataFrame frame) {
+    if (frame != null) {
+      final DataField field = frame.getFieldIgnoreCase(column);
+      if (field != null && field.isNotNull()) {
+        final Object value;
+        try {
+          value = parse(field.getObjectValue());
+        } catch (final IllegalArgumentException e) {
+          Log.warn("Ignoring the " + column + " value of '" + field.getObjectValue() + "' for watermark " + name + ": " + e.getMessage());
+          return;
+        }
+        if (value != null && (high == null || compare(value, high) > 0)) {
+          high = value;
+        }
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Place the largest value read in the context so it is persisted as the
+   * watermark for the next run.
+   *
+   * <p>The watermark never moves backwards; it is left unchanged if no rows
+   * above it were read.
+   *
+   * @param context the context in which to save the watermark
+   *
+   * @return true if the watermark was advanced
+   */
+  boolean save(final TransformContext context) {
+    if (high != null && (previous == null || compare(high, previous) > 0)) {
+      context.set(name, format(high));
+      return true;
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * @return the name of the context property holding the watermark
+   */
+  String getName() {
+    return name;
+  }
+
+
+
+
+  /**
+   * @return the largest value read in this run or null if no rows were read
+   */
+  Object getHighValue() {
+    return high;
+  }
+
+
+
+
+  private int compare(final Object value, final Object other) {
+    if (timestamp) {
+      return ((Timestamp)value).compareTo((Timestamp)other);
+    } else {
+      return ((BigDecimal)value).compareTo((BigDecimal)other);
+    }
+  }
+
+
+
+
+  /**
+   * Convert a column or stored value to a Timestamp or BigDecimal.
+   */
+  private Object parse(final Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (timestamp) {
+      if (value instanceof Date) {
+        return new Timestamp(((Date)value).getTime());
+      }
+      if (value instanceof Number) {
+        return new Timestamp(((Number)value).longValue());
+      }
+      final String text = value.toString().trim();
+      if (text.length() == 0) {
+        return null;
+      }
+      try {
+        return new Timestamp(new SimpleDateFormat(CDX.DEFAULT_DATETIME_FORMAT).parse(text).getTime());
+      } catch (final ParseException e) {
+        // fall back to the JDBC escape format without a time zone
+        return Timestamp.valueOf(text);
+      }
+    } else {
+      final String text = value.toString().trim();
+      return text.length() > 0 ? new BigDecimal(text) : null;
+    }
+  }
+
+
+
+
+  private String format(final Object value) {
+    if (timestamp) {
+      return new SimpleDateFormat(CDX.DEFAULT_DATETIME_FORMAT).format((Timestamp)value);
+    } else {
+      return ((BigDecimal)value).toPlainString();
+    }
+  }
+
+}
@@ -305,6 +305,7 @@ public class RunSql extends AbstractTransformTask implements TransformTask {
   public void setBatchSize(final int value) {
     batchsize = value;
     configuration.put(ConfigTag.BATCH, value);
+    invalidateConfiguration();
   }
 
 
@@ -341,6 +342,7 @@ public class RunSql extends AbstractTransformTask implements TransformTask {
    */
   public void setSource(final String value) {
     configuration.put(ConfigTag.SOURCE, value);
+    invalidateConfiguration();
   }
 
 }
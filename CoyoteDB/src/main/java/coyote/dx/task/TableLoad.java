@@ -141,6 +141,7 @@ public class TableLoad extends AbstractTransformTask implements TransformTask {
     if (format.equalsIgnoreCase(CSV)) {
       reader = new CsvReader();
       super.getConfiguration().set(ConfigTag.HEADER, true);
+      invalidateConfiguration();
     } else if (format.equalsIgnoreCase(JSON)) {
       reader = new JsonReader();
     } else if (format.equalsIgnoreCase(XML)) {
@@ -30,7 +30,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import coyote.commons.StringUtil;
 import coyote.commons.Version;
@@ -45,12 +49,12 @@ import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.DataFrameException;
 import coyote.dataframe.FrameSet;
+import coyote.dx.BatchFrameWriter;
 import coyote.dx.CDB;
 import coyote.dx.CDX;
 import coyote.dx.ConfigTag;
 import coyote.dx.ConfigurableComponent;
 import coyote.dx.DataSetMetrics;
-import coyote.dx.FrameWriter;
 import coyote.dx.context.TransformContext;
 import coyote.dx.db.Database;
 import coyote.dx.db.DatabaseConnector;
@@ -71,8 +75,35 @@ import coyote.loader.log.LogMsg;
  * format (DataFrame) is designed to support data types common to many
  * different technologies and therefore dictates what the framework
  * supports.</p>
+ *
+ * <p>By default records are inserted. Setting the {@code mode} to
+ * {@code upsert} and naming the columns identifying a record in {@code key}
+ * inserts new records and updates existing ones using the MERGE,
+ * ON CONFLICT or ON DUPLICATE KEY syntax of the database. Upserts are batched
+ * exactly like inserts:<pre>
+ * "Writer": {
+ *   "class": "JdbcWriter",
+ *   "target": "jdbc:h2:./data",
+ *   "table": "customer",
+ *   "mode": "upsert",
+ *   "key": "customer_id",
+ *   "batch": 5000,
+ *   "staging": "customer_stage"
+ * }</pre>
+ *
+ * <p>The optional {@code staging} table is created with the columns of the
+ * target table if it does not exist. Each batch is inserted into the staging
+ * table and then merged into the target table with a single set-based
+ * statement, after which the staging table is cleared. Only the last record
+ * of a batch with a given key is staged, as a set-based merge cannot apply
+ * two source rows to the same target row. A staging table created by the
+ * writer is dropped when the writer is closed.</p>
  */
-public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, ConfigurableComponent {
+public class JdbcWriter extends AbstractFrameWriter implements BatchFrameWriter, ConfigurableComponent {
+
+  private static final String UPSERT = "upsert";
+  private static final String KEY = "key";
+  private static final String STAGING = "staging";
 
   protected static final SymbolTable symbolTable = new SymbolTable();
 
@@ -105,6 +136,21 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
 
   protected PreparedStatement ps = null;
 
+  /** The columns identifying a record when upserting, null when inserting */
+  private List<String> keys = null;
+
+  /** The table into which batches are loaded before being merged */
+  private String stagingTable = null;
+
+  /** Set when this writer created the staging table and should drop it */
+  private boolean stagingCreated = false;
+
+  /** The SQL which merges the staging table into the target table */
+  private String mergeSQL = null;
+
+  /** The names of the key columns as they appear in the records */
+  private final List<String> keyColumns = new ArrayList<String>();
+
 
 
 
@@ -216,6 +262,7 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
   /**
    * @see java.io.Closeable#close()
    */
+  @SuppressWarnings("unchecked")
   @Override
   public void close() throws IOException {
 
@@ -242,6 +289,20 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
       }
     }
 
+    if (stagingCreated && connection != null) {
+      final SymbolTable symbols = new SymbolTable();
+      symbols.put(DatabaseDialect.DB_SCHEMA_SYM, getSchema());
+      symbols.put(DatabaseDialect.TABLE_NAME_SYM, stagingTable);
+      if (execute(DatabaseDialect.getSQL(database, DatabaseDialect.DROP, symbols))) {
+        try {
+          commit();
+        } catch (final SQLException e) {
+          Log.warn("Could not commit the removal of staging table '" + stagingTable + "': " + e.getMessage());
+        }
+      }
+      stagingCreated = false;
+    }
+
     if (connection != null) {
       // if it looks like we created the connection ourselves (e.g. we have a
       // configured target) close the connection
@@ -272,15 +333,101 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
 
 
   /**
+   * Execute the given SQL command, setting the context in error if it fails.
+   *
+   * @param sql the command to execute
+   *
+   * @return true if the command executed, false if it failed
+   */
+  private boolean execute(final String sql) {
+    Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.executing_sql", getClass().getSimpleName(), sql));
+    try (Statement stmt = getConnection().createStatement()) {
+      stmt.executeUpdate(sql);
+      return true;
+    } catch (final SQLException e) {
+      getContext().setError(LogMsg.createMsg(CDX.MSG, "Writer.preparedstatement_exception", getClass().getSimpleName(), e.getMessage()).toString());
+      return false;
+    }
+  }
+
+
+
+
+  /**
+   * Generate the SQL used to write each record of a batch.
+   *
+   * <p>When upserting through a staging table, this is the insert into the
+   * staging table and the merge statement is generated as well.</p>
+   *
+   * @return the SQL to prepare or null if it could not be generated
+   */
+  private String generateSQL() {
+    if (keys == null) {
+      return generateInsertSQL(getTable());
+    }
+
+    final List<String> columns = new ArrayList<String>();
+    for (final String name : frameset.getColumns()) {
+      columns.add(name);
+    }
+    int updates = columns.size();
+    keyColumns.clear();
+    for (final String key : keys) {
+      boolean found = false;
+      for (final String column : columns) {
+        if (column.equalsIgnoreCase(key)) {
+          keyColumns.add(column);
+          found = true;
+          updates--;
+          break;
+        }
+      }
+      if (!found) {
+        getContext().setError(getClass().getSimpleName() + " key column '" + key + "' is not in the records being written");
+        return null;
+      }
+    }
+    if (updates < 1) {
+      getContext().setError(getClass().getSimpleName() + " cannot upsert records containing only key columns");
+      return null;
+    }
+
+    String retval;
+    if (stagingTable != null) {
+      if (!DatabaseUtil.tableExists(stagingTable, getSchema(), getConnection())) {
+        if (!execute(DatabaseDialect.getCreateStaging(database, getSchema(), getTable(), stagingTable))) {
+          return null;
+        }
+        stagingCreated = true;
+      } else if (!execute("DELETE FROM " + getSchema() + "." + stagingTable)) {
+        return null;
+      }
+      mergeSQL = DatabaseDialect.getMerge(database, getSchema(), getTable(), stagingTable, columns, keys);
+      retval = mergeSQL != null ? generateInsertSQL(stagingTable) : null;
+    } else {
+      retval = DatabaseDialect.getUpsert(database, getSchema(), getTable(), columns, keys);
+    }
+    if (retval == null) {
+      getContext().setError(getClass().getSimpleName() + " does not support upserts into " + database + " databases");
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @param table the name of the table into which the records are inserted
+   *
    * @return the insert SQL appropriate for this frameset
    */
-  private String generateInsertSQL() {
+  private String generateInsertSQL(final String table) {
     final StringBuffer c = new StringBuffer("insert into ");
     final StringBuffer v = new StringBuffer();
 
     c.append(getSchema());
     c.append('.');
-    c.append(getTable());
+    c.append(table);
     c.append(" (");
     for (final String name : frameset.getColumns()) {
       c.append(name);
@@ -638,6 +785,7 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
         // if there is no schema in the configuration, set it to the same as the username
         if (StringUtil.isBlank(getString(ConfigTag.SCHEMA))) {
           getConfiguration().set(ConfigTag.SCHEMA, database.getUserName());
+          invalidateConfiguration();
         }
       }
     } else {
@@ -672,6 +820,26 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
       batchsize = getBatchSize();
     }
 
+    final String mode = getString(ConfigTag.MODE);
+    if (UPSERT.equalsIgnoreCase(mode)) {
+      keys = new ArrayList<String>();
+      final String value = getString(KEY);
+      if (StringUtil.isNotBlank(value)) {
+        for (final String name : value.split(",")) {
+          if (StringUtil.isNotBlank(name)) {
+            keys.add(name.trim());
+          }
+        }
+      }
+      if (keys.isEmpty()) {
+        context.setError(getClass().getSimpleName() + " requires a '" + KEY + "' when the mode is '" + UPSERT + "'");
+      }
+      stagingTable = StringUtil.isNotBlank(getString(STAGING)) ? getString(STAGING) : null;
+      Log.debug(getClass().getSimpleName() + " upserting on " + keys + (stagingTable != null ? " through " + stagingTable : ""));
+    } else if (StringUtil.isNotBlank(mode)) {
+      context.setError(getClass().getSimpleName() + " unsupported mode '" + mode + "'");
+    }
+
   }
 
 
@@ -683,6 +851,7 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
   public void setAutoAdjust(final boolean value) {
     autoAdjust = value;
     configuration.put(ConfigTag.AUTO_ADJUST, value);
+    invalidateConfiguration();
   }
 
 
@@ -693,6 +862,7 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
    */
   public void setAutoCreate(final boolean value) {
     configuration.put(ConfigTag.AUTO_CREATE, value);
+    invalidateConfiguration();
   }
 
 
@@ -704,6 +874,7 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
   public void setBatchSize(final int value) {
     batchsize = value;
     configuration.put(ConfigTag.BATCH, value);
+    invalidateConfiguration();
   }
 
 
@@ -774,7 +945,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           getContext().setError("Cannot add byte arrays to table");
           break;
         case DataField.STRING:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "String"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "String"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, VARCHAR);
           } else {
@@ -782,7 +955,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           }
           break;
         case DataField.S8:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S8-byte"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S8-byte"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, TINYINT);
           } else {
@@ -791,7 +966,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           break;
         case DataField.U8:
         case DataField.S16:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S16-Short"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S16-Short"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, SMALLINT);
           } else {
@@ -800,7 +977,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           break;
         case DataField.U16:
         case DataField.S32:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S32-Integer"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S32-Integer"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, INTEGER);
           } else {
@@ -810,7 +989,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
         case DataField.U32:
         case DataField.S64:
         case DataField.U64:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S64-Long"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "S64-Long"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, BIGINT);
           } else {
@@ -818,7 +999,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           }
           break;
         case DataField.FLOAT:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Float"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Float"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, FLOAT);
           } else {
@@ -826,7 +1009,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           }
           break;
         case DataField.DOUBLE:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Double"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Double"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, DOUBLE);
           } else {
@@ -834,7 +1019,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           }
           break;
         case DataField.BOOLEANTYPE:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Boolean"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Boolean"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, BOOLEAN);
           } else {
@@ -842,7 +1029,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           }
           break;
         case DataField.DATE:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Timestamp"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "Timestamp"));
+          }
           if (field.isNull()) {
             pstmt.setNull(indx, TIMESTAMP);
           } else {
@@ -851,7 +1040,9 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           }
           break;
         case DataField.URI:
-          Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "String"));
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDB.MSG, "Database.saving_field_as", getClass().getSimpleName(), field.getName(), indx, "String"));
+          }
           pstmt.setString(indx, field.getStringValue());
           break;
         case DataField.ARRAY:
@@ -876,6 +1067,7 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
    */
   private void setSchema(final String value) {
     configuration.put(ConfigTag.SCHEMA, value);
+    invalidateConfiguration();
   }
 
 
@@ -886,6 +1078,7 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
    */
   public void setTable(final String value) {
     configuration.put(ConfigTag.TABLE, value);
+    invalidateConfiguration();
   }
 
 
@@ -921,20 +1114,53 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
 
 
 
+  /**
+   * Add all the frames of the engine batch to the current batch at once, 
+   * sending it to the database when it reaches the configured batch size.
+   * 
+   * <p>Conditional and unbatched writes are made one frame at a time.
+   *
+   * @see coyote.dx.BatchFrameWriter#write(java.util.List)
+   */
+  @Override
+  public void write(final List<DataFrame> frames) {
+    if (expression != null || batchsize <= 1) {
+      for (final DataFrame frame : frames) {
+        write(frame);
+      }
+    } else {
+      for (final DataFrame frame : frames) {
+        schema.sample(frame);
+        frameset.add(frame);
+      }
+      if (frameset.size() >= batchsize) {
+        if (Log.isLogging(Log.DEBUG_EVENTS)) {
+          Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_batch", getClass().getSimpleName(), frameset.size(), batchsize));
+        }
+        writeBatch();
+      }
+    }
+  }
+
+
+
+
   private void writeBatch() {
 
     if (SQL == null) {
       // Since this is the first time we have tried to write to the table, make
       // sure the table exists
       if (checkTable()) {
-        SQL = generateInsertSQL();
-        Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.using_sql", getClass().getSimpleName(), SQL));
+        SQL = generateSQL();
+        if (SQL != null) {
+          Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.using_sql", getClass().getSimpleName(), SQL));
 
-        final Connection connection = getConnection();
-        try {
-          ps = connection.prepareStatement(SQL);
-        } catch (final SQLException e) {
-          getContext().setError(LogMsg.createMsg(CDX.MSG, "Writer.preparedstatement_exception", getClass().getSimpleName(), e.getMessage()).toString());
+          final Connection connection = getConnection();
+          try {
+            ps = connection.prepareStatement(SQL);
+          } catch (final SQLException e) {
+            getContext().setError(LogMsg.createMsg(CDX.MSG, "Writer.preparedstatement_exception", getClass().getSimpleName(), e.getMessage()).toString());
+          }
         }
       }
     }
@@ -975,18 +1201,14 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
     if (getContext().isNotInError()) {
       if (batchsize <= 1) {
         final DataFrame frame = frameset.get(0);
-        Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_single_frame", getClass().getSimpleName(), frame.toString()));
-
-        int indx = 1;
-        for (final String name : frameset.getColumns()) {
-          final DataField field = frame.getField(name);
-          setData(ps, indx++, field);
-          if (getContext().isInError()) {
-            break;
-          }
+        if (Log.isLogging(Log.DEBUG_EVENTS)) {
+          Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_single_frame", getClass().getSimpleName(), frame.toString()));
         }
+        bind(frame);
 
-        Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.executing_sql", getClass().getSimpleName(), ps.toString()));
+        if (Log.isLogging(Log.DEBUG_EVENTS)) {
+          Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.executing_sql", getClass().getSimpleName(), ps.toString()));
+        }
 
         try {
           ps.execute();
@@ -996,19 +1218,11 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
 
       } else {
         // Now write a batch
-        for (final DataFrame frame : frameset.getRows()) {
-          Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_frame", this.getClass().getSimpleName(), frame));
-
-          int indx = 1;
-          for (final String name : frameset.getColumns()) {
-            final DataField field = frame.getField(name);
-            if ((field != null) && !field.isNull()) {
-              setData(ps, indx++, field);
-            }
-            if (getContext().isInError()) {
-              break;
-            }
+        for (final DataFrame frame : mergeSQL != null ? lastByKey(frameset.getRows()) : frameset.getRows()) {
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_frame", this.getClass().getSimpleName(), frame));
           }
+          bind(frame);
 
           // add this frame as a record to the batch
           try {
@@ -1026,6 +1240,13 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
           }
         }
       }
+
+      // merge the staged batch into the table with one statement
+      if (mergeSQL != null && getContext().isNotInError()) {
+        if (execute(mergeSQL)) {
+          execute("DELETE FROM " + getSchema() + "." + stagingTable);
+        }
+      }
       frameset.clearRows();
     }
   }
@@ -1033,17 +1254,77 @@ public class JdbcWriter extends AbstractFrameWriter implements FrameWriter, Conf
 
 
 
+  /**
+   * Remove all but the last of the records with the same key so a staged
+   * batch holds at most one source row for each target row.
+   *
+   * @param rows the records of the batch in the order they were written
+   *
+   * @return the last record written for each key
+   */
+  private List<DataFrame> lastByKey(final List<DataFrame> rows) {
+    final Map<List<Object>, DataFrame> retval = new LinkedHashMap<List<Object>, DataFrame>();
+    for (final DataFrame frame : rows) {
+      final List<Object> key = new ArrayList<Object>(keyColumns.size());
+      for (final String column : keyColumns) {
+        final DataField field = frame.getField(column);
+        key.add(field != null ? field.getObjectValue() : null);
+      }
+      retval.put(key, frame);
+    }
+    if (retval.size() < rows.size()) {
+      Log.debug(getClass().getSimpleName() + " staging " + retval.size() + " of " + rows.size() + " records, the rest were replaced by later records with the same key");
+    }
+    return new ArrayList<DataFrame>(retval.values());
+  }
+
+
+
+
+  /**
+   * Set the values of the given frame into the prepared statement in column
+   * order, binding a null for any column the frame does not contain.
+   *
+   * @param frame the frame to bind
+   */
+  private void bind(final DataFrame frame) {
+    int indx = 1;
+    for (final String name : frameset.getColumns()) {
+      final DataField field = frame.getField(name);
+      if (field != null) {
+        setData(ps, indx, field);
+      } else {
+        try {
+          ps.setNull(indx, VARCHAR);
+        } catch (final SQLException e) {
+          getContext().setError("Could not set null value for '" + name + "': " + e.getMessage());
+        }
+      }
+      indx++;
+      if (getContext().isInError()) {
+        break;
+      }
+    }
+  }
+
+
+
+
   /**
    * This is where we actually write the frame.
    *
    * @param frame the frame to be written
    */
   private void writeFrame(final DataFrame frame) {
-    Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_fields", getClass().getSimpleName(), frame.size()));
+    if (Log.isLogging(Log.DEBUG_EVENTS)) {
+      Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_fields", getClass().getSimpleName(), frame.size()));
+    }
     frameset.add(frame);
 
     if (frameset.size() >= batchsize) {
-      Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_batch", getClass().getSimpleName(), frameset.size(), batchsize));
+      if (Log.isLogging(Log.DEBUG_EVENTS)) {
+        Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.writing_batch", getClass().getSimpleName(), frameset.size(), batchsize));
+      }
       writeBatch();
     }
 
@@ -8,13 +8,19 @@
 package coyote.dx.db;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 import java.util.List;
 
 import org.junit.Test;
 
+import coyote.commons.jdbc.DatabaseDialect;
 import coyote.dataframe.DataFrame;
 
 
@@ -82,4 +88,71 @@ public class FrameStoreTest {
     // for(FieldSlot slot: slots){ System.out.println(slot.toString()); }
   }
 
+
+
+
+
+  @Test
+  public void roundTrip() throws Exception {
+    String schema = "PUBLIC";
+    String table = "FRAMES";
+    try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:framestore", "sa", "")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate(DatabaseDialect.getCreate("H2", FrameStore.getTableSchema(table, schema)));
+        stmt.executeUpdate(FrameStore.getRootIndex(table, schema));
+      }
+
+      DataFrame frame = new DataFrame().set("Name", "Bob").set("Address", new DataFrame().set("City", "Omaha").set("Zip", "68101")).set("Age", "42");
+      String sysid = FrameStore.create(frame, conn, "test", schema, table, "H2");
+
+      DataFrame result = FrameStore.read(sysid, conn, "test", schema, table, "H2");
+      assertNotNull(result);
+      assertEquals(3, result.size());
+      assertEquals("Bob", result.getAsString("Name"));
+      assertEquals("Omaha", ((DataFrame)result.getObject("Address")).getAsString("City"));
+      assertEquals("42", result.getAsString("Age"));
+
+      // change one value, replace the nested frame and drop a field
+      DataFrame update = new DataFrame().set("Name", "Robert").set("Address", new DataFrame().set("City", "Lincoln"));
+      assertTrue(FrameStore.update(sysid, update, conn, "test", schema, table, "H2"));
+      result = FrameStore.read(sysid, conn, "test", schema, table, "H2");
+      assertEquals(2, result.size());
+      assertEquals("Robert", result.getAsString("Name"));
+      DataFrame address = (DataFrame)result.getObject("Address");
+      assertEquals(1, address.size());
+      assertEquals("Lincoln", address.getAsString("City"));
+      assertNull(result.getObject("Age"));
+
+      assertTrue(FrameStore.delete(sysid, conn, "test", schema, table));
+      assertNull(FrameStore.read(sysid, conn, "test", schema, table, "H2"));
+      assertFalse(FrameStore.update(sysid, update, conn, "test", schema, table, "H2"));
+    }
+  }
+
+
+
+
+  @Test
+  public void legacyTable() throws Exception {
+    String schema = "PUBLIC";
+    String table = "OLDFRAMES";
+    try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:framestore", "sa", "")) {
+      // a table created before fields recorded their root frame
+      try (Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate("CREATE TABLE " + schema + "." + table + " (SysId VARCHAR(36) PRIMARY KEY, Active BOOLEAN, Parent VARCHAR(36), Sequence INT, Name VARCHAR(64), Value VARCHAR(4096), Type SMALLINT, CreatedBy VARCHAR(36), CreatedOn TIMESTAMP, ModifiedBy VARCHAR(36), ModifiedOn TIMESTAMP)");
+      }
+
+      DataFrame frame = new DataFrame().set("Name", "Bob").set("Address", new DataFrame().set("City", "Omaha"));
+      String sysid = FrameStore.create(frame, conn, "test", schema, table, "H2");
+      DataFrame result = FrameStore.read(sysid, conn, "test", schema, table, "H2");
+      assertNotNull(result);
+      assertEquals("Bob", result.getAsString("Name"));
+      assertEquals("Omaha", ((DataFrame)result.getObject("Address")).getAsString("City"));
+
+      // the table was altered so the frame can be updated as a whole
+      assertTrue(FrameStore.update(sysid, new DataFrame().set("Name", "Robert"), conn, "test", schema, table, "H2"));
+      assertEquals("Robert", FrameStore.read(sysid, conn, "test", schema, table, "H2").getAsString("Name"));
+    }
+  }
+
 }
@@ -7,11 +7,13 @@
  */
 package coyote.dx.reader;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
@@ -189,4 +191,188 @@ public class JdbcReaderTest {
     }
   }
 
+
+
+
+  @Test
+  public void rangePartitionedRead() {
+    DataFrame partition = new DataFrame().set("column", "VisitCount").set("count", 4).set(ConfigTag.MODE, "range");
+    assertEquals(50, partitionedRead(partition));
+  }
+
+
+
+
+  @Test
+  public void modulusPartitionedRead() {
+    DataFrame partition = new DataFrame().set("column", "VisitCount").set("count", 3).set(ConfigTag.MODE, "modulus");
+    assertEquals(50, partitionedRead(partition));
+  }
+
+
+
+
+  @Test
+  public void modulusPartitionedNegativeRead() {
+    // every partition must read its share of negative keys
+    DataFrame partition = new DataFrame().set("column", "VisitCount").set("count", 3).set(ConfigTag.MODE, "modulus");
+    assertEquals(50, partitionedRead(partition, "select Username, 0 - CAST(Visits AS INT) AS VisitCount from " + TABLE + ""));
+  }
+
+
+
+
+  @Test
+  public void watermarkRead() {
+    TransformContext context = new TransformContext();
+    DataFrame watermark = new DataFrame().set("column", "VisitCount").set("type", "number");
+
+    // first run reads everything and records the largest value
+    assertEquals(50, incrementalRead(context, watermark));
+    assertEquals("982", context.get("JdbcReader.VisitCount.watermark"));
+
+    // nothing has changed since the last run
+    assertEquals(0, incrementalRead(context, watermark));
+
+    // the overlap re-reads the rows just below the watermark
+    watermark.set("overlap", 100);
+    assertEquals(5, incrementalRead(context, watermark));
+    assertEquals("982", context.get("JdbcReader.VisitCount.watermark"));
+  }
+
+
+
+
+  @Test
+  public void watermarkIgnoresBadValues() throws Exception {
+    Watermark watermark = new Watermark(new Config(new DataFrame().set("column", "VisitCount").set("type", "number")), "JdbcReader");
+    watermark.track(new DataFrame().set("VisitCount", 12));
+    watermark.track(new DataFrame().set("VisitCount", "twelve"));
+    watermark.track(new DataFrame().set("VisitCount", " "));
+    assertEquals(0, new BigDecimal(12).compareTo((BigDecimal)watermark.getHighValue()));
+  }
+
+
+
+
+  /**
+   * Read the records above the watermark stored in the given context.
+   * 
+   * @param context the context holding the watermark between runs
+   * @param watermark the watermark configuration
+   * 
+   * @return the number of frames read
+   */
+  private int incrementalRead(TransformContext context, DataFrame watermark) {
+    DataFrame cfg = new DataFrame() //
+        .set(ConfigTag.SOURCE, DB_URL) //
+        .set(ConfigTag.DRIVER, JDBC_DRIVER) //
+        .set(ConfigTag.USERNAME, USER) //
+        .set(ConfigTag.PASSWORD, PASS) //
+        .set("watermark", watermark) //
+        .set(ConfigTag.QUERY, "select Username, CAST(Visits AS INT) AS VisitCount from " + TABLE + "");
+    Config config = new Config(cfg);
+
+    int count = 0;
+    JdbcReader reader = new JdbcReader();
+    try {
+      reader.setConfiguration(config);
+      reader.open(context);
+      assertFalse(context.getErrorMessage(), context.isInError());
+
+      TransactionContext txncontext = new TransactionContext(context);
+      while (!reader.eof()) {
+        DataFrame frame = reader.read(txncontext);
+        if (frame == null) {
+          break;
+        }
+        count++;
+        if (count > 250) {
+          break;
+        }
+      }
+      assertFalse(txncontext.isInError());
+    } catch (Exception e) {
+      Log.error(e);
+      fail("Exception:" + e);
+    } finally {
+      try {
+        reader.close();
+      } catch (Exception ignore) {
+        // be quiet
+      }
+    }
+    return count;
+  }
+
+
+
+
+  /**
+   * Read all the records through a partitioned reader.
+   * 
+   * @param partition the partition configuration
+   * 
+   * @return the number of frames read
+   */
+  private int partitionedRead(DataFrame partition) {
+    return partitionedRead(partition, "select Username, CAST(Visits AS INT) AS VisitCount from " + TABLE + "");
+  }
+
+
+
+
+  /**
+   * Read all the records of the given query through a partitioned reader.
+   * 
+   * @param partition the partition configuration
+   * @param query the query to partition
+   * 
+   * @return the number of frames read
+   */
+  private int partitionedRead(DataFrame partition, String query) {
+    DataFrame cfg = new DataFrame() //
+        .set(ConfigTag.SOURCE, DB_URL) //
+        .set(ConfigTag.DRIVER, JDBC_DRIVER) //
+        .set(ConfigTag.USERNAME, USER) //
+        .set(ConfigTag.PASSWORD, PASS) //
+        .set("fetchsize", 10) //
+        .set("partition", partition) //
+        .set(ConfigTag.QUERY, query);
+    Config config = new Config(cfg);
+
+    int count = 0;
+    JdbcReader reader = new JdbcReader();
+    try {
+      reader.setConfiguration(config);
+      TransformContext context = new TransformContext();
+      reader.open(context);
+      assertFalse(context.getErrorMessage(), context.isInError());
+
+      TransactionContext txncontext = new TransactionContext(context);
+      while (!reader.eof()) {
+        DataFrame frame = reader.read(txncontext);
+        if (frame == null) {
+          break;
+        }
+        count++;
+        if (count > 250) {
+          break;
+        }
+      }
+      assertTrue(txncontext.isLastFrame());
+      assertFalse(txncontext.isInError());
+    } catch (Exception e) {
+      Log.error(e);
+      fail("Exception:" + e);
+    } finally {
+      try {
+        reader.close();
+      } catch (Exception ignore) {
+        // be quiet
+      }
+    }
+    return count;
+  }
+
 }
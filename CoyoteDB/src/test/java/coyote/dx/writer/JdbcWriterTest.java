@@ -7,17 +7,23 @@
  */
 package coyote.dx.writer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import coyote.TestingLoader;
+import coyote.commons.jdbc.DatabaseUtil;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.marshal.JSONMarshaler;
 import coyote.dx.ConfigTag;
@@ -42,6 +48,7 @@ public class JdbcWriterTest {
   private static final String PASS = "password";
   private static final String SCHEMA = "test";
   private static final String TABLE = "testdata";
+  private static final String UPSERT_TABLE = "customer";
 
 
 
@@ -168,4 +175,73 @@ public class JdbcWriterTest {
     assertFalse(fixture.isPooled());
   }
 
+
+
+  @Test
+  public void upsert() throws Exception {
+    try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS); Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+      stmt.executeUpdate("CREATE TABLE " + SCHEMA + "." + UPSERT_TABLE + " (id INTEGER PRIMARY KEY, name VARCHAR(32))");
+    }
+
+    writeCustomers(null, new DataFrame().set("id", 1).set("name", "Alice"), new DataFrame().set("id", 2).set("name", "Bob"));
+    writeCustomers(null, new DataFrame().set("id", 2).set("name", "Robert"), new DataFrame().set("id", 3).set("name", "Carol"));
+    assertEquals(3, countCustomers(null));
+    assertEquals(1, countCustomers("name = 'Robert'"));
+
+    // batches loaded into a staging table then merged
+    writeCustomers("customer_stage", new DataFrame().set("id", 3).set("name", "Caroline"), new DataFrame().set("id", 4).set("name", "Dave"));
+    assertEquals(4, countCustomers(null));
+    assertEquals(1, countCustomers("name = 'Caroline'"));
+    try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
+      assertFalse(DatabaseUtil.tableExists("customer_stage", SCHEMA, conn));
+    }
+
+    // the last record with a key in a staged batch wins
+    writeCustomers("customer_stage", new DataFrame().set("id", 5).set("name", "Eve"), new DataFrame().set("id", 4).set("name", "David"), new DataFrame().set("id", 5).set("name", "Evelyn"));
+    assertEquals(5, countCustomers(null));
+    assertEquals(1, countCustomers("id = 5 AND name = 'Evelyn'"));
+    assertEquals(1, countCustomers("id = 4 AND name = 'David'"));
+  }
+
+
+
+
+  private void writeCustomers(String staging, DataFrame... frames) throws Exception {
+    DataFrame cfg = new DataFrame() //
+        .set(ConfigTag.TARGET, DB_URL) //
+        .set(ConfigTag.DRIVER, JDBC_SOURCE) //
+        .set(ConfigTag.USERNAME, USER) //
+        .set(ConfigTag.PASSWORD, PASS) //
+        .set(ConfigTag.SCHEMA, SCHEMA) //
+        .set(ConfigTag.TABLE, UPSERT_TABLE) //
+        .set(ConfigTag.BATCH, 10) //
+        .set(ConfigTag.MODE, "upsert") //
+        .set("key", "id");
+    if (staging != null) {
+      cfg.set("staging", staging);
+    }
+
+    TransformContext context = new TransformContext();
+    JdbcWriter writer = new JdbcWriter();
+    writer.setConfiguration(new Config(cfg));
+    writer.open(context);
+    for (DataFrame frame : frames) {
+      writer.write(frame);
+    }
+    writer.close();
+    assertFalse(context.getErrorMessage(), context.isInError());
+  }
+
+
+
+
+  private int countCustomers(String condition) throws Exception {
+    String sql = "SELECT COUNT(*) FROM " + SCHEMA + "." + UPSERT_TABLE + (condition != null ? " WHERE " + condition : "");
+    try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
 }
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2017 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+
+/**
+ * Evaluates a set of regular expressions against a value with a single pass
+ * over its characters.
+ * 
+ * <p>The literal prefix of each expression (e.g. {@code 4} in
+ * {@code ^4[0-9]{12}(?:[0-9]{3})?$}) is placed in an Aho-Corasick automaton.
+ * A value is scanned once through the automaton to determine which
+ * expressions could possibly match it, and only those candidate expressions
+ * are then evaluated with the regular expression engine. Expressions for
+ * which no literal prefix can be determined, including those whose prefix is
+ * empty once an optional character is removed, are always candidates; when
+ * no expression has a prefix the value is not scanned at all.
+ * 
+ * <p>In full-match mode (the semantics of {@code Matcher.matches()}) and for
+ * expressions starting with {@code ^}, the prefix must appear at the start of
+ * the value. Otherwise (the semantics of {@code Matcher.find()}) the prefix
+ * may appear anywhere in the value.
+ * 
+ * <p>Instances are immutable after construction and may be shared between
+ * threads as long as each thread supplies its own candidate {@code BitSet}.
+ */
+public class MultiPatternMatcher {
+
+  /** Characters which end the literal prefix of an expression */
+  private static final String META_CHARACTERS = "\\[](){}.*+?^$|";
+
+  /** Quantifiers which make the preceding literal character optional */
+  private static final String OPTIONAL_QUANTIFIERS = "*?{";
+
+  private final Pattern[] patterns;
+  private final String[] prefixes;
+  private final boolean[] anchored;
+  private final boolean fullMatch;
+
+  /** Expressions which have no literal prefix and must always be evaluated */
+  private final BitSet unfiltered = new BitSet();
+
+  /** Position past which no anchored prefix can be found */
+  private int anchoredLimit = 0;
+
+  /** True if there are unanchored prefixes requiring a scan of the entire value */
+  private boolean scanAll = false;
+
+  // The automaton; node 0 is the root
+  private char[][] edgeChars;
+  private int[][] edgeTargets;
+  private int[] failure;
+  private int[][] outputs;
+
+
+
+
+  /**
+   * Create a matcher for the given expressions.
+   * 
+   * @param expressions the regular expressions to evaluate; null entries are
+   *        allowed and never match
+   * @param fullMatch true to use {@code Matcher.matches()} semantics, false
+   *        to use {@code Matcher.find()} semantics
+   */
+  public MultiPatternMatcher(final List<String> expressions, final boolean fullMatch) {
+    this.fullMatch = fullMatch;
+    final int size = expressions.size();
+    patterns = new Pattern[size];
+    prefixes = new String[size];
+    anchored = new boolean[size];
+
+    for (int x = 0; x < size; x++) {
+      final String regex = expressions.get(x);
+      if (regex != null) {
+        patterns[x] = PatternCache.compile(regex);
+        prefixes[x] = literalPrefix(regex);
+        anchored[x] = fullMatch || regex.startsWith("^");
+        if (prefixes[x] == null) {
+          unfiltered.set(x);
+        } else if (anchored[x]) {
+          anchoredLimit = Math.max(anchoredLimit, prefixes[x].length());
+        } else {
+          scanAll = true;
+        }
+      }
+    }
+    buildAutomaton();
+  }
+
+
+
+
+  /**
+   * @return the number of expressions in this matcher
+   */
+  public int size() {
+    return patterns.length;
+  }
+
+
+
+
+  /**
+   * @param index the index of the expression
+   * 
+   * @return the compiled pattern at the given index, may be null
+   */
+  public Pattern getPattern(final int index) {
+    return patterns[index];
+  }
+
+
+
+
+  /**
+   * @param index the index of the expression
+   * 
+   * @return the literal prefix used to pre-filter the expression at the given
+   *         index, or null if the expression is always evaluated
+   */
+  public String getPrefix(final int index) {
+    return prefixes[index];
+  }
+
+
+
+
+  /**
+   * Scan the value once and mark the expressions which could match it.
+   * 
+   * <p>The given set is cleared before the scan so it can be reused between
+   * calls without allocating.
+   * 
+   * @param value the value to scan
+   * @param candidates the set to receive the indexes of candidate expressions
+   * 
+   * @return the candidates set passed in
+   */
+  public BitSet candidates(final CharSequence value, final BitSet candidates) {
+    candidates.clear();
+    candidates.or(unfiltered);
+    // values are only scanned when some expression has a prefix
+    if (value != null && (scanAll || anchoredLimit > 0)) {
+      final int length = scanAll ? value.length() : Math.min(value.length(), anchoredLimit);
+      int state = 0;
+      for (int pos = 0; pos < length; pos++) {
+        state = next(state, value.charAt(pos));
+        final int[] found = outputs[state];
+        for (int x = 0; x < found.length; x++) {
+          final int index = found[x];
+          if (!anchored[index] || pos + 1 == prefixes[index].length()) {
+            candidates.set(index);
+          }
+        }
+      }
+    }
+    return candidates;
+  }
+
+
+
+
+  /**
+   * Determine if the expression at the given index matches the value.
+   * 
+   * @param index the index of the expression to evaluate
+   * @param value the value to test
+   * @param candidates the candidates previously determined for this value by
+   *        {@link #candidates(CharSequence, BitSet)}
+   * 
+   * @return true if the expression matches the value, false otherwise
+   */
+  public boolean matches(final int index, final CharSequence value, final BitSet candidates) {
+    boolean retval = false;
+    if (value != null && patterns[index] != null && candidates.get(index)) {
+      if (fullMatch) {
+        retval = patterns[index].matcher(value).matches();
+      } else {
+        retval = patterns[index].matcher(value).find();
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Evaluate all the expressions against the value.
+   * 
+   * @param value the value to test
+   * 
+   * @return the set of indexes of the expressions which match the value
+   */
+  public BitSet match(final CharSequence value) {
+    final BitSet retval = candidates(value, new BitSet(patterns.length));
+    for (int index = retval.nextSetBit(0); index >= 0; index = retval.nextSetBit(index + 1)) {
+      if (!matches(index, value, retval)) {
+        retval.clear(index);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Determine the literal text with which every match of the given regular
+   * expression must begin.
+   * 
+   * <p>This is intentionally conservative: any construct which is not a
+   * plain literal character ends the prefix and expressions with a top-level
+   * alternation or leading group have no prefix at all.
+   * 
+   * @param regex the regular expression to examine
+   * 
+   * @return the literal prefix or null if one could not be determined
+   */
+  public static String literalPrefix(final String regex) {
+    if (regex == null || regex.length() == 0 || hasTopLevelAlternation(regex)) {
+      return null;
+    }
+
+    final StringBuilder b = new StringBuilder();
+    for (int x = regex.startsWith("^") ? 1 : 0; x < regex.length(); x++) {
+      final char c = regex.charAt(x);
+      if (META_CHARACTERS.indexOf(c) >= 0) {
+        if (OPTIONAL_QUANTIFIERS.indexOf(c) >= 0 && b.length() > 0) {
+          b.setLength(b.length() - 1);
+        }
+        break;
+      }
+      b.append(c);
+    }
+    return b.length() > 0 ? b.toString() : null;
+  }
+
+
+
+
+  /**
+   * @return true if the expression contains an alternation outside of any
+   *         group or character class
+   */
+  private static boolean hasTopLevelAlternation(final String regex) {
+    int depth = 0;
+    boolean inClass = false;
+    for (int x = 0; x < regex.length(); x++) {
+      final char c = regex.charAt(x);
+      if (c == '\\') {
+        x++;
+      } else if (inClass) {
+        if (c == ']') {
+          inClass = false;
+        }
+      } else if (c == '[') {
+        inClass = true;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == '|' && depth == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * Follow the goto and failure functions of the automaton.
+   */
+  private int next(int state, final char c) {
+    while (true) {
+      final int target = edge(state, c);
+      if (target >= 0) {
+        return target;
+      }
+      if (state == 0) {
+        return 0;
+      }
+      state = failure[state];
+    }
+  }
+
+
+
+
+  /**
+   * @return the target node of the edge labeled with the given character or
+   *         -1 if there is no such edge
+   */
+  private int edge(final int state, final char c) {
+    final int x = Arrays.binarySearch(edgeChars[state], c);
+    return x >= 0 ? edgeTargets[state][x] : -1;
+  }
+
+
+
+
+  /**
+   * Build the trie of prefixes then compute the failure links and outputs
+   * with a breadth-first traversal.
+   */
+  private void buildAutomaton() {
+    final List<StringBuilder> labels = new ArrayList<StringBuilder>();
+    final List<List<Integer>> targets = new ArrayList<List<Integer>>();
+    final List<List<Integer>> found = new ArrayList<List<Integer>>();
+    labels.add(new StringBuilder());
+    targets.add(new ArrayList<Integer>());
+    found.add(new ArrayList<Integer>());
+
+    for (int x = 0; x < prefixes.length; x++) {
+      if (prefixes[x] != null) {
+        int state = 0;
+        for (int pos = 0; pos < prefixes[x].length(); pos++) {
+          final char c = prefixes[x].charAt(pos);
+          final int edge = labels.get(state).indexOf(String.valueOf(c));
+          if (edge >= 0) {
+            state = targets.get(state).get(edge);
+          } else {
+            labels.get(state).append(c);
+            targets.get(state).add(labels.size());
+            labels.add(new StringBuilder());
+            targets.add(new ArrayList<Integer>());
+            found.add(new ArrayList<Integer>());
+            state = labels.size() - 1;
+          }
+        }
+        found.get(state).add(x);
+      }
+    }
+
+    // sort the edges of each node so they can be binary searched
+    final int nodes = labels.size();
+    edgeChars = new char[nodes][];
+    edgeTargets = new int[nodes][];
+    for (int node = 0; node < nodes; node++) {
+      final char[] chars = labels.get(node).toString().toCharArray();
+      final char[] sorted = chars.clone();
+      Arrays.sort(sorted);
+      edgeChars[node] = sorted;
+      edgeTargets[node] = new int[sorted.length];
+      for (int x = 0; x < chars.length; x++) {
+        edgeTargets[node][Arrays.binarySearch(sorted, chars[x])] = targets.get(node).get(x);
+      }
+    }
+
+    // failure links; children of the root fail back to the root
+    failure = new int[nodes];
+    final LinkedList<Integer> queue = new LinkedList<Integer>();
+    for (int x = 0; x < edgeTargets[0].length; x++) {
+      queue.add(edgeTargets[0][x]);
+    }
+    while (!queue.isEmpty()) {
+      final int node = queue.removeFirst();
+      for (int x = 0; x < edgeChars[node].length; x++) {
+        final int child = edgeTargets[node][x];
+        int fallback = failure[node];
+        while (fallback != 0 && edge(fallback, edgeChars[node][x]) < 0) {
+          fallback = failure[fallback];
+        }
+        final int target = edge(fallback, edgeChars[node][x]);
+        failure[child] = (target >= 0 && target != child) ? target : 0;
+        found.get(child).addAll(found.get(failure[child]));
+        queue.add(child);
+      }
+    }
+
+    outputs = new int[nodes][];
+    for (int node = 0; node < nodes; node++) {
+      final List<Integer> list = found.get(node);
+      outputs[node] = new int[list.size()];
+      for (int x = 0; x < list.size(); x++) {
+        outputs[node][x] = list.get(x);
+      }
+    }
+  }
+
+}
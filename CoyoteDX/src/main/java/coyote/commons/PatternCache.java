@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.commons;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * A shared cache of compiled regular expressions.
+ * 
+ * <p>Components which evaluate the same expression for every frame (e.g.
+ * evaluator methods, Replace and Split transforms) should retrieve their
+ * patterns from here instead of calling {@code Pattern.compile()}, {@code
+ * String.replaceAll()} or {@code String.split()} which compile the
+ * expression on each call.
+ * 
+ * <p>Compiled patterns are immutable and thread-safe so they can be shared
+ * across components and threads. The cache is bounded; when it fills, the
+ * least recently used expression is dropped so the ones in regular use stay
+ * compiled.
+ */
+public final class PatternCache {
+
+  /** The maximum number of patterns kept in the cache */
+  private static final int MAX_ENTRIES = 512;
+
+  /** Compiled patterns keyed by expression, least recently used first */
+  private static final Map<String, Pattern> CACHE = new LinkedHashMap<String, Pattern>(16, 0.75F, true) {
+    private static final long serialVersionUID = 1L;
+
+
+
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Pattern> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+
+
+
+  /**
+   * Private constructor - utility class
+   */
+  private PatternCache() {}
+
+
+
+
+  /**
+   * Return the compiled pattern for the given regular expression, compiling
+   * and caching it if necessary.
+   * 
+   * @param regex the regular expression to compile
+   * 
+   * @return the compiled pattern
+   * 
+   * @throws java.util.regex.PatternSyntaxException if the expression is not
+   *         valid
+   * @throws NullPointerException if the expression is null
+   */
+  public static Pattern compile(final String regex) {
+    synchronized (CACHE) {
+      Pattern retval = CACHE.get(regex);
+      if (retval == null) {
+        retval = Pattern.compile(regex);
+        CACHE.put(regex, retval);
+      }
+      return retval;
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of patterns currently cached
+   */
+  public static int size() {
+    synchronized (CACHE) {
+      return CACHE.size();
+    }
+  }
+
+
+
+
+  /**
+   * Remove all the compiled patterns from the cache.
+   */
+  public static void clear() {
+    synchronized (CACHE) {
+      CACHE.clear();
+    }
+  }
+
+}
@@ -24,6 +24,8 @@ public class CSVReader implements Closeable {
 
   private boolean linesSkipped;
 
+  private long lineNumber = 0;
+
   /** The default line to start reading. */
   public static final int LINES_TO_SKIP = 0;
 
@@ -237,13 +239,17 @@ public class CSVReader implements Closeable {
   private String getNextLine() throws IOException {
     if ( !this.linesSkipped ) {
       for ( int i = 0; i < lineToSkip; i++ ) {
-        bufferedReader.readLine();
+        if ( bufferedReader.readLine() != null ) {
+          lineNumber++;
+        }
       }
       this.linesSkipped = true;
     }
     final String nextLine = bufferedReader.readLine();
     if ( nextLine == null ) {
       hasNext = false;
+    } else {
+      lineNumber++;
     }
 
     return hasNext ? nextLine : null;
@@ -266,6 +272,9 @@ public class CSVReader implements Closeable {
             bufferedReader.reset();
             break;
           }
+          if ( character == 10 ) {
+            lineNumber++;
+          }
         } catch ( IOException e ) {
           e.printStackTrace();
         }
@@ -277,6 +286,18 @@ public class CSVReader implements Closeable {
 
 
 
+  /**
+   * @return the number of lines read from the source so far, including 
+   *         skipped and empty lines; the record returned by the next call to 
+   *         {@link #readNext()} starts on the line after this one
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+
+
+
   /**
    * Closes the underlying reader.
    * 
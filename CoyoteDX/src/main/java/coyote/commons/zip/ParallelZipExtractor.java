@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.commons.zip;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+/**
+ * Extracts the entries of a zip archive on several threads at once.
+ *
+ * <p>Each entry is inflated by one of the worker threads straight into its
+ * file through a fixed-size buffer, so the memory used does not depend on the
+ * size of the entries. The number of entries queued for the workers is
+ * bounded, so archives with many entries are not listed into memory either.
+ *
+ * <p>Entries whose names would place them outside the target directory (for
+ * example {@code ../../etc/passwd}) are rejected.
+ */
+public class ParallelZipExtractor {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  private final int threads;
+
+
+
+
+  /**
+   * Create an extractor using one thread per processor.
+   */
+  public ParallelZipExtractor() {
+    this(0);
+  }
+
+
+
+
+  /**
+   * @param threads the number of threads extracting entries, one per
+   *        processor if less than 1
+   */
+  public ParallelZipExtractor(final int threads) {
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+
+
+
+  /**
+   * Extract all the entries of an archive.
+   *
+   * @param archive the archive to extract
+   * @param baseDir the directory into which the entries are extracted
+   *
+   * @return the number of files extracted
+   *
+   * @throws IOException if the archive could not be read or an entry could
+   *         not be extracted
+   */
+  public int extract(final File archive, final File baseDir) throws IOException {
+    return extract(archive, baseDir, new AllZipEntryFilter());
+  }
+
+
+
+
+  /**
+   * Extract the entries of an archive accepted by the given filter.
+   *
+   * @param archive the archive to extract
+   * @param baseDir the directory into which the entries are extracted
+   * @param filter the filter selecting the entries to extract
+   *
+   * @return the number of files extracted
+   *
+   * @throws IOException if the archive could not be read or an entry could
+   *         not be extracted
+   */
+  public int extract(final File archive, final File baseDir, final IZipEntryFilter filter) throws IOException {
+    final String basePath = baseDir.getCanonicalPath() + File.separator;
+    final ZipFile zipFile = new ZipFile(archive);
+    final ExecutorService executor = createExecutor();
+    final Deque<Future<File>> pending = new ArrayDeque<Future<File>>();
+    final int maxPending = threads * 4;
+    int retval = 0;
+
+    try {
+      final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        final ZipEntry entry = entries.nextElement();
+        if (filter == null || filter.accept(entry.getName())) {
+          final File target = new File(baseDir, entry.getName().replace('/', File.separatorChar));
+          if (!(target.getCanonicalPath() + File.separator).startsWith(basePath)) {
+            throw new IOException("Zip entry is outside of the target directory: " + entry.getName());
+          }
+
+          if (entry.isDirectory()) {
+            target.mkdirs();
+          } else {
+            pending.addLast(executor.submit(new Callable<File>() {
+              @Override
+              public File call() throws IOException {
+                return extract(zipFile, entry, target);
+              }
+            }));
+            while (pending.size() >= maxPending || (!pending.isEmpty() && pending.peekFirst().isDone())) {
+              waitFor(pending.removeFirst());
+              retval++;
+            }
+          }
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        waitFor(pending.removeFirst());
+        retval++;
+      }
+    } finally {
+      for (final Future<File> future : pending) {
+        future.cancel(true);
+      }
+      executor.shutdownNow();
+      zipFile.close();
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Inflate one entry into its file; called on a worker thread.
+   */
+  private static File extract(final ZipFile zipFile, final ZipEntry entry, final File target) throws IOException {
+    final File parent = target.getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = zipFile.getInputStream(entry); OutputStream out = new FileOutputStream(target)) {
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        out.write(buffer, 0, count);
+      }
+    }
+    if (entry.getTime() != -1) {
+      target.setLastModified(entry.getTime());
+    }
+    return target;
+  }
+
+
+
+
+  private static void waitFor(final Future<File> future) throws IOException {
+    try {
+      future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for extraction");
+    } catch (final ExecutionException e) {
+      throw new IOException("Could not extract zip entry: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+
+
+
+  private ExecutorService createExecutor() {
+    final String prefix = "ZipExtractor-" + POOL_COUNT.incrementAndGet() + "-";
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+
+
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread retval = new Thread(runnable, prefix + threadCount.incrementAndGet());
+        retval.setDaemon(true);
+        return retval;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,845 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.commons.zip;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+
+/**
+ * Writes a zip archive, deflating its entries on several threads at once.
+ *
+ * <p>Each entry is read and deflated by one of the worker threads into its
+ * own buffer, and the deflated entries are written to the archive in the
+ * order they were added by the thread calling this writer. Small entries are
+ * buffered in memory while larger ones spill into temporary files, and the
+ * number of entries waiting to be written is bounded, so the memory used does
+ * not depend on the size of the data being archived. Archives and entries
+ * larger than 4GB are written with the Zip64 extensions.
+ *
+ * <p>When appending, the new entries are written over the central directory
+ * of the existing archive and a new central directory listing the old and new
+ * entries is written after them; none of the existing entries are read or
+ * rewritten.
+ *
+ * <p>This writer is not thread-safe; only the threads it starts may work on
+ * its entries concurrently.
+ */
+public class ParallelZipWriter implements Closeable {
+
+  /**
+   * The source of the data of an entry, opened by a worker thread when the
+   * entry is deflated.
+   */
+  public interface Source {
+
+    /**
+     * @return a stream of the data of the entry
+     *
+     * @throws IOException if the data could not be read
+     */
+    InputStream open() throws IOException;
+
+
+
+
+    /**
+     * @return the modification time of the entry in epoch milliseconds
+     */
+    long getTime();
+  }
+
+  /** The most deflated bytes an entry buffers in memory before spilling to a temporary file */
+  public static final int DEFAULT_SPILL_SIZE = 4 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int LOCAL_HEADER = 0x04034b50;
+  private static final int CENTRAL_HEADER = 0x02014b50;
+  private static final int END_OF_CENTRAL = 0x06054b50;
+  private static final int ZIP64_END_OF_CENTRAL = 0x06064b50;
+  private static final int ZIP64_LOCATOR = 0x07064b50;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_COUNT = 0xFFFF;
+  private static final int ZIP64_EXTRA = 0x0001;
+  private static final int VERSION = 20;
+  private static final int VERSION_ZIP64 = 45;
+  private static final int UTF8_FLAG = 0x0800;
+  private static final int DIRECTORY_ATTRIBUTE = 0x10;
+  private static final int END_LENGTH = 22;
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  private final RandomAccessFile file;
+  private final OutputStream out;
+  private final int level;
+  private final int spillSize;
+  private final int maxPending;
+  private final ExecutorService executor;
+  private final Deque<Future<Deflated>> pending = new ArrayDeque<Future<Deflated>>();
+  private final List<Deflated> entries = new ArrayList<Deflated>();
+  private final Set<String> names = new HashSet<String>();
+  private byte[] existingDirectory = new byte[0];
+  private long existingEntries = 0;
+  private long position = 0;
+  private boolean closed = false;
+
+
+
+
+  /**
+   * Create or append to an archive, deflating entries at the default
+   * compression level on one thread per processor.
+   *
+   * @param archive the archive to write
+   * @param append true to add entries to an existing archive, false to
+   *        replace it
+   *
+   * @throws IOException if the archive could not be opened or an existing
+   *         archive could not be read
+   */
+  public ParallelZipWriter(final File archive, final boolean append) throws IOException {
+    this(archive, append, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime().availableProcessors());
+  }
+
+
+
+
+  /**
+   * @param archive the archive to write
+   * @param append true to add entries to an existing archive, false to
+   *        replace it
+   * @param level the deflate compression level
+   * @param threads the number of threads deflating entries, one per
+   *        processor if less than 1
+   *
+   * @throws IOException if the archive could not be opened or an existing
+   *         archive could not be read
+   */
+  public ParallelZipWriter(final File archive, final boolean append, final int level, final int threads) throws IOException {
+    if (archive == null) {
+      throw new IllegalArgumentException("Archive cannot be null");
+    }
+    final File parent = archive.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    file = new RandomAccessFile(archive, "rw");
+    try {
+      if (append && file.length() > 0) {
+        readCentralDirectory();
+      } else {
+        file.setLength(0);
+      }
+    } catch (final IOException e) {
+      file.close();
+      throw e;
+    }
+    final FileChannel channel = file.getChannel();
+    channel.position(position);
+    out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+
+    this.level = level;
+    spillSize = DEFAULT_SPILL_SIZE;
+    final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    maxPending = poolSize * 2;
+    final String prefix = "ZipCompressor-" + POOL_COUNT.incrementAndGet() + "-";
+    executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+
+
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread retval = new Thread(runnable, prefix + threadCount.incrementAndGet());
+        retval.setDaemon(true);
+        return retval;
+      }
+    });
+  }
+
+
+
+
+  /**
+   * Add an entry with the given data.
+   *
+   * @param name the name of the entry
+   * @param data the data of the entry
+   *
+   * @throws IOException if the name is already in the archive or an earlier
+   *         entry could not be written
+   */
+  public void addEntry(final String name, final byte[] data) throws IOException {
+    final long time = System.currentTimeMillis();
+    addEntry(name, new Source() {
+      @Override
+      public InputStream open() {
+        return new ByteArrayInputStream(data);
+      }
+
+
+
+
+      @Override
+      public long getTime() {
+        return time;
+      }
+    });
+  }
+
+
+
+
+  /**
+   * Add an entry with the contents of a file.
+   *
+   * <p>The file is not read until one of the worker threads deflates it.
+   *
+   * @param name the name of the entry
+   * @param source the file to archive
+   *
+   * @throws IOException if the name is already in the archive or an earlier
+   *         entry could not be written
+   */
+  public void addFile(final String name, final File source) throws IOException {
+    addEntry(name, fileSource(source));
+  }
+
+
+
+
+  /**
+   * Recursively add the files in a directory.
+   *
+   * <p>Entries are named with the path of each file relative to the given
+   * directory, using "/" as the separator.
+   *
+   * @param baseDir the directory to archive
+   * @param archiveBasePath the path prepended to the name of each entry, may
+   *        be null
+   * @param filter the filter selecting the files and directories to archive,
+   *        may be null for all files
+   *
+   * @return the number of files added
+   *
+   * @throws IOException if an entry could not be added
+   */
+  public int addFiles(final File baseDir, final String archiveBasePath, final FilenameFilter filter) throws IOException {
+    final String prefix = (archiveBasePath == null || archiveBasePath.length() == 0) ? "" : archiveBasePath.endsWith("/") ? archiveBasePath : archiveBasePath + "/";
+    return addTree(baseDir, prefix, filter);
+  }
+
+
+
+
+  private int addTree(final File dir, final String prefix, final FilenameFilter filter) throws IOException {
+    int retval = 0;
+    final String[] children = (filter != null) ? dir.list(filter) : dir.list();
+    if (children != null) {
+      for (final String child : children) {
+        final File file = new File(dir, child);
+        if (file.isDirectory()) {
+          retval += addTree(file, prefix + child + "/", filter);
+        } else if (file.isFile()) {
+          addFile(prefix + child, file);
+          retval++;
+        }
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Add an empty directory entry.
+   *
+   * @param name the name of the directory, a "/" is appended if necessary
+   *
+   * @throws IOException if the name is already in the archive or an earlier
+   *         entry could not be written
+   */
+  public void addDirectory(final String name) throws IOException {
+    addEntry(name.endsWith("/") ? name : name + "/", (Source)null);
+  }
+
+
+
+
+  /**
+   * Add an entry whose data is read from the given source by one of the
+   * worker threads.
+   *
+   * <p>The entry is written to the archive once it and all the entries added
+   * before it are deflated. This method blocks while too many entries are
+   * waiting to be written.
+   *
+   * @param name the name of the entry
+   * @param source the source of the data for the entry, null for a
+   *        directory entry
+   *
+   * @throws IOException if the name is already in the archive or an earlier
+   *         entry could not be written
+   */
+  public void addEntry(final String name, final Source source) throws IOException {
+    ensureOpen();
+    if (name == null || name.length() == 0) {
+      throw new IOException("Entry name cannot be empty");
+    }
+    if (!names.add(name)) {
+      throw new IOException("Duplicate zip entry: " + name);
+    }
+    if (source == null) {
+      pending.addLast(executor.submit(new Callable<Deflated>() {
+        @Override
+        public Deflated call() {
+          return new Deflated(name, System.currentTimeMillis());
+        }
+      }));
+    } else {
+      pending.addLast(executor.submit(new Callable<Deflated>() {
+        @Override
+        public Deflated call() throws IOException {
+          return deflate(name, source);
+        }
+      }));
+    }
+
+    while (pending.size() >= maxPending || (!pending.isEmpty() && pending.peekFirst().isDone())) {
+      writeNext();
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of entries in the archive, including those in the
+   *         archive before it was opened for appending
+   */
+  public long getEntryCount() {
+    return existingEntries + entries.size() + pending.size();
+  }
+
+
+
+
+  /**
+   * Write the remaining entries and the central directory, then close the
+   * archive.
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      try {
+        while (!pending.isEmpty()) {
+          writeNext();
+        }
+        writeCentralDirectory();
+        out.flush();
+        file.setLength(position);
+      } finally {
+        closed = true;
+        executor.shutdownNow();
+        for (final Future<Deflated> future : pending) {
+          discard(future);
+        }
+        pending.clear();
+        out.close();
+        file.close();
+      }
+    }
+  }
+
+
+
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Archive closed");
+    }
+  }
+
+
+
+
+  /**
+   * Read the central directory of the archive being appended, leaving the
+   * position at its start so the new entries are written over it.
+   */
+  private void readCentralDirectory() throws IOException {
+    final long length = file.length();
+    final int scan = (int)Math.min(length, END_LENGTH + 0xFFFF);
+    final byte[] tail = new byte[scan];
+    file.seek(length - scan);
+    file.readFully(tail);
+
+    int end = -1;
+    for (int x = scan - END_LENGTH; x >= 0; x--) {
+      if (getInt(tail, x) == END_OF_CENTRAL) {
+        end = x;
+        break;
+      }
+    }
+    if (end < 0) {
+      throw new IOException("Not a zip archive: no end of central directory");
+    }
+
+    long count = getShort(tail, end + 10);
+    long size = getInt(tail, end + 12) & ZIP64_MAGIC;
+    long offset = getInt(tail, end + 16) & ZIP64_MAGIC;
+    final long endPosition = length - scan + end;
+
+    if ((count == ZIP64_COUNT || size == ZIP64_MAGIC || offset == ZIP64_MAGIC) && endPosition >= 20) {
+      final byte[] locator = new byte[20];
+      file.seek(endPosition - 20);
+      file.readFully(locator);
+      if (getInt(locator, 0) == ZIP64_LOCATOR) {
+        final byte[] record = new byte[56];
+        file.seek(getLong(locator, 8));
+        file.readFully(record);
+        if (getInt(record, 0) != ZIP64_END_OF_CENTRAL) {
+          throw new IOException("Corrupt zip archive: bad Zip64 end of central directory");
+        }
+        count = getLong(record, 32);
+        size = getLong(record, 40);
+        offset = getLong(record, 48);
+      }
+    }
+
+    if (offset + size > length || size > Integer.MAX_VALUE) {
+      throw new IOException("Corrupt zip archive: bad central directory");
+    }
+
+    existingDirectory = new byte[(int)size];
+    file.seek(offset);
+    file.readFully(existingDirectory);
+    existingEntries = count;
+    position = offset;
+
+    // remember the existing names so they are not duplicated
+    int index = 0;
+    for (long x = 0; x < count; x++) {
+      if (index + 46 > existingDirectory.length || getInt(existingDirectory, index) != CENTRAL_HEADER) {
+        throw new IOException("Corrupt zip archive: bad central directory entry " + x);
+      }
+      final int nameLength = getShort(existingDirectory, index + 28);
+      final int extraLength = getShort(existingDirectory, index + 30);
+      final int commentLength = getShort(existingDirectory, index + 32);
+      names.add(new String(existingDirectory, index + 46, nameLength, StandardCharsets.UTF_8));
+      index += 46 + nameLength + extraLength + commentLength;
+    }
+  }
+
+
+
+
+  /**
+   * Read and deflate the data of an entry; called on a worker thread.
+   */
+  private Deflated deflate(final String name, final Source source) throws IOException {
+    final Deflated retval = new Deflated(name, source.getTime());
+    final Deflater deflater = new Deflater(level, true);
+    final CRC32 crc = new CRC32();
+    final byte[] input = new byte[BUFFER_SIZE];
+    final byte[] output = new byte[BUFFER_SIZE];
+    boolean complete = false;
+    try (InputStream in = source.open()) {
+      int count;
+      while ((count = in.read(input)) != -1) {
+        crc.update(input, 0, count);
+        retval.size += count;
+        deflater.setInput(input, 0, count);
+        while (!deflater.needsInput()) {
+          retval.write(output, deflater.deflate(output), spillSize);
+        }
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        retval.write(output, deflater.deflate(output), spillSize);
+      }
+      retval.finish();
+      retval.crc = crc.getValue();
+      retval.method = ZipEntry.DEFLATED;
+      complete = true;
+    } finally {
+      deflater.end();
+      if (!complete) {
+        retval.release();
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  private void writeNext() throws IOException {
+    final Deflated entry;
+    try {
+      entry = pending.removeFirst().get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for compression");
+    } catch (final ExecutionException e) {
+      throw new IOException("Could not compress zip entry: " + e.getCause().getMessage(), e.getCause());
+    }
+
+    try {
+      entry.offset = position;
+      final boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+      writeInt(LOCAL_HEADER);
+      writeShort(zip64 ? VERSION_ZIP64 : VERSION);
+      writeShort(UTF8_FLAG);
+      writeShort(entry.method);
+      writeInt((int)entry.dosTime);
+      writeInt((int)entry.crc);
+      writeInt(zip64 ? ZIP64_MAGIC : entry.compressedSize);
+      writeInt(zip64 ? ZIP64_MAGIC : entry.size);
+      writeShort(entry.name.length);
+      writeShort(zip64 ? 20 : 0);
+      write(entry.name, 0, entry.name.length);
+      if (zip64) {
+        writeShort(ZIP64_EXTRA);
+        writeShort(16);
+        writeLong(entry.size);
+        writeLong(entry.compressedSize);
+      }
+      entry.copyTo(this);
+    } finally {
+      entry.release();
+    }
+    entries.add(entry);
+  }
+
+
+
+
+  private void writeCentralDirectory() throws IOException {
+    final long start = position;
+    write(existingDirectory, 0, existingDirectory.length);
+
+    for (final Deflated entry : entries) {
+      final boolean largeSize = entry.size >= ZIP64_MAGIC;
+      final boolean largeCompressed = entry.compressedSize >= ZIP64_MAGIC;
+      final boolean largeOffset = entry.offset >= ZIP64_MAGIC;
+      final int extra = (largeSize ? 8 : 0) + (largeCompressed ? 8 : 0) + (largeOffset ? 8 : 0);
+      final int version = extra > 0 ? VERSION_ZIP64 : VERSION;
+      writeInt(CENTRAL_HEADER);
+      writeShort(version);
+      writeShort(version);
+      writeShort(UTF8_FLAG);
+      writeShort(entry.method);
+      writeInt((int)entry.dosTime);
+      writeInt((int)entry.crc);
+      writeInt(largeCompressed ? ZIP64_MAGIC : entry.compressedSize);
+      writeInt(largeSize ? ZIP64_MAGIC : entry.size);
+      writeShort(entry.name.length);
+      writeShort(extra > 0 ? extra + 4 : 0);
+      writeShort(0); // comment
+      writeShort(0); // disk
+      writeShort(0); // internal attributes
+      writeInt(entry.isDirectory() ? DIRECTORY_ATTRIBUTE : 0);
+      writeInt(largeOffset ? ZIP64_MAGIC : entry.offset);
+      write(entry.name, 0, entry.name.length);
+      if (extra > 0) {
+        writeShort(ZIP64_EXTRA);
+        writeShort(extra);
+        if (largeSize) {
+          writeLong(entry.size);
+        }
+        if (largeCompressed) {
+          writeLong(entry.compressedSize);
+        }
+        if (largeOffset) {
+          writeLong(entry.offset);
+        }
+      }
+    }
+
+    final long count = getEntryCount();
+    final long size = position - start;
+    if (count >= ZIP64_COUNT || size >= ZIP64_MAGIC || start >= ZIP64_MAGIC) {
+      final long record = position;
+      writeInt(ZIP64_END_OF_CENTRAL);
+      writeLong(44);
+      writeShort(VERSION_ZIP64);
+      writeShort(VERSION_ZIP64);
+      writeInt(0);
+      writeInt(0);
+      writeLong(count);
+      writeLong(count);
+      writeLong(size);
+      writeLong(start);
+      writeInt(ZIP64_LOCATOR);
+      writeInt(0);
+      writeLong(record);
+      writeInt(1);
+    }
+    writeInt(END_OF_CENTRAL);
+    writeShort(0);
+    writeShort(0);
+    writeShort((int)Math.min(count, ZIP64_COUNT));
+    writeShort((int)Math.min(count, ZIP64_COUNT));
+    writeInt(Math.min(size, ZIP64_MAGIC));
+    writeInt(Math.min(start, ZIP64_MAGIC));
+    writeShort(0);
+  }
+
+
+
+
+  private void write(final byte[] data, final int offset, final int length) throws IOException {
+    out.write(data, offset, length);
+    position += length;
+  }
+
+
+
+
+  private void writeShort(final int value) throws IOException {
+    out.write(value);
+    out.write(value >>> 8);
+    position += 2;
+  }
+
+
+
+
+  private void writeInt(final long value) throws IOException {
+    writeShort((int)(value & 0xFFFF));
+    writeShort((int)((value >>> 16) & 0xFFFF));
+  }
+
+
+
+
+  private void writeLong(final long value) throws IOException {
+    writeInt(value & ZIP64_MAGIC);
+    writeInt(value >>> 32);
+  }
+
+
+
+
+  private static int getShort(final byte[] data, final int offset) {
+    return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8);
+  }
+
+
+
+
+  private static int getInt(final byte[] data, final int offset) {
+    return getShort(data, offset) | (getShort(data, offset + 2) << 16);
+  }
+
+
+
+
+  private static long getLong(final byte[] data, final int offset) {
+    return (getInt(data, offset) & ZIP64_MAGIC) | ((long)getInt(data, offset + 4) << 32);
+  }
+
+
+
+
+  private static void discard(final Future<Deflated> future) {
+    future.cancel(true);
+    try {
+      future.get().release();
+    } catch (final Exception ignore) {
+      // cancelled or failed, nothing to release
+    }
+  }
+
+
+
+
+  /**
+   * Convert a time into the MS-DOS date and time used in zip headers.
+   */
+  private static long dosTime(final long time) {
+    final Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time);
+    final int year = calendar.get(Calendar.YEAR);
+    if (year < 1980) {
+      return (1 << 21) | (1 << 16);
+    }
+    return ((year - 1980) << 25) | ((calendar.get(Calendar.MONTH) + 1) << 21) | (calendar.get(Calendar.DAY_OF_MONTH) << 16) | (calendar.get(Calendar.HOUR_OF_DAY) << 11) | (calendar.get(Calendar.MINUTE) << 5) | (calendar.get(Calendar.SECOND) >> 1);
+  }
+
+
+
+
+  /**
+   * @return a source reading the given file
+   */
+  static Source fileSource(final File source) {
+    return new Source() {
+      @Override
+      public InputStream open() throws IOException {
+        return new FileInputStream(source);
+      }
+
+
+
+
+      @Override
+      public long getTime() {
+        return source.lastModified();
+      }
+    };
+  }
+
+
+
+
+  /**
+   * An entry deflated by a worker thread, holding its deflated data in memory
+   * or in a temporary file until it is written to the archive.
+   */
+  private static class Deflated {
+    final byte[] name;
+    final long dosTime;
+    int method = ZipEntry.STORED;
+    long crc = 0;
+    long size = 0;
+    long compressedSize = 0;
+    long offset = 0;
+    byte[] buffer = new byte[1024];
+    File spill = null;
+    OutputStream spillStream = null;
+
+
+
+
+    Deflated(final String name, final long time) {
+      this.name = name.getBytes(StandardCharsets.UTF_8);
+      dosTime = dosTime(time);
+    }
+
+
+
+
+    boolean isDirectory() {
+      return name.length > 0 && name[name.length - 1] == '/';
+    }
+
+
+
+
+    void write(final byte[] data, final int length, final int spillSize) throws IOException {
+      if (length == 0) {
+        return;
+      }
+      if (spillStream == null && compressedSize + length > spillSize) {
+        spill = File.createTempFile("zipentry", null);
+        spillStream = new BufferedOutputStream(new FileOutputStream(spill), BUFFER_SIZE);
+        spillStream.write(buffer, 0, (int)compressedSize);
+        buffer = null;
+      }
+      if (spillStream != null) {
+        spillStream.write(data, 0, length);
+      } else {
+        if (compressedSize + length > buffer.length) {
+          final byte[] larger = new byte[(int)Math.min(spillSize, Math.max(buffer.length * 2, compressedSize + length))];
+          System.arraycopy(buffer, 0, larger, 0, (int)compressedSize);
+          buffer = larger;
+        }
+        System.arraycopy(data, 0, buffer, (int)compressedSize, length);
+      }
+      compressedSize += length;
+    }
+
+
+
+
+    void finish() throws IOException {
+      if (spillStream != null) {
+        spillStream.close();
+        spillStream = null;
+      }
+    }
+
+
+
+
+    void copyTo(final ParallelZipWriter writer) throws IOException {
+      if (spill == null) {
+        if (buffer != null) {
+          writer.write(buffer, 0, (int)compressedSize);
+        }
+      } else {
+        try (InputStream in = new FileInputStream(spill)) {
+          final byte[] data = new byte[BUFFER_SIZE];
+          int count;
+          while ((count = in.read(data)) != -1) {
+            writer.write(data, 0, count);
+          }
+        }
+      }
+    }
+
+
+
+
+    /**
+     * Free the deflated data once it is written; the header fields are kept
+     * for the central directory.
+     */
+    void release() {
+      buffer = null;
+      if (spillStream != null) {
+        try {
+          spillStream.close();
+        } catch (final IOException ignore) {
+          // deleting the file anyway
+        }
+        spillStream = null;
+      }
+      if (spill != null) {
+        spill.delete();
+        spill = null;
+      }
+    }
+  }
+
+}
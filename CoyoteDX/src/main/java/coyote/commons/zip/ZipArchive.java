@@ -9,6 +9,7 @@ package coyote.commons.zip;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -16,16 +17,18 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
 import coyote.commons.StreamUtil;
 import coyote.commons.UriUtil;
@@ -35,9 +38,14 @@ import coyote.commons.UriUtil;
  * Higher-level interface to the native Java ZIP format handling classes.
  * 
  * <p>This allows easy addition and modification of archives without needing to
- * instantiate a local ZipFile. The trade-off is that the entire archive needs
- * to fit in memory, at least temporarily, so this is really suitable only for
- * moderate-sized archives.</p>
+ * instantiate a local ZipFile. Added files are not read until the archive is
+ * flushed, when they are streamed through a {@link ParallelZipWriter} which
+ * deflates them on several threads. Flushing only additions appends them to
+ * the existing archive without rewriting it; removing or replacing entries
+ * rewrites the archive, streaming the existing entries through the writer.
+ * Extraction is done on several threads by a {@link ParallelZipExtractor}.
+ * Only {@link #getEntry(String)} and {@link #removeEntry(String)} load whole
+ * entries into memory.</p>
  * 
  * <p>Furthermore, it removes a lot of a flexibility of the lower-level 
  * interfaces in exchange for simplicity: reading an entry, dumping the whole 
@@ -134,10 +142,12 @@ public class ZipArchive {
 
   private ZipFile zipFile;
 
-  private Map<String, byte[]> addMap;
+  private Map<String, ParallelZipWriter.Source> addMap;
 
   private Map<String, Boolean> removeMap;
 
+  private int threads = 0;
+
 
 
 
@@ -190,43 +200,45 @@ public class ZipArchive {
    * @throws IOException
    */
   public void addEntry(final String entryName, final byte[] data) throws IOException {
-    if (addMap == null) {
-      addMap = new HashMap<String, byte[]>();
-    }
+    final long time = System.currentTimeMillis();
+    addEntry(entryName, new ParallelZipWriter.Source() {
+      @Override
+      public InputStream open() {
+        return new ByteArrayInputStream(data);
+      }
 
-    addMap.put(entryName, data);
 
-    // if we were slated to remove the entry earlier, we have to dequeue the
-    // entry now, else it will not get flushed later
-    if ((removeMap != null) && removeMap.containsKey(entryName)) {
-      removeMap.remove(entryName);
-    }
+
+
+      @Override
+      public long getTime() {
+        return time;
+      }
+    });
   }
 
 
 
 
   /**
-   * rawer interface for adding a set of bytes and a stream directly
+   * Adds a new entry whose data will be read from the given source when the
+   * archive is flushed.
    *
-   * @param zos
-   * @param name
-   * @param data
-   * 
-   * @throws IOException
+   * @param entryName
+   * @param source
    */
-  private void addEntryToZip(final ZipOutputStream zos, final String name, final byte[] data) throws IOException {
-    // get the CRC32 value
-    final CRC32 crc = new CRC32();
-    crc.update(data);
-
-    // create a new ZipEntry and set its CRC
-    final ZipEntry ze = new ZipEntry(name);
-    ze.setSize(data.length);
-    ze.setCrc(crc.getValue());
-    // write the data
-    zos.putNextEntry(ze);
-    zos.write(data, 0, data.length);
+  private void addEntry(final String entryName, final ParallelZipWriter.Source source) {
+    if (addMap == null) {
+      addMap = new LinkedHashMap<String, ParallelZipWriter.Source>();
+    }
+
+    addMap.put(entryName, source);
+
+    // if we were slated to remove the entry earlier, we have to dequeue the
+    // entry now, else it will not get flushed later
+    if ((removeMap != null) && removeMap.containsKey(entryName)) {
+      removeMap.remove(entryName);
+    }
   }
 
 
@@ -270,8 +282,9 @@ public class ZipArchive {
    * archive.
    * 
    * <p>This will be written back to disk at the time of the next 
-   * {@link #flush()} call. If non-null, the given archive base path is 
-   * pre-pended to all resulting archive file names.</p>
+   * {@link #flush()} call, which is also when the files are read. If 
+   * non-null, the given archive base path is pre-pended to all resulting 
+   * archive file names.</p>
    *
    * @param baseDir
    * @param archiveBasePath
@@ -286,12 +299,11 @@ public class ZipArchive {
 
     for (int ii = 0; ii < fileList.size(); ii++) {
       final File addFile = new File(fileList.get(ii).toString());
-      final FileInputStream fis = new FileInputStream(addFile);
 
       if (archiveBasePath != null) {
-        addEntry(archiveBasePath + "/" + getZipName(baseDir, addFile), StreamUtil.loadBytes(fis));
+        addEntry(archiveBasePath + "/" + getZipName(baseDir, addFile), ParallelZipWriter.fileSource(addFile));
       } else {
-        addEntry(getZipName(baseDir, addFile), StreamUtil.loadBytes(fis));
+        addEntry(getZipName(baseDir, addFile), ParallelZipWriter.fileSource(addFile));
       }
     }
   }
@@ -389,16 +401,7 @@ public class ZipArchive {
    */
   public void extractTo(final File baseDir, final IZipEntryFilter filter) throws IOException {
     flush();
-
-    final Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-    while (entries.hasMoreElements()) {
-      final ZipEntry ze = entries.nextElement();
-
-      if (filter.accept(ze.getName())) {
-        writeEntryTo(baseDir, ze);
-      }
-    }
+    new ParallelZipExtractor(threads).extract(archiveFile, baseDir, filter);
   }
 
 
@@ -422,6 +425,10 @@ public class ZipArchive {
 
   /**
    * Writes the archive back to its source (if changed).
+   * 
+   * <p>If entries were only added, they are appended to the existing archive;
+   * otherwise the archive is rewritten into a temporary file which then
+   * replaces it.</p>
    *
    * @throws IOException
    */
@@ -433,70 +440,87 @@ public class ZipArchive {
       }
 
       if (addMap == null) {
-        addMap = new HashMap<String, byte[]>();
+        addMap = new LinkedHashMap<String, ParallelZipWriter.Source>();
       }
 
-      // to flush, we need to set up a temporary file to write the new zip
-      // file, copy the existing entries in (minus those on our removeMap or
-      // addMap) and then add those stored just in the addMap, and finally
-      // overwrite the old ZipFile with our temporary one
-      final File tmpFile = File.createTempFile("ZipArchive", null);
-      final FileOutputStream fos = new FileOutputStream(tmpFile);
-      final BufferedOutputStream bos = new BufferedOutputStream(fos);
-      final ZipOutputStream zos = new ZipOutputStream(bos);
-
-      // handle writing the old entries that haven't changed; we don't have to
-      // do this for a brand new ZIP
-      if (zipFile != null) {
-        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-        while (entries.hasMoreElements()) {
-          final ZipEntry ze = entries.nextElement();
-
-          if (!removeMap.containsKey(ze.getName()) && !addMap.containsKey(ze.getName())) {
-            final byte[] data = StreamUtil.loadBytes(zipFile.getInputStream(ze));
-            zos.putNextEntry(ze);
-            zos.write(data, 0, data.length);
+      boolean append = removeMap.isEmpty();
+      if (append && (zipFile != null)) {
+        for (final String entryName : addMap.keySet()) {
+          if (zipFile.getEntry(entryName) != null) {
+            append = false;
+            break;
           }
         }
       }
 
-      // handle writing the new entries that are just in memory
-      final Iterator<String> addEntries = addMap.keySet().iterator();
-
-      while (addEntries.hasNext()) {
-        final String entryName = addEntries.next();
-        addEntryToZip(zos, entryName, addMap.get(entryName));
-      }
-
-      zos.finish();
-      zos.close();
-      bos.close();
-      fos.close();
+      if (append) {
+        // nothing existing changes, so just add the new entries to the end
+        if (zipFile != null) {
+          zipFile.close();
+          zipFile = null;
+        }
 
-      // now we can overwrite the old ZipFile and re-open it with the new data
-      // we just added
-      if (zipFile != null) {
-        zipFile.close();
-      }
+        final ParallelZipWriter writer = new ParallelZipWriter(archiveFile, true, Deflater.DEFAULT_COMPRESSION, threads);
+        try {
+          for (final Map.Entry<String, ParallelZipWriter.Source> entry : addMap.entrySet()) {
+            writer.addEntry(entry.getKey(), entry.getValue());
+          }
+        }
+        finally {
+          writer.close();
+        }
+      } else {
+        // to flush, we need to set up a temporary file to write the new zip
+        // file, copy the existing entries in (minus those on our removeMap or
+        // addMap) and then add those stored in the addMap, and finally
+        // overwrite the old ZipFile with our temporary one
+        final File tmpFile = File.createTempFile("ZipArchive", null, archiveFile.getAbsoluteFile().getParentFile());
+        final ParallelZipWriter writer = new ParallelZipWriter(tmpFile, false, Deflater.DEFAULT_COMPRESSION, threads);
+        try {
+          // handle writing the old entries that haven't changed; we don't have
+          // to do this for a brand new ZIP
+          if (zipFile != null) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+            while (entries.hasMoreElements()) {
+              final ZipEntry ze = entries.nextElement();
+
+              if (!removeMap.containsKey(ze.getName()) && !addMap.containsKey(ze.getName())) {
+                if (ze.isDirectory()) {
+                  writer.addDirectory(ze.getName());
+                } else {
+                  writer.addEntry(ze.getName(), entrySource(zipFile, ze));
+                }
+              }
+            }
+          }
 
-      if (archiveFile.exists()) {
-        if (archiveFile.canWrite()) {
-          if (!archiveFile.delete()) {
-            //throw new IOException( "unable to delete old ZIP file '" + archiveFile + "'" );
+          // handle writing the new entries
+          for (final Map.Entry<String, ParallelZipWriter.Source> entry : addMap.entrySet()) {
+            writer.addEntry(entry.getKey(), entry.getValue());
           }
-        } else {
-          System.out.println("Archive NOT Writable!");
         }
-      }
+        finally {
+          writer.close();
+        }
+
+        // now we can overwrite the old ZipFile and re-open it with the new
+        // data we just added
+        if (zipFile != null) {
+          zipFile.close();
+        }
 
-      // if rename fails, we have to try copying the file first before we give
-      // up, because renameTo() will not work across different file systems
-      if (!tmpFile.renameTo(archiveFile)) {
         try {
-          copyFile(tmpFile, archiveFile);
+          Files.move(tmpFile.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         } catch (final IOException e) {
-          throw new IOException("unable to rename temporary ZIP file '" + tmpFile + "' to '" + archiveFile + "'");
+          // the move may not work across different file systems, so try
+          // copying the file before we give up
+          try {
+            copyFile(tmpFile, archiveFile);
+            tmpFile.delete();
+          } catch (final IOException ex) {
+            throw new IOException("unable to rename temporary ZIP file '" + tmpFile + "' to '" + archiveFile + "'");
+          }
         }
       }
 
@@ -511,6 +535,29 @@ public class ZipArchive {
 
 
 
+  /**
+   * @return a source which streams the data of an existing entry
+   */
+  private static ParallelZipWriter.Source entrySource(final ZipFile zipFile, final ZipEntry ze) {
+    return new ParallelZipWriter.Source() {
+      @Override
+      public InputStream open() throws IOException {
+        return zipFile.getInputStream(ze);
+      }
+
+
+
+
+      @Override
+      public long getTime() {
+        return ze.getTime();
+      }
+    };
+  }
+
+
+
+
   /**
    * @return the archiveURL
    */
@@ -534,7 +581,16 @@ public class ZipArchive {
     // first check to see if there's a cache of not-yet-flushed added entries
     // and if the entry's there
     if ((addMap != null) && (addMap.containsKey(entryName))) {
-      return addMap.get(entryName);
+      final InputStream in = addMap.get(entryName).open();
+
+      try {
+        return StreamUtil.loadBytes(in);
+      }
+      finally {
+        try {
+          in.close();
+        } catch (final IOException e) {}
+      }
     } else {
       // ...otherwise go read directly from the local ZipFile
       if ((removeMap != null) && removeMap.containsKey(entryName)) {
@@ -592,6 +648,9 @@ public class ZipArchive {
     if ((addMap != null) && (addMap.containsKey(entryName))) {
       addMap.remove(entryName);
     } else {
+      if (removeMap == null) {
+        removeMap = new HashMap<String, Boolean>();
+      }
       removeMap.put(entryName, Boolean.TRUE);
     }
 
@@ -601,6 +660,17 @@ public class ZipArchive {
 
 
 
+  /**
+   * @param threads the number of threads used to compress and extract 
+   *        entries, one per processor if less than 1
+   */
+  public void setThreads(final int threads) {
+    this.threads = threads;
+  }
+
+
+
+
   /**
    * @param archiveURL the archiveURL to set
    */
@@ -627,8 +697,15 @@ public class ZipArchive {
     if (!ze.isDirectory()) {
       final FileOutputStream fos = new FileOutputStream(out);
       final BufferedOutputStream bos = new BufferedOutputStream(fos);
-      StreamUtil.copy(zipFile.getInputStream(ze), fos);
-      bos.close();
+      final InputStream in = zipFile.getInputStream(ze);
+
+      try {
+        StreamUtil.copy(in, bos);
+      }
+      finally {
+        in.close();
+        bos.close();
+      }
     }
   }
 }
\ No newline at end of file
@@ -11,7 +11,7 @@ import java.io.File;
 
 import coyote.commons.CipherUtil;
 import coyote.commons.StringUtil;
-import coyote.commons.template.Template;
+import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.DataFrameException;
 import coyote.dx.context.TransformContext;
@@ -31,6 +31,9 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
   protected boolean enabled = true;
   protected File jobDirectory = new File(System.getProperty("user.dir"));
 
+  /** The configuration values resolved against the current context */
+  private volatile ConfigSnapshot snapshot = null;
+
 
 
 
@@ -40,6 +43,7 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
   @Override
   public void setConfiguration(Config cfg) throws ConfigurationException {
     configuration = cfg;
+    invalidateConfiguration();
     if (containsIgnoreCase(ConfigTag.ENABLED)) {
       setEnabled(getBoolean(getConfiguration().getFieldIgnoreCase(ConfigTag.ENABLED).getName()));
     }
@@ -175,6 +179,10 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
    * configuration. It is up to the component to resolve any variable in 
    * configuration values. 
    * 
+   * <p>The results of the look-ups are kept and reused until the context 
+   * changes (see {@link #invalidateConfiguration()}), so this is cheap to 
+   * call for each frame. Templates are still processed on every call.
+   * 
    * @param key the name of the configuration parameter to return
    * 
    * @return the value with that name in the configuration or null if the given 
@@ -183,40 +191,141 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
    */
   public String getString(String key) {
     String retval = null;
-    String value = null;
-
-    // Perform a case insensitive search for the value with the given key. 
-    // This may be a literal, or reference a value in the transform context.
-    value = getConfiguration().getString(key);
 
     if (context != null) {
-      if (value != null) {
-        // perform a case sensitive search for the value in the context
-        String cval = context.getAsString(value, true);
-        if (cval != null) {
-          value = cval;
+      ConfigSnapshot.Value value = resolve(key);
+
+      // only templates need to be processed, everything else is a literal
+      if (value.template) {
+        retval = CompiledTemplate.preProcess(value.text, context.getSymbols());
+
+        // Only log if the value changed
+        if (Log.isLogging(Log.DEBUG_EVENTS) && retval != null && !retval.equals(value.text)) {
+          Log.debug(LogMsg.createMsg(CDX.MSG, "Component.resolved_value", value.text, retval));
         }
       } else {
-        // perform a case insensitive search in the context for the key
-        value = context.getAsString(key, false);
+        retval = value.text;
       }
-      retval = Template.preProcess(value, context.getSymbols());
+    } else {
+      // no context, return the configuration value as it is probably a literal
+      retval = getConfiguration().getString(key);
+    }
+
+    return retval;
+  }
+
 
-      // Only log if the value changed
-      if (Log.isLogging(Log.DEBUG_EVENTS) && retval != null && !retval.equals(value)) {
-        Log.debug(LogMsg.createMsg(CDX.MSG, "Component.resolved_value", value, retval));
+
+
+  /**
+   * Retrieve the resolved value of the given key, resolving and recording 
+   * it if it is not configured and has not been requested before.
+   * 
+   * @param key the name of the configuration parameter
+   * 
+   * @return the resolved value, never null
+   */
+  private ConfigSnapshot.Value resolve(String key) {
+    if (key == null) {
+      return ConfigSnapshot.NONE;
+    }
+    ConfigSnapshot snap = getSnapshot();
+    ConfigSnapshot.Value retval = snap.get(key);
+    if (retval == null) {
+      retval = snap.put(key, lookup(key));
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Look-up the value of the given key in the configuration and context.
+   * 
+   * @param key the name of the configuration parameter
+   * 
+   * @return the value before template processing or null if not found
+   */
+  private String lookup(String key) {
+    // Perform a case insensitive search for the value with the given key. 
+    // This may be a literal, or reference a value in the transform context.
+    String value = getConfiguration().getString(key);
+
+    if (value != null) {
+      // perform a case sensitive search for the value in the context
+      String cval = context.getAsString(value, true);
+      if (cval != null) {
+        value = cval;
       }
     } else {
-      // no context, return the configuration value as it is probably a literal
-      retval = value;
+      // perform a case insensitive search in the context for the key
+      value = context.getAsString(key, false);
+    }
+    return value;
+  }
+
+
+
+
+  /**
+   * Retrieve the snapshot of resolved configuration values, replacing it if 
+   * the context has changed since it was created.
+   * 
+   * @return the snapshot for the current context
+   */
+  private ConfigSnapshot getSnapshot() {
+    ConfigSnapshot retval = snapshot;
+    if (retval == null || !retval.isCurrent(context)) {
+      retval = createSnapshot(retval);
     }
+    return retval;
+  }
+
 
+
+
+  /**
+   * Resolve all the configured values against the current context.
+   * 
+   * @param previous the snapshot being replaced, may be null
+   * 
+   * @return the new snapshot
+   */
+  private ConfigSnapshot createSnapshot(ConfigSnapshot previous) {
+    ConfigSnapshot retval = new ConfigSnapshot(context, previous);
+    for (DataField field : getConfiguration().getFields()) {
+      if (field.getName() != null && !field.isFrame()) {
+        retval.put(field.getName(), lookup(field.getName()));
+      }
+    }
+    snapshot = retval;
     return retval;
   }
 
 
 
 
+  /**
+   * Resolve the configuration values again.
+   * 
+   * <p>Configuration values are resolved against the transform context when 
+   * the component is opened and reused until the context properties or 
+   * symbol table are replaced. Components which change the configuration 
+   * or context symbols directly should call this so the changes are seen.
+   */
+  public void invalidateConfiguration() {
+    if (context != null) {
+      // keep the deciphered values, they do not depend on the context
+      createSnapshot(snapshot);
+    } else {
+      snapshot = null;
+    }
+  }
+
+
+
+
   /**
    * Resolve the argument.
    * 
@@ -249,7 +358,7 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
 
     // in case it is a template, resolve it to the context's symbol table
     if (StringUtil.isNotBlank(cval)) {
-      retval = Template.resolve(cval, context.getSymbols());
+      retval = CompiledTemplate.resolve(cval, context.getSymbols());
     }
     return retval;
   }
@@ -277,7 +386,11 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
     // retrieve what we will assume is cipher text, base64 encoded bytes
     String cipherText = getString(key);
     if (StringUtil.isNotBlank(cipherText)) {
-      retval = CipherUtil.decryptString(cipherText);
+      if (context != null) {
+        retval = getSnapshot().decrypt(cipherText);
+      } else {
+        retval = CipherUtil.decryptString(cipherText);
+      }
     }
 
     // return either null or the results of our decryption
@@ -302,11 +415,13 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
    * @return the value of the named property as a boolean or false if it was not found.
    */
   public boolean getBoolean(String name) {
-    String value = getString(name);
-    if (StringUtil.isNotBlank(value)) {
-      return (StringUtil.equalsIgnoreCase("true", value) || StringUtil.equalsIgnoreCase("yes", value) || StringUtil.equalsIgnoreCase("1", value) || StringUtil.equalsIgnoreCase("y", value) || StringUtil.equalsIgnoreCase("t", value));
+    if (context != null) {
+      ConfigSnapshot.Value value = resolve(name);
+      if (!value.template) {
+        return value.flag;
+      }
     }
-    return false;
+    return ConfigSnapshot.toBoolean(getString(name));
   }
 
 
@@ -318,14 +433,10 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
    * @return the value of the named property as an integer or 0 if it was not found.
    */
   public int getInteger(String name) {
-    String value = getString(name);
-    if (StringUtil.isNotBlank(value)) {
-      try {
-        return Integer.parseInt(value);
-      } catch (NumberFormatException ignore) {}
-      return 0;
+    Long value = getNumber(name);
+    if (value != null && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return value.intValue();
     }
-
     return 0;
   }
 
@@ -338,15 +449,24 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
    * @return the value of the named property as a long or 0 if it was not found.
    */
   public long getLong(String name) {
-    String value = getString(name);
-    if (StringUtil.isNotBlank(value)) {
-      try {
-        return Long.parseLong(value);
-      } catch (NumberFormatException ignore) {}
-      return 0;
-    }
+    Long value = getNumber(name);
+    return (value != null) ? value : 0;
+  }
 
-    return 0;
+
+
+
+  /**
+   * @return the named property as a long or null if it is not a whole number
+   */
+  private Long getNumber(String name) {
+    if (context != null) {
+      ConfigSnapshot.Value value = resolve(name);
+      if (!value.template) {
+        return value.number;
+      }
+    }
+    return ConfigSnapshot.toLong(getString(name));
   }
 
 
@@ -410,10 +530,16 @@ public abstract class AbstractConfigurableComponent implements ConfigurableCompo
 
 
   /**
+   * Set the transform context and resolve the configuration against it.
+   * 
+   * <p>Components call this when they are opened so their configuration 
+   * values are resolved once, before any frames are processed.
+   * 
    * @param context the transform context to set
    */
   public void setContext(TransformContext context) {
     this.context = context;
+    invalidateConfiguration();
   }
 
 }
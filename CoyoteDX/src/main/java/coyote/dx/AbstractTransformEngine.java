@@ -21,6 +21,7 @@ import coyote.commons.StringUtil;
 import coyote.commons.template.SymbolTable;
 import coyote.commons.template.Template;
 import coyote.dataframe.DataFrame;
+import coyote.dx.context.AsyncDispatcher;
 import coyote.dx.context.ContextKey;
 import coyote.dx.context.ContextListener;
 import coyote.dx.context.TransactionContext;
@@ -94,6 +95,15 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
   /** the loader which loaded this engine */
   private Loader loader = null;
 
+  /** True if the time spent in each component is to be measured */
+  private boolean metricsEnabled = false;
+
+  /** The metrics of this job, null if metrics are not enabled */
+  protected EngineMetrics metrics = null;
+
+  /** The number of frames passed to batch transforms and writers at once */
+  private int batchSize = 1;
+
 
 
 
@@ -212,6 +222,7 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
         // loop through all data read in by the reader until EOF or an error in 
         // the transform context occurs.
         getContext().setState("Process");
+        final List<TransactionContext> batch = new ArrayList<TransactionContext>();
         while (getContext().isNotInError() && reader != null && !reader.eof()) {
 
           // Create a new Transaction context with the list of listeners to react 
@@ -232,16 +243,19 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
           txnContext.setState("Read");
 
           // Read a frame into the given context (source frame)
+          final long readStart = (metrics != null) ? System.nanoTime() : 0;
           DataFrame retval = reader.read(txnContext);
+          if (metrics != null) {
+            metrics.getTimer(EngineMetrics.Stage.READ, 0, reader).stop(readStart);
+          }
 
           // Sometimes readers read empty lines and the like, skip null dataframes
           if (retval != null) {
 
             // Set the returned dataframe into the transaction context
             txnContext.setSourceFrame(retval);
-            getContext().setRow(++currentFrameNumber);
-            getContext().getSymbols().put(Symbols.CURRENT_FRAME, currentFrameNumber);
-            getContext().getSymbols().put(Symbols.LAST_FRAME, txnContext.isLastFrame());
+            txnContext.setRow(++currentFrameNumber);
+            activate(txnContext);
             txnContext.fireRead(txnContext, reader);
 
             filter(txnContext);
@@ -249,28 +263,36 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
             // If the working frame did not get filtered out...
             if (txnContext.getWorkingFrame() != null) {
               validate(txnContext);
-              if (txnContext.isNotInError()) {
-                transform(txnContext);
-                map(txnContext);
-                if (aggregators.size() > 0) {
-                  aggregateAndwrite(txnContext);
-                } else {
-                  write(txnContext);
-                }
-              } // passed validators
             } // passed filters
 
-            // Now end the transaction which should fire any context listeners
-            txnContext.end();
-
-            if (txnContext.isInError()) {
-              transactionErrors++;
+            if (txnContext.getWorkingFrame() != null && txnContext.isNotInError()) {
+              // the rest of the processing happens a batch at a time
+              batch.add(txnContext);
+            } else {
+              // Now end the transaction which should fire any context listeners
+              txnContext.end();
+              if (txnContext.isInError()) {
+                transactionErrors++;
+              }
             }
 
           } // if something was read in
 
+          // process the batch when it is full or when no more frames are 
+          // immediately available so frames are not held back waiting for more
+          if (batch.size() >= batchSize || (batch.size() > 0 && (retval == null || txnContext.isLastFrame() || reader.eof()))) {
+            transactionErrors += process(batch);
+          }
+          if (batch.isEmpty()) {
+            checkpoint();
+          }
+
         } // Reader !eof and context is without error
 
+        // frames read before the context entered an error are still processed
+        transactionErrors += process(batch);
+        checkpoint();
+
       } // transformContext ! err after pre-processing
 
       if (transactionErrors > 0) {
@@ -443,6 +465,11 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
 
     symbols.put(Symbols.JOB_NAME, getName());
 
+    // accumulate metrics with those of previous runs of this job
+    if (metricsEnabled) {
+      initMetrics();
+    }
+
     // Throw an error if there are writers but no reader
     if (reader == null && writers.size() > 0) {
       throw new IllegalStateException("No reader configured, nothing to write");
@@ -488,6 +515,29 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
 
 
 
+  /**
+   * Retrieve the metrics for this job and register gauges for the queues of 
+   * any asynchronous listeners.
+   */
+  private void initMetrics() {
+    metrics = EngineMetrics.forJob(getName());
+    metrics.started();
+    for (final ContextListener listener : listeners) {
+      if (listener instanceof AsyncDispatcher) {
+        final AsyncDispatcher dispatcher = (AsyncDispatcher)listener;
+        metrics.setGauge("listener_queue_depth." + dispatcher.getListener().getClass().getSimpleName(), new EngineMetrics.Gauge() {
+          @Override
+          public long getValue() {
+            return dispatcher.getQueueDepth();
+          }
+        });
+      }
+    }
+  }
+
+
+
+
   /**
    * 
    */
@@ -684,9 +734,15 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
    */
   private void filter(TransactionContext txnContext) {
     txnContext.setState("Filter");
-    for (FrameFilter filter : filters) {
+    for (int x = 0; x < filters.size(); x++) {
+      final FrameFilter filter = filters.get(x);
       if (filter.isEnabled()) {
-        if (!filter.process(txnContext)) {
+        final long start = (metrics != null) ? System.nanoTime() : 0;
+        final boolean proceed = filter.process(txnContext);
+        if (metrics != null) {
+          metrics.getTimer(EngineMetrics.Stage.FILTER, x, filter).stop(start);
+        }
+        if (!proceed) {
           // filter signaled to discontinue filter checks (early exit)
           break;
         }
@@ -712,9 +768,15 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
     txnContext.setState("Validate");
     boolean passed = true;
     List<String> errors = new ArrayList<String>();
-    for (FrameValidator validator : validators) {
+    for (int x = 0; x < validators.size(); x++) {
+      final FrameValidator validator = validators.get(x);
+      final long start = (metrics != null) ? System.nanoTime() : 0;
       try {
-        if (!validator.process(txnContext)) {
+        final boolean valid = validator.process(txnContext);
+        if (metrics != null) {
+          metrics.getTimer(EngineMetrics.Stage.VALIDATE, x, validator).stop(start);
+        }
+        if (!valid) {
           passed = false;
           String error = validator.getDescription();
           if (StringUtil.isBlank(error)) {
@@ -723,6 +785,9 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
           errors.add(error);
         }
       } catch (ValidationException e) {
+        if (metrics != null) {
+          metrics.getTimer(EngineMetrics.Stage.VALIDATE, x, validator).error();
+        }
         txnContext.setError(e.getMessage());
       }
     }
@@ -745,37 +810,243 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
 
 
   /**
-   * Transform the working frame contained in the given transaction context
+   * Make the given transaction the current transaction of the transform 
+   * context so conditions and templates refer to its frames.
+   * 
+   * <p>Frames are processed in batches, so the current transaction is set 
+   * each time the engine moves on to the next transaction of a batch. The 
+   * source of the frame is kept in the transaction by readers which record 
+   * it and placed in the symbol table here, so templates see the source of 
+   * the frame being processed rather than of the last frame read.
+   * 
+   * @param txnContext the transaction being processed
+   */
+  private void activate(TransactionContext txnContext) {
+    getContext().setTransaction(txnContext);
+    getContext().setRow(txnContext.getRow());
+    getContext().getSymbols().put(Symbols.CURRENT_FRAME, txnContext.getRow());
+    getContext().getSymbols().put(Symbols.LAST_FRAME, txnContext.isLastFrame());
+    Object source = txnContext.get(Symbols.SOURCE_FILE);
+    if (source != null) {
+      getContext().getSymbols().put(Symbols.SOURCE_FILE, source);
+      getContext().getSymbols().put(Symbols.SOURCE_LINE, txnContext.get(Symbols.SOURCE_LINE));
+    }
+  }
+
+
+
+
+  /**
+   * Pass the given batch of validated transactions through the transforms, 
+   * mapper, aggregators and writers, then end each transaction.
+   * 
+   * <p>The batch is empty when this method returns.
+   * 
+   * @param batch the transactions to process, in the order they were read
+   * 
+   * @return the number of transactions in the batch which ended in error
+   */
+  private int process(List<TransactionContext> batch) {
+    int retval = 0;
+    if (batch.size() > 0) {
+      transform(batch);
+      for (TransactionContext txnContext : batch) {
+        activate(txnContext);
+        map(txnContext);
+      }
+      if (aggregators.size() > 0) {
+        for (TransactionContext txnContext : batch) {
+          activate(txnContext);
+          aggregateAndwrite(txnContext);
+        }
+      } else {
+        write(batch);
+      }
+
+      // Now end the transactions which should fire any context listeners
+      for (TransactionContext txnContext : batch) {
+        activate(txnContext);
+        txnContext.end();
+        if (txnContext.isInError()) {
+          retval++;
+        }
+      }
+      batch.clear();
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Let the reader record its progress now that all the frames it returned 
+   * have been processed.
+   */
+  private void checkpoint() {
+    if (reader instanceof CheckpointFrameReader) {
+      ((CheckpointFrameReader)reader).checkpoint();
+    }
+  }
+
+
+
+
+  /**
+   * Determine if the given component is to be passed a batch of frames in 
+   * one call.
+   * 
+   * <p>Components with a condition are passed one frame at a time since the 
+   * condition is evaluated against the current transaction.
+   * 
+   * @param component the batch capable component
+   * @param size the number of frames in the batch
+   * 
+   * @return true if the batch is to be passed to the component in one call
+   */
+  private static boolean isBatched(ConfigurableComponent component, int size) {
+    return size > 1 && (component.getConfiguration() == null || !component.getConfiguration().containsIgnoreCase(ConfigTag.CONDITION));
+  }
+
+
+
+
+  /**
+   * Transform the working frames contained in the given transaction contexts
    * with the currently configured transformers.
    * 
+   * <p>Each transformer processes the whole batch before the next one is 
+   * called. Transformers implementing {@link BatchFrameTransform} receive 
+   * all the working frames in one call, all others one frame at a time.
+   * 
+   * @param batch the transaction contexts containing the data to transform
+   */
+  private void transform(List<TransactionContext> batch) {
+    for (TransactionContext txnContext : batch) {
+      txnContext.setState("Transform");
+    }
+    // Pass the working frames through the transformers
+    for (int x = 0; x < transformers.size(); x++) {
+      final FrameTransform transformer = transformers.get(x);
+      if (transformer instanceof BatchFrameTransform && isBatched(transformer, batch.size())) {
+        transform(x, (BatchFrameTransform)transformer, batch);
+      } else {
+        for (TransactionContext txnContext : batch) {
+          activate(txnContext);
+          transform(x, transformer, txnContext);
+        }
+      }
+    }
+    for (TransactionContext txnContext : batch) {
+      if (txnContext.isInError()) {
+        Log.error("TRANSFORM ERRORS: " + txnContext.getErrorMessage());
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Transform the working frame contained in the given transaction context
+   * with the given transformer.
+   * 
+   * @param x the position of the transformer
+   * @param transformer the transformer to call
    * @param txnContext the transaction context containing the data to transform
    */
-  private void transform(TransactionContext txnContext) {
-    txnContext.setState("Transform");
-    // Pass the working frame through the transformers
-    for (FrameTransform transformer : transformers) {
-      try {
-        // Have the transformer process the frame
-        DataFrame resultFrame = transformer.process(txnContext.getWorkingFrame());
+  private void transform(int x, FrameTransform transformer, TransactionContext txnContext) {
+    final long start = (metrics != null) ? System.nanoTime() : 0;
+    try {
+      // Have the transformer process the frame
+      DataFrame resultFrame = transformer.process(txnContext.getWorkingFrame());
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.TRANSFORM, x, transformer).stop(start);
+      }
 
-        // place the results of the transformation in the context
-        txnContext.setWorkingFrame(resultFrame);
+      // place the results of the transformation in the context
+      txnContext.setWorkingFrame(resultFrame);
 
-      } catch (Exception e) {
-        StringBuilder b = new StringBuilder();
-        b.append(transformer.getClass().getSimpleName());
-        b.append(": ");
-        b.append(e.getMessage());
-        if (e instanceof NullPointerException) {
-          b.append("\n");
-          b.append(ExceptionUtil.stackTrace(e));
+    } catch (Exception e) {
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.TRANSFORM, x, transformer).error();
+      }
+      txnContext.setError(transformError(transformer, e));
+    }
+  }
+
+
+
+
+  /**
+   * Transform the working frames of all the given transaction contexts with
+   * one call to the given transformer.
+   * 
+   * @param x the position of the transformer
+   * @param transformer the transformer to call
+   * @param batch the transaction contexts containing the data to transform
+   */
+  private void transform(int x, BatchFrameTransform transformer, List<TransactionContext> batch) {
+    final List<DataFrame> frames = new ArrayList<DataFrame>(batch.size());
+    for (TransactionContext txnContext : batch) {
+      frames.add(txnContext.getWorkingFrame());
+    }
+    final long start = (metrics != null) ? System.nanoTime() : 0;
+    try {
+      // Have the transformer process the frames
+      List<DataFrame> results = transformer.process(frames);
+      if (results == null) {
+        // the transformer declined the batch, pass it the frames one at a time
+        for (TransactionContext txnContext : batch) {
+          activate(txnContext);
+          transform(x, transformer, txnContext);
         }
-        txnContext.setError(b.toString());
+        return;
+      }
+      if (results.size() != batch.size()) {
+        throw new TransformException("returned " + results.size() + " frames for a batch of " + batch.size());
+      }
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.TRANSFORM, x, transformer).stop(start);
+      }
+
+      // place the results of the transformation in the contexts
+      for (int y = 0; y < batch.size(); y++) {
+        batch.get(y).setWorkingFrame(results.get(y));
+      }
+
+    } catch (Exception e) {
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.TRANSFORM, x, transformer).error();
+      }
+      final String message = transformError(transformer, e);
+      for (TransactionContext txnContext : batch) {
+        txnContext.setError(message);
       }
     }
-    if (txnContext.isInError()) {
-      Log.error("TRANSFORM ERRORS: " + txnContext.getErrorMessage());
+  }
+
+
+
+
+  /**
+   * Describe the given exception thrown by the given transformer.
+   * 
+   * @param transformer the transformer which threw the exception
+   * @param e the exception thrown
+   * 
+   * @return the error message to place in the transaction context
+   */
+  private static String transformError(FrameTransform transformer, Exception e) {
+    StringBuilder b = new StringBuilder();
+    b.append(transformer.getClass().getSimpleName());
+    b.append(": ");
+    b.append(e.getMessage());
+    if (e instanceof NullPointerException) {
+      b.append("\n");
+      b.append(ExceptionUtil.stackTrace(e));
     }
+    return b.toString();
   }
 
 
@@ -792,10 +1063,17 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
     if (txnContext.isNotInError()) {
       txnContext.setState("Map");
       // Map / Move fields from the working to the target frame
+      final long start = (metrics != null) ? System.nanoTime() : 0;
       try {
         mapper.process(txnContext);
+        if (metrics != null) {
+          metrics.getTimer(EngineMetrics.Stage.MAP, 0, mapper).stop(start);
+        }
         txnContext.fireMap(txnContext);
       } catch (MappingException e) {
+        if (metrics != null) {
+          metrics.getTimer(EngineMetrics.Stage.MAP, 0, mapper).error();
+        }
         txnContext.setError(e.getMessage());
       }
     }
@@ -818,12 +1096,20 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
       txnContext.setState("Aggregation");
       List<DataFrame> frames = new ArrayList<DataFrame>();
       frames.add(txnContext.getTargetFrame());
-      for (FrameAggregator aggregator : aggregators) {
+      for (int x = 0; x < aggregators.size(); x++) {
+        final FrameAggregator aggregator = aggregators.get(x);
         if (frames != null) {
+          final long start = (metrics != null) ? System.nanoTime() : 0;
           try {
             // process the frames emitted from the previous aggregators
             frames = aggregator.process(frames, txnContext);
+            if (metrics != null) {
+              metrics.getTimer(EngineMetrics.Stage.AGGREGATE, x, aggregator).stop(start);
+            }
           } catch (Exception e) {
+            if (metrics != null) {
+              metrics.getTimer(EngineMetrics.Stage.AGGREGATE, x, aggregator).error();
+            }
             Log.error(LogMsg.createMsg(CDX.MSG, "Engine.aggregation_error", e.getClass().getSimpleName(), e.getMessage(), ExceptionUtil.stackTrace(e)));
             e.printStackTrace();
             txnContext.setError(e.getMessage());
@@ -844,6 +1130,52 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
 
 
 
+  /**
+   * Write the target frames of the given transaction contexts to all the 
+   * writers.
+   * 
+   * <p>Writers implementing {@link BatchFrameWriter} receive all the target 
+   * frames in one call, all others one frame at a time. Each writer writes 
+   * the whole batch before the next one is called.
+   * 
+   * @param batch the transaction contexts containing the data to write
+   */
+  private void write(List<TransactionContext> batch) {
+    final List<TransactionContext> ready = new ArrayList<TransactionContext>(batch.size());
+    for (TransactionContext txnContext : batch) {
+      if (txnContext.isNotInError() && txnContext.getTargetFrame() != null) {
+        ready.add(txnContext);
+      }
+    }
+
+    if (ready.size() > 0 && writers.size() > 0) {
+      for (TransactionContext txnContext : ready) {
+        txnContext.setState("Write");
+      }
+      // Pass the frames to all the enabled writers
+      for (int x = 0; x < writers.size(); x++) {
+        final FrameWriter writer = writers.get(x);
+        if (writer.isEnabled()) {
+          if (writer instanceof BatchFrameWriter && isBatched(writer, ready.size())) {
+            write(x, (BatchFrameWriter)writer, ready);
+          } else {
+            for (TransactionContext txnContext : ready) {
+              activate(txnContext);
+              write(x, writer, txnContext);
+            }
+          }
+        } else {
+          if (Log.isLogging(Log.DEBUG_EVENTS)) {
+            Log.error(LogMsg.createMsg(CDX.MSG, "Engine.writer_skipped_disabled", writer.getClass().getSimpleName()));
+          }
+        }
+      }
+    }
+  }
+
+
+
+
   /**
    * Write the given transaction context to all the writers.
    * 
@@ -853,17 +1185,10 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
     if (txnContext.isNotInError() && txnContext.getTargetFrame() != null && writers.size() > 0) {
       txnContext.setState("Write");
       // Pass the frame to all the enabled writers
-      for (FrameWriter writer : writers) {
+      for (int x = 0; x < writers.size(); x++) {
+        final FrameWriter writer = writers.get(x);
         if (writer.isEnabled()) {
-          try {
-            // Write the target (new) frame
-            writer.write(txnContext.getTargetFrame());
-            txnContext.fireWrite(txnContext, writer);
-          } catch (Exception e) {
-            Log.error(LogMsg.createMsg(CDX.MSG, "Engine.write_error", e.getClass().getSimpleName(), e.getMessage(), ExceptionUtil.stackTrace(e)));
-            e.printStackTrace();
-            txnContext.setError(e.getMessage());
-          }
+          write(x, writer, txnContext);
         } else {
           if (Log.isLogging(Log.DEBUG_EVENTS)) {
             Log.error(LogMsg.createMsg(CDX.MSG, "Engine.writer_skipped_disabled", writer.getClass().getSimpleName()));
@@ -876,6 +1201,87 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
 
 
 
+  /**
+   * Write the target frame of the given transaction context to the given 
+   * writer.
+   * 
+   * @param x the position of the writer
+   * @param writer the writer to call
+   * @param txnContext the transaction context containing the data to write
+   */
+  private void write(int x, FrameWriter writer, TransactionContext txnContext) {
+    final long start = (metrics != null) ? System.nanoTime() : 0;
+    try {
+      // Write the target (new) frame
+      writer.write(txnContext.getTargetFrame());
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.WRITE, x, writer).stop(start);
+      }
+      txnContext.fireWrite(txnContext, writer);
+    } catch (Exception e) {
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.WRITE, x, writer).error();
+      }
+      Log.error(LogMsg.createMsg(CDX.MSG, "Engine.write_error", e.getClass().getSimpleName(), e.getMessage(), ExceptionUtil.stackTrace(e)));
+      e.printStackTrace();
+      txnContext.setError(e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * Write the target frames of all the given transaction contexts with one 
+   * call to the given writer.
+   * 
+   * <p>Listeners are notified of the write of each frame once the whole 
+   * batch has been written. When the writer reports the batch was only 
+   * partly written, listeners are notified of the frames which were and the 
+   * transactions of the rest are placed in error.
+   * 
+   * @param x the position of the writer
+   * @param writer the writer to call
+   * @param batch the transaction contexts containing the data to write
+   */
+  private void write(int x, BatchFrameWriter writer, List<TransactionContext> batch) {
+    final List<DataFrame> frames = new ArrayList<DataFrame>(batch.size());
+    for (TransactionContext txnContext : batch) {
+      frames.add(txnContext.getTargetFrame());
+    }
+    final long start = (metrics != null) ? System.nanoTime() : 0;
+    try {
+      // Write the target (new) frames
+      writer.write(frames);
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.WRITE, x, writer).stop(start);
+      }
+      for (TransactionContext txnContext : batch) {
+        activate(txnContext);
+        txnContext.fireWrite(txnContext, writer);
+      }
+    } catch (Exception e) {
+      if (metrics != null) {
+        metrics.getTimer(EngineMetrics.Stage.WRITE, x, writer).error();
+      }
+      Log.error(LogMsg.createMsg(CDX.MSG, "Engine.write_error", e.getClass().getSimpleName(), e.getMessage(), ExceptionUtil.stackTrace(e)));
+      e.printStackTrace();
+      final int written = (e instanceof BatchWriteException) ? Math.max(0, Math.min(((BatchWriteException)e).getIndex(), batch.size())) : 0;
+      for (int y = 0; y < batch.size(); y++) {
+        final TransactionContext txnContext = batch.get(y);
+        if (y < written) {
+          activate(txnContext);
+          txnContext.fireWrite(txnContext, writer);
+        } else {
+          txnContext.setError(e.getMessage());
+        }
+      }
+    }
+  }
+
+
+
+
   /**
    * Retrieves a list of command line arguments as set in the symbol table and 
    * places them in the context.
@@ -1322,7 +1728,41 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
    */
   @Override
   public void addListener(ContextListener listener) {
-    listeners.add(listener);
+    // async-safe listeners configured to do so receive events on their own thread
+    listeners.add(AsyncDispatcher.wrap(listener));
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.TransformEngine#setMetricsEnabled(boolean)
+   */
+  @Override
+  public void setMetricsEnabled(boolean flag) {
+    metricsEnabled = flag;
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.TransformEngine#setBatchSize(int)
+   */
+  @Override
+  public void setBatchSize(int size) {
+    batchSize = (size > 1) ? size : 1;
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.TransformEngine#getMetrics()
+   */
+  @Override
+  public EngineMetrics getMetrics() {
+    return metrics;
   }
 
 
@@ -1367,6 +1807,7 @@ public abstract class AbstractTransformEngine extends AbstractConfigurableCompon
   @Override
   public void setName(String value) {
     configuration.put(ConfigTag.NAME, value);
+    invalidateConfiguration();
   }
 
 
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.util.List;
+
+import coyote.dataframe.DataFrame;
+
+
+/**
+ * A frame transform which can process several frames in one call.
+ * 
+ * <p>When the engine is configured with a batch size greater than one, it 
+ * passes the working frames of that many transactions to transforms 
+ * implementing this interface in one call. Transforms which do not 
+ * implement this interface are still passed one frame at a time, as are 
+ * batch transforms configured with a condition since the condition must be 
+ * evaluated against the transaction of each frame.
+ */
+public interface BatchFrameTransform extends FrameTransform {
+
+  /**
+   * Transform the given frames and return the transformed frames.
+   * 
+   * <p>The returned list must hold exactly one frame for each of the given 
+   * frames in the same order; each becomes the new working frame of its 
+   * transaction context. As with single frames, it is acceptable to 
+   * transform the frames in place and return the given list.
+   * 
+   * <p>A transform which can not process a particular batch as a whole (e.g. 
+   * its values are not all of one type) may return null, and the engine will 
+   * pass it the frames one at a time instead. This keeps errors in single 
+   * frames confined to their own transactions.
+   * 
+   * <p>If this method throws an exception, every transaction in the batch 
+   * is placed in error and none of the frames will be written.
+   * 
+   * @param frames The frames to transform, never empty
+   * 
+   * @return the transformed frames, one for each given frame, or null to 
+   *         have the frames passed one at a time
+   * 
+   * @throws TransformException if any problems occurred during transformation
+   *         causing the transactions of the batch to be aborted.
+   */
+  public List<DataFrame> process(List<DataFrame> frames) throws TransformException;
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.util.List;
+
+import coyote.dataframe.DataFrame;
+
+
+/**
+ * A frame writer which can write several frames in one call.
+ * 
+ * <p>When the engine is configured with a batch size greater than one, it 
+ * collects that many target frames and passes them to writers implementing 
+ * this interface in one call, letting the writer send them to its 
+ * destination in one operation instead of buffering them itself. Writers 
+ * which do not implement this interface are still passed one frame at a 
+ * time, as are batch writers configured with a condition since the 
+ * condition must be evaluated against the transaction of each frame.
+ * 
+ * <p>Listeners still receive one write event for each frame of the batch 
+ * after the batch has been written. If this method throws a 
+ * {@link BatchWriteException}, the frames before its index are taken as 
+ * written and the transactions of the rest are placed in error; any other 
+ * exception places every transaction in the batch in error.
+ */
+public interface BatchFrameWriter extends FrameWriter {
+
+  /**
+   * Write the given frames in the order they appear in the list.
+   * 
+   * @param frames the target frames to write, never empty
+   * 
+   * @throws BatchWriteException if only the frames before a given position 
+   *         were written
+   */
+  public void write(List<DataFrame> frames);
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+/**
+ * Thrown by a {@link BatchFrameWriter} which wrote only part of a batch, 
+ * giving the position of the first frame which was not written.
+ */
+public class BatchWriteException extends RuntimeException {
+
+  private static final long serialVersionUID = 4391062846531209557L;
+
+  private final int index;
+
+
+
+
+  /**
+   * Create a new exception with the given message.
+   * 
+   * @param msg the exception message to set.
+   * @param index the position in the batch of the first frame not written
+   */
+  public BatchWriteException(String msg, int index) {
+    super(msg);
+    this.index = index;
+  }
+
+
+
+
+  /**
+   * Create a new exception with the given message and cause.
+   * 
+   * @param msg the exception message to set.
+   * @param index the position in the batch of the first frame not written
+   * @param cause the reason the frame could not be written
+   */
+  public BatchWriteException(String msg, int index, Throwable cause) {
+    super(msg, cause);
+    this.index = index;
+  }
+
+
+
+
+  /**
+   * @return the position in the batch of the first frame which was not 
+   *         written; the frames before it were written
+   */
+  public int getIndex() {
+    return index;
+  }
+
+}
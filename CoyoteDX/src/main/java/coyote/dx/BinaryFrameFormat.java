@@ -0,0 +1,924 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import coyote.dataframe.DataField;
+import coyote.dataframe.DataFrame;
+
+
+/**
+ * The layout of the compact binary frame files written by the
+ * {@code BinaryFrameWriter} and read by the {@code BinaryFrameReader}.
+ *
+ * <p>A file starts with a header containing the schema of the data; the
+ * names and value types of the fields in the first frame written. The header
+ * is followed by blocks of rows and the file ends with an index of the blocks
+ * and a fixed length trailer pointing to the index:<pre>
+ * header  : magic(4) version(1) columns(4) {name(UTF) type(1)}*
+ * block   : mark(1) rows(4) codec(1) raw length(4) stored length(4) crc(4) payload
+ * index   : mark(1) blocks(4) {offset(8) first row(8) rows(4)}*
+ * trailer : index offset(8) magic(4)</pre>
+ *
+ * <p>The payload of a block is the strings added to the block dictionary
+ * followed by the rows. Each field is written as a reference to its name and
+ * a typed value. Field names and short string values are written once per
+ * block in the dictionary and referenced by their position, with the names
+ * in the schema always occupying the first positions. Nested frames are
+ * written as rows within the row. Values of types not listed here are written
+ * as their string representation.
+ *
+ * <p>The payload is compressed with deflate when compression is enabled and
+ * the compressed data is smaller. Since every block is self-contained, a
+ * reader can use the index to start reading at any block, which allows a
+ * file to be split into ranges of blocks and read in parallel.
+ */
+public final class BinaryFrameFormat {
+
+  public static final int MAGIC = 0x43445842; // CDXB
+  public static final int TRAILER_MAGIC = 0x43445849; // CDXI
+  public static final byte VERSION = 1;
+
+  /** Block codec for uncompressed payloads */
+  public static final byte NONE = 0;
+
+  /** Block codec for deflated payloads */
+  public static final byte DEFLATE = 1;
+
+  /** The length of the trailer at the end of the file */
+  public static final int TRAILER_LENGTH = 12;
+
+  private static final byte BLOCK_MARK = (byte)0xB1;
+  private static final byte INDEX_MARK = (byte)0x1D;
+
+  // value tags
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte REFERENCE = 2;
+  private static final byte TRUE = 3;
+  private static final byte FALSE = 4;
+  private static final byte BYTE = 5;
+  private static final byte SHORT = 6;
+  private static final byte INT = 7;
+  private static final byte LONG = 8;
+  private static final byte FLOAT = 9;
+  private static final byte DOUBLE = 10;
+  private static final byte DATE = 11;
+  private static final byte BYTES = 12;
+  private static final byte FRAME = 13;
+  private static final byte DECIMAL = 14;
+  private static final byte BIGINTEGER = 15;
+
+  private static final String[] TYPE_NAMES = {"Null", "String", "String", "Boolean", "Boolean", "Byte", "Short", "Integer", "Long", "Float", "Double", "Date", "Bytes", "Frame", "Decimal", "BigInteger"};
+
+  /** Strings longer than this are written in place rather than in the dictionary */
+  private static final int MAX_DICTIONARY_LENGTH = 128;
+
+  /** The most strings a block dictionary will hold */
+  private static final int MAX_DICTIONARY_SIZE = 65536;
+
+
+
+
+  private BinaryFrameFormat() {
+    // only static methods and nested classes
+  }
+
+
+
+
+  /**
+   * Write the file header containing the schema of the given frame.
+   *
+   * @param out where to write the header
+   * @param frame the frame describing the schema
+   *
+   * @return the schema written
+   *
+   * @throws IOException if the header could not be written
+   */
+  public static Schema writeHeader(final DataOutput out, final DataFrame frame) throws IOException {
+    final List<String> names = new ArrayList<String>();
+    final List<Byte> types = new ArrayList<Byte>();
+    if (frame != null) {
+      for (final DataField field : frame.getFields()) {
+        if (field.getName() != null && !names.contains(field.getName())) {
+          names.add(field.getName());
+          types.add(tagOf(field.getObjectValue()));
+        }
+      }
+    }
+    final Schema retval = new Schema(names.toArray(new String[names.size()]), new byte[types.size()]);
+    for (int x = 0; x < types.size(); x++) {
+      retval.types[x] = types.get(x);
+    }
+
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeInt(retval.size());
+    for (int x = 0; x < retval.size(); x++) {
+      out.writeUTF(retval.names[x]);
+      out.writeByte(retval.types[x]);
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Read the file header.
+   *
+   * @param in the source positioned at the start of the file
+   *
+   * @return the schema of the file
+   *
+   * @throws IOException if the header could not be read or is not valid
+   */
+  public static Schema readHeader(final DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a binary frame file");
+    }
+    final byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported binary frame file version " + version);
+    }
+    final int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Invalid column count " + count);
+    }
+    final Schema retval = new Schema(new String[count], new byte[count]);
+    for (int x = 0; x < count; x++) {
+      retval.names[x] = in.readUTF();
+      retval.types[x] = in.readByte();
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Write the block index and the trailer which locates it.
+   *
+   * @param out where to write the index
+   * @param blocks the blocks in the file
+   * @param offset the position in the file where the index starts
+   *
+   * @throws IOException if the index could not be written
+   */
+  public static void writeIndex(final DataOutput out, final List<BlockInfo> blocks, final long offset) throws IOException {
+    out.writeByte(INDEX_MARK);
+    out.writeInt(blocks.size());
+    for (final BlockInfo block : blocks) {
+      out.writeLong(block.offset);
+      out.writeLong(block.firstRow);
+      out.writeInt(block.rows);
+    }
+    out.writeLong(offset);
+    out.writeInt(TRAILER_MAGIC);
+  }
+
+
+
+
+  /**
+   * Read the block index of a file.
+   *
+   * <p>If the file has no valid trailer, such as when the writer did not
+   * close the file, the index is rebuilt by scanning the headers of the
+   * blocks, stopping at the first incomplete block.
+   *
+   * @param file the file to read
+   * @param dataStart the position of the first block, just after the header
+   *
+   * @return the blocks in the file in the order they were written
+   *
+   * @throws IOException if the file could not be read
+   */
+  public static List<BlockInfo> readIndex(final RandomAccessFile file, final long dataStart) throws IOException {
+    final long length = file.length();
+    if (length >= dataStart + TRAILER_LENGTH) {
+      file.seek(length - TRAILER_LENGTH);
+      final long offset = file.readLong();
+      if (file.readInt() == TRAILER_MAGIC && offset >= dataStart && offset < length - TRAILER_LENGTH) {
+        file.seek(offset);
+        if (file.readByte() == INDEX_MARK) {
+          final int count = file.readInt();
+          final List<BlockInfo> retval = new ArrayList<BlockInfo>(count);
+          for (int x = 0; x < count; x++) {
+            retval.add(new BlockInfo(file.readLong(), file.readLong(), file.readInt()));
+          }
+          return retval;
+        }
+      }
+    }
+    return scanIndex(file, dataStart);
+  }
+
+
+
+
+  private static List<BlockInfo> scanIndex(final RandomAccessFile file, final long dataStart) throws IOException {
+    final List<BlockInfo> retval = new ArrayList<BlockInfo>();
+    final long length = file.length();
+    long position = dataStart;
+    long row = 0;
+    while (position + BlockInfo.HEADER_LENGTH <= length) {
+      file.seek(position);
+      if (file.readByte() != BLOCK_MARK) {
+        break;
+      }
+      final int rows = file.readInt();
+      file.readByte(); // codec
+      file.readInt(); // raw length
+      final int stored = file.readInt();
+      final long next = position + BlockInfo.HEADER_LENGTH + stored;
+      if (rows < 0 || stored < 0 || next > length) {
+        break;
+      }
+      retval.add(new BlockInfo(position, row, rows));
+      row += rows;
+      position = next;
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Read and decode a block of frames.
+   *
+   * @param file the file to read
+   * @param block the block to read
+   * @param schema the schema of the file
+   *
+   * @return the frames in the block
+   *
+   * @throws IOException if the block could not be read or is corrupt
+   */
+  public static DataFrame[] readBlock(final RandomAccessFile file, final BlockInfo block, final Schema schema) throws IOException {
+    file.seek(block.offset);
+    if (file.readByte() != BLOCK_MARK) {
+      throw new IOException("No block at offset " + block.offset);
+    }
+    final int rows = file.readInt();
+    final byte codec = file.readByte();
+    final int rawLength = file.readInt();
+    final int storedLength = file.readInt();
+    final int checksum = file.readInt();
+    final byte[] stored = new byte[storedLength];
+    file.readFully(stored);
+
+    final CRC32 crc = new CRC32();
+    crc.update(stored, 0, stored.length);
+    if ((int)crc.getValue() != checksum) {
+      throw new IOException("Checksum mismatch in block at offset " + block.offset);
+    }
+
+    final byte[] payload;
+    if (codec == DEFLATE) {
+      payload = inflate(stored, rawLength);
+    } else if (codec == NONE) {
+      payload = stored;
+    } else {
+      throw new IOException("Unsupported block codec " + codec);
+    }
+    return decode(ByteBuffer.wrap(payload), rows, schema);
+  }
+
+
+
+
+  private static byte[] inflate(final byte[] data, final int length) throws IOException {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      final byte[] retval = new byte[length];
+      int count = 0;
+      while (count < length && !inflater.finished()) {
+        final int read = inflater.inflate(retval, count, length - count);
+        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        count += read;
+      }
+      if (count != length) {
+        throw new IOException("Block inflated to " + count + " bytes, expected " + length);
+      }
+      return retval;
+    } catch (final DataFormatException e) {
+      throw new IOException("Corrupt block data: " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+
+
+
+
+  private static DataFrame[] decode(final ByteBuffer buffer, final int rows, final Schema schema) throws IOException {
+    try {
+      final int count = readVarint(buffer);
+      final String[] dictionary = new String[schema.size() + count];
+      System.arraycopy(schema.names, 0, dictionary, 0, schema.size());
+      for (int x = schema.size(); x < dictionary.length; x++) {
+        dictionary[x] = readString(buffer);
+      }
+      final DataFrame[] retval = new DataFrame[rows];
+      for (int x = 0; x < rows; x++) {
+        retval[x] = readFrame(buffer, dictionary);
+      }
+      return retval;
+    } catch (final RuntimeException e) {
+      throw new IOException("Corrupt block: " + e.toString());
+    }
+  }
+
+
+
+
+  private static DataFrame readFrame(final ByteBuffer buffer, final String[] dictionary) {
+    final DataFrame retval = new DataFrame();
+    final int fields = readVarint(buffer);
+    for (int x = 0; x < fields; x++) {
+      final int name = readVarint(buffer);
+      retval.add(name == 0 ? null : dictionary[name - 1], readValue(buffer, dictionary));
+    }
+    return retval;
+  }
+
+
+
+
+  private static Object readValue(final ByteBuffer buffer, final String[] dictionary) {
+    final byte tag = buffer.get();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(buffer);
+      case REFERENCE:
+        return dictionary[readVarint(buffer)];
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case BYTE:
+        return buffer.get();
+      case SHORT:
+        return (short)unzigzag(readVarlong(buffer));
+      case INT:
+        return (int)unzigzag(readVarlong(buffer));
+      case LONG:
+        return unzigzag(readVarlong(buffer));
+      case FLOAT:
+        return buffer.getFloat();
+      case DOUBLE:
+        return buffer.getDouble();
+      case DATE:
+        return new Date(unzigzag(readVarlong(buffer)));
+      case BYTES:
+        final byte[] bytes = new byte[readVarint(buffer)];
+        buffer.get(bytes);
+        return bytes;
+      case FRAME:
+        return readFrame(buffer, dictionary);
+      case DECIMAL:
+        return new BigDecimal(readString(buffer));
+      case BIGINTEGER:
+        return new BigInteger(readString(buffer));
+      default:
+        throw new IllegalStateException("Unknown value tag " + tag);
+    }
+  }
+
+
+
+
+  private static String readString(final ByteBuffer buffer) {
+    final int length = readVarint(buffer);
+    final String retval = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return retval;
+  }
+
+
+
+
+  private static int readVarint(final ByteBuffer buffer) {
+    return (int)readVarlong(buffer);
+  }
+
+
+
+
+  private static long readVarlong(final ByteBuffer buffer) {
+    long retval = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      retval |= (long)(b & 0x7F) << shift;
+      shift += 7;
+    }
+    while ((b & 0x80) != 0);
+    return retval;
+  }
+
+
+
+
+  private static long unzigzag(final long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+
+
+
+  private static byte tagOf(final Object value) {
+    if (value == null) {
+      return NULL;
+    } else if (value instanceof String) {
+      return STRING;
+    } else if (value instanceof Boolean) {
+      return ((Boolean)value) ? TRUE : FALSE;
+    } else if (value instanceof Byte) {
+      return BYTE;
+    } else if (value instanceof Short) {
+      return SHORT;
+    } else if (value instanceof Integer) {
+      return INT;
+    } else if (value instanceof Long) {
+      return LONG;
+    } else if (value instanceof Float) {
+      return FLOAT;
+    } else if (value instanceof Double) {
+      return DOUBLE;
+    } else if (value instanceof Date) {
+      return DATE;
+    } else if (value instanceof byte[]) {
+      return BYTES;
+    } else if (value instanceof DataFrame) {
+      return FRAME;
+    } else if (value instanceof BigDecimal) {
+      return DECIMAL;
+    } else if (value instanceof BigInteger) {
+      return BIGINTEGER;
+    }
+    return STRING;
+  }
+
+
+
+
+  /**
+   * The names and types of the fields described in the file header.
+   */
+  public static final class Schema {
+    private final String[] names;
+    private final byte[] types;
+
+
+
+
+    Schema(final String[] names, final byte[] types) {
+      this.names = names;
+      this.types = types;
+    }
+
+
+
+
+    /**
+     * @return the number of fields in the schema
+     */
+    public int size() {
+      return names.length;
+    }
+
+
+
+
+    /**
+     * @param index the position of the field in the schema
+     *
+     * @return the name of the field
+     */
+    public String getName(final int index) {
+      return names[index];
+    }
+
+
+
+
+    /**
+     * @param index the position of the field in the schema
+     *
+     * @return the name of the type of the field's value in the first frame
+     */
+    public String getTypeName(final int index) {
+      final int type = types[index];
+      return (type >= 0 && type < TYPE_NAMES.length) ? TYPE_NAMES[type] : "Unknown";
+    }
+
+  }
+
+
+
+
+  /**
+   * The location of a block in a file as recorded in the block index.
+   */
+  public static final class BlockInfo {
+    static final int HEADER_LENGTH = 18;
+
+    private final long offset;
+    private final long firstRow;
+    private final int rows;
+
+
+
+
+    public BlockInfo(final long offset, final long firstRow, final int rows) {
+      this.offset = offset;
+      this.firstRow = firstRow;
+      this.rows = rows;
+    }
+
+
+
+
+    /**
+     * @return the position of the block in the file
+     */
+    public long getOffset() {
+      return offset;
+    }
+
+
+
+
+    /**
+     * @return the number of rows written before this block
+     */
+    public long getFirstRow() {
+      return firstRow;
+    }
+
+
+
+
+    /**
+     * @return the number of rows in the block
+     */
+    public int getRows() {
+      return rows;
+    }
+
+  }
+
+
+
+
+  /**
+   * Encodes frames into blocks.
+   *
+   * <p>Frames are encoded as they are added, building the block dictionary
+   * as new strings are seen. When the block is complete, it is written with
+   * its dictionary and the encoder is reset for the next block. Instances
+   * are not thread-safe.
+   */
+  public static final class BlockEncoder {
+    private final Schema schema;
+    private final boolean compress;
+    private final Map<String, Integer> references = new HashMap<String, Integer>();
+    private final List<String> dictionary = new ArrayList<String>();
+    private final Buffer rows = new Buffer();
+    private final Buffer payload = new Buffer();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private byte[] deflated = new byte[0];
+    private int count = 0;
+
+
+
+
+    /**
+     * @param schema the schema of the file
+     * @param compress true to compress blocks with deflate
+     */
+    public BlockEncoder(final Schema schema, final boolean compress) {
+      this.schema = schema;
+      this.compress = compress;
+      reset();
+    }
+
+
+
+
+    /**
+     * Encode a frame into the current block.
+     *
+     * @param frame the frame to add
+     */
+    public void add(final DataFrame frame) {
+      writeFrame(frame);
+      count++;
+    }
+
+
+
+
+    /**
+     * @return the number of frames in the current block
+     */
+    public int getRows() {
+      return count;
+    }
+
+
+
+
+    /**
+     * @return the approximate size of the current block before compression
+     */
+    public int getSize() {
+      return rows.size();
+    }
+
+
+
+
+    /**
+     * Write the current block and reset the encoder for the next block.
+     *
+     * @param out where to write the block
+     *
+     * @return the number of bytes written
+     *
+     * @throws IOException if the block could not be written
+     */
+    public int writeBlock(final DataOutput out) throws IOException {
+      payload.reset();
+      payload.writeVarint(dictionary.size());
+      for (final String text : dictionary) {
+        payload.writeString(text);
+      }
+      rows.writeTo(payload);
+
+      byte codec = NONE;
+      byte[] data = payload.getBytes();
+      int length = payload.size();
+      if (compress) {
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        if (deflated.length < length) {
+          deflated = new byte[length];
+        }
+        int size = 0;
+        while (!deflater.finished() && size < length) {
+          size += deflater.deflate(deflated, size, length - size);
+        }
+        // only keep the compressed data if it is smaller
+        if (deflater.finished() && size < length) {
+          codec = DEFLATE;
+          data = deflated;
+          length = size;
+        }
+      }
+
+      final CRC32 crc = new CRC32();
+      crc.update(data, 0, length);
+      out.writeByte(BLOCK_MARK);
+      out.writeInt(count);
+      out.writeByte(codec);
+      out.writeInt(payload.size());
+      out.writeInt(length);
+      out.writeInt((int)crc.getValue());
+      out.write(data, 0, length);
+      reset();
+      return BlockInfo.HEADER_LENGTH + length;
+    }
+
+
+
+
+    /**
+     * Release the resources of the encoder.
+     */
+    public void end() {
+      deflater.end();
+    }
+
+
+
+
+    private void reset() {
+      references.clear();
+      dictionary.clear();
+      for (int x = 0; x < schema.size(); x++) {
+        references.put(schema.names[x], x);
+      }
+      rows.reset();
+      count = 0;
+    }
+
+
+
+
+    private void writeFrame(final DataFrame frame) {
+      rows.writeVarint(frame.getFields().size());
+      for (final DataField field : frame.getFields()) {
+        if (field.getName() == null) {
+          rows.writeVarint(0);
+        } else {
+          rows.writeVarint(reference(field.getName()) + 1);
+        }
+        writeValue(field.getObjectValue());
+      }
+    }
+
+
+
+
+    private void writeValue(final Object value) {
+      final byte tag = tagOf(value);
+      switch (tag) {
+        case NULL:
+        case TRUE:
+        case FALSE:
+          rows.write(tag);
+          break;
+        case STRING:
+          writeString(value.toString());
+          break;
+        case BYTE:
+          rows.write(tag);
+          rows.write((Byte)value);
+          break;
+        case SHORT:
+        case INT:
+        case LONG:
+          rows.write(tag);
+          rows.writeVarlong(zigzag(((Number)value).longValue()));
+          break;
+        case FLOAT:
+          rows.write(tag);
+          rows.writeInt(Float.floatToIntBits((Float)value));
+          break;
+        case DOUBLE:
+          rows.write(tag);
+          rows.writeLong(Double.doubleToLongBits((Double)value));
+          break;
+        case DATE:
+          rows.write(tag);
+          rows.writeVarlong(zigzag(((Date)value).getTime()));
+          break;
+        case BYTES:
+          final byte[] bytes = (byte[])value;
+          rows.write(tag);
+          rows.writeVarint(bytes.length);
+          rows.write(bytes, 0, bytes.length);
+          break;
+        case FRAME:
+          rows.write(tag);
+          writeFrame((DataFrame)value);
+          break;
+        default:
+          rows.write(tag);
+          rows.writeString(value.toString());
+          break;
+      }
+    }
+
+
+
+
+    private void writeString(final String text) {
+      if (text.length() <= MAX_DICTIONARY_LENGTH) {
+        final Integer index = references.get(text);
+        if (index != null || references.size() < schema.size() + MAX_DICTIONARY_SIZE) {
+          rows.write(REFERENCE);
+          rows.writeVarint(index != null ? index : reference(text));
+          return;
+        }
+      }
+      rows.write(STRING);
+      rows.writeString(text);
+    }
+
+
+
+
+    private int reference(final String text) {
+      Integer retval = references.get(text);
+      if (retval == null) {
+        retval = references.size();
+        references.put(text, retval);
+        dictionary.add(text);
+      }
+      return retval;
+    }
+
+
+
+
+    private static long zigzag(final long value) {
+      return (value << 1) ^ (value >> 63);
+    }
+
+  }
+
+
+
+
+  /**
+   * A growable byte buffer with methods for the encodings used in blocks.
+   */
+  private static final class Buffer extends ByteArrayOutputStream {
+
+    Buffer() {
+      super(8192);
+    }
+
+
+
+
+    byte[] getBytes() {
+      return buf;
+    }
+
+
+
+
+    void writeVarint(final int value) {
+      writeVarlong(value & 0xFFFFFFFFL);
+    }
+
+
+
+
+    void writeVarlong(final long value) {
+      long remaining = value;
+      while ((remaining & ~0x7FL) != 0) {
+        write((int)((remaining & 0x7F) | 0x80));
+        remaining >>>= 7;
+      }
+      write((int)remaining);
+    }
+
+
+
+
+    void writeInt(final int value) {
+      write(value >>> 24);
+      write(value >>> 16);
+      write(value >>> 8);
+      write(value);
+    }
+
+
+
+
+    void writeLong(final long value) {
+      writeInt((int)(value >>> 32));
+      writeInt((int)value);
+    }
+
+
+
+
+    void writeString(final String text) {
+      final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      writeVarint(bytes.length);
+      write(bytes, 0, bytes.length);
+    }
+
+  }
+
+}
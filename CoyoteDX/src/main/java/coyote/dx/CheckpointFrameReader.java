@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+/**
+ * A frame reader which records its progress once the frames it returned have 
+ * been processed.
+ * 
+ * <p>The engine passes frames to the transforms and writers in batches, so a 
+ * frame returned by {@code read()} may still be waiting in a batch when the 
+ * next frame is read. Readers which save offsets or move their sources once 
+ * the data has been handled implement this interface and do so in 
+ * {@link #checkpoint()} instead of on the next read.
+ */
+public interface CheckpointFrameReader extends FrameReader {
+
+  /**
+   * Called by the engine when every frame this reader has returned has been 
+   * processed and written.
+   */
+  public void checkpoint();
+
+}
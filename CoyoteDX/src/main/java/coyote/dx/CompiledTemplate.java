@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import coyote.commons.template.SymbolTable;
+import coyote.commons.template.Template;
+
+
+/**
+ * A template parsed once into a list of segments for repeated resolution.
+ *
+ * <p>{@link Template#resolve(String, SymbolTable)} and {@link
+ * Template#preProcess(String, SymbolTable)} scan the text for tokens each
+ * time they are called. Components which resolve the same template for
+ * every frame (filter expressions, URLs, messages) can use this class to
+ * have the text scanned once: the template is split into literal text and
+ * tokens, and each resolution simply appends the literals and the values of
+ * the tokens to a per-thread buffer.
+ *
+ * <p>Symbol tokens ({@code [#$name#]}) are looked up in the symbol table
+ * directly. Tokens which are not simple symbol references (e.g. method calls
+ * on objects registered with the Template class) and symbols which are not
+ * in the table are handed to the Template class individually, so the
+ * results are the same as processing the whole text.
+ *
+ * <p>Compiled templates are immutable and thread-safe. The static methods
+ * cache them by template text so callers need not hold on to them.
+ */
+public final class CompiledTemplate {
+
+  private static final String OPEN = "[#";
+  private static final String CLOSE = "#]";
+  private static final char SYMBOL = '$';
+
+  /** The maximum number of templates to cache */
+  private static final int MAX_CACHED = 2048;
+
+  private static final ConcurrentHashMap<String, CompiledTemplate> CACHE = new ConcurrentHashMap<String, CompiledTemplate>();
+
+  private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+    @Override
+    protected StringBuilder initialValue() {
+      return new StringBuilder(256);
+    }
+  };
+
+  private final String text;
+
+  /** Literal text and the full text of tokens in template order */
+  private final String[] segments;
+
+  /** The symbol name of each token segment, null for literals and tokens which are not simple symbols */
+  private final String[] symbols;
+
+  /** True for segments which are tokens */
+  private final boolean[] tokens;
+
+
+
+
+  private CompiledTemplate(final String text) {
+    this.text = text;
+    final List<String> parts = new ArrayList<String>();
+    final List<Boolean> kinds = new ArrayList<Boolean>();
+    int position = 0;
+    while (position < text.length()) {
+      final int start = text.indexOf(OPEN, position);
+      if (start < 0) {
+        break;
+      }
+      final int end = text.indexOf(CLOSE, start + OPEN.length());
+      if (end < 0) {
+        break;
+      }
+      if (start > position) {
+        parts.add(text.substring(position, start));
+        kinds.add(Boolean.FALSE);
+      }
+      parts.add(text.substring(start, end + CLOSE.length()));
+      kinds.add(Boolean.TRUE);
+      position = end + CLOSE.length();
+    }
+    if (position < text.length()) {
+      parts.add(text.substring(position));
+      kinds.add(Boolean.FALSE);
+    }
+
+    segments = parts.toArray(new String[parts.size()]);
+    tokens = new boolean[segments.length];
+    symbols = new String[segments.length];
+    for (int x = 0; x < segments.length; x++) {
+      tokens[x] = kinds.get(x);
+      if (tokens[x]) {
+        symbols[x] = getSymbolName(segments[x]);
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Compile the given template text, reusing a previous compilation of the
+   * same text if it is cached.
+   *
+   * @param text the template text
+   *
+   * @return the compiled template
+   *
+   * @throws IllegalArgumentException if the text is null
+   */
+  public static CompiledTemplate compile(final String text) {
+    if (text == null) {
+      throw new IllegalArgumentException("Cannot compile a null template");
+    }
+    CompiledTemplate retval = CACHE.get(text);
+    if (retval == null) {
+      retval = new CompiledTemplate(text);
+      if (CACHE.size() >= MAX_CACHED) {
+        // templates built from data should not grow the cache without bound
+        CACHE.clear();
+      }
+      CACHE.put(text, retval);
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Resolve the given template text, as {@link Template#resolve(String,
+   * SymbolTable)} does, using a cached compilation of the text.
+   *
+   * @param text the template text, may be null
+   * @param symbols the symbols to use, may be null
+   *
+   * @return the resolved text or null if the text was null
+   */
+  public static String resolve(final String text, final SymbolTable symbols) {
+    return text != null ? compile(text).resolve(symbols) : null;
+  }
+
+
+
+
+  /**
+   * Pre-process the given template text, as {@link
+   * Template#preProcess(String, SymbolTable)} does, using a cached
+   * compilation of the text.
+   *
+   * @param text the template text, may be null
+   * @param symbols the symbols to use, may be null
+   *
+   * @return the processed text or null if the text was null
+   */
+  public static String preProcess(final String text, final SymbolTable symbols) {
+    return text != null ? compile(text).preProcess(symbols) : null;
+  }
+
+
+
+
+  /**
+   * Resolve all the tokens in this template.
+   *
+   * @param symbols the symbols to use, may be null
+   *
+   * @return the resolved text
+   */
+  public String resolve(final SymbolTable symbols) {
+    return evaluate(symbols, false);
+  }
+
+
+
+
+  /**
+   * Resolve the tokens in this template which have values, leaving the
+   * others in place for later resolution.
+   *
+   * @param symbols the symbols to use, may be null
+   *
+   * @return the processed text
+   */
+  public String preProcess(final SymbolTable symbols) {
+    return evaluate(symbols, true);
+  }
+
+
+
+
+  /**
+   * @return true if the template contains no tokens and always evaluates to
+   *         its text
+   */
+  public boolean isLiteral() {
+    for (int x = 0; x < tokens.length; x++) {
+      if (tokens[x]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+
+
+  /**
+   * @return the text of the template
+   */
+  public String getText() {
+    return text;
+  }
+
+
+
+
+  private String evaluate(final SymbolTable table, final boolean preprocess) {
+    if (segments.length == 0) {
+      return text;
+    }
+    if (segments.length == 1 && !tokens[0]) {
+      return segments[0];
+    }
+
+    final StringBuilder buffer = BUFFER.get();
+    buffer.setLength(0);
+    for (int x = 0; x < segments.length; x++) {
+      if (!tokens[x]) {
+        buffer.append(segments[x]);
+      } else if (symbols[x] != null && table != null && table.containsKey(symbols[x])) {
+        final String value = table.getString(symbols[x]);
+        if (value != null) {
+          buffer.append(value);
+        }
+      } else if (preprocess) {
+        buffer.append(Template.preProcess(segments[x], table));
+      } else {
+        final String value = Template.resolve(segments[x], table);
+        if (value != null) {
+          buffer.append(value);
+        }
+      }
+    }
+    final String retval = buffer.toString();
+    if (buffer.capacity() > 64 * 1024) {
+      // do not hold on to buffers grown by very large templates
+      BUFFER.remove();
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @return the name of the symbol the token refers to or null if the token
+   *         is not a plain symbol reference
+   */
+  private static String getSymbolName(final String token) {
+    final String body = token.substring(OPEN.length(), token.length() - CLOSE.length()).trim();
+    if (body.length() < 2 || body.charAt(0) != SYMBOL) {
+      return null;
+    }
+    for (int x = 1; x < body.length(); x++) {
+      final char c = body.charAt(x);
+      if (!Character.isLetterOrDigit(c) && c != '.' && c != '_' && c != '-') {
+        return null;
+      }
+    }
+    return body.substring(1);
+  }
+
+
+
+
+  /**
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return text;
+  }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import coyote.loader.log.Log;
+
+
+/**
+ * Opens file streams which compress and decompress data transparently so
+ * readers and writers can work with compressed files directly.
+ *
+ * <p>When reading, gzip data is detected by its magic bytes regardless of
+ * the name of the file, and zlib (deflate) data is detected by its header or
+ * by a {@code .deflate}, {@code .zz} or {@code .zlib} extension. All other
+ * files are read as they are.
+ *
+ * <p>When writing, files ending in {@code .gz} or {@code .gzip} are
+ * compressed with a {@link ParallelGzipOutputStream} so the compression is
+ * spread over all the processors, and files with a deflate extension are
+ * written in the zlib format. Appending to a gzip file adds a new member to
+ * it, which gzip readers treat as a continuation of the data.
+ */
+public final class Compression {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String[] GZIP_EXTENSIONS = {".gz", ".gzip"};
+  private static final String[] DEFLATE_EXTENSIONS = {".deflate", ".zz", ".zlib"};
+
+
+
+
+  private Compression() {
+    // only static methods
+  }
+
+
+
+
+  /**
+   * Open a file for reading, decompressing its data if it is compressed.
+   *
+   * @param file the file to read
+   *
+   * @return a buffered stream of the (uncompressed) data in the file
+   *
+   * @throws IOException if the file could not be opened
+   */
+  public static InputStream openInputStream(final File file) throws IOException {
+    final BufferedInputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+    try {
+      in.mark(2);
+      final int first = in.read();
+      final int second = in.read();
+      in.reset();
+
+      if (first == 0x1f && second == 0x8b) {
+        Log.debug("Reading " + file.getName() + " as gzip data");
+        return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+      } else if (isZlibHeader(first, second) && (hasExtension(file, DEFLATE_EXTENSIONS) || second == 0x9c || second == 0xda)) {
+        Log.debug("Reading " + file.getName() + " as deflate data");
+        return new BufferedInputStream(new InflaterInputStream(in), BUFFER_SIZE);
+      }
+      return in;
+    } catch (final IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+
+
+
+  /**
+   * Open a file for reading text, decompressing its data if it is
+   * compressed.
+   *
+   * <p>The text is decoded with the platform default character set, the
+   * same as {@code FileReader}.
+   *
+   * @param file the file to read
+   *
+   * @return a reader of the (uncompressed) text in the file
+   *
+   * @throws IOException if the file could not be opened
+   */
+  public static Reader openReader(final File file) throws IOException {
+    return new InputStreamReader(openInputStream(file));
+  }
+
+
+
+
+  /**
+   * Read the entire (uncompressed) contents of a file as text.
+   *
+   * @param file the file to read
+   *
+   * @return the text in the file
+   *
+   * @throws IOException if the file could not be read
+   */
+  public static String readText(final File file) throws IOException {
+    final StringBuilder retval = new StringBuilder((int)Math.min(Integer.MAX_VALUE - 8, Math.max(16, file.length())));
+    try (Reader reader = openReader(file)) {
+      final char[] buffer = new char[8192];
+      int count;
+      while ((count = reader.read(buffer)) != -1) {
+        retval.append(buffer, 0, count);
+      }
+    }
+    return retval.toString();
+  }
+
+
+
+
+  /**
+   * Open a file for writing, compressing the data if the name of the file
+   * has a compressed file extension.
+   *
+   * @param file the file to write
+   * @param append true to add to the end of the file, false to replace it
+   *
+   * @return a buffered stream to the file
+   *
+   * @throws IOException if the file could not be opened
+   */
+  public static OutputStream openOutputStream(final File file, final boolean append) throws IOException {
+    final OutputStream out = new FileOutputStream(file, append);
+    if (hasExtension(file, GZIP_EXTENSIONS)) {
+      Log.debug("Writing " + file.getName() + " as gzip data");
+      return new ParallelGzipOutputStream(out);
+    } else if (hasExtension(file, DEFLATE_EXTENSIONS)) {
+      Log.debug("Writing " + file.getName() + " as deflate data");
+      return new BufferedOutputStream(new DeflaterOutputStream(out), BUFFER_SIZE);
+    }
+    return new BufferedOutputStream(out, BUFFER_SIZE);
+  }
+
+
+
+
+  /**
+   * Open a file for writing text, compressing the data if the name of the
+   * file has a compressed file extension.
+   *
+   * <p>The text is encoded with the platform default character set, the
+   * same as {@code FileWriter}.
+   *
+   * @param file the file to write
+   * @param append true to add to the end of the file, false to replace it
+   *
+   * @return a writer to the file
+   *
+   * @throws IOException if the file could not be opened
+   */
+  public static Writer openWriter(final File file, final boolean append) throws IOException {
+    return new OutputStreamWriter(openOutputStream(file, append));
+  }
+
+
+
+
+  /**
+   * @param file the file to check
+   *
+   * @return true if the name of the file indicates it contains compressed
+   *         data
+   */
+  public static boolean isCompressed(final File file) {
+    return hasExtension(file, GZIP_EXTENSIONS) || hasExtension(file, DEFLATE_EXTENSIONS);
+  }
+
+
+
+
+  private static boolean hasExtension(final File file, final String[] extensions) {
+    final String name = file.getName().toLowerCase();
+    for (final String extension : extensions) {
+      if (name.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * A zlib header has a compression method of 8 (deflate) in the low bits of
+   * the first byte and is a multiple of 31 when read as a 16-bit value.
+   */
+  private static boolean isZlibHeader(final int first, final int second) {
+    return first >= 0 && second >= 0 && (first & 0x0f) == 8 && (first >> 4) <= 7 && ((first << 8) | second) % 31 == 0;
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import coyote.commons.CipherUtil;
+import coyote.commons.StringUtil;
+import coyote.commons.template.SymbolTable;
+import coyote.dx.context.TransformContext;
+
+
+/**
+ * The configuration values of a component as resolved against one state of
+ * a transform context.
+ *
+ * <p>Resolving a configuration value involves a case insensitive search of
+ * the configuration, a search of the context for a value referenced by the
+ * configuration value and, if the value is not configured at all, a case
+ * insensitive search of the context. The results of these look-ups only
+ * change when the context properties or symbol table change, so every
+ * configured value is resolved when the component is opened, converted to
+ * the types the getters return, and reused until the context reports a
+ * change (see {@link TransformContext#getRevision()}) or the component
+ * invalidates its configuration. Keys which are not configured are
+ * recorded the first time they are requested.
+ *
+ * <p>Values which are templates are recorded before template processing and
+ * are still resolved on each request as their symbols (e.g. the current
+ * frame number) may change with every frame. Deciphered values are recorded
+ * by their cipher text so each secret is deciphered once per job.
+ */
+final class ConfigSnapshot {
+
+  /** Marks a key which resolved to no value */
+  static final Value NONE = new Value(null);
+
+  /** Marks the start of a template variable in a configuration value */
+  private static final String TEMPLATE_OPEN = "[#";
+
+  private final TransformContext context;
+  private final SymbolTable symbols;
+  private final long revision;
+  private final ConcurrentHashMap<String, Value> values = new ConcurrentHashMap<String, Value>();
+  private final ConcurrentHashMap<String, String> deciphered;
+
+
+
+
+  /**
+   * @param context the context against which values are resolved
+   * @param previous the snapshot this one replaces, may be null; its
+   *        deciphered values are carried over
+   */
+  ConfigSnapshot(final TransformContext context, final ConfigSnapshot previous) {
+    this.context = context;
+    symbols = context.getSymbols();
+    revision = context.getRevision();
+    deciphered = (previous != null) ? previous.deciphered : new ConcurrentHashMap<String, String>();
+  }
+
+
+
+
+  /**
+   * @param ctx the current context of the component
+   *
+   * @return true if the values in this snapshot are still valid for the
+   *         given context
+   */
+  boolean isCurrent(final TransformContext ctx) {
+    return ctx == context && ctx.getSymbols() == symbols && ctx.getRevision() == revision;
+  }
+
+
+
+
+  /**
+   * @param key the name of the configuration attribute
+   *
+   * @return the recorded value, {@link #NONE} for a key recorded as having
+   *         no value or null if the key has not been recorded
+   */
+  Value get(final String key) {
+    return values.get(key.toLowerCase());
+  }
+
+
+
+
+  /**
+   * Record the value of the given key.
+   *
+   * @param key the name of the configuration attribute
+   * @param text the value before template processing, may be null
+   *
+   * @return the recorded value
+   */
+  Value put(final String key, final String text) {
+    final Value retval = (text != null) ? new Value(text) : NONE;
+    values.put(key.toLowerCase(), retval);
+    return retval;
+  }
+
+
+
+
+  /**
+   * Decipher the given text, reusing the results of earlier calls.
+   *
+   * @param cipherText base64 encoded cipher text
+   *
+   * @return the clear text
+   */
+  String decrypt(final String cipherText) {
+    String retval = deciphered.get(cipherText);
+    if (retval == null) {
+      retval = CipherUtil.decryptString(cipherText);
+      if (retval != null) {
+        deciphered.put(cipherText, retval);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * A resolved value and its conversions.
+   *
+   * <p>Templates are not converted as they must be resolved first.
+   */
+  static final class Value {
+    final String text;
+    final boolean template;
+    final boolean flag;
+    final Long number;
+
+
+
+
+    Value(final String text) {
+      this.text = text;
+      template = (text != null) && text.contains(TEMPLATE_OPEN);
+      if (text != null && !template) {
+        flag = toBoolean(text);
+        number = toLong(text);
+      } else {
+        flag = false;
+        number = null;
+      }
+    }
+
+  }
+
+
+
+
+  /**
+   * @param text the value to convert, may be null
+   *
+   * @return true if the text is {@code true}, {@code yes}, {@code 1},
+   *         {@code t} or {@code y} in any case
+   */
+  static boolean toBoolean(final String text) {
+    if (StringUtil.isNotBlank(text)) {
+      return (StringUtil.equalsIgnoreCase("true", text) || StringUtil.equalsIgnoreCase("yes", text) || StringUtil.equalsIgnoreCase("1", text) || StringUtil.equalsIgnoreCase("y", text) || StringUtil.equalsIgnoreCase("t", text));
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * @param text the value to convert, may be null
+   *
+   * @return the value as a long or null if it is not a whole number
+   */
+  static Long toLong(final String text) {
+    if (StringUtil.isNotBlank(text)) {
+      try {
+        return Long.parseLong(text);
+      } catch (final NumberFormatException ignore) {}
+    }
+    return null;
+  }
+
+}
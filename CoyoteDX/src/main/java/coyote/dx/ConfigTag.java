@@ -121,6 +121,7 @@ public class ConfigTag {
   public static final String CATEGORIES = "categories";
   public static final String CATEGORY = "category";
   public static final String ENABLED = "enabled";
+  public static final String METRICS = "metrics";
 
   // Tasks
 
@@ -135,6 +136,11 @@ public class ConfigTag {
   public static final String DIRECTORY = "directory";
   public static final String APPEND = "append";
   public static final String PARAMETERS = "parameters";
+  public static final String THREADS = "threads";
+  public static final String MANIFEST = "manifest";
+  public static final String TAIL = "tail";
+  public static final String ARCHIVE = "archive";
+  public static final String ORDERED = "ordered";
 
   // Validations
 
@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import coyote.dataframe.DataFrame;
+
+
+/**
+ * Timings and counters for each stage and component of a transform job.
+ *
+ * <p>When a job is configured with {@code "Metrics": true}, its engine times
+ * each call to each of its components and records the durations here, one
+ * {@link LatencyHistogram} for each component instance in each stage (read,
+ * filter, validate, transform, map, aggregate and write). Components which
+ * queue work (e.g. asynchronous listeners) can also register gauges
+ * reporting the depth of their queues.
+ *
+ * <p>Metrics are kept by job name in a registry so they accumulate across
+ * the runs of scheduled jobs and can be exported by the HTTP manager while
+ * jobs run, in the Prometheus text exposition format or as a data frame.
+ *
+ * <p>When metrics are not enabled the engine holds no metrics at all and
+ * performs no timing.
+ */
+public class EngineMetrics {
+
+  /** The stages of the engine which are timed */
+  public enum Stage {
+    READ, FILTER, VALIDATE, TRANSFORM, MAP, AGGREGATE, WRITE;
+
+    String label() {
+      return name().toLowerCase(Locale.ENGLISH);
+    }
+  }
+
+  /** Supplies the current value of a gauge (e.g. a queue depth) */
+  public interface Gauge {
+    long getValue();
+  }
+
+  /** The quantiles exported for each timer */
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private static final String PREFIX = "coyote_dx_";
+
+  /** Metrics of all the jobs in this runtime, by job name */
+  private static final ConcurrentSkipListMap<String, EngineMetrics> REGISTRY = new ConcurrentSkipListMap<String, EngineMetrics>();
+
+  private final String job;
+
+  /** The timers of each stage, indexed by the position of the component in the stage */
+  private final Timer[][] timers = new Timer[Stage.values().length][];
+
+  private final Map<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+  private final AtomicLong runs = new AtomicLong();
+
+
+
+
+  /**
+   * Create metrics for the named job.
+   *
+   * <p>The metrics are not registered; use {@link #forJob(String)} to obtain
+   * metrics which are visible to the exporters.
+   *
+   * @param job the name of the job
+   */
+  public EngineMetrics(final String job) {
+    this.job = job;
+    for (int x = 0; x < timers.length; x++) {
+      timers[x] = new Timer[0];
+    }
+  }
+
+
+
+
+  /**
+   * Retrieve the registered metrics for the named job, creating them if
+   * necessary.
+   *
+   * @param job the name of the job
+   *
+   * @return the metrics for the job
+   */
+  public static EngineMetrics forJob(final String job) {
+    final String name = (job != null) ? job : "";
+    EngineMetrics retval = REGISTRY.get(name);
+    if (retval == null) {
+      final EngineMetrics metrics = new EngineMetrics(name);
+      retval = REGISTRY.putIfAbsent(name, metrics);
+      if (retval == null) {
+        retval = metrics;
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @return the metrics of all the jobs which have run with metrics enabled
+   */
+  public static Collection<EngineMetrics> getAll() {
+    return REGISTRY.values();
+  }
+
+
+
+
+  /**
+   * Remove the metrics of the named job from the registry.
+   *
+   * @param job the name of the job
+   */
+  public static void remove(final String job) {
+    if (job != null) {
+      REGISTRY.remove(job);
+    }
+  }
+
+
+
+
+  /**
+   * @return the name of the job these metrics describe
+   */
+  public String getJob() {
+    return job;
+  }
+
+
+
+
+  /**
+   * @return the number of times the job has been run
+   */
+  public long getRuns() {
+    return runs.get();
+  }
+
+
+
+
+  /**
+   * Count a run of the job.
+   */
+  public void started() {
+    runs.incrementAndGet();
+  }
+
+
+
+
+  /**
+   * Retrieve the timer for a component.
+   *
+   * <p>Components are identified by their stage and position within it so
+   * the timers of scheduled jobs, which create new components for each run,
+   * continue to accumulate.
+   *
+   * @param stage the stage of the engine
+   * @param index the position of the component in the stage
+   * @param component the component, used to name the timer when it is
+   *        created
+   *
+   * @return the timer for the component
+   */
+  public Timer getTimer(final Stage stage, final int index, final Object component) {
+    final Timer[] list = timers[stage.ordinal()];
+    if (index < list.length && list[index] != null) {
+      return list[index];
+    }
+    return createTimer(stage, index, component);
+  }
+
+
+
+
+  private synchronized Timer createTimer(final Stage stage, final int index, final Object component) {
+    Timer[] list = timers[stage.ordinal()];
+    if (index >= list.length) {
+      final Timer[] grown = new Timer[index + 1];
+      System.arraycopy(list, 0, grown, 0, list.length);
+      list = grown;
+    }
+    if (list[index] == null) {
+      list[index] = new Timer(stage, index, (component != null) ? component.getClass().getSimpleName() : "unknown");
+    }
+    timers[stage.ordinal()] = list;
+    return list[index];
+  }
+
+
+
+
+  /**
+   * @return all the timers in stage order
+   */
+  public List<Timer> getTimers() {
+    final List<Timer> retval = new ArrayList<Timer>();
+    for (final Timer[] list : timers) {
+      for (final Timer timer : list) {
+        if (timer != null) {
+          retval.add(timer);
+        }
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Register a gauge to be reported with these metrics.
+   *
+   * @param name the name of the gauge (e.g. listener_queue_depth)
+   * @param gauge the supplier of the value, null removes the gauge
+   */
+  public void setGauge(final String name, final Gauge gauge) {
+    if (gauge != null) {
+      gauges.put(name, gauge);
+    } else {
+      gauges.remove(name);
+    }
+  }
+
+
+
+
+  /**
+   * @return the gauges registered with these metrics
+   */
+  public Map<String, Gauge> getGauges() {
+    return gauges;
+  }
+
+
+
+
+  /**
+   * Write the metrics of all registered jobs in the Prometheus text
+   * exposition format.
+   *
+   * <p>Timers are exported as summaries in seconds with a {@code job},
+   * {@code stage} and {@code component} label, errors as counters and gauges
+   * as gauges.
+   *
+   * @return the metrics in Prometheus text format
+   */
+  public static String toPrometheus() {
+    final StringBuilder b = new StringBuilder();
+    b.append("# HELP ").append(PREFIX).append("stage_seconds Time spent by each component in each stage of the engine\n");
+    b.append("# TYPE ").append(PREFIX).append("stage_seconds summary\n");
+    for (final EngineMetrics metrics : REGISTRY.values()) {
+      for (final Timer timer : metrics.getTimers()) {
+        final String labels = metrics.labels(timer);
+        for (final double quantile : QUANTILES) {
+          b.append(PREFIX).append("stage_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ");
+          b.append(seconds(timer.getHistogram().getPercentile(quantile * 100))).append('\n');
+        }
+        b.append(PREFIX).append("stage_seconds_sum{").append(labels).append("} ").append(seconds(timer.getHistogram().getSum())).append('\n');
+        b.append(PREFIX).append("stage_seconds_count{").append(labels).append("} ").append(timer.getHistogram().getCount()).append('\n');
+      }
+    }
+    b.append("# HELP ").append(PREFIX).append("stage_errors_total Errors raised by each component in each stage of the engine\n");
+    b.append("# TYPE ").append(PREFIX).append("stage_errors_total counter\n");
+    for (final EngineMetrics metrics : REGISTRY.values()) {
+      for (final Timer timer : metrics.getTimers()) {
+        b.append(PREFIX).append("stage_errors_total{").append(metrics.labels(timer)).append("} ").append(timer.getErrors()).append('\n');
+      }
+    }
+    b.append("# HELP ").append(PREFIX).append("runs_total Runs of each job\n");
+    b.append("# TYPE ").append(PREFIX).append("runs_total counter\n");
+    for (final EngineMetrics metrics : REGISTRY.values()) {
+      b.append(PREFIX).append("runs_total{job=\"").append(escape(metrics.job)).append("\"} ").append(metrics.getRuns()).append('\n');
+    }
+    b.append("# HELP ").append(PREFIX).append("gauge Current values reported by components\n");
+    b.append("# TYPE ").append(PREFIX).append("gauge gauge\n");
+    for (final EngineMetrics metrics : REGISTRY.values()) {
+      for (final Map.Entry<String, Gauge> entry : metrics.gauges.entrySet()) {
+        b.append(PREFIX).append("gauge{job=\"").append(escape(metrics.job)).append("\",name=\"").append(escape(entry.getKey())).append("\"} ");
+        b.append(entry.getValue().getValue()).append('\n');
+      }
+    }
+    return b.toString();
+  }
+
+
+
+
+  /**
+   * Place the metrics of all registered jobs in a data frame for JSON
+   * clients such as the dashboard.
+   *
+   * <p>Durations are in milliseconds.
+   *
+   * @return a frame with one field for each job
+   */
+  public static DataFrame toFrame() {
+    final DataFrame retval = new DataFrame();
+    for (final EngineMetrics metrics : REGISTRY.values()) {
+      retval.put(metrics.job, metrics.getFrame());
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @return the metrics of this job as a data frame
+   */
+  public DataFrame getFrame() {
+    final DataFrame retval = new DataFrame();
+    retval.put("Runs", getRuns());
+    final DataFrame stages = new DataFrame();
+    for (final Timer timer : getTimers()) {
+      final LatencyHistogram histogram = timer.getHistogram();
+      final DataFrame frame = new DataFrame();
+      frame.put("Stage", timer.getStage().label());
+      frame.put("Component", timer.getComponent());
+      frame.put("Count", histogram.getCount());
+      frame.put("Errors", timer.getErrors());
+      frame.put("Total", millis(histogram.getSum()));
+      frame.put("Mean", millis((long)histogram.getMean()));
+      frame.put("P50", millis(histogram.getPercentile(50)));
+      frame.put("P90", millis(histogram.getPercentile(90)));
+      frame.put("P99", millis(histogram.getPercentile(99)));
+      frame.put("Max", millis(histogram.getMax()));
+      stages.put(timer.getStage().label() + "." + timer.getComponent(), frame);
+    }
+    retval.put("Stages", stages);
+    final DataFrame values = new DataFrame();
+    for (final Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().getValue());
+    }
+    retval.put("Gauges", values);
+    return retval;
+  }
+
+
+
+
+  private String labels(final Timer timer) {
+    return "job=\"" + escape(job) + "\",stage=\"" + timer.getStage().label() + "\",component=\"" + escape(timer.getComponent()) + "\"";
+  }
+
+
+
+
+  private static String escape(final String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+
+
+
+  private static String seconds(final long nanos) {
+    return Double.toString(nanos / 1000000000.0);
+  }
+
+
+
+
+  private static double millis(final long nanos) {
+    return nanos / 1000000.0;
+  }
+
+  //
+
+  //
+
+  /**
+   * Times one component in one stage of the engine.
+   */
+  public static final class Timer {
+    private final Stage stage;
+    private final String component;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+
+
+
+
+    Timer(final Stage stage, final int index, final String name) {
+      this.stage = stage;
+      component = name + "-" + index;
+    }
+
+
+
+
+    /**
+     * Record the time since the given start.
+     *
+     * @param start the value of {@link System#nanoTime()} when the call to
+     *        the component began
+     */
+    public void stop(final long start) {
+      histogram.record(System.nanoTime() - start);
+    }
+
+
+
+
+    /**
+     * Count an error raised by the component.
+     */
+    public void error() {
+      errors.incrementAndGet();
+    }
+
+
+
+
+    /**
+     * @return the stage of the engine this timer measures
+     */
+    public Stage getStage() {
+      return stage;
+    }
+
+
+
+
+    /**
+     * @return the name of the component and its position in the stage
+     */
+    public String getComponent() {
+      return component;
+    }
+
+
+
+
+    /**
+     * @return the histogram of the durations of the calls to the component
+     */
+    public LatencyHistogram getHistogram() {
+      return histogram;
+    }
+
+
+
+
+    /**
+     * @return the number of errors raised by the component
+     */
+    public long getErrors() {
+      return errors.get();
+    }
+  }
+
+}
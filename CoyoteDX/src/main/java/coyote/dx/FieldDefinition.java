@@ -7,10 +7,24 @@
  */
 package coyote.dx;
 
+import java.nio.CharBuffer;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Date;
 
 import coyote.commons.StringUtil;
 import coyote.dataframe.DataField;
@@ -32,6 +46,12 @@ public class FieldDefinition {
   private DateFormat dateFormat = null;
   private DecimalFormat decimalFormat = null;
 
+  /** Parses dates without synchronization, null if the pattern is left to the date format */
+  private volatile DateTimeFormatter dateParser = null;
+
+  /** DecimalFormat is not thread-safe so each thread parses numbers with its own */
+  private ThreadLocal<DecimalFormat> decimalParser = null;
+
 
 
 
@@ -131,8 +151,23 @@ public class FieldDefinition {
       formatText = format;
       if (this.type == DataField.DATE) {
         dateFormat = new SimpleDateFormat(format);
+        if (isCompilable(format)) {
+          try {
+            // resolve out of range values by rolling them over, as the lenient SimpleDateFormat does
+            dateParser = DateTimeFormatter.ofPattern(format).withResolverStyle(ResolverStyle.LENIENT);
+          } catch (IllegalArgumentException e) {
+            // parse with the SimpleDateFormat
+          }
+        }
       } else {
         decimalFormat = new DecimalFormat(format);
+        final String pattern = format;
+        decimalParser = new ThreadLocal<DecimalFormat>() {
+          @Override
+          protected DecimalFormat initialValue() {
+            return new DecimalFormat(pattern);
+          }
+        };
       }
     }
 
@@ -243,25 +278,65 @@ public class FieldDefinition {
    * @return object representation of the type
    */
   public Object convert(String value) {
+    return convert(value, 0, value.length());
+  }
+
+
+
+
+  /**
+   * Convert a range of characters into the data type defined by this object.
+   * 
+   * <p>The characters are parsed where they are, so a fixed-length record 
+   * can be converted field by field without creating a string for each 
+   * numeric or date value. Numeric values are always trimmed. Conversion 
+   * uses no shared mutable state, so one definition may be used by several 
+   * threads at once.</p>
+   * 
+   * @param text the text containing the value
+   * @param begin the index of the first character of the value
+   * @param end the index after the last character of the value
+   * 
+   * @return object representation of the type
+   * 
+   * @throws StringIndexOutOfBoundsException if the range is not within the 
+   *         text
+   */
+  public Object convert(CharSequence text, int begin, int end) {
+    if (begin < 0 || begin > end || end > text.length()) {
+      throw new StringIndexOutOfBoundsException("Field '" + name + "' at " + begin + "-" + end + " is outside of the " + text.length() + " characters of the record");
+    }
+
+    // the bounds of the value without leading and trailing whitespace
+    int first = begin;
+    int last = end;
+    while (first < last && text.charAt(first) <= ' ') {
+      first++;
+    }
+    while (last > first && text.charAt(last - 1) <= ' ') {
+      last--;
+    }
+    boolean blank = first == last;
+
     switch (type) {
       case DataField.STRING:
         if (trimFlag) {
-          return value.trim();
+          return text.subSequence(first, last).toString();
         } else {
-          return value;
+          return text.subSequence(begin, end).toString();
         }
       case DataField.DATE:
         // if all whitespace, return a null value
-        if (StringUtil.isBlank(value)) {
+        if (blank) {
           return null;
         }
 
         if (dateFormat != null) {
           try {
             if (trimFlag) {
-              return dateFormat.parse(value.trim());
+              return parseDate(text, first, last);
             } else {
-              return dateFormat.parse(value);
+              return parseDate(text, begin, end);
             }
           } catch (ParseException e) {
             System.err.println("'" + name + "' Date Parse Exception: " + e.getMessage());
@@ -271,62 +346,36 @@ public class FieldDefinition {
           System.err.println("No date format for field '" + name + "'");
         }
 
-        return value;
+        return text.subSequence(begin, end).toString();
       case DataField.FLOAT:
         // if all whitespace, return 0.0
-        if (StringUtil.isBlank(value)) {
+        if (blank) {
           return 0F;
         }
-        if (decimalFormat != null) {
-          try {
-            if (trimFlag) {
-              return (Float)decimalFormat.parse(value.trim());
-            } else {
-              return (Float)decimalFormat.parse(value);
-            }
-          } catch (ParseException e) {
-            System.err.println("'" + name + "' Float Parse Exception: " + e.getMessage());
-            return 0F;
-          }
-        } else {
-          try {
-            if (trimFlag) {
-              return Float.parseFloat(value.trim());
-            } else {
-              return Float.parseFloat(value);
-            }
-          } catch (Exception e) {
-            System.err.println("'" + name + "' Float Parse Exception: " + e.getMessage());
-            return 0F;
+        try {
+          if (decimalParser != null) {
+            return decimalParser.get().parse(text.subSequence(first, last).toString()).floatValue();
+          } else {
+            return Float.parseFloat(text.subSequence(first, last).toString());
           }
+        } catch (Exception e) {
+          System.err.println("'" + name + "' Float Parse Exception: " + e.getMessage());
+          return 0F;
         }
       case DataField.DOUBLE:
         // if all whitespace, return 0.0
-        if (StringUtil.isBlank(value)) {
-          return 0F;
+        if (blank) {
+          return 0D;
         }
-        if (decimalFormat != null) {
-          try {
-            if (trimFlag) {
-              return (Double)decimalFormat.parse(value.trim());
-            } else {
-              return (Double)decimalFormat.parse(value);
-            }
-          } catch (ParseException e) {
-            System.err.println("'" + name + "' Double Parse Exception: " + e.getMessage());
-            return 0D;
-          }
-        } else {
-          try {
-            if (trimFlag) {
-              return Double.parseDouble(value.trim());
-            } else {
-              return Double.parseDouble(value);
-            }
-          } catch (Exception e) {
-            System.err.println("'" + name + "' Double Parse Exception: " + e.getMessage());
-            return 0F;
+        try {
+          if (decimalParser != null) {
+            return decimalParser.get().parse(text.subSequence(first, last).toString()).doubleValue();
+          } else {
+            return Double.parseDouble(text.subSequence(first, last).toString());
           }
+        } catch (Exception e) {
+          System.err.println("'" + name + "' Double Parse Exception: " + e.getMessage());
+          return 0D;
         }
       case DataField.S32:
       case DataField.U32:
@@ -335,56 +384,38 @@ public class FieldDefinition {
       case DataField.S8:
       case DataField.U8:
         // if all whitespace, return 0
-        if (StringUtil.isBlank(value)) {
+        if (blank) {
           return 0;
         }
-        if (decimalFormat != null) {
-          try {
-            if (trimFlag) {
-              return (Integer)decimalFormat.parse(value.trim());
-            } else {
-              return (Integer)decimalFormat.parse(value);
+        try {
+          if (decimalParser != null) {
+            return decimalParser.get().parse(text.subSequence(first, last).toString()).intValue();
+          } else {
+            long value = parseLong(text, first, last);
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+              throw new NumberFormatException("Value out of range: \"" + text.subSequence(first, last) + "\"");
             }
-          } catch (ParseException e) {
-            System.err.println("'" + name + "' Integer Parse Exception: " + e.getMessage());
-            return 0;
-          }
-        } else {
-          try {
-            return Integer.parseInt(value.trim());
-          } catch (Exception e) {
-            System.err.println("'" + name + "' Integer Parse Exception: " + e.getMessage());
-            return 0;
+            return (int)value;
           }
+        } catch (Exception e) {
+          System.err.println("'" + name + "' Integer Parse Exception: " + e.getMessage());
+          return 0;
         }
       case DataField.S64:
       case DataField.U64:
         // if all whitespace, return 0
-        if (StringUtil.isBlank(value)) {
+        if (blank) {
           return 0L;
         }
-        if (decimalFormat != null) {
-          try {
-            if (trimFlag) {
-              return (Long)decimalFormat.parse(value.trim());
-            } else {
-              return (Long)decimalFormat.parse(value);
-            }
-          } catch (ParseException e) {
-            System.err.println("'" + name + "' Long Parse Exception: " + e.getMessage());
-            return 0;
-          }
-        } else {
-          try {
-            if (trimFlag) {
-              return Long.parseLong(value.trim());
-            } else {
-              return Long.parseLong(value);
-            }
-          } catch (Exception e) {
-            System.err.println("'" + name + "' Long Parse Exception: " + e.getMessage());
-            return 0L;
+        try {
+          if (decimalParser != null) {
+            return decimalParser.get().parse(text.subSequence(first, last).toString()).longValue();
+          } else {
+            return parseLong(text, first, last);
           }
+        } catch (Exception e) {
+          System.err.println("'" + name + "' Long Parse Exception: " + e.getMessage());
+          return 0L;
         }
       default:
         System.err.println("Can't handle a type of " + type + " for field '" + name + "'");
@@ -397,6 +428,129 @@ public class FieldDefinition {
 
 
 
+  /**
+   * Parse a decimal integer from a range of characters without creating a 
+   * string.
+   */
+  private static long parseLong(CharSequence text, int begin, int end) {
+    int position = begin;
+    boolean negative = false;
+    if (position < end && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+      negative = text.charAt(position) == '-';
+      position++;
+    }
+    if (position == end) {
+      throw new NumberFormatException("For input string: \"" + text.subSequence(begin, end) + "\"");
+    }
+
+    // accumulate negatively so Long.MIN_VALUE can be parsed
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multiplyMinimum = limit / 10;
+    long retval = 0;
+    for (; position < end; position++) {
+      int digit = text.charAt(position) - '0';
+      if (digit < 0 || digit > 9 || retval < multiplyMinimum) {
+        throw new NumberFormatException("For input string: \"" + text.subSequence(begin, end) + "\"");
+      }
+      retval *= 10;
+      if (retval < limit + digit) {
+        throw new NumberFormatException("For input string: \"" + text.subSequence(begin, end) + "\"");
+      }
+      retval -= digit;
+    }
+    return negative ? retval : -retval;
+  }
+
+
+
+
+  /**
+   * Parse a date with the compiled formatter, falling back to the shared 
+   * {@code SimpleDateFormat} (which is not thread-safe) for values or 
+   * patterns the formatter does not handle the same way.
+   * 
+   * <p>The formatter resolves leniently so values such as the 30th of 
+   * February or a 13th month roll over into the following month or year 
+   * exactly as they do with the default, lenient {@code SimpleDateFormat}, 
+   * rather than being clamped or rejected.
+   */
+  private Date parseDate(CharSequence text, int begin, int end) throws ParseException {
+    DateTimeFormatter parser = dateParser;
+    if (parser != null) {
+      try {
+        Date retval = toDate(parser.parse(CharBuffer.wrap(text, begin, end), new ParsePosition(0)));
+        if (retval != null) {
+          return retval;
+        }
+      } catch (DateTimeException e) {
+        // try the original format
+      }
+    }
+
+    Date retval;
+    synchronized (dateFormat) {
+      retval = dateFormat.parse(text.subSequence(begin, end).toString());
+    }
+    if (parser != null) {
+      // the formatter does not handle values the format does, stop trying it
+      dateParser = null;
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @return the date represented by the parsed fields in the default time 
+   *         zone unless they include an offset, or null if there is no date
+   */
+  private static Date toDate(TemporalAccessor parsed) {
+    if (parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+      return Date.from(Instant.from(parsed));
+    }
+    LocalDate date = parsed.query(TemporalQueries.localDate());
+    if (date == null) {
+      return null;
+    }
+    LocalTime time = parsed.query(TemporalQueries.localTime());
+    LocalDateTime dateTime = (time != null) ? date.atTime(time) : date.atStartOfDay();
+    return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+
+
+
+  /**
+   * Check if a {@code SimpleDateFormat} pattern means the same thing to a 
+   * {@code DateTimeFormatter}. Two-digit years, week years, single-digit 
+   * milliseconds and 12-hour clocks without an AM/PM marker are interpreted 
+   * differently or not resolved, so those are left to the original format.
+   */
+  private static boolean isCompilable(String pattern) {
+    boolean marker = pattern.indexOf('a') >= 0;
+    boolean quoted = false;
+    for (int x = 0; x < pattern.length(); x++) {
+      char letter = pattern.charAt(x);
+      if (letter == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && Character.isLetter(letter)) {
+        int count = 1;
+        while (x + 1 < pattern.length() && pattern.charAt(x + 1) == letter) {
+          count++;
+          x++;
+        }
+        if ("yMdHmsSahEZX".indexOf(letter) < 0 || (letter == 'y' && count == 2) || (letter == 'S' && count != 3) || (letter == 'h' && !marker)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+
+
+
   /**
    * @return true values are to be trimmed, false leave whitespace
    */
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import coyote.dataframe.DataField;
+import coyote.dataframe.DataFrame;
+
+
+/**
+ * A columnar view of a batch of frames.
+ *
+ * <p>Batch transforms use this to process a field of all the frames in a
+ * batch at once. Each requested field is copied out of the frames into a
+ * column holding the values in a primitive array and marking missing and
+ * null values in a bitmap, so the transform can run over the whole column
+ * in a tight loop instead of reading boxed values frame by frame.
+ *
+ * <p>Columns are built when first requested. Columns created with
+ * {@link #createColumn(String, short)} hold results and are placed back in
+ * the frames by {@link #toFrames()}; the columns read from the frames are
+ * never written back.
+ *
+ * <p>Numeric text is converted as the transforms parse it: text without a
+ * decimal point as a long and text with one as a double. A column is only
+ * typed {@link #LONG} or {@link #DOUBLE} if all its values are of that
+ * kind, so a transform choosing its arithmetic from the column type gets the
+ * same results as it would choosing it for each frame.
+ */
+public class FrameBatch {
+
+  /** Column of values which are not all integral or all fractional */
+  public static final short OBJECT = 0;
+
+  /** Column of integral values */
+  public static final short LONG = 1;
+
+  /** Column of fractional values */
+  public static final short DOUBLE = 2;
+
+  private final List<DataFrame> frames;
+  private final Map<String, Column> columns = new HashMap<String, Column>();
+  private final Map<String, Column> results = new HashMap<String, Column>();
+
+
+
+
+  /**
+   * Create a columnar view of the given frames.
+   *
+   * @param frames the frames of the batch
+   */
+  public FrameBatch(final List<DataFrame> frames) {
+    this.frames = frames;
+  }
+
+
+
+
+  /**
+   * @return the number of frames in the batch
+   */
+  public int size() {
+    return frames.size();
+  }
+
+
+
+
+  /**
+   * @return the frames of the batch
+   */
+  public List<DataFrame> getFrames() {
+    return frames;
+  }
+
+
+
+
+  /**
+   * Retrieve the values of the named field of all the frames.
+   *
+   * @param name the name of the field
+   *
+   * @return the column of values, one for each frame
+   */
+  public Column getColumn(final String name) {
+    Column retval = columns.get(name);
+    if (retval == null) {
+      retval = read(name);
+      columns.put(name, retval);
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Retrieve the values of an operand which may name a field or be a
+   * literal value.
+   *
+   * <p>This mirrors how the math transforms treat their operands: the value
+   * of the field if the frame contains it, otherwise the operand itself. If
+   * no frame contains the field, the returned column holds the operand text
+   * converted for every frame; if only some do, the others are null.
+   *
+   * @param token the name of the field or the literal value
+   *
+   * @return the column of values, one for each frame
+   */
+  public Column getColumnOrConstant(final String token) {
+    Column retval = getColumn(token);
+    if (retval.isMissing()) {
+      final int size = frames.size();
+      retval = new Column(kindOf(token), size);
+      switch (retval.type) {
+        case LONG:
+          Arrays.fill(retval.longs, Long.parseLong(token));
+          break;
+        case DOUBLE:
+          Arrays.fill(retval.doubles, Double.parseDouble(token));
+          break;
+        default:
+          Arrays.fill(retval.objects, token);
+          break;
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Create a column of results to be placed in the named field of each frame
+   * by {@link #toFrames()}.
+   *
+   * <p>All the values of the new column are null until set; null values are
+   * not placed in the frames.
+   *
+   * @param name the name of the field to set
+   * @param type the type of the column, {@link #LONG}, {@link #DOUBLE} or
+   *        {@link #OBJECT}
+   *
+   * @return the new column
+   */
+  public Column createColumn(final String name, final short type) {
+    final Column retval = new Column(type, frames.size());
+    retval.nulls.set(0, frames.size());
+    results.put(name, retval);
+    return retval;
+  }
+
+
+
+
+  /**
+   * Place the values of the created columns in the frames.
+   *
+   * @return the frames of the batch
+   */
+  public List<DataFrame> toFrames() {
+    for (final Map.Entry<String, Column> entry : results.entrySet()) {
+      final String name = entry.getKey();
+      final Column column = entry.getValue();
+      for (int x = 0; x < frames.size(); x++) {
+        if (!column.isNull(x)) {
+          frames.get(x).put(name, column.getObject(x));
+        }
+      }
+    }
+    results.clear();
+    return frames;
+  }
+
+
+
+
+  private Column read(final String name) {
+    final int size = frames.size();
+    final Object[] values = new Object[size];
+    final BitSet nulls = new BitSet(size);
+    int missing = 0;
+    short type = -1;
+    for (int x = 0; x < size; x++) {
+      final DataField field = frames.get(x).getField(name);
+      if (field == null) {
+        missing++;
+        nulls.set(x);
+      } else if (field.isFrame() || field.getObjectValue() == null) {
+        nulls.set(x);
+      } else {
+        values[x] = field.getObjectValue();
+        final short kind = kindOf(values[x]);
+        type = (type == -1 || type == kind) ? kind : OBJECT;
+      }
+    }
+
+    final Column retval = new Column((type == -1) ? OBJECT : type, size);
+    retval.nulls.or(nulls);
+    retval.missing = (missing == size);
+    for (int x = nulls.nextClearBit(0); x < size; x = nulls.nextClearBit(x + 1)) {
+      switch (retval.type) {
+        case LONG:
+          retval.longs[x] = (values[x] instanceof Number) ? ((Number)values[x]).longValue() : Long.parseLong(values[x].toString());
+          break;
+        case DOUBLE:
+          retval.doubles[x] = Double.parseDouble(values[x].toString());
+          break;
+        default:
+          retval.objects[x] = values[x];
+          break;
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Determine the kind of column which can hold the given value.
+   */
+  private static short kindOf(final Object value) {
+    if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return LONG;
+    }
+    if (value instanceof Double || value instanceof Float || value instanceof String) {
+      final String text = value.toString();
+      try {
+        if (text.indexOf('.') > -1) {
+          Double.parseDouble(text);
+          return DOUBLE;
+        } else if (value instanceof String) {
+          Long.parseLong(text);
+          return LONG;
+        }
+      } catch (final NumberFormatException e) {
+        // not numeric text
+      }
+    }
+    return OBJECT;
+  }
+
+
+
+
+  /**
+   * The values of one field of all the frames in a batch.
+   *
+   * <p>Only the array matching the type of the column is allocated.
+   */
+  public static final class Column {
+    private final short type;
+    private final long[] longs;
+    private final double[] doubles;
+    private final Object[] objects;
+    private final BitSet nulls;
+    private boolean missing = false;
+
+
+
+
+    Column(final short type, final int size) {
+      this.type = type;
+      longs = (type == LONG) ? new long[size] : null;
+      doubles = (type == DOUBLE) ? new double[size] : null;
+      objects = (type == OBJECT) ? new Object[size] : null;
+      nulls = new BitSet(size);
+    }
+
+
+
+
+    /**
+     * @return the type of the column, {@link FrameBatch#LONG},
+     *         {@link FrameBatch#DOUBLE} or {@link FrameBatch#OBJECT}
+     */
+    public short getType() {
+      return type;
+    }
+
+
+
+
+    /**
+     * @return the values of a {@link FrameBatch#LONG} column, null for other
+     *         types
+     */
+    public long[] getLongs() {
+      return longs;
+    }
+
+
+
+
+    /**
+     * @return the values of a {@link FrameBatch#DOUBLE} column, null for
+     *         other types
+     */
+    public double[] getDoubles() {
+      return doubles;
+    }
+
+
+
+
+    /**
+     * @return true if any of the frames did not have a value for the field
+     */
+    public boolean hasNulls() {
+      return !nulls.isEmpty();
+    }
+
+
+
+
+    /**
+     * @return true if none of the frames contained the field
+     */
+    public boolean isMissing() {
+      return missing;
+    }
+
+
+
+
+    /**
+     * @param index the position of the frame in the batch
+     *
+     * @return true if the frame did not have a value for the field
+     */
+    public boolean isNull(final int index) {
+      return nulls.get(index);
+    }
+
+
+
+
+    /**
+     * Mark the value of the given frame as set or null.
+     *
+     * <p>Set values in the primitive arrays directly and mark the rows set
+     * when done, or set every row at once with {@link #setNotNull()}.
+     *
+     * @param index the position of the frame in the batch
+     * @param flag true if the value is null, false if it is set
+     */
+    public void setNull(final int index, final boolean flag) {
+      nulls.set(index, flag);
+    }
+
+
+
+
+    /**
+     * Mark all the values in the column as set.
+     */
+    public void setNotNull() {
+      nulls.clear();
+    }
+
+
+
+
+    /**
+     * @param index the position of the frame in the batch
+     *
+     * @return the boxed value of the given frame, or null
+     */
+    public Object getObject(final int index) {
+      if (nulls.get(index)) {
+        return null;
+      }
+      switch (type) {
+        case LONG:
+          return longs[index];
+        case DOUBLE:
+          return doubles[index];
+        default:
+          return objects[index];
+      }
+    }
+
+
+
+
+    /**
+     * @param index the position of the frame in the batch
+     * @param value the value to set, null to clear it
+     */
+    public void setObject(final int index, final Object value) {
+      if (type != OBJECT) {
+        throw new IllegalStateException("Column holds primitive values");
+      }
+      objects[index] = value;
+      nulls.set(index, value == null);
+    }
+
+  }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A fixed-size histogram of durations in nanoseconds.
+ *
+ * <p>Values are counted in buckets whose width grows with the magnitude of
+ * the value, in the manner of HDR histograms: each power of two is divided
+ * into {@value #SUB_BUCKETS} equal buckets, so any recorded value is known
+ * to within about 12% regardless of whether it is a few nanoseconds or
+ * several minutes. Recording a value is a few shifts and an atomic
+ * increment; no memory is allocated.
+ *
+ * <p>Histograms are safe to record into and read from concurrently. Readers
+ * may see a count which is slightly ahead of or behind the sum of a value
+ * being recorded at the same time.
+ */
+public class LatencyHistogram {
+
+  /** The number of bits of the value used to select a bucket within a power of two */
+  private static final int SUB_BITS = 3;
+
+  /** The number of buckets in each power of two */
+  static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  /** The largest power of two tracked; larger values are counted in the last bucket (about 18 minutes) */
+  private static final int MAX_EXPONENT = 40;
+
+  /** The linear buckets, the buckets of each power of two and one for larger values */
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+
+
+
+  /**
+   * Record the given duration.
+   *
+   * @param nanos the duration in nanoseconds, negative values are counted as
+   *        zero
+   */
+  public void record(final long nanos) {
+    final long value = nanos > 0 ? nanos : 0;
+    counts.incrementAndGet(indexOf(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of recorded values
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+
+
+
+  /**
+   * @return the sum of all recorded values in nanoseconds
+   */
+  public long getSum() {
+    return sum.get();
+  }
+
+
+
+
+  /**
+   * @return the largest recorded value in nanoseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+
+
+
+  /**
+   * @return the average of the recorded values in nanoseconds, 0 if nothing
+   *         has been recorded
+   */
+  public double getMean() {
+    final long total = count.get();
+    return total > 0 ? (double)sum.get() / total : 0;
+  }
+
+
+
+
+  /**
+   * Return the value below which the given percentage of the recorded values
+   * fall.
+   *
+   * <p>The returned value is the upper bound of the bucket holding the
+   * percentile, limited to the largest recorded value.
+   *
+   * @param percentile the percentile (0.0 - 100.0)
+   *
+   * @return the value at the percentile in nanoseconds, 0 if nothing has
+   *         been recorded
+   */
+  public long getPercentile(final double percentile) {
+    final long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    final double pct = Math.min(100.0, Math.max(0.0, percentile));
+    final long rank = Math.max(1, (long)Math.ceil(total * pct / 100.0));
+    long seen = 0;
+    for (int x = 0; x < BUCKETS; x++) {
+      seen += counts.get(x);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(x), max.get());
+      }
+    }
+    return max.get();
+  }
+
+
+
+
+  /**
+   * Clear all the recorded values.
+   */
+  public void reset() {
+    for (int x = 0; x < BUCKETS; x++) {
+      counts.set(x, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+
+
+
+  /**
+   * @return the index of the bucket counting the given (non-negative) value
+   */
+  static int indexOf(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int)value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    final int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+
+
+
+  /**
+   * @return the largest value counted by the bucket with the given index
+   */
+  static long upperBoundOf(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    if (index >= BUCKETS - 1) {
+      return Long.MAX_VALUE;
+    }
+    final int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+    final long sub = index % SUB_BUCKETS;
+    final long width = 1L << (exponent - SUB_BITS);
+    return (1L << exponent) + (sub + 1) * width - 1;
+  }
+
+}
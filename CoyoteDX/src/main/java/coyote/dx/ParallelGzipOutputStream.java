@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/**
+ * An output stream which writes gzip data, compressing blocks of the data
+ * on several threads at once.
+ *
+ * <p>The data is divided into blocks and each block is compressed into a
+ * complete gzip member. The members are written in order, and since a gzip
+ * file may contain any number of members, the result can be read by any gzip
+ * reader, including {@code java.util.zip.GZIPInputStream} and the
+ * {@code gzip} command. The compression ratio is slightly lower than a
+ * single member as each block starts with an empty dictionary.
+ *
+ * <p>The number of blocks waiting to be written is bounded, so writers are
+ * held up when the compression threads cannot keep up rather than buffering
+ * the data in memory. This stream is not thread-safe.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  /** The default size of the blocks compressed by each thread */
+  public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final byte[] HEADER = {(byte)GZIP_MAGIC, (byte)(GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xFF};
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  private final OutputStream out;
+  private final int blockSize;
+  private final int level;
+  private final int maxPending;
+  private final ExecutorService executor;
+  private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+  private byte[] block;
+  private int count = 0;
+  private boolean closed = false;
+
+
+
+
+  /**
+   * Create a stream compressing blocks of the default size at the default
+   * compression level on one thread per processor.
+   *
+   * @param out the stream to which the compressed data is written
+   */
+  public ParallelGzipOutputStream(final OutputStream out) {
+    this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime().availableProcessors());
+  }
+
+
+
+
+  /**
+   * @param out the stream to which the compressed data is written
+   * @param blockSize the number of bytes compressed in each member
+   * @param level the deflate compression level
+   * @param threads the number of threads compressing blocks
+   */
+  public ParallelGzipOutputStream(final OutputStream out, final int blockSize, final int level, final int threads) {
+    if (out == null) {
+      throw new IllegalArgumentException("Output stream cannot be null");
+    }
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Block size must be positive");
+    }
+    this.out = out;
+    this.blockSize = blockSize;
+    this.level = level;
+    final int poolSize = Math.max(1, threads);
+    maxPending = poolSize * 2;
+    block = new byte[blockSize];
+    final String prefix = "GzipCompressor-" + POOL_COUNT.incrementAndGet() + "-";
+    executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+
+
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread retval = new Thread(runnable, prefix + threadCount.incrementAndGet());
+        retval.setDaemon(true);
+        return retval;
+      }
+    });
+  }
+
+
+
+
+  /**
+   * @see java.io.OutputStream#write(int)
+   */
+  @Override
+  public void write(final int b) throws IOException {
+    ensureOpen();
+    block[count++] = (byte)b;
+    if (count == blockSize) {
+      submit();
+    }
+  }
+
+
+
+
+  /**
+   * @see java.io.OutputStream#write(byte[], int, int)
+   */
+  @Override
+  public void write(final byte[] data, final int offset, final int length) throws IOException {
+    ensureOpen();
+    int position = offset;
+    int remaining = length;
+    while (remaining > 0) {
+      final int size = Math.min(remaining, blockSize - count);
+      System.arraycopy(data, position, block, count, size);
+      count += size;
+      position += size;
+      remaining -= size;
+      if (count == blockSize) {
+        submit();
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Write the blocks which have already been compressed and flush the
+   * underlying stream.
+   *
+   * <p>The current partial block is held until it fills or the stream is
+   * closed. Writers commonly flush after each record, and compressing each
+   * flush into a member of its own would produce one small member for each
+   * record, larger than the data and compressed one block at a time.
+   *
+   * @see java.io.OutputStream#flush()
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+      writeNext();
+    }
+    out.flush();
+  }
+
+
+
+
+  /**
+   * Compress the current partial block, write all the compressed blocks,
+   * stop the compression threads and close the underlying stream.
+   *
+   * @see java.io.OutputStream#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      try {
+        if (count > 0) {
+          submit();
+        }
+        while (!pending.isEmpty()) {
+          writeNext();
+        }
+        out.flush();
+      } finally {
+        closed = true;
+        executor.shutdownNow();
+        out.close();
+      }
+    }
+  }
+
+
+
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+
+
+
+  /**
+   * Hand the current block to the compression threads, waiting for the
+   * oldest block to be written if too many are pending.
+   */
+  private void submit() throws IOException {
+    final byte[] data = block;
+    final int length = count;
+    pending.addLast(executor.submit(new Callable<byte[]>() {
+      @Override
+      public byte[] call() {
+        return compress(data, length, level);
+      }
+    }));
+    block = new byte[blockSize];
+    count = 0;
+
+    while (pending.size() >= maxPending || (!pending.isEmpty() && pending.peekFirst().isDone())) {
+      writeNext();
+    }
+  }
+
+
+
+
+  private void writeNext() throws IOException {
+    final Future<byte[]> future = pending.removeFirst();
+    try {
+      out.write(future.get());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for compression");
+    } catch (final ExecutionException e) {
+      throw new IOException("Compression failed", e.getCause());
+    }
+  }
+
+
+
+
+  /**
+   * Compress the data into a complete gzip member.
+   *
+   * @param data the data to compress
+   * @param length the number of bytes in the data
+   * @param level the compression level
+   *
+   * @return the gzip member
+   */
+  static byte[] compress(final byte[] data, final int length, final int level) {
+    final Deflater deflater = new Deflater(level, true);
+    try {
+      final ByteArrayOutputStream retval = new ByteArrayOutputStream(length / 2 + 64);
+      retval.write(HEADER, 0, HEADER.length);
+      deflater.setInput(data, 0, length);
+      deflater.finish();
+      final byte[] buffer = new byte[64 * 1024];
+      while (!deflater.finished()) {
+        final int size = deflater.deflate(buffer);
+        retval.write(buffer, 0, size);
+      }
+      final CRC32 crc = new CRC32();
+      crc.update(data, 0, length);
+      writeInt(retval, (int)crc.getValue());
+      writeInt(retval, length);
+      return retval.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+
+
+
+  private static void writeInt(final ByteArrayOutputStream out, final int value) {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+
+}
@@ -60,6 +60,8 @@ public class Symbols {
 
   public static final String CURRENT_FRAME = "CurrentFrame";
   public static final String LAST_FRAME = "LastFrame";
+  public static final String SOURCE_FILE = "SourceFile"; // file from which the current frame was read
+  public static final String SOURCE_LINE = "SourceLine"; // line on which the current frame started
   public static final String COMMAND_LINE_ARG_PREFIX = "cmd.arg.";
   public static final String ENVIRONMENT_VAR_PREFIX = "env.";
 
@@ -318,4 +318,44 @@ public interface TransformEngine extends RunnableComponent {
    */
   public void setLoader(Loader loader);
 
+
+
+
+  /**
+   * Enable or disable the measurement of the time spent in each component.
+   * 
+   * <p>Metrics are disabled by default and cost nothing when disabled.
+   * 
+   * @param flag true to record metrics for this job, false to run without
+   *        them
+   */
+  public void setMetricsEnabled(boolean flag);
+
+
+
+
+  /**
+   * @return the metrics of this job or null if metrics were not enabled when 
+   *         the job was run
+   */
+  public EngineMetrics getMetrics();
+
+
+
+
+  /**
+   * Set the number of frames the engine collects before passing them to the 
+   * transforms and writers which can process frames in batches.
+   * 
+   * <p>The default of one passes each frame through the engine on its own. 
+   * Components which only process single frames are passed the frames of a 
+   * batch one at a time.
+   * 
+   * @param size the number of frames in each batch
+   * 
+   * @see BatchFrameTransform
+   * @see BatchFrameWriter
+   */
+  public void setBatchSize(int size);
+
 }
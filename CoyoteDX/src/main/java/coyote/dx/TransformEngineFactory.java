@@ -222,6 +222,23 @@ public class TransformEngineFactory {
           } else {
             retval.setName(field.getStringValue());
           }
+        } else if (StringUtil.equalsIgnoreCase(ConfigTag.METRICS, field.getName())) {
+          if (field.isFrame()) {
+            Log.error("Invalid Metrics value - expecting simple type (boolean)");
+          } else {
+            String value = field.getStringValue();
+            retval.setMetricsEnabled(StringUtil.equalsIgnoreCase("true", value) || StringUtil.equalsIgnoreCase("yes", value) || StringUtil.equalsIgnoreCase("1", value));
+          }
+        } else if (StringUtil.equalsIgnoreCase(ConfigTag.BATCH, field.getName())) {
+          if (field.isFrame()) {
+            Log.error("Invalid Batch value - expecting simple type (integer)");
+          } else {
+            try {
+              retval.setBatchSize(Integer.parseInt(field.getStringValue()));
+            } catch (NumberFormatException e) {
+              Log.error("Invalid Batch value - expecting an integer");
+            }
+          }
         } else if (StringUtil.equalsIgnoreCase(ConfigTag.SCHEDULE, field.getName())) {
           if (!field.isFrame()) {
             Log.error("Invalid Schedule section - expecting complex type");
@@ -37,7 +37,7 @@ public abstract class AbstractFrameAggregator extends AbstractConfigurableCompon
    */
   @Override
   public void open(final TransformContext context) {
-    super.context = context;
+    setContext(context);
 
     // set the transform context in the evaluator so it can resolve variables
     evaluator.setContext(context);
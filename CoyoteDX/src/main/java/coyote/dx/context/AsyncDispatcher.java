@@ -0,0 +1,593 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.context;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import coyote.commons.StringUtil;
+import coyote.dataframe.DataField;
+import coyote.dataframe.DataFrame;
+import coyote.dx.FrameReader;
+import coyote.dx.FrameValidator;
+import coyote.dx.FrameWriter;
+import coyote.loader.cfg.Config;
+import coyote.loader.cfg.ConfigurationException;
+import coyote.loader.log.Log;
+
+
+/**
+ * Delivers the events of the engine to a listener on a thread of its own.
+ *
+ * <p>Events are placed in a bounded queue by the engine thread and taken
+ * from it, in order, by the dispatch thread which calls the wrapped listener.
+ * Transactions are copied (see {@link TransactionContext#snapshot()}) before
+ * they are queued so the listener sees each transaction as it was when the
+ * event occurred, regardless of how far the engine has progressed.
+ *
+ * <p>Only listeners which implement {@link AsyncSafe} and are configured
+ * with {@code "async": true} are dispatched this way; all others continue to
+ * be called synchronously on the engine thread. The following configuration
+ * attributes of the listener control the dispatcher:<ul>
+ * <li>{@code capacity} - the number of events the queue holds (default
+ * 1024)</li>
+ * <li>{@code overflow} - what to do when the queue is full: {@code block}
+ * the engine until there is room (default), {@code drop} the event or
+ * {@code sample} the events, queuing one in every {@code sample} events and
+ * dropping the rest</li>
+ * <li>{@code sample} - the sampling rate for the sample policy (default
+ * 10)</li>
+ * <li>{@code frames} - whether the copies of transactions include their
+ * frames (default true); listeners which only look at the state of the
+ * transaction can set this to false to avoid cloning every frame</li></ul>
+ *
+ * <p>A transaction is only copied once its event is accepted, so events
+ * dropped by the overflow policy, and events delivered synchronously
+ * because the dispatcher is not open, cost no copy at all.
+ *
+ * <p>The listener is opened on the engine thread before dispatching starts
+ * and is closed after all the queued events have been delivered.
+ */
+public class AsyncDispatcher implements ContextListener {
+
+  public static final String ASYNC = "async";
+  public static final String CAPACITY = "capacity";
+  public static final String OVERFLOW = "overflow";
+  public static final String SAMPLE = "sample";
+  public static final String FRAMES = "frames";
+
+  public static final int DEFAULT_CAPACITY = 1024;
+  public static final int DEFAULT_SAMPLE = 10;
+
+  /** What to do with an event when the queue is full */
+  public enum Overflow {
+    BLOCK, DROP, SAMPLE
+  }
+
+  /** The kinds of events delivered to listeners */
+  private enum Type {
+    START, END, ERROR, READ, WRITE, MAP, VALIDATION_FAILED, FRAME_VALIDATION_FAILED, STOP
+  }
+
+  /** The marker placed on the queue to stop the dispatch thread */
+  private static final Event STOP_EVENT = new Event(Type.STOP, null, null, null);
+
+  private final ContextListener listener;
+  private final BlockingQueue<Event> queue;
+  private final Overflow overflow;
+  private final int sampleRate;
+  private final boolean frames;
+  private final AtomicLong delivered = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private long overflowCount = 0;
+  private volatile Thread thread = null;
+
+
+
+
+  /**
+   * Create a dispatcher for the given listener.
+   *
+   * @param listener the listener to which events are delivered
+   * @param capacity the number of events the queue can hold
+   * @param overflow what to do when the queue is full
+   * @param sampleRate deliver one of every this many events when sampling
+   */
+  public AsyncDispatcher(final ContextListener listener, final int capacity, final Overflow overflow, final int sampleRate) {
+    this(listener, capacity, overflow, sampleRate, true);
+  }
+
+
+
+
+  /**
+   * Create a dispatcher for the given listener.
+   *
+   * @param listener the listener to which events are delivered
+   * @param capacity the number of events the queue can hold
+   * @param overflow what to do when the queue is full
+   * @param sampleRate deliver one of every this many events when sampling
+   * @param frames true to include the frames in the copies of transactions
+   */
+  public AsyncDispatcher(final ContextListener listener, final int capacity, final Overflow overflow, final int sampleRate, final boolean frames) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Cannot dispatch to a null listener");
+    }
+    this.listener = listener;
+    queue = new ArrayBlockingQueue<Event>(capacity > 0 ? capacity : DEFAULT_CAPACITY);
+    this.overflow = (overflow != null) ? overflow : Overflow.BLOCK;
+    this.sampleRate = (sampleRate > 0) ? sampleRate : DEFAULT_SAMPLE;
+    this.frames = frames;
+  }
+
+
+
+
+  /**
+   * Wrap the listener in a dispatcher if it is async-safe and configured to
+   * be called asynchronously.
+   *
+   * @param listener the listener to check
+   *
+   * @return a dispatcher for the listener or the listener itself if it is to
+   *         be called synchronously
+   */
+  public static ContextListener wrap(final ContextListener listener) {
+    if (listener == null || listener instanceof AsyncDispatcher) {
+      return listener;
+    }
+    final Config cfg = listener.getConfiguration();
+    final String async = findString(ASYNC, cfg);
+    if (!isTrue(async)) {
+      return listener;
+    }
+    if (!(listener instanceof AsyncSafe)) {
+      Log.warn(listener.getClass().getName() + " is not async-safe; its events will be delivered synchronously");
+      return listener;
+    }
+
+    int capacity = DEFAULT_CAPACITY;
+    int sample = DEFAULT_SAMPLE;
+    Overflow policy = Overflow.BLOCK;
+    try {
+      final String value = findString(CAPACITY, cfg);
+      if (StringUtil.isNotBlank(value)) {
+        capacity = Integer.parseInt(value.trim());
+      }
+    } catch (final NumberFormatException e) {
+      Log.warn("Invalid async listener " + CAPACITY + " - using " + DEFAULT_CAPACITY);
+    }
+    try {
+      final String value = findString(SAMPLE, cfg);
+      if (StringUtil.isNotBlank(value)) {
+        sample = Integer.parseInt(value.trim());
+      }
+    } catch (final NumberFormatException e) {
+      Log.warn("Invalid async listener " + SAMPLE + " rate - using " + DEFAULT_SAMPLE);
+    }
+    final String value = findString(OVERFLOW, cfg);
+    if (StringUtil.isNotBlank(value)) {
+      try {
+        policy = Overflow.valueOf(value.trim().toUpperCase());
+      } catch (final IllegalArgumentException e) {
+        Log.warn("Unknown async listener " + OVERFLOW + " policy '" + value + "' - blocking when full");
+      }
+    }
+    final String copyFrames = findString(FRAMES, cfg);
+    return new AsyncDispatcher(listener, capacity, policy, sample, StringUtil.isBlank(copyFrames) || isTrue(copyFrames));
+  }
+
+
+
+
+  private static String findString(final String name, final DataFrame frame) {
+    if (frame != null) {
+      final DataField field = frame.getFieldIgnoreCase(name);
+      if (field != null) {
+        return field.getStringValue();
+      }
+    }
+    return null;
+  }
+
+
+
+
+  private static boolean isTrue(final String value) {
+    return StringUtil.isNotBlank(value) && ("true".equalsIgnoreCase(value.trim()) || "yes".equalsIgnoreCase(value.trim()) || "1".equals(value.trim()));
+  }
+
+
+
+
+  /**
+   * @return the listener to which this dispatcher delivers events
+   */
+  public ContextListener getListener() {
+    return listener;
+  }
+
+
+
+
+  /**
+   * @return the number of events delivered to the listener
+   */
+  public long getDelivered() {
+    return delivered.get();
+  }
+
+
+
+
+  /**
+   * @return the number of events dropped because the queue was full
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+
+
+
+  /**
+   * @return the number of events waiting to be delivered
+   */
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+
+
+
+  /**
+   * @return the overflow policy of this dispatcher
+   */
+  public Overflow getOverflow() {
+    return overflow;
+  }
+
+
+
+
+  /**
+   * Open the listener and start the dispatch thread.
+   *
+   * @see coyote.dx.Component#open(coyote.dx.context.TransformContext)
+   */
+  @Override
+  public void open(final TransformContext context) {
+    listener.open(context);
+    final Thread worker = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        dispatch();
+      }
+    }, "AsyncListener-" + listener.getClass().getSimpleName());
+    worker.setDaemon(true);
+    thread = worker;
+    worker.start();
+  }
+
+
+
+
+  /**
+   * Deliver all the queued events, stop the dispatch thread and close the
+   * listener.
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    final Thread worker = thread;
+    if (worker != null) {
+      try {
+        queue.put(STOP_EVENT);
+        worker.join();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      thread = null;
+    }
+    if (dropped.get() > 0) {
+      Log.warn(listener.getClass().getSimpleName() + " dropped " + dropped.get() + " of " + (delivered.get() + dropped.get()) + " events");
+    }
+    listener.close();
+  }
+
+
+
+
+  /**
+   * Take events from the queue and deliver them until the stop event is
+   * taken.
+   */
+  private void dispatch() {
+    while (true) {
+      final Event event;
+      try {
+        event = queue.take();
+      } catch (final InterruptedException e) {
+        return;
+      }
+      if (event.type == Type.STOP) {
+        return;
+      }
+      try {
+        deliver(event);
+        delivered.incrementAndGet();
+      } catch (final Exception e) {
+        Log.error(listener.getClass().getSimpleName() + " failed to process " + event.type + " event: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+      }
+    }
+  }
+
+
+
+
+  private void deliver(final Event event) {
+    switch (event.type) {
+      case START:
+        listener.onStart(event.context);
+        break;
+      case END:
+        listener.onEnd(event.context);
+        break;
+      case ERROR:
+        listener.onError(event.context);
+        break;
+      case READ:
+        listener.onRead((TransactionContext)event.context, (FrameReader)event.component);
+        break;
+      case WRITE:
+        listener.onWrite((TransactionContext)event.context, (FrameWriter)event.component);
+        break;
+      case MAP:
+        listener.onMap((TransactionContext)event.context);
+        break;
+      case VALIDATION_FAILED:
+        listener.onValidationFailed(event.context, (FrameValidator)event.component, event.message);
+        break;
+      case FRAME_VALIDATION_FAILED:
+        listener.onFrameValidationFailed((TransactionContext)event.context);
+        break;
+      default:
+        break;
+    }
+  }
+
+
+
+
+  /**
+   * Place the event on the queue according to the overflow policy.
+   *
+   * <p>Events are delivered synchronously if the dispatcher has not been
+   * opened (or has been closed) so none are lost. The transaction is only
+   * copied for events which are queued.
+   */
+  private void submit(final Type type, final OperationalContext context, final Object component, final String message) {
+    if (thread == null) {
+      deliver(new Event(type, context, component, message));
+      delivered.incrementAndGet();
+      return;
+    }
+
+    // only the engine thread submits events, so no locking is needed and a
+    // queue with room cannot fill up before the event is put on it
+    if (overflow != Overflow.BLOCK && queue.remainingCapacity() == 0) {
+      if (overflow == Overflow.DROP || overflowCount++ % sampleRate != 0) {
+        dropped.incrementAndGet();
+        return;
+      }
+    }
+
+    final OperationalContext ctx = (context instanceof TransactionContext) ? ((TransactionContext)context).snapshot(frames) : context;
+    try {
+      queue.put(new Event(type, ctx, component, message));
+    } catch (final InterruptedException e) {
+      dropped.incrementAndGet();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onEnd(coyote.dx.context.OperationalContext)
+   */
+  @Override
+  public void onEnd(final OperationalContext context) {
+    submit(Type.END, context, null, null);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onStart(coyote.dx.context.OperationalContext)
+   */
+  @Override
+  public void onStart(final OperationalContext context) {
+    submit(Type.START, context, null, null);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onWrite(coyote.dx.context.TransactionContext, coyote.dx.FrameWriter)
+   */
+  @Override
+  public void onWrite(final TransactionContext context, final FrameWriter writer) {
+    submit(Type.WRITE, context, writer, null);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onRead(coyote.dx.context.TransactionContext, coyote.dx.FrameReader)
+   */
+  @Override
+  public void onRead(final TransactionContext context, final FrameReader reader) {
+    submit(Type.READ, context, reader, null);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onError(coyote.dx.context.OperationalContext)
+   */
+  @Override
+  public void onError(final OperationalContext context) {
+    submit(Type.ERROR, context, null, null);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onValidationFailed(coyote.dx.context.OperationalContext, coyote.dx.FrameValidator, java.lang.String)
+   */
+  @Override
+  public void onValidationFailed(final OperationalContext context, final FrameValidator validator, final String msg) {
+    submit(Type.VALIDATION_FAILED, context, validator, msg);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onFrameValidationFailed(coyote.dx.context.TransactionContext)
+   */
+  @Override
+  public void onFrameValidationFailed(final TransactionContext context) {
+    submit(Type.FRAME_VALIDATION_FAILED, context, null, null);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.ContextListener#onMap(coyote.dx.context.TransactionContext)
+   */
+  @Override
+  public void onMap(final TransactionContext txnContext) {
+    submit(Type.MAP, txnContext, null, null);
+  }
+
+
+
+
+  /**
+   * Preloading happens before the job runs and is always synchronous.
+   *
+   * @see coyote.dx.context.ContextListener#preload(coyote.dataframe.DataFrame)
+   */
+  @Override
+  public void preload(final DataFrame frame) {
+    listener.preload(frame);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.ConfigurableComponent#setConfiguration(coyote.loader.cfg.Config)
+   */
+  @Override
+  public void setConfiguration(final Config cfg) throws ConfigurationException {
+    listener.setConfiguration(cfg);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.ConfigurableComponent#getConfiguration()
+   */
+  @Override
+  public Config getConfiguration() {
+    return listener.getConfiguration();
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.ConfigurableComponent#isEnabled()
+   */
+  @Override
+  public boolean isEnabled() {
+    return listener.isEnabled();
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.ConfigurableComponent#setEnabled(boolean)
+   */
+  @Override
+  public void setEnabled(final boolean flag) {
+    listener.setEnabled(flag);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.Component#getContext()
+   */
+  @Override
+  public TransformContext getContext() {
+    return listener.getContext();
+  }
+
+
+
+
+  /**
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return "AsyncDispatcher: " + listener.getClass().getName() + " (" + overflow + ")";
+  }
+
+  //
+
+  //
+
+  /**
+   * An event waiting to be delivered.
+   */
+  private static final class Event {
+    final Type type;
+    final OperationalContext context;
+    final Object component;
+    final String message;
+
+
+
+
+    Event(final Type type, final OperationalContext context, final Object component, final String message) {
+      this.type = type;
+      this.context = context;
+      this.component = component;
+      this.message = message;
+    }
+  }
+
+}
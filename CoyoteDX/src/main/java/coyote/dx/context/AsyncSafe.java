@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.context;
+
+/**
+ * Marks a context listener which may receive its events on a thread other
+ * than the engine thread.
+ *
+ * <p>Listeners marked with this interface promise not to alter the
+ * transaction they are given (frames, properties or error state) and to
+ * tolerate receiving detached copies of transactions after the engine has
+ * moved on to the next frame. Such listeners are only moved off the engine
+ * thread when their configuration also contains {@code "async": true}; see
+ * {@link AsyncDispatcher}.
+ *
+ * <p>Listeners which modify the transaction (e.g. to record results for
+ * later components) must not implement this interface and are always called
+ * synchronously.
+ */
+public interface AsyncSafe {
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.context;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import coyote.dataframe.DataField;
+import coyote.dataframe.DataFrame;
+
+
+/**
+ * A token (e.g. {@code Working.name} or {@code Source.x}) compiled for
+ * repeated resolution against a transform context.
+ *
+ * <p>The token is parsed once; the frame or context it refers to, the name
+ * of the field and the dotted path used to search the context are all
+ * determined when the accessor is created. Resolving the token for each
+ * frame then creates no strings.
+ *
+ * <p>Each accessor remembers the position at which it last found its field
+ * in frames of each layout, telling layouts apart by their number of fields.
+ * Frames read from the same source share a layout, so the field is normally
+ * found by checking that one position instead of scanning the frame, even
+ * when frames of several layouts (such as the record types of a flat file)
+ * are interleaved. When compiled to ignore case, the name is compared
+ * without regard to case at that position and only a miss results in a
+ * scan.
+ *
+ * <p>Accessors are thread-safe and are normally obtained through {@link
+ * TransformContext#getAccessor(String)}, which caches them by token.
+ */
+public final class FieldAccessor {
+
+  /** Where the token points */
+  private enum Scope {
+    WORKING, SOURCE, TARGET, CONTEXT, TRANSFORM, NONE
+  }
+
+  static final String SOURCE = "Source.";
+  static final String TARGET = "Target.";
+  static final String CONTEXT = "Context.";
+  static final String TRANSFORM = "Transform.";
+  static final String WORKING = "Working.";
+
+  /** The number of layouts for which positions are remembered */
+  private static final int LAYOUTS = 16;
+
+  private final String token;
+  private final Scope scope;
+  private final String name;
+  private final String[] path;
+  private final boolean ignoreCase;
+
+  /** The position of the field in the last frame of each size in which it was found */
+  private final AtomicIntegerArray hints = new AtomicIntegerArray(LAYOUTS);
+
+
+
+
+  private FieldAccessor(final String token, final boolean ignoreCase) {
+    this.token = token;
+    this.ignoreCase = ignoreCase;
+    if (token.startsWith(WORKING)) {
+      scope = Scope.WORKING;
+      name = token.substring(WORKING.length());
+    } else if (token.startsWith(SOURCE)) {
+      scope = Scope.SOURCE;
+      name = token.substring(SOURCE.length());
+    } else if (token.startsWith(TARGET)) {
+      scope = Scope.TARGET;
+      name = token.substring(TARGET.length());
+    } else if (token.startsWith(CONTEXT)) {
+      scope = Scope.CONTEXT;
+      name = token.substring(CONTEXT.length());
+    } else if (token.startsWith(TRANSFORM)) {
+      scope = Scope.TRANSFORM;
+      name = token.substring(TRANSFORM.length());
+    } else {
+      scope = Scope.NONE;
+      name = token;
+    }
+    path = token.split("\\.");
+  }
+
+
+
+
+  /**
+   * Compile the given token, matching field names exactly.
+   *
+   * @param token the token to compile
+   *
+   * @return an accessor for the token
+   *
+   * @throws IllegalArgumentException if the token is null
+   */
+  public static FieldAccessor compile(final String token) {
+    if (token == null) {
+      throw new IllegalArgumentException("Cannot compile a null token");
+    }
+    return new FieldAccessor(token, false);
+  }
+
+
+
+
+  /**
+   * Compile the given token, matching field names without regard to case.
+   *
+   * @param token the token to compile
+   *
+   * @return an accessor for the token
+   *
+   * @throws IllegalArgumentException if the token is null
+   */
+  public static FieldAccessor compileIgnoreCase(final String token) {
+    if (token == null) {
+      throw new IllegalArgumentException("Cannot compile a null token");
+    }
+    return new FieldAccessor(token, true);
+  }
+
+
+
+
+  /**
+   * @return the token this accessor was compiled from
+   */
+  public String getToken() {
+    return token;
+  }
+
+
+
+
+  /**
+   * @return the name of the field or value without the scope prefix
+   */
+  public String getName() {
+    return name;
+  }
+
+
+
+
+  /**
+   * Retrieve the frame field this token refers to.
+   *
+   * @param context the context holding the current transaction
+   *
+   * @return the field or null if the token does not refer to a frame field
+   *         or the field does not exist
+   */
+  public DataField getField(final TransformContext context) {
+    final DataFrame frame = getFrame(context);
+    return frame != null ? find(frame) : null;
+  }
+
+
+
+
+  /**
+   * Retrieve the value of a frame field or transaction or transform context
+   * property as {@link TransformContext#resolveFieldValue(String)} does.
+   *
+   * @param context the context to search
+   *
+   * @return the value or null if the token is not prefixed with a scope or
+   *         the value was not found
+   */
+  public Object getFieldValue(final TransformContext context) {
+    Object retval = null;
+    switch (scope) {
+      case WORKING:
+      case SOURCE:
+      case TARGET:
+        final DataField field = getField(context);
+        if (field != null) {
+          retval = field.getObjectValue();
+        }
+        break;
+      case CONTEXT:
+        final TransactionContext txn = context.getTransaction();
+        if (txn != null) {
+          retval = txn.get(name);
+        }
+        break;
+      case TRANSFORM:
+        retval = context.get(name);
+        break;
+      default:
+        break;
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Retrieve the value of the token as {@link
+   * TransformContext#resolveToValue(String)} does; frame fields and context
+   * properties first, then a hierarchical search of the context and finally
+   * the symbol table.
+   *
+   * @param context the context to search
+   *
+   * @return the value or null if not found
+   */
+  public Object getValue(final TransformContext context) {
+    Object retval = getFieldValue(context);
+    if (retval == null && token.length() > 0) {
+      retval = context.searchForValue(token, path);
+      if (retval == null && context.getSymbols() != null && context.getSymbols().containsKey(token)) {
+        retval = context.getSymbols().get(token);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @param context the context to search
+   *
+   * @return the string value of the token or null if not found
+   *
+   * @see #getValue(TransformContext)
+   */
+  public String getString(final TransformContext context) {
+    final Object retval = getValue(context);
+    return retval != null ? retval.toString() : null;
+  }
+
+
+
+
+  private DataFrame getFrame(final TransformContext context) {
+    final TransactionContext txn = context.getTransaction();
+    if (txn != null) {
+      switch (scope) {
+        case WORKING:
+          return txn.getWorkingFrame();
+        case SOURCE:
+          return txn.getSourceFrame();
+        case TARGET:
+          return txn.getTargetFrame();
+        default:
+          break;
+      }
+    }
+    return null;
+  }
+
+
+
+
+  /**
+   * Find the named field in the frame, checking the position at which it was
+   * last found in a frame of the same size before scanning.
+   */
+  private DataField find(final DataFrame frame) {
+    final List<DataField> fields = frame.getFields();
+    final int size = fields.size();
+    final int layout = size & (LAYOUTS - 1);
+    final int position = hints.get(layout);
+    if (position < size) {
+      final DataField field = fields.get(position);
+      if (matches(field.getName())) {
+        return field;
+      }
+    }
+    for (int x = 0; x < size; x++) {
+      final DataField field = fields.get(x);
+      if (matches(field.getName())) {
+        hints.lazySet(layout, x);
+        return field;
+      }
+    }
+    return null;
+  }
+
+
+
+
+  private boolean matches(final String fieldName) {
+    if (fieldName == name) {
+      return true;
+    }
+    if (fieldName == null) {
+      return false;
+    }
+    return ignoreCase ? fieldName.equalsIgnoreCase(name) : fieldName.equals(name);
+  }
+
+
+
+
+  /**
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return "FieldAccessor: '" + token + "'";
+  }
+
+}
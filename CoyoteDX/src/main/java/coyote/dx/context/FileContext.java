@@ -94,6 +94,22 @@ public class FileContext extends PersistentContext {
   @Override
   public void close() {
     super.close();
+    save();
+  }
+
+
+
+
+  /**
+   * Write the context to disk.
+   * 
+   * @see coyote.dx.context.PersistentContext#save()
+   */
+  @Override
+  public void save() {
+    if (contextFile == null) {
+      return;
+    }
 
     // create a data frame to structure our data
     DataFrame frame = new DataFrame();
@@ -45,6 +45,9 @@ public abstract class OperationalContext {
 
   protected SymbolTable symbols = null;
 
+  /** Incremented each time the properties or the symbol table are replaced */
+  private volatile long revision = 0;
+
 
 
 
@@ -65,6 +68,36 @@ public abstract class OperationalContext {
    */
   public void setSymbols(SymbolTable symbols) {
     this.symbols = symbols;
+    revision++;
+  }
+
+
+
+
+  /**
+   * Return the revision of this context.
+   * 
+   * <p>The revision changes each time a property is set or removed, or the 
+   * symbol table is replaced, allowing components to cache values resolved 
+   * from the context until it changes. Changes made directly to the symbol 
+   * table are not tracked; call {@link #touch()} after making them if 
+   * components should see the new values.
+   * 
+   * @return the current revision of this context
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+
+
+
+  /**
+   * Signal that the contents of this context have changed, invalidating any 
+   * values components have resolved from it.
+   */
+  public void touch() {
+    revision++;
   }
 
 
@@ -198,6 +231,7 @@ public abstract class OperationalContext {
       } else {
         properties.remove(key);
       }
+      revision++;
     }
   }
 
@@ -625,6 +659,7 @@ public abstract class OperationalContext {
           properties.put(key, value);
         }
       }
+      revision++;
     }
   }
 
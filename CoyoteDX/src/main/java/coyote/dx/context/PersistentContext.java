@@ -63,6 +63,21 @@ public abstract class PersistentContext extends TransformContext {
 
 
 
+  /**
+   * Write the current state of this context to its store.
+   * 
+   * <p>Contexts are saved when they are closed, but components may also call
+   * this while the transform is running so their progress survives a failed
+   * or interrupted job, as a reader tailing a file does with its offset. The
+   * default implementation does nothing.</p>
+   */
+  public void save() {
+    // nothing to save by default
+  }
+
+
+
+
   /**
    * Look for the {@code fields} section in our configuration and place each 
    * field in the context and symbol table.
@@ -24,6 +24,9 @@ public class TransactionContext extends OperationalContext {
 
   private boolean lastFrame = false;
 
+  /** The number of the frame in this transaction, zero until it is set */
+  private long row = 0;
+
 
 
 
@@ -121,5 +124,122 @@ public class TransactionContext extends OperationalContext {
 
 
 
+  /**
+   * Return the number of the frame in this transaction.
+   * 
+   * <p>The engine may hold several transactions before writing their frames, 
+   * so each transaction keeps the row number it was read with.
+   * 
+   * @see coyote.dx.context.OperationalContext#getRow()
+   */
+  @Override
+  public long getRow() {
+    return (row > 0) ? row : super.getRow();
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.context.OperationalContext#setRow(long)
+   */
+  @Override
+  public void setRow(final long row) {
+    this.row = row;
+    super.setRow(row);
+  }
+
+
+
+
+  /**
+   * Create a detached copy of this transaction.
+   * 
+   * <p>The copy holds clones of the frames and a copy of the properties, 
+   * state, error, times and row number of this transaction as they are now. 
+   * Changes made to the copy do not affect this transaction and later 
+   * changes to this transaction are not seen in the copy, so the copy can be 
+   * handed to components running on other threads.
+   * 
+   * @return a detached copy of this transaction
+   */
+  public TransactionContext snapshot() {
+    return snapshot(true);
+  }
+
+
+
+
+  /**
+   * Create a detached copy of this transaction, optionally without its 
+   * frames.
+   * 
+   * <p>Cloning the frames is the bulk of the cost of a snapshot, so callers 
+   * which only need the properties, state and error of the transaction can 
+   * leave them out; the source, working and target frames of such a copy 
+   * are null.
+   * 
+   * @param frames true to include clones of the frames in the copy
+   * 
+   * @return a detached copy of this transaction
+   */
+  public TransactionContext snapshot(final boolean frames) {
+    final TransactionContext retval = new Snapshot((TransformContext)parent, getRow());
+    if (frames) {
+      retval.sourceFrame = (sourceFrame != null) ? (DataFrame)sourceFrame.clone() : null;
+      retval.workingFrame = (workingFrame != null) ? (DataFrame)workingFrame.clone() : null;
+      retval.targetFrame = (targetFrame != null) ? (DataFrame)targetFrame.clone() : null;
+    }
+    retval.lastFrame = lastFrame;
+    retval.properties.putAll(properties);
+    retval.state = state;
+    retval.errorFlag = errorFlag;
+    retval.errorMessage = (errorMessage != null) ? new StringBuffer(errorMessage) : null;
+    retval.startTime = startTime;
+    retval.endTime = endTime;
+    retval.symbols = symbols;
+    return retval;
+  }
+
+
+
+
+  /**
+   * A copy of a transaction which keeps the row number it was created with.
+   */
+  private static class Snapshot extends TransactionContext {
+    private final long row;
+
+
+
+
+    Snapshot(final TransformContext context, final long row) {
+      super(context);
+      this.row = row;
+    }
+
+
+
+
+    /**
+     * @see coyote.dx.context.OperationalContext#getRow()
+     */
+    @Override
+    public long getRow() {
+      return row;
+    }
+
+
+
+
+    /**
+     * @see coyote.dx.context.OperationalContext#setRow(long)
+     */
+    @Override
+    public void setRow(final long row) {
+      // the row of a snapshot does not change
+    }
+
+  }
 
 }
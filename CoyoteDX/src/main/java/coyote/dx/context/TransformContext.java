@@ -8,6 +8,7 @@
 package coyote.dx.context;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +16,7 @@ import coyote.commons.StringUtil;
 import coyote.commons.template.Template;
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
+import coyote.dx.CompiledTemplate;
 import coyote.dx.Symbols;
 import coyote.dx.TransformEngine;
 import coyote.loader.cfg.Config;
@@ -31,16 +33,31 @@ public class TransformContext extends OperationalContext {
   public static final String ERROR_STATE = "ErrorState";
   public static final String FRAME_COUNT = "FrameCount";
   public static final String STARTTIME = "StartTime";
-  private static final String SOURCE = "Source.";
-  private static final String TARGET = "Target.";
-  private static final String CONTEXT = "Context.";
-  private static final String TRANSFORM = "Transform.";
-  private static final String WORKING = "Working.";
+  private static final String SOURCE = FieldAccessor.SOURCE;
+  private static final String TARGET = FieldAccessor.TARGET;
+  private static final String WORKING = FieldAccessor.WORKING;
+
+  /** The maximum number of compiled tokens to cache */
+  private static final int MAX_ACCESSORS = 1024;
   private volatile TransactionContext transactionContext = null;
   protected Config configuration = new Config();
   protected TransformEngine engine = null;
   protected volatile long openCount = 0;
 
+  /** Tokens compiled for resolution, keyed by token, least recently used first */
+  private final Map<String, FieldAccessor> accessors = new LinkedHashMap<String, FieldAccessor>(16, 0.75F, true) {
+    private static final long serialVersionUID = 1L;
+
+
+
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, FieldAccessor> eldest) {
+      // tokens built from data should not grow the cache without bound
+      return size() > MAX_ACCESSORS;
+    }
+  };
+
 
 
 
@@ -201,7 +218,7 @@ public class TransformContext extends OperationalContext {
 
     // in case it is a template, resolve it to the context's symbol table
     if (StringUtil.isNotBlank(cval)) {
-      retval = Template.resolve(cval, getSymbols());
+      retval = CompiledTemplate.resolve(cval, getSymbols());
     }
     return retval;
   }
@@ -232,29 +249,15 @@ public class TransformContext extends OperationalContext {
    */
   public String resolveField(final String token) {
     String retval = null;
-    if (token.startsWith(WORKING)) {
-      final String name = token.substring(WORKING.length());
-      if ((transactionContext != null) && (transactionContext.getWorkingFrame() != null)) {
-        retval = transactionContext.getWorkingFrame().getAsString(name);
-      }
-    } else if (token.startsWith(SOURCE)) {
-      final String name = token.substring(SOURCE.length());
-      if ((transactionContext != null) && (transactionContext.getSourceFrame() != null)) {
-        retval = transactionContext.getSourceFrame().getAsString(name);
-      }
-    } else if (token.startsWith(TARGET)) {
-      final String name = token.substring(TARGET.length());
-      if ((transactionContext != null) && (transactionContext.getTargetFrame() != null)) {
-        retval = transactionContext.getTargetFrame().getAsString(name);
-      }
-    } else if (token.startsWith(CONTEXT)) {
-      final String name = token.substring(CONTEXT.length());
-      if (transactionContext != null) {
-        retval = transactionContext.getAsString(name);
+    final FieldAccessor accessor = getAccessor(token);
+    final DataField field = accessor.getField(this);
+    if (field != null) {
+      retval = field.getStringValue();
+    } else {
+      final Object value = accessor.getFieldValue(this);
+      if (value != null) {
+        retval = value.toString();
       }
-    } else if (token.startsWith(TRANSFORM)) {
-      final String name = token.substring(TRANSFORM.length());
-      retval = getAsString(name);
     }
     return retval;
   }
@@ -283,32 +286,36 @@ public class TransformContext extends OperationalContext {
    * @return the object value of the named value in this context or null if not found.
    */
   public Object resolveFieldValue(final String token) {
-    Object retval = null;
-    if (token.startsWith(WORKING)) {
-      final String name = token.substring(WORKING.length());
-      if ((transactionContext != null) && (transactionContext.getWorkingFrame() != null)) {
-        retval = transactionContext.getWorkingFrame().getObject(name);
-      }
-    } else if (token.startsWith(SOURCE)) {
-      final String name = token.substring(SOURCE.length());
-      if ((transactionContext != null) && (transactionContext.getSourceFrame() != null)) {
-        retval = transactionContext.getSourceFrame().getObject(name);
-      }
-    } else if (token.startsWith(TARGET)) {
-      final String name = token.substring(TARGET.length());
-      if ((transactionContext != null) && (transactionContext.getTargetFrame() != null)) {
-        retval = transactionContext.getTargetFrame().getObject(name);
-      }
-    } else if (token.startsWith(CONTEXT)) {
-      final String name = token.substring(CONTEXT.length());
-      if (transactionContext != null) {
-        retval = transactionContext.get(name);
+    return getAccessor(token).getFieldValue(this);
+  }
+
+
+
+
+  /**
+   * Retrieve the compiled form of the given token.
+   *
+   * <p>Tokens are compiled once and cached so resolving the same token for
+   * each frame does not parse it again. The least recently used tokens are
+   * dropped once {@value #MAX_ACCESSORS} are cached. Components which
+   * resolve a fixed token for every frame may also hold on to the returned
+   * accessor.
+   *
+   * @param token the token to compile (e.g. {@code Working.name})
+   *
+   * @return the accessor for the token
+   *
+   * @see FieldAccessor
+   */
+  public FieldAccessor getAccessor(final String token) {
+    synchronized (accessors) {
+      FieldAccessor retval = accessors.get(token);
+      if (retval == null) {
+        retval = FieldAccessor.compile(token);
+        accessors.put(token, retval);
       }
-    } else if (token.startsWith(TRANSFORM)) {
-      final String name = token.substring(TRANSFORM.length());
-      retval = get(name);
+      return retval;
     }
-    return retval;
   }
 
 
@@ -384,19 +391,7 @@ public class TransformContext extends OperationalContext {
   public Object resolveToValue(final String token) {
     Object retval = null;
     if (StringUtil.isNotEmpty(token)) {
-      final Object value = resolveFieldValue(token);
-      if (value != null) {
-        retval = value;
-      } else {
-        final Object obj = searchForValue(token);
-        if (obj != null) {
-          retval = obj;
-        } else {
-          if (symbols != null && symbols.containsKey(token)) {
-            retval = symbols.get(token);
-          }
-        }
-      }
+      retval = getAccessor(token).getValue(this);
     }
     return retval;
   }
@@ -419,8 +414,25 @@ public class TransformContext extends OperationalContext {
    * @return
    */
   protected Object searchForValue(String fieldname) {
+    return searchForValue(fieldname, fieldname.split("\\."));
+  }
+
+
+
+
+  /**
+   * Performs a search of this context with a name already divided into its 
+   * dotted tokens.
+   * 
+   * @param fieldname the name to search
+   * @param tokens the name divided on its dots
+   * 
+   * @return the value found or null if there is no matching value with that name.
+   * 
+   * @see #searchForValue(String)
+   */
+  Object searchForValue(String fieldname, String[] tokens) {
     Object retval = null;
-    String[] tokens = fieldname.split("\\.");
     if (tokens.length == 1) {
       retval = get(fieldname);
     } else {
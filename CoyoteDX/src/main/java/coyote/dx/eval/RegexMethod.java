@@ -7,13 +7,15 @@
  */
 package coyote.dx.eval;
 
-import java.util.regex.Pattern;
-
+import coyote.commons.PatternCache;
 import coyote.dx.context.TransformContext;
 
 
 /**
  * Checks if the context variable value matches a given regular expression.
+ * 
+ * <p>Expressions are compiled once and retrieved from the shared pattern 
+ * cache on subsequent evaluations.
  */
 public class RegexMethod extends AbstractBooleanMethod {
 
@@ -34,7 +36,7 @@ public class RegexMethod extends AbstractBooleanMethod {
       value = context.resolveToString(key);
     }
     if (value != null)
-      retval = Pattern.compile(regex).matcher(value).find();
+      retval = PatternCache.compile(regex).matcher(value).find();
     return retval;
   }
 
@@ -62,7 +62,7 @@ public abstract class AbstractFrameFilter extends AbstractConfigurableComponent
    */
   @Override
   public void open(TransformContext context) {
-    super.context = context;
+    setContext(context);
     evaluator.setContext(context);
 
     String token = getConfiguration().getString(ConfigTag.CONDITION);
@@ -7,8 +7,8 @@
  */
 package coyote.dx.filter;
 
-import coyote.commons.template.Template;
 import coyote.dx.CDX;
+import coyote.dx.CompiledTemplate;
 import coyote.dx.FrameFilter;
 import coyote.dx.context.TransactionContext;
 import coyote.loader.log.Log;
@@ -49,7 +49,7 @@ public class Reject extends AbstractFrameFilter implements FrameFilter {
     if (expression != null) {
 
       // Treat expressions as templates
-      String resolvedExpression = Template.preProcess(expression, getContext().getSymbols());
+      String resolvedExpression = CompiledTemplate.preProcess(expression, getContext().getSymbols());
 
       try {
         // if the condition evaluates to true
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.http.responder;
+
+import java.util.Map;
+
+import coyote.commons.StringUtil;
+import coyote.commons.network.MimeType;
+import coyote.commons.network.http.HTTPSession;
+import coyote.commons.network.http.Response;
+import coyote.commons.network.http.responder.Resource;
+import coyote.commons.network.http.responder.Responder;
+import coyote.dx.EngineMetrics;
+
+
+/**
+ * This responder reports the metrics of the jobs running with metrics
+ * enabled.
+ *
+ * <p>By default the metrics are returned in the Prometheus text exposition
+ * format so the service can be scraped directly. Requesting the {@code json}
+ * format (e.g. {@code /api/metrics/json}) returns the same metrics as a JSON
+ * document for the dashboard and other clients.
+ */
+public class MetricsResponder extends AbstractCoyoteResponder implements Responder {
+
+  private static final String FORMAT = "format";
+  private static final String JSON = "json";
+
+  /** The content type of the Prometheus text format */
+  private static final String PROMETHEUS_TYPE = "text/plain; version=0.0.4";
+
+
+
+
+  @Override
+  public Response get(Resource resource, Map<String, String> urlParams, HTTPSession session) {
+    String format = urlParams.get(FORMAT);
+    if (StringUtil.equalsIgnoreCase(JSON, format)) {
+      setMimetype(MimeType.JSON);
+      setResults(EngineMetrics.toFrame());
+      return Response.createFixedLengthResponse(getStatus(), getMimeType(), getText());
+    } else {
+      return Response.createFixedLengthResponse(getStatus(), PROMETHEUS_TYPE, EngineMetrics.toPrometheus());
+    }
+  }
+
+}
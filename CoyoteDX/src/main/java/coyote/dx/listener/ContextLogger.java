@@ -13,6 +13,7 @@ import coyote.commons.StringUtil;
 import coyote.dx.FrameReader;
 import coyote.dx.FrameValidator;
 import coyote.dx.FrameWriter;
+import coyote.dx.context.AsyncSafe;
 import coyote.dx.context.OperationalContext;
 import coyote.dx.context.TransactionContext;
 import coyote.dx.context.TransformContext;
@@ -24,7 +25,7 @@ import coyote.i13n.SimpleMetric;
  * 
  * This file requires a file target to  use for storing its data
  */
-public class ContextLogger extends FileRecorder {
+public class ContextLogger extends FileRecorder implements AsyncSafe {
   DecimalFormat DECIMAL = new DecimalFormat("#,###,##0.000");
   DecimalFormat NUMBER = new DecimalFormat("#,###,##0");
 
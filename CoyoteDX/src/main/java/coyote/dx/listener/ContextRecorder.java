@@ -45,6 +45,7 @@ public abstract class ContextRecorder extends AbstractListener implements Contex
    */
   public void setTarget(final String value) {
     configuration.put(ConfigTag.TARGET, value);
+    invalidateConfiguration();
   }
 
 
@@ -18,6 +18,7 @@ import coyote.dx.DataSetMetrics;
 import coyote.dx.FieldMetrics;
 import coyote.dx.FrameReader;
 import coyote.dx.FrameWriter;
+import coyote.dx.context.AsyncSafe;
 import coyote.dx.context.ContextListener;
 import coyote.dx.context.OperationalContext;
 import coyote.dx.context.TransactionContext;
@@ -28,7 +29,7 @@ import coyote.dx.context.TransformContext;
  * This listener keeps track of the data read in to and out of the engine and 
  * reports on the characteristics of the data observed.
  */
-public class DataProfiler extends FileRecorder implements ContextListener {
+public class DataProfiler extends FileRecorder implements ContextListener, AsyncSafe {
   protected DataSetMetrics inputSchema = new DataSetMetrics();
   protected DataSetMetrics outputSchema = new DataSetMetrics();
   protected static final SymbolTable symbols = new SymbolTable();
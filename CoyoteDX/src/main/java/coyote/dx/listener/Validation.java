@@ -12,6 +12,7 @@ import java.util.List;
 
 import coyote.commons.StringUtil;
 import coyote.dx.FrameValidator;
+import coyote.dx.context.AsyncSafe;
 import coyote.dx.context.OperationalContext;
 import coyote.dx.context.TransactionContext;
 import coyote.loader.cfg.Config;
@@ -21,7 +22,7 @@ import coyote.loader.cfg.ConfigurationException;
 /**
  * This writes the record with all the errors for later processing.
  */
-public class Validation extends FileRecorder {
+public class Validation extends FileRecorder implements AsyncSafe {
 
   List<String> validationErrors = new ArrayList<String>();
 
@@ -9,7 +9,10 @@ package coyote.dx.mapper;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import coyote.commons.StringUtil;
 import coyote.dataframe.DataField;
@@ -32,6 +35,25 @@ public abstract class AbstractFrameMapper extends AbstractConfigurableComponent
   /** An insertion ordered list of target fields to be written to the target frame */
   List<SourceToTarget> fields = new ArrayList<SourceToTarget>();
 
+  /** The maximum number of working frame layouts for which plans are kept */
+  private static final int MAX_PLANS = 16;
+
+  /** The plan used for the last working frame */
+  private MappingPlan plan = null;
+
+  /** Plans for the layouts seen recently, keyed by their field names */
+  private final Map<List<String>, MappingPlan> plans = new LinkedHashMap<List<String>, MappingPlan>(16, 0.75F, true) {
+    private static final long serialVersionUID = 1L;
+
+
+
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<List<String>, MappingPlan> eldest) {
+      return size() > MAX_PLANS;
+    }
+  };
+
 
 
 
@@ -76,6 +98,68 @@ public abstract class AbstractFrameMapper extends AbstractConfigurableComponent
 
 
 
+  /**
+   * Retrieve the mapping plan for the layout of the given working frame 
+   * fields, building it if this layout has not been seen recently.
+   * 
+   * <p>Working frames from the same reader almost always share one layout so 
+   * the check is normally a comparison of the field names against those of 
+   * the last plan.
+   * 
+   * @param working the fields of the working frame
+   * 
+   * @return the plan for the layout of the fields
+   */
+  MappingPlan getPlan(List<DataField> working) {
+    if (plan == null || !plan.appliesTo(working)) {
+      String[] names = MappingPlan.getNames(working);
+      List<String> key = Arrays.asList(names);
+      plan = plans.get(key);
+      if (plan == null) {
+        plan = createPlan(names);
+        plans.put(key, plan);
+        if (Log.isLogging(Log.DEBUG_EVENTS)) {
+          Log.debug("Created mapping plan of " + plan.size() + " steps for " + key);
+        }
+      }
+    }
+    return plan;
+  }
+
+
+
+
+  /**
+   * Build a plan mapping the fields of the given layout.
+   * 
+   * <p>The default plan has one step for each configured mapping, copying 
+   * the first working field with the source name, in the order the mappings 
+   * were configured.
+   * 
+   * @param names the names of the working frame fields in order
+   * 
+   * @return the plan for the layout
+   */
+  MappingPlan createPlan(String[] names) {
+    int[] sources = new int[fields.size()];
+    String[] targets = new String[fields.size()];
+    for (int step = 0; step < sources.length; step++) {
+      SourceToTarget mapping = fields.get(step);
+      sources[step] = -1;
+      for (int x = 0; x < names.length; x++) {
+        if (mapping.getSourceName().equals(names[x])) {
+          sources[step] = x;
+          break;
+        }
+      }
+      targets[step] = mapping.getTargetName();
+    }
+    return new MappingPlan(names, sources, targets);
+  }
+
+
+
+
   /**
    * @see coyote.dx.Component#getContext()
    */
@@ -92,7 +176,7 @@ public abstract class AbstractFrameMapper extends AbstractConfigurableComponent
    */
   @Override
   public void open(TransformContext context) {
-    this.context = context;
+    setContext(context);
   }
 
 
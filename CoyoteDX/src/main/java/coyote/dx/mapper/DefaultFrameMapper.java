@@ -7,6 +7,8 @@
  */
 package coyote.dx.mapper;
 
+import java.util.List;
+
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dx.FrameMapper;
@@ -16,6 +18,9 @@ import coyote.dx.context.TransactionContext;
 /**
  * This is the default mapper which simply copies fields from the source frame 
  * with one name to the target frame with another.
+ * 
+ * <p>The position of each source field is resolved once for each layout of 
+ * working frame and reused for all the frames with that layout.
  */
 public class DefaultFrameMapper extends AbstractFrameMapper implements FrameMapper {
 
@@ -31,28 +36,28 @@ public class DefaultFrameMapper extends AbstractFrameMapper implements FrameMapp
         context.setTargetFrame(new DataFrame());
       }
 
-      // for each frame in the list (insertion order)
-      for (SourceToTarget mapping : fields) {
+      List<DataField> source = context.getWorkingFrame().getFields();
+      List<DataField> target = context.getTargetFrame().getFields();
+      MappingPlan plan = getPlan(source);
 
+      // for each mapping in the plan (insertion order)
+      for (int step = 0; step < plan.size(); step++) {
         DataField targetField;
-
-        if (context.getWorkingFrame().contains(mapping.getSourceName())) {
-
-          // clone the named field from the working frame
-          targetField = (DataField)context.getWorkingFrame().getField(mapping.getSourceName()).clone();
-
-          // re-name the field to that of the target frame
-          targetField.setName(mapping.getTargetName());
-
+        int index = plan.getSource(step);
+        if (index >= 0) {
+          // clone the field from the working frame and re-name the field to 
+          // that of the target frame
+          targetField = (DataField)source.get(index).clone();
+          targetField.setName(plan.getTarget(step));
         } else {
           // apparently there is no working field named with the source name. 
           // This is normal, the value could just be missing for this record 
           // only. Create a new null frame with the desired name
-          targetField = new DataField(mapping.getTargetName(), null);
+          targetField = new DataField(plan.getTarget(step), null);
         }
 
         // place the mapped field in the target data frame for writing 
-        context.getTargetFrame().getFields().add(targetField);
+        target.add(targetField);
       }
     } else {
       // if no field map, just perform a straight clone of the working frame
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.mapper;
+
+import java.util.List;
+
+import coyote.dataframe.DataField;
+
+
+/**
+ * A mapping resolved for one layout (schema) of working frame.
+ *
+ * <p>The plan is an ordered list of steps, each copying the field at a
+ * position in the working frame to a named target field. A step with a
+ * source position of -1 means the working frame has no such field and a null
+ * target field is to be created.
+ *
+ * <p>Plans are built by the mappers the first time they see a layout and
+ * reused for every frame with the same field names in the same order, so
+ * name lookups and pattern matching happen once per layout instead of once
+ * per frame.
+ */
+final class MappingPlan {
+
+  /** The field names of the working frames this plan applies to */
+  private final String[] names;
+
+  /** The position of the source field of each step */
+  private final int[] sources;
+
+  /** The name of the target field of each step */
+  private final String[] targets;
+
+
+
+
+  /**
+   * @param names the field names of the working frame layout
+   * @param sources the position of the source field of each step
+   * @param targets the name of the target field of each step
+   */
+  MappingPlan(final String[] names, final int[] sources, final String[] targets) {
+    this.names = names;
+    this.sources = sources;
+    this.targets = targets;
+  }
+
+
+
+
+  /**
+   * @param fields the fields of a working frame
+   *
+   * @return the field names of the frame in order
+   */
+  static String[] getNames(final List<DataField> fields) {
+    final String[] retval = new String[fields.size()];
+    for (int x = 0; x < retval.length; x++) {
+      retval[x] = fields.get(x).getName();
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Determine if this plan was built for the layout of the given fields.
+   *
+   * @param fields the fields of a working frame
+   *
+   * @return true if the fields have the same names in the same order as the
+   *         frame this plan was built from
+   */
+  boolean appliesTo(final List<DataField> fields) {
+    if (fields.size() != names.length) {
+      return false;
+    }
+    for (int x = 0; x < names.length; x++) {
+      final String name = fields.get(x).getName();
+      // readers usually reuse the same name instances, so check identity first
+      if (name != names[x] && (name == null || !name.equals(names[x]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+
+
+  /**
+   * @return the field names of the layout this plan applies to
+   */
+  String[] getNames() {
+    return names;
+  }
+
+
+
+
+  /**
+   * @return the number of steps in the plan
+   */
+  int size() {
+    return sources.length;
+  }
+
+
+
+
+  /**
+   * @param step the index of the step
+   *
+   * @return the position of the source field in the working frame, or -1 if
+   *         the working frame has no such field
+   */
+  int getSource(final int step) {
+    return sources[step];
+  }
+
+
+
+
+  /**
+   * @param step the index of the step
+   *
+   * @return the name of the target field
+   */
+  String getTarget(final int step) {
+    return targets[step];
+  }
+
+}
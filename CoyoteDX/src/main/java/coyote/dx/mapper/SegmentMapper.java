@@ -7,7 +7,9 @@
  */
 package coyote.dx.mapper;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import coyote.commons.SegmentFilter;
@@ -27,6 +29,10 @@ import coyote.loader.log.Log;
  * This is a mapper which scans the working frame for matches and finds 
  * matching data to place in the target frame. This will append data to any 
  * existing data in the target frame delimited with a specific string.
+ * 
+ * <p>The filters are matched against the field names once for each layout 
+ * of working frame; frames with the same layout reuse the matches. Filters 
+ * are applied in the order they are configured.
  */
 public class SegmentMapper extends AbstractFrameMapper implements FrameMapper {
   private static final String DEFAULT_DELIMITER = ", ";
@@ -34,7 +40,7 @@ public class SegmentMapper extends AbstractFrameMapper implements FrameMapper {
   private String delimiter = DEFAULT_DELIMITER;
   private boolean ignoreBlanks = true;
 
-  private Map<SegmentFilter, String> filters = new HashMap<SegmentFilter, String>();
+  private Map<SegmentFilter, String> filters = new LinkedHashMap<SegmentFilter, String>();
 
 
 
@@ -87,37 +93,34 @@ public class SegmentMapper extends AbstractFrameMapper implements FrameMapper {
   public void process(TransactionContext context) throws MappingException {
 
     if (filters.size() > 0) {
+      List<DataField> source = context.getWorkingFrame().getFields();
+      MappingPlan plan = getPlan(source);
       DataField targetField;
-      SegmentFilter filter;
+      DataField sourceField;
       String target;
 
-      for (Map.Entry<SegmentFilter, String> entry : filters.entrySet()) {
-        filter = entry.getKey();
-        target = entry.getValue();
-
-        for (DataField sourceField : context.getWorkingFrame().getFields()) {
-          if (filter.matches(sourceField.getName())) {
-            targetField = (DataField)context.getTargetFrame().getField(target);
-            if (targetField == null) {
-              targetField = (DataField)context.getWorkingFrame().getField(sourceField.getName()).clone();
-              targetField.setName(target);
-              context.getTargetFrame().getFields().add(targetField);
+      for (int step = 0; step < plan.size(); step++) {
+        sourceField = source.get(plan.getSource(step));
+        target = plan.getTarget(step);
+        targetField = (DataField)context.getTargetFrame().getField(target);
+        if (targetField == null) {
+          targetField = (DataField)sourceField.clone();
+          targetField.setName(target);
+          context.getTargetFrame().getFields().add(targetField);
+        } else {
+          // append the data, causing the target type to be String
+          String targetFieldData = targetField.getStringValue();
+          String sourceFieldData = sourceField.getStringValue();
+          if (sourceFieldData != null) {
+            if (isIgnoringBlankSourceData() && StringUtil.isBlank(sourceFieldData)) {
+              continue;
             } else {
-              // append the data, causing the target type to be String
-              String targetFieldData = targetField.getStringValue();
-              String sourceFieldData = sourceField.getStringValue();
-              if (sourceFieldData != null) {
-                if (isIgnoringBlankSourceData() && StringUtil.isBlank(sourceFieldData)) {
-                  continue;
-                } else {
-                  targetFieldData = targetFieldData.concat(delimiter).concat(sourceFieldData);
-                }
-              }
-              context.getTargetFrame().replace(target, targetFieldData);
+              targetFieldData = targetFieldData.concat(delimiter).concat(sourceFieldData);
             }
-          } // match
-        } // for each source field
-      } // for each filter
+          }
+          context.getTargetFrame().replace(target, targetFieldData);
+        }
+      } // for each matching source field
 
     } else {
       // if no field map, just perform a straight clone of the working frame
@@ -129,6 +132,34 @@ public class SegmentMapper extends AbstractFrameMapper implements FrameMapper {
 
 
 
+  /**
+   * Build a plan with a step for each working field matching each filter, 
+   * so the filters are evaluated once for each layout of working frame.
+   * 
+   * @see coyote.dx.mapper.AbstractFrameMapper#createPlan(java.lang.String[])
+   */
+  @Override
+  MappingPlan createPlan(String[] names) {
+    List<Integer> sources = new ArrayList<Integer>();
+    List<String> targets = new ArrayList<String>();
+    for (Map.Entry<SegmentFilter, String> entry : filters.entrySet()) {
+      for (int x = 0; x < names.length; x++) {
+        if (entry.getKey().matches(names[x])) {
+          sources.add(x);
+          targets.add(entry.getValue());
+        }
+      }
+    }
+    int[] steps = new int[sources.size()];
+    for (int x = 0; x < steps.length; x++) {
+      steps[x] = sources.get(x);
+    }
+    return new MappingPlan(names, steps, targets.toArray(new String[targets.size()]));
+  }
+
+
+
+
   /**
    * @return
    */
@@ -71,7 +71,7 @@ public abstract class AbstractFrameReader extends AbstractConfigurableComponent
    */
   @Override
   public void open(final TransformContext context) {
-    super.context = context;
+    setContext(context);
     if (getConfiguration().containsIgnoreCase(ConfigTag.LIMIT)) {
       readLimit = getLong(ConfigTag.LIMIT);
     }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import coyote.commons.StringUtil;
+import coyote.commons.UriUtil;
+import coyote.dataframe.DataFrame;
+import coyote.dx.BinaryFrameFormat;
+import coyote.dx.CDX;
+import coyote.dx.ConfigTag;
+import coyote.dx.ConfigurableComponent;
+import coyote.dx.FrameReader;
+import coyote.dx.context.TransactionContext;
+import coyote.dx.context.TransformContext;
+import coyote.loader.log.Log;
+import coyote.loader.log.LogMsg;
+
+
+/**
+ * Reads frames from the binary files written by the
+ * {@code BinaryFrameWriter}.
+ *
+ * <p>Frames are read a block at a time. The block index at the end of the
+ * file allows the reader to start at any block, so a large file can be
+ * processed by several jobs (or several readers in one job) each reading its
+ * own range of blocks. The {@code splits} attribute sets the number of
+ * ranges the file is divided into and the {@code split} attribute selects
+ * the range (starting at 0) this reader is to read:<pre>
+ * "Reader" : { "class" : "BinaryFrameReader", "source" : "data.cdx", "split" : 1, "splits" : 4 }</pre>
+ *
+ * <p>The blocks are divided evenly between the splits so all the splits of
+ * a file together read every frame exactly once.
+ */
+public class BinaryFrameReader extends AbstractFrameReader implements FrameReader, ConfigurableComponent {
+
+  private static final String SPLIT = "split";
+  private static final String SPLITS = "splits";
+
+  private RandomAccessFile file = null;
+  private BinaryFrameFormat.Schema schema = null;
+  private List<BinaryFrameFormat.BlockInfo> blocks = Collections.emptyList();
+
+  /** The first block of the range being read */
+  private int firstBlock = 0;
+
+  /** The block after the last block of the range being read */
+  private int endBlock = 0;
+
+  /** The index of the block in the buffer */
+  private int currentBlock = -1;
+  private DataFrame[] buffer = new DataFrame[0];
+  private int position = 0;
+
+
+
+
+  /**
+   * @see coyote.dx.reader.AbstractFrameReader#open(coyote.dx.context.TransformContext)
+   */
+  @Override
+  public void open(final TransformContext context) {
+    super.open(context);
+
+    final String source = getString(ConfigTag.SOURCE);
+    Log.debug(LogMsg.createMsg(CDX.MSG, "Component.configured_source_is", getClass().getSimpleName(), source));
+    if (StringUtil.isNotBlank(source)) {
+      File sourceFile = null;
+      final URI uri = UriUtil.parse(source);
+      if (uri != null) {
+        sourceFile = UriUtil.getFile(uri);
+        if (sourceFile == null && uri.getScheme() != null) {
+          Log.warn(LogMsg.createMsg(CDX.MSG, "Reader.source_is_not_file", source));
+        }
+      }
+      if (sourceFile == null) {
+        sourceFile = new File(source);
+      }
+      if (!sourceFile.isAbsolute()) {
+        sourceFile = CDX.resolveFile(sourceFile, getContext());
+      }
+      Log.debug("Using an absolute source file of " + sourceFile.getAbsolutePath());
+
+      if (sourceFile.exists() && sourceFile.canRead()) {
+        try {
+          file = new RandomAccessFile(sourceFile, "r");
+          schema = BinaryFrameFormat.readHeader(file);
+          blocks = BinaryFrameFormat.readIndex(file, file.getFilePointer());
+          setRange();
+          Log.debug("Reading blocks " + firstBlock + " to " + (endBlock - 1) + " of " + blocks.size() + " from " + sourceFile.getName());
+        } catch (final IOException e) {
+          Log.error("Could not read binary frame file: " + e.getMessage());
+          context.setError(getClass().getName() + " could not read " + sourceFile.getAbsolutePath() + ": " + e.getMessage());
+        }
+      } else {
+        context.setError(LogMsg.createMsg(CDX.MSG, "Reader.could_not_read_from_source", getClass().getName(), sourceFile.getAbsolutePath()).toString());
+      }
+    } else {
+      Log.error("No source specified");
+      context.setError(getClass().getName() + " could not determine source");
+    }
+  }
+
+
+
+
+  /**
+   * Determine the range of blocks this reader is to read from the split
+   * configuration.
+   */
+  private void setRange() {
+    int splits = containsIgnoreCase(SPLITS) ? getInteger(SPLITS) : 1;
+    int split = containsIgnoreCase(SPLIT) ? getInteger(SPLIT) : 0;
+    if (splits < 1 || split < 0 || split >= splits) {
+      Log.warn("Invalid split " + split + " of " + splits + ", reading the entire file");
+      splits = 1;
+      split = 0;
+    }
+    firstBlock = (int)((long)blocks.size() * split / splits);
+    endBlock = (int)((long)blocks.size() * (split + 1) / splits);
+    currentBlock = firstBlock - 1;
+    buffer = new DataFrame[0];
+    position = 0;
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.FrameReader#read(coyote.dx.context.TransactionContext)
+   */
+  @Override
+  public DataFrame read(final TransactionContext context) {
+    DataFrame retval = null;
+    if (!eof()) {
+      if (position >= buffer.length) {
+        loadBlock(currentBlock + 1);
+      }
+      if (position < buffer.length) {
+        retval = buffer[position];
+        buffer[position++] = null;
+        recordCounter++;
+      }
+      if (eof()) {
+        context.setLastFrame(true);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.FrameReader#eof()
+   */
+  @Override
+  public boolean eof() {
+    if (file == null || (isLimitingReads() && recordCounter >= getReadLimit())) {
+      return true;
+    }
+    // skip over any empty blocks
+    while (position >= buffer.length && currentBlock + 1 < endBlock && blocks.get(currentBlock + 1).getRows() == 0) {
+      currentBlock++;
+    }
+    return position >= buffer.length && currentBlock + 1 >= endBlock;
+  }
+
+
+
+
+  private void loadBlock(final int index) {
+    currentBlock = index;
+    position = 0;
+    try {
+      buffer = BinaryFrameFormat.readBlock(file, blocks.get(index), schema);
+    } catch (final IOException e) {
+      Log.error("Could not read block " + index + ": " + e.getMessage());
+      getContext().setError(e.getMessage());
+      buffer = new DataFrame[0];
+      currentBlock = endBlock;
+    }
+  }
+
+
+
+
+  /**
+   * Position the reader at the given row of the file.
+   *
+   * <p>Only the block containing the row is read. Reading then continues to
+   * the end of the file regardless of the split being read. Seeking past the
+   * last row results in the reader being at the end of its data.
+   *
+   * @param row the number of the row to read next, starting at 0
+   */
+  public void seek(final long row) {
+    if (file == null) {
+      return;
+    }
+    int low = 0;
+    int high = blocks.size() - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final BinaryFrameFormat.BlockInfo block = blocks.get(mid);
+      if (row < block.getFirstRow()) {
+        high = mid - 1;
+      } else if (row >= block.getFirstRow() + block.getRows()) {
+        low = mid + 1;
+      } else {
+        endBlock = blocks.size();
+        loadBlock(mid);
+        position = (int)(row - block.getFirstRow());
+        return;
+      }
+    }
+    currentBlock = endBlock;
+    buffer = new DataFrame[0];
+    position = 0;
+  }
+
+
+
+
+  /**
+   * @return the schema of the file or null if the file is not open
+   */
+  public BinaryFrameFormat.Schema getSchema() {
+    return schema;
+  }
+
+
+
+
+  /**
+   * @return the blocks in the file
+   */
+  public List<BinaryFrameFormat.BlockInfo> getBlocks() {
+    return Collections.unmodifiableList(blocks);
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.reader.AbstractFrameReader#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if (file != null) {
+      try {
+        file.close();
+      } finally {
+        file = null;
+        buffer = new DataFrame[0];
+      }
+    }
+  }
+
+}
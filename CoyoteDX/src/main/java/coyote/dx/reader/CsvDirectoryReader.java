@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import coyote.commons.FileUtil;
+import coyote.commons.StringUtil;
+import coyote.commons.csv.CSVReader;
+import coyote.commons.zip.ParallelZipWriter;
+import coyote.dataframe.DataFrame;
+import coyote.dx.CDX;
+import coyote.dx.CheckpointFrameReader;
+import coyote.dx.Compression;
+import coyote.dx.ConfigTag;
+import coyote.dx.ConfigurableComponent;
+import coyote.dx.FrameReader;
+import coyote.dx.Symbols;
+import coyote.dx.context.TransactionContext;
+import coyote.dx.context.TransformContext;
+import coyote.loader.cfg.Config;
+import coyote.loader.cfg.ConfigurationException;
+import coyote.loader.log.Log;
+import coyote.loader.log.LogMsg;
+
+
+/**
+ * Reads all the CSV files in a directory, parsing several files at once.
+ *
+ * <p>The files are selected the same way as the {@code Combine} task:
+ * <pre>
+ * "Reader" : { "class": "CsvDirectoryReader", "directory": "dropbox", "pattern": "([^\\s]+(\\.(?i)(csv))$)", "recurse": false, "header": true }
+ * </pre>
+ *
+ * <p>Each file is parsed by its own {@code CSVReader} on one of a fixed
+ * number of threads ({@code threads}, one per processor by default) and the
+ * frames are handed to the engine through a bounded queue, so frames from
+ * different files are interleaved and memory use does not depend on the
+ * number or size of the files. The file and line from which each frame was
+ * read are placed in its transaction context as {@code SourceFile} and
+ * {@code SourceLine}; the engine places them in the symbol table while the
+ * frame is processed. Compressed files are decompressed as they are read.
+ *
+ * <p>Once every frame of a file has been processed, the file may be moved to
+ * the {@code todir} directory or added to the zip {@code archive} (and then
+ * deleted, or moved if {@code todir} is also set). Files are left where they
+ * are if the job ends in error. A file which could not be parsed is logged
+ * and left where it is while the rest of the files are still read; frames
+ * already read from it are still processed.
+ */
+public class CsvDirectoryReader extends AbstractFrameReader implements FrameReader, CheckpointFrameReader, ConfigurableComponent {
+
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  /** The number of frames queued for the engine for each parsing thread */
+  private static final int QUEUE_PER_THREAD = 1024;
+
+  /** Placed on the queue after the last file has been parsed */
+  private static final Item DONE = new Item(null, null, 0, null);
+
+  /** The separator character */
+  private char separator = ',';
+
+  /** Flag indicating that the first line of each file contains column names */
+  private boolean hasHeader = false;
+
+  private File directory = null;
+  private File toDir = null;
+  private File archiveFile = null;
+  private int threads = 0;
+
+  private ExecutorService pool = null;
+  private BlockingQueue<Item> queue = null;
+  private volatile boolean cancelled = false;
+
+  /** The next item to return, read ahead to tell when the last frame is returned */
+  private Item next = null;
+
+  /** Files whose frames have all been returned, handled once they have been processed */
+  private final List<File> completed = new ArrayList<File>();
+
+  /** Files added to the archive, removed once the archive is closed */
+  private final List<File> archived = new ArrayList<File>();
+  private ParallelZipWriter archive = null;
+
+
+
+
+  /**
+   * @see coyote.dx.AbstractConfigurableComponent#setConfiguration(coyote.loader.cfg.Config)
+   */
+  @Override
+  public void setConfiguration(Config cfg) throws ConfigurationException {
+    super.setConfiguration(cfg);
+
+    if (cfg.containsIgnoreCase(ConfigTag.HEADER)) {
+      hasHeader = cfg.getBoolean(ConfigTag.HEADER);
+    }
+    Log.debug(LogMsg.createMsg(CDX.MSG, "Reader.header_flag_is", hasHeader));
+
+    if (cfg.containsIgnoreCase(ConfigTag.CHARACTER)) {
+      String value = cfg.getString(ConfigTag.CHARACTER);
+      if (StringUtil.isNotEmpty(value)) {
+        separator = value.charAt(0);
+      } else {
+        Log.info("Character value not valid ");
+      }
+    }
+    Log.debug(LogMsg.createMsg(CDX.MSG, "Reader.separator_character_is", separator, (int)separator));
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.reader.AbstractFrameReader#open(coyote.dx.context.TransformContext)
+   */
+  @Override
+  public void open(TransformContext context) {
+    super.open(context);
+
+    directory = resolve(getString(ConfigTag.DIRECTORY));
+    if (directory == null || !directory.isDirectory() || !directory.canRead()) {
+      String msg = LogMsg.createMsg(CDX.MSG, "Task.source_directory_not_readable", getClass().getName(), directory != null ? directory.getAbsolutePath() : null).toString();
+      Log.error(msg);
+      context.setError(msg);
+      return;
+    }
+
+    toDir = resolve(getString(ConfigTag.TODIR));
+    archiveFile = resolve(getString(ConfigTag.ARCHIVE));
+    threads = getInteger(ConfigTag.THREADS);
+    if (threads < 1) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    // sort by name so files are started in a predictable order
+    List<File> files = new ArrayList<File>();
+    for (File file : FileUtil.getFiles(directory, getString(ConfigTag.PATTERN), getBoolean(ConfigTag.RECURSE))) {
+      if (archiveFile == null || !file.getAbsoluteFile().equals(archiveFile.getAbsoluteFile())) {
+        files.add(file);
+      }
+    }
+    Collections.sort(files);
+    Log.debug("Reading " + files.size() + " files from " + directory.getAbsolutePath() + " on " + threads + " threads");
+
+    queue = new ArrayBlockingQueue<Item>(threads * QUEUE_PER_THREAD);
+    if (files.isEmpty()) {
+      next = DONE;
+    } else {
+      pool = createExecutor();
+      AtomicInteger remaining = new AtomicInteger(files.size());
+      for (File file : files) {
+        pool.execute(new Parser(file, remaining));
+      }
+      next = take();
+    }
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.FrameReader#read(coyote.dx.context.TransactionContext)
+   */
+  @Override
+  public DataFrame read(TransactionContext context) {
+    DataFrame retval = null;
+    if (!eof()) {
+      Item item = next;
+      retval = item.frame;
+      context.set(Symbols.SOURCE_FILE, item.file.getAbsolutePath());
+      context.set(Symbols.SOURCE_LINE, item.line);
+
+      recordCounter++;
+      if (readLimit > 0 && recordCounter >= readLimit) {
+        stopParsing();
+        next = DONE;
+      } else {
+        next = take();
+      }
+      if (eof()) {
+        context.setLastFrame(true);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.FrameReader#eof()
+   */
+  @Override
+  public boolean eof() {
+    return next == null || next == DONE;
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.CheckpointFrameReader#checkpoint()
+   */
+  @Override
+  public void checkpoint() {
+    completeFiles();
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.reader.AbstractFrameReader#close()
+   */
+  @Override
+  public void close() throws IOException {
+    stopParsing();
+    completeFiles();
+    if (archive != null) {
+      try {
+        archive.close();
+      } finally {
+        archive = null;
+      }
+      for (File file : archived) {
+        if (toDir != null) {
+          moveFile(file);
+        } else if (!file.delete()) {
+          Log.warn("Could not remove archived file " + file.getAbsolutePath());
+        }
+      }
+      archived.clear();
+    }
+  }
+
+
+
+
+  /**
+   * Take the next frame from the queue, noting the files which have been
+   * completely read and skipping those which could not be.
+   *
+   * @return the next frame or DONE if there are no more
+   */
+  private Item take() {
+    try {
+      while (true) {
+        Item item = queue.take();
+        if (item == DONE || item.frame != null) {
+          return item;
+        }
+        if (item.error != null) {
+          // leave the file where it is and keep reading the others
+          Log.error(item.error);
+        } else {
+          completed.add(item.file);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return DONE;
+    }
+  }
+
+
+
+
+  /**
+   * Move or archive the files whose frames have all been processed.
+   */
+  private void completeFiles() {
+    if (completed.isEmpty()) {
+      return;
+    }
+    if (getContext().isNotInError()) {
+      for (File file : completed) {
+        if (archiveFile != null) {
+          archiveFile(file);
+        } else if (toDir != null) {
+          moveFile(file);
+        }
+      }
+    }
+    completed.clear();
+  }
+
+
+
+
+  private void archiveFile(File file) {
+    try {
+      if (archive == null) {
+        archive = new ParallelZipWriter(archiveFile, true, Deflater.DEFAULT_COMPRESSION, threads);
+      }
+      archive.addFile(relativeName(file), file);
+      archived.add(file);
+    } catch (IOException e) {
+      Log.warn("Could not archive " + file.getAbsolutePath() + ": " + e.getMessage());
+    }
+  }
+
+
+
+
+  private void moveFile(File file) {
+    File target = new File(toDir, relativeName(file));
+    try {
+      target.getParentFile().mkdirs();
+      Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Log.warn("Could not move " + file.getAbsolutePath() + " to " + target.getAbsolutePath() + ": " + e.getMessage());
+    }
+  }
+
+
+
+
+  private String relativeName(File file) {
+    return directory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+  }
+
+
+
+
+  private void stopParsing() {
+    cancelled = true;
+    if (pool != null) {
+      pool.shutdownNow();
+      pool = null;
+    }
+  }
+
+
+
+
+  private File resolve(String name) {
+    if (StringUtil.isBlank(name)) {
+      return null;
+    }
+    File retval = new File(name);
+    if (!retval.isAbsolute()) {
+      retval = CDX.resolveFile(retval, getContext());
+    }
+    return retval;
+  }
+
+
+
+
+  private ExecutorService createExecutor() {
+    final String prefix = "CsvDirectoryReader-" + POOL_COUNT.incrementAndGet() + "-";
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+
+
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread retval = new Thread(runnable, prefix + threadCount.incrementAndGet());
+        retval.setDaemon(true);
+        return retval;
+      }
+    });
+  }
+
+
+
+
+  //
+
+
+
+
+  /**
+   * A frame and where it was read; items without a frame mark the end of a
+   * file.
+   */
+  private static class Item {
+    final DataFrame frame;
+    final File file;
+    final long line;
+    final String error;
+
+
+
+
+    Item(DataFrame frame, File file, long line, String error) {
+      this.frame = frame;
+      this.file = file;
+      this.line = line;
+      this.error = error;
+    }
+  }
+
+
+
+
+  /**
+   * Parses one file on a worker thread.
+   */
+  private class Parser implements Runnable {
+    private final File file;
+    private final AtomicInteger remaining;
+
+
+
+
+    Parser(File file, AtomicInteger remaining) {
+      this.file = file;
+      this.remaining = remaining;
+    }
+
+
+
+
+    @Override
+    public void run() {
+      try {
+        Item end;
+        try {
+          parse();
+          end = new Item(null, file, 0, null);
+        } catch (IOException | ParseException e) {
+          end = new Item(null, file, 0, LogMsg.createMsg(CDX.MSG, "Reader.could_not_read_from_source", CsvDirectoryReader.this.getClass().getName(), file.getAbsolutePath()).toString() + " - " + e.getMessage());
+        }
+        if (cancelled) {
+          // the file was not read to its end
+          return;
+        }
+        queue.put(end);
+        if (remaining.decrementAndGet() == 0) {
+          queue.put(DONE);
+        }
+      } catch (InterruptedException e) {
+        // the reader is closing
+        Thread.currentThread().interrupt();
+      }
+    }
+
+
+
+
+    private void parse() throws IOException, ParseException, InterruptedException {
+      try (CSVReader reader = new CSVReader(Compression.openReader(file), separator)) {
+        String[] header = new String[0];
+        if (hasHeader) {
+          String[] names = reader.readNext();
+          if (names != null) {
+            header = names;
+          }
+        }
+        reader.consumeEmptyLines();
+
+        while (!cancelled) {
+          long line = reader.getLineNumber() + 1;
+          String[] data = reader.readNext();
+          if (data == null) {
+            break;
+          }
+          reader.consumeEmptyLines();
+
+          DataFrame frame = new DataFrame();
+          for (int x = 0; x < data.length; x++) {
+            frame.add(x < header.length ? header[x] : "COL" + x, data[x]);
+          }
+          queue.put(new Item(frame, file, line, null));
+        }
+      }
+    }
+  }
+
+}
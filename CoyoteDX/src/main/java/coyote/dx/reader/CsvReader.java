@@ -7,18 +7,23 @@
  */
 package coyote.dx.reader;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.text.ParseException;
 
 import coyote.commons.StringUtil;
 import coyote.commons.UriUtil;
+import coyote.commons.csv.CSVParser;
 import coyote.commons.csv.CSVReader;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.DataFrameException;
 import coyote.dx.CDX;
+import coyote.dx.CheckpointFrameReader;
+import coyote.dx.Compression;
 import coyote.dx.ConfigTag;
 import coyote.dx.ConfigurableComponent;
 import coyote.dx.FrameReader;
@@ -33,9 +38,31 @@ import coyote.loader.log.LogMsg;
 /**
  * Character Separated Value Reader
  * 
+ * <p>Compressed (gzip or deflate) sources are decompressed as they are 
+ * read.
+ * 
+ * <p>When {@code tail} is set, the reader follows the source file as it 
+ * grows, returning records as they are appended instead of stopping at the 
+ * end of the file. The offset of the last record processed is recorded in 
+ * the context (and saved when the context is persistent) so the next run 
+ * resumes where this one stopped. A {@code timeout} in milliseconds stops 
+ * the reader when no data has been appended for that long; without one, the 
+ * reader follows the file until the job is terminated. Records spanning 
+ * several lines (quoted values containing newlines) are returned once they 
+ * are complete.
+ * 
+ * <p>When {@code threads} is greater than 1, a large uncompressed source is 
+ * divided into byte ranges on record boundaries (taking quoted line feeds 
+ * into account) which are parsed on that many threads. Frames are returned in 
+ * the order of the records in the file unless {@code ordered} is false, in 
+ * which case they are returned as soon as any thread has parsed them.
+ * 
  * TODO: Support preload
  */
-public class CsvReader extends AbstractFrameReader implements FrameReader, ConfigurableComponent {
+public class CsvReader extends AbstractFrameReader implements FrameReader, CheckpointFrameReader, ConfigurableComponent {
+
+  /** The most lines joined into one record when tailing before it is dropped */
+  private static final int MAX_RECORD_LINES = 1000;
 
   /** The component responsible for reading CSV files into frames */
   private CSVReader reader = null;
@@ -54,6 +81,45 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
   /** The default separator character */
   public char SEPARATOR = ',';
 
+  /** Flag indicating the source should be followed as data is appended */
+  private boolean tail = false;
+
+  /** Milliseconds without new data after which tailing stops, 0 for never */
+  private long idleTimeout = 0;
+
+  /** Follows the source file when tailing */
+  private FileTailer tailer = null;
+
+  /** Lines of a record not yet complete when tailing */
+  private StringBuilder pendingRecord = null;
+
+  /** The number of lines in the pending record */
+  private int pendingLines = 0;
+
+  /** Set while the pending record ends inside a quoted value */
+  private boolean openQuote = false;
+
+  /** Byte offset just past the last record returned when tailing */
+  private long processed = 0;
+
+  /** Byte offset just past the last record the engine has processed */
+  private long checkpointed = 0;
+
+  /** Set when tailing is to stop */
+  private boolean stopped = false;
+
+  /** Set when the header is expected as the next record when tailing */
+  private boolean needHeader = false;
+
+  /** The rotations of the tailed file when the last line was read */
+  private long rotations = 0;
+
+  /** Parses ranges of a large source on several threads */
+  private SplitFileParser splitter = null;
+
+  /** The next frame from the splitter, read ahead to detect the last frame */
+  private DataFrame nextFrame = null;
+
 
 
 
@@ -94,6 +160,13 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
 
     // TODO: support a different separator character including "/t"
 
+    if (cfg.containsIgnoreCase(ConfigTag.TAIL)) {
+      tail = cfg.getBoolean(ConfigTag.TAIL);
+      if (cfg.containsIgnoreCase(ConfigTag.TIMEOUT)) {
+        idleTimeout = getLong(ConfigTag.TIMEOUT);
+      }
+    }
+
   }
 
 
@@ -104,13 +177,17 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
    */
   @Override
   public DataFrame read(TransactionContext context) {
+    if (tailer != null) {
+      return readTail(context);
+    }
+    if (splitter != null) {
+      return readSplit(context);
+    }
+
     DataFrame retval = null;
     String[] data = nextLine;
     if (data != null) {
-      retval = new DataFrame();
-      for (int x = 0; x < data.length; x++) {
-        retval.add(x < header.length ? header[x] : new String("COL" + x), data[x]);
-      }
+      retval = createFrame(data);
       // read the next line of data (if it exists)
       readNext();
 
@@ -131,17 +208,44 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
    */
   @Override
   public boolean eof() {
+    if (tailer != null) {
+      return stopped;
+    }
+    if (splitter != null) {
+      return nextFrame == null;
+    }
     return nextLine == null;
   }
 
 
 
 
+  /**
+   * @see coyote.dx.CheckpointFrameReader#checkpoint()
+   */
+  @Override
+  public void checkpoint() {
+    if (tailer != null) {
+      checkpointed = processed;
+      tailer.checkpointIfDue(getContext(), checkpointed);
+    }
+  }
+
+
+
+
   /**
    * @see java.io.Closeable#close()
    */
   @Override
   public void close() throws IOException {
+    if (splitter != null) {
+      splitter.close();
+    }
+    if (tailer != null) {
+      tailer.checkpoint(getContext(), processed);
+      tailer.close();
+    }
     if (reader != null) {
       reader.close();
     }
@@ -192,9 +296,13 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
       Log.debug("Using an absolute source file of " + sourceFile.getAbsolutePath());
 
       // Basic checks
-      if (sourceFile.exists() && sourceFile.canRead()) {
+      if (sourceFile.exists() && sourceFile.canRead() && tail) {
+        openTail(sourceFile);
+      } else if (sourceFile.exists() && sourceFile.canRead() && SplitFileParser.isSplittable(sourceFile, getInteger(ConfigTag.THREADS))) {
+        openSplit(sourceFile);
+      } else if (sourceFile.exists() && sourceFile.canRead()) {
         try {
-          setReader(new CSVReader(new FileReader(sourceFile), SEPARATOR));
+          setReader(new CSVReader(Compression.openReader(sourceFile), SEPARATOR));
         } catch (Exception e) {
           Log.error("Could not create reader: " + e.getMessage());
           context.setError(e.getMessage());
@@ -231,6 +339,261 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
 
 
 
+  /**
+   * Start parsing ranges of the source file on several threads.
+   * 
+   * @param sourceFile the file to parse
+   */
+  private void openSplit(File sourceFile) {
+    boolean ordered = true;
+    if (getConfiguration().containsIgnoreCase(ConfigTag.ORDERED)) {
+      ordered = getBoolean(ConfigTag.ORDERED);
+    }
+    try {
+      long body = 0;
+      if (hasHeader) {
+        body = SplitFileParser.recordEnd(sourceFile, 0, true);
+        byte[] data = new byte[(int)body];
+        try (RandomAccessFile file = new RandomAccessFile(sourceFile, "r")) {
+          file.readFully(data);
+        }
+        int length = data.length;
+        while (length > 0 && (data[length - 1] == '\n' || data[length - 1] == '\r')) {
+          length--;
+        }
+        header = new CSVParser(SEPARATOR).parseLine(new String(data, 0, length, Charset.defaultCharset()));
+      }
+
+      splitter = new SplitFileParser(sourceFile, body, Charset.defaultCharset(), getInteger(ConfigTag.THREADS), true, ordered) {
+        @Override
+        protected void parse(BufferedReader range, Sink sink) throws Exception {
+          CSVReader csvReader = new CSVReader(range, SEPARATOR);
+          csvReader.consumeEmptyLines();
+          String[] data;
+          while ((data = csvReader.readNext()) != null) {
+            csvReader.consumeEmptyLines();
+            sink.put(createFrame(data));
+          }
+        }
+      };
+      splitter.start();
+      nextFrame = splitter.take();
+    } catch (IOException | ParseException e) {
+      Log.error("Could not split source: " + e.getMessage());
+      getContext().setError(e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * Return the next frame parsed by the splitter.
+   * 
+   * @param context the transaction context
+   * 
+   * @return the next frame or null if there are no more
+   */
+  private DataFrame readSplit(TransactionContext context) {
+    DataFrame retval = nextFrame;
+    if (retval != null) {
+      super.recordCounter++;
+      try {
+        if (super.readLimit > 0 && super.recordCounter >= super.readLimit) {
+          splitter.close();
+          nextFrame = null;
+        } else {
+          nextFrame = splitter.take();
+        }
+      } catch (IOException e) {
+        Log.error(e.getMessage());
+        getContext().setError(e.getMessage());
+        nextFrame = null;
+      }
+      if (nextFrame == null) {
+        context.setLastFrame(true);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Start following the source file from the offset recorded in the context.
+   * 
+   * @param sourceFile the file to follow
+   */
+  private void openTail(File sourceFile) {
+    if (Compression.isCompressed(sourceFile)) {
+      getContext().setError("Compressed sources cannot be tailed: " + sourceFile.getAbsolutePath());
+      return;
+    }
+    try {
+      tailer = FileTailer.resume(sourceFile, getContext(), Charset.defaultCharset());
+      tailer.setIdleTimeout(idleTimeout);
+      processed = tailer.getOffset();
+      checkpointed = processed;
+      rotations = tailer.getRotations();
+      if (hasHeader) {
+        if (processed > 0) {
+          // resuming past the header; read it from the start of the file
+          try (FileTailer first = new FileTailer(sourceFile, 0, null, Charset.defaultCharset())) {
+            String line = first.nextLine();
+            if (line != null) {
+              header = new CSVParser(SEPARATOR).parseLine(line);
+            }
+          }
+        } else {
+          needHeader = true;
+        }
+      }
+    } catch (IOException | ParseException e) {
+      Log.error("Could not tail source: " + e.getMessage());
+      getContext().setError(e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * Return the next record appended to the source file, waiting briefly for 
+   * data if none is available.
+   * 
+   * @param context the transaction context
+   * 
+   * @return the next record or null if none has arrived yet
+   */
+  private DataFrame readTail(TransactionContext context) {
+    DataFrame retval = null;
+    try {
+      String[] data = nextTailRecord();
+      while (data != null && needHeader) {
+        header = data;
+        needHeader = false;
+        processed = tailer.getOffset();
+        data = nextTailRecord();
+      }
+
+      if (data != null) {
+        retval = createFrame(data);
+        processed = tailer.getOffset();
+        super.recordCounter++;
+        if (super.readLimit > 0 && super.recordCounter >= super.readLimit) {
+          stopped = true;
+          context.setLastFrame(true);
+        }
+      } else if (!tailer.waitForData(getContext(), checkpointed)) {
+        Log.debug("No data appended to the source within " + idleTimeout + "ms, stopping");
+        stopped = true;
+      }
+    } catch (IOException e) {
+      Log.error("Could not read from source: " + e.getMessage());
+      getContext().setError(e.getMessage());
+      stopped = true;
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Read the next complete record from the tailed file, joining lines while 
+   * a quoted value is still open.
+   * 
+   * <p>Quotes are counted as each line arrives so a record is only parsed 
+   * once it is complete. A record which is still open after 
+   * {@value #MAX_RECORD_LINES} lines is taken to have an unterminated quote 
+   * and is dropped.
+   * 
+   * @return the values of the record or null if no complete record is 
+   *         available yet
+   */
+  private String[] nextTailRecord() throws IOException {
+    String line;
+    while ((line = tailer.nextLine()) != null) {
+      if (tailer.getLineRotations() != rotations) {
+        // the file was rotated or truncated and starts with its own header
+        rotations = tailer.getLineRotations();
+        pendingRecord = null;
+        openQuote = false;
+        needHeader = hasHeader;
+      }
+      if (pendingRecord == null) {
+        if (StringUtil.isBlank(line)) {
+          continue;
+        }
+        pendingRecord = new StringBuilder(line);
+        pendingLines = 1;
+      } else {
+        pendingRecord.append('\n').append(line);
+        pendingLines++;
+      }
+
+      openQuote = endsQuoted(line, openQuote);
+      if (openQuote) {
+        if (pendingLines >= MAX_RECORD_LINES) {
+          Log.warn("Dropping a record of " + pendingLines + " lines with an unterminated quoted value");
+          pendingRecord = null;
+          openQuote = false;
+        }
+        continue;
+      }
+
+      final String record = pendingRecord.toString();
+      pendingRecord = null;
+      try {
+        return new CSVParser(SEPARATOR).parseLine(record);
+      } catch (ParseException e) {
+        Log.warn("Dropping a record which could not be parsed: " + e.getMessage());
+      }
+    }
+    return null;
+  }
+
+
+
+
+  /**
+   * Determine if a quoted value is still open at the end of the given line.
+   * 
+   * @param line the line of the record
+   * @param quoted true if a quoted value was open at the start of the line
+   * 
+   * @return true if a quoted value is open at the end of the line
+   */
+  private static boolean endsQuoted(String line, boolean quoted) {
+    boolean retval = quoted;
+    for (int x = 0; x < line.length(); x++) {
+      char c = line.charAt(x);
+      if (c == '"') {
+        // doubled quotes in a quoted value toggle twice
+        retval = !retval;
+      } else if (c == '\\' && retval && x + 1 < line.length() && (line.charAt(x + 1) == '"' || line.charAt(x + 1) == '\\')) {
+        // escaped quote or escape character
+        x++;
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  private DataFrame createFrame(String[] data) {
+    DataFrame retval = new DataFrame();
+    for (int x = 0; x < data.length; x++) {
+      retval.add(x < header.length ? header[x] : new String("COL" + x), data[x]);
+    }
+    return retval;
+  }
+
+
+
+
   /**
    * This reads the next line of data, skipping any empty rows.
    */
@@ -283,6 +646,7 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
    */
   public void setPreload(boolean flag) {
     configuration.put(ConfigTag.PRELOAD, flag);
+    invalidateConfiguration();
   }
 
 
@@ -309,6 +673,7 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
    */
   public void setHeaderFlag(boolean flag) {
     configuration.put(ConfigTag.HEADER, flag);
+    invalidateConfiguration();
   }
 
 
@@ -331,6 +696,7 @@ public class CsvReader extends AbstractFrameReader implements FrameReader, Confi
    */
   public void setSource(String value) {
     configuration.put(ConfigTag.SOURCE, value);
+    invalidateConfiguration();
   }
 
 }
@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import coyote.dx.context.PersistentContext;
+import coyote.dx.context.TransformContext;
+import coyote.loader.log.Log;
+
+
+/**
+ * Follows a file as it grows, returning each line once it is complete.
+ *
+ * <p>The tailer keeps the byte offset just past the last line it returned so
+ * a reader can record how far it has processed and resume from there later.
+ * When no more data is available, {@link #await(long)} waits for the file to
+ * change using a {@code WatchService} on its directory, the same approach as
+ * the {@code WaitForFile} task, with a timeout so file systems which do not
+ * report changes are still checked regularly.
+ *
+ * <p>Rotation is detected when the file at the path has a different identity
+ * (its inode on most systems) than the one being read, in which case the rest
+ * of the old file is read and the new file is read from its start. A file
+ * which becomes smaller than the current offset is taken to have been
+ * truncated and is read again from its start. The last bytes read are also
+ * kept and compared with the file before reading resumes after it was idle,
+ * so a file truncated and rewritten past the current offset while the tailer
+ * waited is read again from its start too.
+ */
+public class FileTailer implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The number of bytes before the current position compared to detect a rewritten file */
+  private static final int MARK_SIZE = 64;
+
+  /** The most milliseconds to wait for the file to change before checking it again */
+  private static final long POLL_INTERVAL = 1000;
+
+  /** The least milliseconds between checkpoints while data is arriving */
+  private static final long CHECKPOINT_INTERVAL = 1000;
+
+  private static final String OFFSET_SUFFIX = ".offset";
+  private static final String FILEKEY_SUFFIX = ".filekey";
+
+  private final Path path;
+  private final Charset charset;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private FileChannel channel = null;
+  private Object fileKey = null;
+  private byte[] partial = new byte[256];
+  private int partialLength = 0;
+  private final byte[] mark = new byte[MARK_SIZE];
+  private int markLength = 0;
+  private final ByteBuffer markCheck = ByteBuffer.allocate(MARK_SIZE);
+  private boolean idle = false;
+  private long offset = 0;
+  private long rotations = 0;
+  private long lineRotations = 0;
+  private WatchService watcher = null;
+  private boolean watching = true;
+  private long idleTimeout = 0;
+  private long lastData = System.currentTimeMillis();
+  private long lastCheckpoint = 0;
+  private long checkpointed = -1;
+
+
+
+
+  /**
+   * Start following a file.
+   *
+   * <p>The offset is only used if the file still has the given identity (or
+   * no identity was given) and is at least as long as the offset, otherwise
+   * the file is read from its start.
+   *
+   * @param file the file to follow
+   * @param offset the byte offset at which to start reading
+   * @param key the identity of the file when the offset was recorded, may be
+   *        null
+   * @param charset the character set of the text in the file
+   *
+   * @throws IOException if the file could not be opened
+   */
+  public FileTailer(final File file, final long offset, final String key, final Charset charset) throws IOException {
+    path = file.toPath();
+    this.charset = charset;
+    openChannel();
+    if (offset > 0 && offset <= channel.size() && (key == null || key.equals(getFileKey()))) {
+      this.offset = offset;
+      channel.position(offset);
+    } else if (offset > 0) {
+      Log.debug("Tailing " + file.getName() + " from its start, it has been rotated or truncated since offset " + offset);
+    }
+    buffer.flip();
+  }
+
+
+
+
+  /**
+   * Start following a file from the offset recorded in the given context by
+   * {@link #checkpoint(TransformContext, long)}.
+   *
+   * @param file the file to follow
+   * @param context the context holding the offset, may be null
+   * @param charset the character set of the text in the file
+   *
+   * @return a tailer positioned at the recorded offset
+   *
+   * @throws IOException if the file could not be opened
+   */
+  public static FileTailer resume(final File file, final TransformContext context, final Charset charset) throws IOException {
+    long offset = 0;
+    String key = null;
+    if (context != null) {
+      final String name = file.getAbsolutePath();
+      final Object value = context.get(name + OFFSET_SUFFIX);
+      if (value instanceof Number) {
+        offset = ((Number)value).longValue();
+      } else if (value != null) {
+        try {
+          offset = Long.parseLong(value.toString().trim());
+        } catch (final NumberFormatException e) {
+          Log.warn("Ignoring invalid tail offset of '" + value + "' for " + name);
+        }
+      }
+      final Object keyValue = context.get(name + FILEKEY_SUFFIX);
+      key = (keyValue != null) ? keyValue.toString() : null;
+    }
+    return new FileTailer(file, offset, key, charset);
+  }
+
+
+
+
+  /**
+   * Record the given offset of this file in the context, saving the context
+   * if it is persistent so the offset survives the job.
+   *
+   * @param context the context in which to record the offset
+   * @param processed the offset just past the last line fully processed
+   */
+  public void checkpoint(final TransformContext context, final long processed) {
+    lastCheckpoint = System.currentTimeMillis();
+    checkpointed = processed;
+    if (context != null) {
+      final String name = path.toFile().getAbsolutePath();
+      context.set(name + OFFSET_SUFFIX, processed);
+      context.set(name + FILEKEY_SUFFIX, getFileKey());
+      if (context instanceof PersistentContext) {
+        ((PersistentContext)context).save();
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Record the given offset if it has changed and no checkpoint has been
+   * made for a while, so offsets are saved regularly while data is arriving
+   * without saving the context for every line.
+   *
+   * @param context the context in which to record the offset
+   * @param processed the offset just past the last line fully processed
+   */
+  public void checkpointIfDue(final TransformContext context, final long processed) {
+    if (processed != checkpointed && System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+      checkpoint(context, processed);
+    }
+  }
+
+
+
+
+  /**
+   * Called by readers when no complete line is available; records the
+   * processed offset and waits briefly for the file to change.
+   *
+   * @param context the context in which to record the offset
+   * @param processed the offset just past the last line fully processed
+   *
+   * @return false if no data has arrived for longer than the idle timeout,
+   *         true if the reader should keep following the file
+   */
+  public boolean waitForData(final TransformContext context, final long processed) {
+    if (processed != checkpointed) {
+      checkpoint(context, processed);
+    }
+    await(POLL_INTERVAL);
+    return idleTimeout <= 0 || System.currentTimeMillis() - lastData < idleTimeout;
+  }
+
+
+
+
+  /**
+   * @param millis the milliseconds without new data after which
+   *        {@link #waitForData(TransformContext, long)} reports the file is
+   *        idle, 0 to follow the file indefinitely
+   */
+  public void setIdleTimeout(final long millis) {
+    idleTimeout = millis;
+  }
+
+
+
+
+  /**
+   * Return the next complete line in the file.
+   *
+   * <p>The line terminator (LF or CRLF) is not included. A partial line at the
+   * end of the file is held until it is completed, or until the file is
+   * rotated.
+   *
+   * @return the next line or null if no complete line is available yet
+   *
+   * @throws IOException if the file could not be read
+   */
+  public String nextLine() throws IOException {
+    while (true) {
+      if (buffer.hasRemaining()) {
+        final byte[] data = buffer.array();
+        final int start = buffer.position();
+        final int end = buffer.limit();
+        for (int x = start; x < end; x++) {
+          if (data[x] == '\n') {
+            append(data, start, x - start);
+            buffer.position(x + 1);
+            offset += partialLength + 1;
+            lineRotations = rotations;
+            return takeLine();
+          }
+        }
+        append(data, start, end - start);
+        buffer.position(end);
+      }
+
+      if (idle && rewritten()) {
+        Log.debug("Tailed file " + path + " was rewritten, reading from its start");
+        restart();
+      }
+      buffer.clear();
+      final int count = channel.read(buffer);
+      buffer.flip();
+      idle = count <= 0;
+      if (count > 0) {
+        remember(count);
+      }
+      if (count <= 0 && !rotated()) {
+        return null;
+      }
+      if (count <= 0 && partialLength > 0) {
+        // the last line of the rotated file was not terminated
+        offset = 0;
+        lineRotations = rotations - 1;
+        return takeLine();
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Wait for the file to change.
+   *
+   * @param timeout the most milliseconds to wait
+   *
+   * @return true if a change to the file was reported, false if the timeout
+   *         expired (the file may still have changed)
+   */
+  public boolean await(final long timeout) {
+    try {
+      if (watching && watcher == null) {
+        try {
+          watcher = FileSystems.getDefault().newWatchService();
+          path.toAbsolutePath().getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (final IOException | UnsupportedOperationException e) {
+          Log.debug("Cannot watch " + path + ", polling instead: " + e.getMessage());
+          watching = false;
+        }
+      }
+
+      if (!watching) {
+        Thread.sleep(timeout);
+        return false;
+      }
+
+      final WatchKey key = watcher.poll(timeout, TimeUnit.MILLISECONDS);
+      if (key != null) {
+        boolean retval = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+          if (StandardWatchEventKinds.OVERFLOW.equals(event.kind()) || path.getFileName().equals(event.context())) {
+            retval = true;
+          }
+        }
+        key.reset();
+        return retval;
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+
+
+
+  /**
+   * @return the byte offset just past the last line returned
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+
+
+
+  /**
+   * @return the identity of the file being read, or null if the file system
+   *         does not provide one
+   */
+  public String getFileKey() {
+    return (fileKey != null) ? fileKey.toString() : null;
+  }
+
+
+
+
+  /**
+   * @return the number of times the file was found rotated or truncated
+   */
+  public long getRotations() {
+    return rotations;
+  }
+
+
+
+
+  /**
+   * Readers compare this to the value for the previous line to tell when a 
+   * line is the first one read from a rotated or truncated file.
+   * 
+   * @return the number of times the file was found rotated or truncated 
+   *         before the last line returned was read
+   */
+  public long getLineRotations() {
+    return lineRotations;
+  }
+
+
+
+
+  /**
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (watcher != null) {
+        watcher.close();
+      }
+    } finally {
+      watcher = null;
+      channel.close();
+    }
+  }
+
+
+
+
+  private void openChannel() throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    markLength = 0;
+  }
+
+
+
+
+  /**
+   * Check if the file has been replaced or truncated, switching to the start
+   * of the current file if it has.
+   *
+   * @return true if reading starts over
+   */
+  private boolean rotated() throws IOException {
+    final BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (final NoSuchFileException e) {
+      // rotated away and not yet replaced; keep reading the old file
+      return false;
+    }
+
+    if (attributes.fileKey() != null && !attributes.fileKey().equals(fileKey)) {
+      Log.debug("Tailed file " + path + " was rotated, reading the new file");
+      channel.close();
+      openChannel();
+      if (partialLength == 0) {
+        offset = 0;
+      }
+      rotations++;
+    } else if (attributes.size() < channel.position()) {
+      Log.debug("Tailed file " + path + " was truncated, reading from its start");
+      restart();
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+
+
+
+  /**
+   * Start reading the current file again from its start, discarding any
+   * partial line.
+   */
+  private void restart() throws IOException {
+    channel.position(0);
+    partialLength = 0;
+    markLength = 0;
+    offset = 0;
+    rotations++;
+  }
+
+
+
+
+  /**
+   * Keep the last bytes read so they can be compared with the file later.
+   *
+   * @param count the number of bytes just read into the buffer
+   */
+  private void remember(final int count) {
+    final byte[] data = buffer.array();
+    if (count >= MARK_SIZE) {
+      System.arraycopy(data, count - MARK_SIZE, mark, 0, MARK_SIZE);
+      markLength = MARK_SIZE;
+    } else {
+      final int keep = Math.min(markLength, MARK_SIZE - count);
+      System.arraycopy(mark, markLength - keep, mark, 0, keep);
+      System.arraycopy(data, 0, mark, keep, count);
+      markLength = keep + count;
+    }
+  }
+
+
+
+
+  /**
+   * Check if the bytes just before the current position are still the ones
+   * which were read, which they are not if the file was truncated and
+   * written again past the current position.
+   *
+   * @return true if the file no longer holds the bytes which were read
+   */
+  private boolean rewritten() throws IOException {
+    if (markLength == 0) {
+      return false;
+    }
+    final long start = channel.position() - markLength;
+    markCheck.clear();
+    markCheck.limit(markLength);
+    while (markCheck.hasRemaining()) {
+      if (channel.read(markCheck, start + markCheck.position()) < 0) {
+        return true;
+      }
+    }
+    final byte[] data = markCheck.array();
+    for (int x = 0; x < markLength; x++) {
+      if (data[x] != mark[x]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+
+  private void append(final byte[] data, final int start, final int length) {
+    if (partialLength + length > partial.length) {
+      final byte[] larger = new byte[Math.max(partial.length * 2, partialLength + length)];
+      System.arraycopy(partial, 0, larger, 0, partialLength);
+      partial = larger;
+    }
+    System.arraycopy(data, start, partial, partialLength, length);
+    partialLength += length;
+  }
+
+
+
+
+  private String takeLine() {
+    lastData = System.currentTimeMillis();
+    int length = partialLength;
+    if (length > 0 && partial[length - 1] == '\r') {
+      length--;
+    }
+    final String retval = new String(partial, 0, length, charset);
+    partialLength = 0;
+    return retval;
+  }
+
+}
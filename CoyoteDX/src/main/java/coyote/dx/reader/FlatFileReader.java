@@ -7,14 +7,17 @@
  */
 package coyote.dx.reader;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import coyote.commons.FileUtil;
 import coyote.commons.LineIterator;
 import coyote.commons.StringUtil;
 import coyote.commons.UriUtil;
@@ -22,6 +25,8 @@ import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.DataFrameException;
 import coyote.dx.CDX;
+import coyote.dx.CheckpointFrameReader;
+import coyote.dx.Compression;
 import coyote.dx.ConfigTag;
 import coyote.dx.ConfigurableComponent;
 import coyote.dx.FieldDefinition;
@@ -39,11 +44,30 @@ import coyote.loader.log.LogMsg;
  * each of those POs. In such cases, it is expected that the transforms will
  * be able to handle the different file formats read, or that filters will be 
  * in place to eliminate the unwanted record types from the transform.</p>
+ * 
+ * <p>When {@code tail} is set, the reader follows the source file as lines 
+ * are appended to it, recording the offset of the last line processed in the 
+ * context so the next run resumes from there. A {@code timeout} in 
+ * milliseconds stops the reader when no line has been appended for that 
+ * long, otherwise it follows the file until the job is terminated.</p>
+ * 
+ * <p>When {@code threads} is greater than 1, a large uncompressed source is 
+ * divided into byte ranges on line boundaries which are parsed on that many 
+ * threads. Frames are returned in the order of the lines in the file unless 
+ * {@code ordered} is false.</p>
  */
-public class FlatFileReader extends AbstractFrameReader implements FrameReader, ConfigurableComponent {
+public class FlatFileReader extends AbstractFrameReader implements FrameReader, CheckpointFrameReader, ConfigurableComponent {
 
   LineIterator lines = null;
+  Reader source = null;
   Parser lineParser = new Parser();
+  FileTailer tailer = null;
+  long processed = 0;
+  long checkpointed = 0;
+  boolean stopped = false;
+  SplitFileParser splitter = null;
+  File splitSource = null;
+  DataFrame nextFrame = null;
 
 
 
@@ -84,8 +108,34 @@ public class FlatFileReader extends AbstractFrameReader implements FrameReader,
         sourceFile = CDX.resolveFile(sourceFile, getContext());
       }
 
-      if (sourceFile.exists() && sourceFile.canRead()) {
-        lines = FileUtil.lineIterator(sourceFile);
+      if (sourceFile.exists() && sourceFile.canRead() && getBoolean(ConfigTag.TAIL)) {
+        if (Compression.isCompressed(sourceFile)) {
+          context.setError("Compressed sources cannot be tailed: " + sourceFile.getAbsolutePath());
+          return;
+        }
+        try {
+          tailer = FileTailer.resume(sourceFile, getContext(), Charset.defaultCharset());
+          tailer.setIdleTimeout(getLong(ConfigTag.TIMEOUT));
+          processed = tailer.getOffset();
+          checkpointed = processed;
+        } catch (IOException e) {
+          String msg = LogMsg.createMsg(CDX.MSG, "Reader.could_not_read_from_source", getClass().getName(), sourceFile.getAbsolutePath()).toString();
+          Log.error(msg + " - " + e.getMessage());
+          context.setError(msg);
+        }
+      } else if (sourceFile.exists() && sourceFile.canRead() && SplitFileParser.isSplittable(sourceFile, getInteger(ConfigTag.THREADS))) {
+        // started once the field definitions are configured
+        splitSource = sourceFile;
+      } else if (sourceFile.exists() && sourceFile.canRead()) {
+        try {
+          // compressed sources are decompressed as they are read
+          this.source = Compression.openReader(sourceFile);
+          lines = new LineIterator(this.source);
+        } catch (IOException e) {
+          String msg = LogMsg.createMsg(CDX.MSG, "Reader.could_not_read_from_source", getClass().getName(), sourceFile.getAbsolutePath()).toString();
+          Log.error(msg + " - " + e.getMessage());
+          context.setError(msg);
+        }
       } else {
         String msg = LogMsg.createMsg(CDX.MSG, "Reader.could_not_read_from_source", getClass().getName(), sourceFile.getAbsolutePath()).toString();
         Log.error(msg);
@@ -147,6 +197,10 @@ public class FlatFileReader extends AbstractFrameReader implements FrameReader,
       }
     }
 
+    if (splitSource != null) {
+      openSplit(context);
+    }
+
   }
 
 
@@ -157,6 +211,13 @@ public class FlatFileReader extends AbstractFrameReader implements FrameReader,
    */
   @Override
   public DataFrame read(TransactionContext context) {
+    if (tailer != null) {
+      return readTail(context);
+    }
+    if (splitter != null) {
+      return readSplit(context);
+    }
+
     DataFrame retval = null;
 
     try {
@@ -199,11 +260,151 @@ public class FlatFileReader extends AbstractFrameReader implements FrameReader,
   //    return retval;
   //  }
 
+  /**
+   * Start parsing ranges of the source file on several threads.
+   */
+  private void openSplit(TransformContext context) {
+    boolean ordered = true;
+    if (getConfiguration().containsIgnoreCase(ConfigTag.ORDERED)) {
+      ordered = getBoolean(ConfigTag.ORDERED);
+    }
+    splitter = new SplitFileParser(splitSource, 0, Charset.defaultCharset(), getInteger(ConfigTag.THREADS), false, ordered) {
+      @Override
+      protected void parse(BufferedReader range, Sink sink) throws Exception {
+        String line;
+        while ((line = range.readLine()) != null) {
+          if (StringUtil.isNotBlank(line)) {
+            sink.put(lineParser.parse(line));
+          }
+        }
+      }
+    };
+    try {
+      splitter.start();
+      nextFrame = splitter.take();
+    } catch (IOException e) {
+      String msg = LogMsg.createMsg(CDX.MSG, "Reader.could_not_read_from_source", getClass().getName(), splitSource.getAbsolutePath()).toString();
+      Log.error(msg + " - " + e.getMessage());
+      context.setError(msg);
+    }
+  }
+
+
+
+
+  /**
+   * Return the next frame parsed by the splitter.
+   */
+  private DataFrame readSplit(TransactionContext context) {
+    DataFrame retval = nextFrame;
+    if (retval != null) {
+      try {
+        if (readLimit > 0 && ++recordCounter >= readLimit) {
+          splitter.close();
+          nextFrame = null;
+        } else {
+          nextFrame = splitter.take();
+        }
+      } catch (IOException e) {
+        context.setError(e.getMessage());
+        nextFrame = null;
+      }
+      if (nextFrame == null) {
+        context.setLastFrame(true);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Parse the next line appended to the source file, waiting briefly for 
+   * one if none is available.
+   */
+  private DataFrame readTail(TransactionContext context) {
+    DataFrame retval = null;
+    try {
+      String line;
+      while ((line = tailer.nextLine()) != null && StringUtil.isBlank(line)) {
+        // skip blank lines
+      }
+
+      if (line != null) {
+        retval = lineParser.parse(line);
+        processed = tailer.getOffset();
+        if (readLimit > 0 && ++recordCounter >= readLimit) {
+          stopped = true;
+          context.setLastFrame(true);
+        }
+      } else if (!tailer.waitForData(getContext(), checkpointed)) {
+        Log.debug("No lines appended to the source, stopping");
+        stopped = true;
+      }
+    } catch (Exception e) {
+      context.setError(e.getMessage());
+      stopped = true;
+    }
+    return retval;
+  }
+
+
+
+
   @Override
   public boolean eof() {
+    if (tailer != null) {
+      return stopped;
+    }
+    if (splitter != null) {
+      return nextFrame == null;
+    }
     return !lines.hasNext();
   }
 
+
+
+
+  /**
+   * @see coyote.dx.CheckpointFrameReader#checkpoint()
+   */
+  @Override
+  public void checkpoint() {
+    if (tailer != null) {
+      checkpointed = processed;
+      tailer.checkpointIfDue(getContext(), checkpointed);
+    }
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.reader.AbstractFrameReader#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if (splitter != null) {
+      splitter.close();
+    }
+    if (tailer != null) {
+      try {
+        tailer.checkpoint(getContext(), processed);
+        tailer.close();
+      } finally {
+        tailer = null;
+      }
+    }
+    if (source != null) {
+      try {
+        source.close();
+      } finally {
+        source = null;
+      }
+    }
+  }
+
   //
 
   //
@@ -220,7 +421,7 @@ public class FlatFileReader extends AbstractFrameReader implements FrameReader,
     private static final String KEYSTART = "keystart";
     private static final String KEYLENGTH = "keylength";
     private static final String LINES = "lines";
-    private List<FieldDefinition> DEFAULT = null;
+    private FieldDefinition[] DEFAULT = null;
 
     /** The first character of the key field. Negative values start from the end of the line. */
     int keyStart = 0;
@@ -231,6 +432,11 @@ public class FlatFileReader extends AbstractFrameReader implements FrameReader,
     // Map of line types to field definition lists
     Map<String, List<FieldDefinition>> formats = new HashMap<String, List<FieldDefinition>>();
 
+    // Open-addressed table of the line type keys and their formats, so the 
+    // format of a line can be found without taking its key as a substring
+    private String[] keys = new String[0];
+    private FieldDefinition[][] layouts = new FieldDefinition[0][];
+
 
 
 
@@ -303,49 +509,112 @@ public class FlatFileReader extends AbstractFrameReader implements FrameReader,
       } else {
         throw new DataFrameException("No lines defined in linemap");
       }
+      compile();
+    }
+
+
+
+
+    /**
+     * Build the lookup table of line formats.
+     */
+    private void compile() {
+      int size = Integer.highestOneBit(Math.max(1, formats.size()) * 2) * 2;
+      keys = new String[size];
+      layouts = new FieldDefinition[size][];
+      for (Map.Entry<String, List<FieldDefinition>> entry : formats.entrySet()) {
+        int index = spread(entry.getKey().hashCode()) & (size - 1);
+        while (keys[index] != null) {
+          index = (index + 1) & (size - 1);
+        }
+        keys[index] = entry.getKey();
+        layouts[index] = entry.getValue().toArray(new FieldDefinition[entry.getValue().size()]);
+      }
+    }
+
+
+
+
+    /**
+     * Find the format whose key is at the given position in the line.
+     * 
+     * @return the format or null if there is no format for the key
+     */
+    private FieldDefinition[] lookup(String line, int start) {
+      if (start < 0 || start + keyLength > line.length() || keys.length == 0) {
+        return null;
+      }
+      // the same hash as String.hashCode() of the key
+      int hash = 0;
+      for (int x = start; x < start + keyLength; x++) {
+        hash = 31 * hash + line.charAt(x);
+      }
+      int mask = keys.length - 1;
+      for (int index = spread(hash) & mask; keys[index] != null; index = (index + 1) & mask) {
+        if (keys[index].length() == keyLength && line.regionMatches(start, keys[index], 0, keyLength)) {
+          return layouts[index];
+        }
+      }
+      return null;
+    }
+
+
+
+
+    private int spread(int hash) {
+      return hash ^ (hash >>> 16);
     }
 
 
 
 
     public void setDefaultFormat(List<FieldDefinition> fields) {
-      DEFAULT = fields;
+      DEFAULT = fields.toArray(new FieldDefinition[fields.size()]);
     }
 
 
 
 
+    /**
+     * Parse the fields of a line with the format selected by its key.
+     * 
+     * @param line the line to parse
+     * 
+     * @return the fields of the line
+     * 
+     * @throws IllegalArgumentException if no format is defined for the key 
+     *         of the line. The reader places the transaction in error with 
+     *         this message, as it did when a missing format surfaced as a 
+     *         NullPointerException without one.
+     */
     public DataFrame parse(String line) {
       DataFrame retval = new DataFrame();
 
       // This is the list of field definitions which will extract data from the string
-      List<FieldDefinition> format = null;
+      FieldDefinition[] format = null;
 
       // if we only have one format to deal with, use that
       if (DEFAULT != null) {
         format = DEFAULT;
       } else {
-        // look up the name of the format to use based on a key value somewhere in the line 
-        String key;
-        if (keyStart >= 0) {
-          key = line.substring(keyStart, keyStart + keyLength);
-        } else {
-          // negative starting position indicated a position from the end of the line
-          int start = (line.length() + keyStart);
-          key = line.substring(start, start + keyLength);
-        }
-
-        format = formats.get(key);
+        // look up the format to use based on a key value somewhere in the line; 
+        // a negative starting position indicates a position from the end of the line
+        int start = (keyStart >= 0) ? keyStart : line.length() + keyStart;
+        format = lookup(line, start);
         if (format == null) {
-          Log.warn(LogMsg.createMsg(CDX.MSG, "Reader.could_not_find_format_for_key", key, context.getRow() + 1, keyStart, keyLength));
+          String key = (start >= 0 && start + keyLength <= line.length()) ? line.substring(start, start + keyLength) : line;
+          String msg = LogMsg.createMsg(CDX.MSG, "Reader.could_not_find_format_for_key", key, context.getRow() + 1, keyStart, keyLength).toString();
+          Log.warn(msg);
+          throw new IllegalArgumentException(msg);
         } else {
           if (Log.isLogging(Log.DEBUG_EVENTS))
-            Log.debug(LogMsg.createMsg(CDX.MSG, "Reader.parsing_record_type", key, context.getRow() + 1));
+            Log.debug(LogMsg.createMsg(CDX.MSG, "Reader.parsing_record_type", line.substring(start, start + keyLength), context.getRow() + 1));
         }
       }
 
+      // convert each field where it is in the line
       for (FieldDefinition def : format) {
-        retval.add(def.getName(), def.convert(line.substring(def.getStart(), def.getEnd())));
+        retval.add(def.getName(), def.convert(line, def.getStart(), def.getEnd()));
       }
       return retval;
     }
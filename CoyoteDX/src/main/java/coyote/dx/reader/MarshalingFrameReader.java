@@ -8,18 +8,19 @@
 package coyote.dx.reader;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
 import coyote.commons.DataFrameUtil;
-import coyote.commons.FileUtil;
 import coyote.commons.StringUtil;
 import coyote.commons.UriUtil;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.marshal.JSONMarshaler;
 import coyote.dataframe.selector.FrameSelector;
 import coyote.dx.CDX;
+import coyote.dx.Compression;
 import coyote.dx.ConfigTag;
 import coyote.dx.ConfigurableComponent;
 import coyote.dx.FrameReader;
@@ -131,7 +132,14 @@ public abstract class MarshalingFrameReader extends AbstractFrameReader implemen
 
       // Basic checks
       if (sourceFile.exists() && sourceFile.canRead()) {
-        String data = FileUtil.fileToString(sourceFile);
+        String data;
+        try {
+          // compressed sources are decompressed as they are read
+          data = Compression.readText(sourceFile);
+        } catch (IOException e) {
+          context.setError(LogMsg.createMsg(CDX.MSG, "Reader.could_not_read_from_source", getClass().getName(), sourceFile.getAbsolutePath()).toString());
+          return;
+        }
         Log.debug("Read in " + data.length() + " characters of data");
 
         List<DataFrame> frames = getFrames(data);
@@ -0,0 +1,497 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import coyote.dataframe.DataFrame;
+import coyote.dx.Compression;
+
+
+/**
+ * Parses one large text file on several threads by dividing it into byte
+ * ranges which start and end on record boundaries.
+ *
+ * <p>Range boundaries are placed just after a line feed. When records may
+ * contain quoted line feeds (as CSV records can), the quote characters of
+ * each part of the file are first counted in parallel so a boundary is only
+ * placed after a line feed which is outside of quotes; this assumes quotes
+ * within values are escaped by doubling them as RFC 4180 describes. Ranges
+ * are decoded separately, so the character set must encode a line feed as
+ * the single byte 0x0A (UTF-8, ISO-8859-1 and the like).
+ *
+ * <p>Subclasses parse the records of one range at a time in
+ * {@link #parse(BufferedReader, Sink)}, which is called on the worker
+ * threads and must therefore only share state which is safe to use from
+ * several threads. When ordered, the frames are returned by {@link #take()}
+ * in the order of the records in the file, each range buffering a bounded
+ * number of frames until the ranges before it have been taken. Otherwise
+ * frames are returned as soon as any range produces them.
+ */
+public abstract class SplitFileParser implements Closeable {
+
+  /** The smallest range worth parsing on its own thread */
+  public static final long MIN_RANGE_SIZE = 4 * 1024 * 1024;
+
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int QUEUE_SIZE = 1024;
+  private static final int RANGES_PER_THREAD = 4;
+  private static final byte LINE_FEED = '\n';
+  private static final byte QUOTE = '"';
+
+  /** Placed on a queue after the last frame of a range */
+  private static final Object END = new Object();
+
+  private final File file;
+  private final long start;
+  private final Charset charset;
+  private final int threads;
+  private final boolean quoted;
+  private final boolean ordered;
+
+  private ExecutorService pool = null;
+
+  /** The queue of each range, the same queue for all ranges if not ordered */
+  private final List<BlockingQueue<Object>> queues = new ArrayList<BlockingQueue<Object>>();
+
+  /** The range being taken when ordered, the number of ranges ended when not */
+  private int current = 0;
+
+
+
+
+  /**
+   * @param file the file to parse
+   * @param start the offset of the first record, after any header
+   * @param charset the character set of the text
+   * @param threads the number of threads parsing ranges
+   * @param quoted true if records may contain line feeds within quotes
+   * @param ordered true to return frames in the order of their records
+   */
+  public SplitFileParser(final File file, final long start, final Charset charset, final int threads, final boolean quoted, final boolean ordered) {
+    this.file = file;
+    this.start = start;
+    this.charset = charset;
+    this.threads = Math.max(1, threads);
+    this.quoted = quoted;
+    this.ordered = ordered;
+  }
+
+
+
+
+  /**
+   * Check if it is worth splitting a file.
+   *
+   * @param file the file to check
+   * @param threads the number of threads which would parse it
+   *
+   * @return true if the file is uncompressed and large enough to give each
+   *         of at least two threads a range
+   */
+  public static boolean isSplittable(final File file, final int threads) {
+    return threads > 1 && file.length() >= 2 * MIN_RANGE_SIZE && !Compression.isCompressed(file);
+  }
+
+
+
+
+  /**
+   * Find the end of the record starting at the given offset, such as the end
+   * of a header.
+   *
+   * @param file the file to search
+   * @param from the offset at which a record starts
+   * @param quoted true if the record may contain line feeds within quotes
+   *
+   * @return the offset just past the line feed ending the record, or the
+   *         length of the file if the record is not terminated
+   *
+   * @throws IOException if the file could not be read
+   */
+  public static long recordEnd(final File file, final long from, final boolean quoted) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return align(channel, from, false, quoted);
+    }
+  }
+
+
+
+
+  /**
+   * Divide the file into ranges and start parsing them.
+   *
+   * @throws IOException if the file could not be read
+   */
+  public void start() throws IOException {
+    pool = createExecutor();
+    final long[] bounds = split();
+    final BlockingQueue<Object> shared = ordered ? null : new ArrayBlockingQueue<Object>(threads * QUEUE_SIZE);
+    for (int x = 0; x + 1 < bounds.length; x++) {
+      final BlockingQueue<Object> queue = ordered ? new ArrayBlockingQueue<Object>(QUEUE_SIZE) : shared;
+      queues.add(queue);
+      pool.execute(new Range(bounds[x], bounds[x + 1], queue));
+    }
+  }
+
+
+
+
+  /**
+   * Return the next frame parsed from the file.
+   *
+   * @return the next frame or null if all the ranges have been parsed
+   *
+   * @throws IOException if a range could not be read or parsed
+   */
+  public DataFrame take() throws IOException {
+    try {
+      while (current < queues.size()) {
+        final Object item = queues.get(current).take();
+        if (item instanceof DataFrame) {
+          return (DataFrame)item;
+        } else if (item == END) {
+          current++;
+        } else {
+          close();
+          final Exception e = (Exception)item;
+          throw new IOException("Could not parse " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for frames");
+    }
+    return null;
+  }
+
+
+
+
+  /**
+   * Stop parsing.
+   *
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() {
+    if (pool != null) {
+      pool.shutdownNow();
+      pool = null;
+    }
+    current = queues.size();
+  }
+
+
+
+
+  /**
+   * Parse the records of one range, placing a frame for each in the sink.
+   *
+   * <p>Called on a worker thread for each range.
+   *
+   * @param range the text of the range, starting at the start of a record
+   * @param sink where the frames are placed
+   *
+   * @throws Exception if the range could not be parsed
+   */
+  protected abstract void parse(BufferedReader range, Sink sink) throws Exception;
+
+
+
+
+  /**
+   * @return the offsets at which the ranges start, followed by the length of
+   *         the file
+   */
+  private long[] split() throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final int ranges = (int)Math.max(1, Math.min(threads * RANGES_PER_THREAD, (size - start) / MIN_RANGE_SIZE));
+      final long[] retval = new long[ranges + 1];
+      for (int x = 0; x <= ranges; x++) {
+        retval[x] = start + (size - start) * x / ranges;
+      }
+
+      // the quotes before each nominal boundary tell if it is within quotes
+      final boolean[] inQuotes = new boolean[ranges];
+      if (quoted && ranges > 1) {
+        final List<Future<Long>> counts = new ArrayList<Future<Long>>();
+        for (int x = 0; x + 1 < ranges; x++) {
+          counts.add(pool.submit(new QuoteCounter(retval[x], retval[x + 1])));
+        }
+        long quotes = 0;
+        for (int x = 1; x < ranges; x++) {
+          quotes += waitFor(counts.get(x - 1));
+          inQuotes[x] = (quotes & 1) == 1;
+        }
+      }
+
+      for (int x = 1; x < ranges; x++) {
+        retval[x] = Math.max(retval[x - 1], align(channel, retval[x], inQuotes[x], quoted));
+      }
+      return retval;
+    }
+  }
+
+
+
+
+  /**
+   * Find the first record boundary at or after the given position.
+   *
+   * @return the offset just past the first line feed outside of quotes, or
+   *         the length of the file
+   */
+  private static long align(final FileChannel channel, final long from, final boolean inQuotes, final boolean quoted) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    boolean quote = inQuotes;
+    long position = from;
+    int count;
+    while ((count = channel.read(buffer, position)) > 0) {
+      final byte[] data = buffer.array();
+      for (int x = 0; x < count; x++) {
+        if (data[x] == LINE_FEED && !quote) {
+          return position + x + 1;
+        } else if (quoted && data[x] == QUOTE) {
+          quote = !quote;
+        }
+      }
+      position += count;
+      buffer.clear();
+    }
+    return channel.size();
+  }
+
+
+
+
+  private static long waitFor(final Future<Long> future) throws IOException {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted splitting file");
+    } catch (final ExecutionException e) {
+      throw new IOException("Could not split file: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+
+
+
+  private ExecutorService createExecutor() {
+    final String prefix = "SplitFileParser-" + POOL_COUNT.incrementAndGet() + "-";
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+
+
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread retval = new Thread(runnable, prefix + threadCount.incrementAndGet());
+        retval.setDaemon(true);
+        return retval;
+      }
+    });
+  }
+
+
+
+
+  //
+
+
+
+
+  /**
+   * Receives the frames parsed from a range.
+   */
+  public static final class Sink {
+    private final BlockingQueue<Object> queue;
+
+
+
+
+    Sink(final BlockingQueue<Object> queue) {
+      this.queue = queue;
+    }
+
+
+
+
+    /**
+     * Hand a frame to the reader, waiting while the reader is behind.
+     *
+     * @param frame the frame parsed from the range
+     *
+     * @throws InterruptedException if parsing has been stopped
+     */
+    public void put(final DataFrame frame) throws InterruptedException {
+      queue.put(frame);
+    }
+  }
+
+
+
+
+  /**
+   * Counts the quote characters in part of the file.
+   */
+  private class QuoteCounter implements Callable<Long> {
+    private final long from;
+    private final long to;
+
+
+
+
+    QuoteCounter(final long from, final long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+
+
+
+    @Override
+    public Long call() throws IOException {
+      long retval = 0;
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = from;
+        while (position < to) {
+          buffer.clear();
+          buffer.limit((int)Math.min(BUFFER_SIZE, to - position));
+          final int count = channel.read(buffer, position);
+          if (count <= 0) {
+            break;
+          }
+          final byte[] data = buffer.array();
+          for (int x = 0; x < count; x++) {
+            if (data[x] == QUOTE) {
+              retval++;
+            }
+          }
+          position += count;
+        }
+      }
+      return retval;
+    }
+  }
+
+
+
+
+  /**
+   * Parses one range of the file on a worker thread.
+   */
+  private class Range implements Runnable {
+    private final long from;
+    private final long to;
+    private final BlockingQueue<Object> queue;
+
+
+
+
+    Range(final long from, final long to, final BlockingQueue<Object> queue) {
+      this.from = from;
+      this.to = to;
+      this.queue = queue;
+    }
+
+
+
+
+    @Override
+    public void run() {
+      try {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+          final BufferedReader reader = new BufferedReader(new InputStreamReader(new RangeInputStream(channel, from, to), charset), BUFFER_SIZE);
+          parse(reader, new Sink(queue));
+          queue.put(END);
+        } catch (final InterruptedException e) {
+          throw e;
+        } catch (final Exception e) {
+          queue.put(e);
+        }
+      } catch (final InterruptedException e) {
+        // parsing has been stopped
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Reads a range of a file channel without changing its position.
+   */
+  private static class RangeInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+
+
+
+    RangeInputStream(final FileChannel channel, final long from, final long to) {
+      this.channel = channel;
+      this.position = from;
+      this.end = to;
+    }
+
+
+
+
+    @Override
+    public int read() throws IOException {
+      final byte[] data = new byte[1];
+      return read(data, 0, 1) == 1 ? data[0] & 0xFF : -1;
+    }
+
+
+
+
+    @Override
+    public int read(final byte[] data, final int offset, final int length) throws IOException {
+      if (position >= end) {
+        return -1;
+      }
+      final int count = channel.read(ByteBuffer.wrap(data, offset, (int)Math.min(length, end - position)), position);
+      if (count > 0) {
+        position += count;
+      }
+      return count;
+    }
+  }
+
+}
@@ -8,13 +8,7 @@
 package coyote.dx.task;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.zip.Adler32;
-import java.util.zip.CRC32;
-import java.util.zip.CheckedInputStream;
-import java.util.zip.Checksum;
 
 import coyote.commons.FileUtil;
 import coyote.commons.StringUtil;
@@ -26,7 +20,8 @@ import coyote.loader.log.LogMsg;
 
 
 /**
- * Methods common to multiple checksum tasks
+ * Methods common to the CRC32 and Adler32 checksum tasks, whose values are
+ * hexadecimal numbers calculated by {@link ChecksumEngine}.
  */
 public abstract class AbstractChecksumTask extends AbstractFileTask {
 
@@ -36,17 +31,9 @@ public abstract class AbstractChecksumTask extends AbstractFileTask {
 
 
 
-  /**
-   * @return a new instance of a message checksum to use;
-   */
-  public abstract Checksum getChecksum();
-
-
-
-
   protected static String getCRC32Checksum(final File file) {
     try {
-      return getChecksum(file, new CRC32());
+      return new ChecksumEngine(1).digest(file, ChecksumEngine.CRC32);
     } catch (final IOException e) {
       return null;
     }
@@ -57,7 +44,7 @@ public abstract class AbstractChecksumTask extends AbstractFileTask {
 
   protected static String getAdler32Checksum(final File file) {
     try {
-      return getChecksum(file, new Adler32());
+      return new ChecksumEngine(1).digest(file, ChecksumEngine.ADLER32);
     } catch (final IOException e) {
       return null;
     }
@@ -66,19 +53,6 @@ public abstract class AbstractChecksumTask extends AbstractFileTask {
 
 
 
-  private static String getChecksum(final File file, final Checksum algorithm) throws IOException {
-    long checksum = 0;
-    try (InputStream fis = new FileInputStream(file); CheckedInputStream cis = new CheckedInputStream(fis, algorithm)) {
-      final byte[] buffer = new byte[STREAM_BUFFER_LENGTH];
-      while (cis.read(buffer) >= 0) {}
-      checksum = cis.getChecksum().getValue();
-    }
-    return Long.toHexString(checksum);
-  }
-
-
-
-
   /**
    * @return the name of the algorithm used
    */
@@ -106,6 +80,11 @@ public abstract class AbstractChecksumTask extends AbstractFileTask {
    */
   @Override
   protected void performTask() throws TaskException {
+    if (StringUtil.isNotBlank(getString(ConfigTag.MANIFEST))) {
+      verifyManifest(ALGORITHM);
+      return;
+    }
+
     final String source = getSourceOrFile();
     String expectedChecksum = null;
 
@@ -122,7 +101,7 @@ public abstract class AbstractChecksumTask extends AbstractFileTask {
           if (file.length() > 0) {
             String checksum = null;
             try {
-              checksum = getChecksum(file, getChecksum());
+              checksum = new ChecksumEngine(1).digestWithChecksumFiles(file, ALGORITHM);
               Log.debug(LogMsg.createMsg(CDX.MSG, "Checksum.results", file.getAbsolutePath(), ALGORITHM, checksum));
 
               final String checksumFilename = file.getAbsolutePath() + CHECKSUM_EXTENSION;
@@ -8,12 +8,9 @@
 package coyote.dx.task;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.MessageDigest;
 
-import coyote.commons.ByteUtil;
 import coyote.commons.FileUtil;
 import coyote.commons.StringUtil;
 import coyote.dx.CDX;
@@ -24,7 +21,8 @@ import coyote.loader.log.LogMsg;
 
 
 /**
- * Methods common to multiple checksum tasks
+ * Methods common to the MD5, SHA-1 and SHA-256 tasks, whose values are
+ * {@code MessageDigest} results calculated by {@link ChecksumEngine}.
  */
 public abstract class AbstractDigestTask extends AbstractFileTask {
   protected String CHECKSUM_EXTENSION;
@@ -43,14 +41,6 @@ public abstract class AbstractDigestTask extends AbstractFileTask {
 
 
 
-  /**
-   * @return a new instance of a message digest to use;
-   */
-  abstract MessageDigest getDigest();
-
-
-
-
   /**
    * @return the file extension used for the checksum file
    */
@@ -68,6 +58,11 @@ public abstract class AbstractDigestTask extends AbstractFileTask {
    */
   @Override
   protected void performTask() throws TaskException {
+    if (StringUtil.isNotBlank(getString(ConfigTag.MANIFEST))) {
+      verifyManifest(ALGORITHM);
+      return;
+    }
+
     final String source = getSourceOrFile();
     String expectedDigest = null;
 
@@ -84,7 +79,7 @@ public abstract class AbstractDigestTask extends AbstractFileTask {
           if (file.length() > 0) {
             String digest = null;
             try {
-              digest = digest(file, getDigest());
+              digest = new ChecksumEngine(1).digestWithChecksumFiles(file, ALGORITHM);
               Log.debug(LogMsg.createMsg(CDX.MSG, "Digest.results", file.getAbsolutePath(), ALGORITHM, digest));
 
               final String digestFilename = file.getAbsolutePath() + CHECKSUM_EXTENSION;
@@ -203,15 +198,7 @@ public abstract class AbstractDigestTask extends AbstractFileTask {
    * @throws IOException if there were problems reading the given file
    */
   protected static String digest(final File file, final MessageDigest md) throws IOException {
-    try (InputStream fis = new FileInputStream(file)) {
-      final byte[] buffer = new byte[STREAM_BUFFER_LENGTH];
-      int read = fis.read(buffer, 0, STREAM_BUFFER_LENGTH);
-      while (read > -1) {
-        md.update(buffer, 0, read);
-        read = fis.read(buffer, 0, STREAM_BUFFER_LENGTH);
-      }
-      return ByteUtil.bytesToHex(md.digest(), "").toLowerCase();
-    }
+    return new ChecksumEngine(1).digest(file, md.getAlgorithm());
   }
 
 }
@@ -8,9 +8,15 @@
 package coyote.dx.task;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Map;
 
 import coyote.commons.StringUtil;
+import coyote.dx.CDX;
 import coyote.dx.ConfigTag;
+import coyote.dx.TaskException;
+import coyote.loader.log.Log;
+import coyote.loader.log.LogMsg;
 
 
 /**
@@ -113,4 +119,54 @@ public abstract class AbstractFileTask extends AbstractTransformTask {
     return retval;
   }
 
+
+
+
+  /**
+   * Check all the files listed in the manifest named in the MANIFEST
+   * configuration attribute against the digests recorded in it.
+   * 
+   * <p>Checksum and digest tasks call this instead of checking a single file
+   * when a MANIFEST is configured. The files are checked concurrently by a
+   * {@link ChecksumEngine} using the number of threads in the THREADS
+   * configuration attribute. Relative paths in the manifest are resolved 
+   * against the DIRECTORY configuration attribute if set, otherwise the 
+   * directory of the manifest. The digest of each verified file is placed in 
+   * the context with the name of its checksum file, the same as when 
+   * checking a single file.
+   * 
+   * @param algorithm the algorithm used to create the manifest
+   * 
+   * @throws TaskException if any file did not match and the task is to halt 
+   *         on errors
+   */
+  protected void verifyManifest(final String algorithm) throws TaskException {
+    final File manifest = getAbsoluteFile(getString(ConfigTag.MANIFEST));
+    final String directory = getString(ConfigTag.DIRECTORY);
+    final File baseDir = StringUtil.isNotBlank(directory) ? getAbsoluteFile(directory) : null;
+
+    String msg = null;
+    try {
+      final ChecksumEngine.Verification results = new ChecksumEngine(getInteger(ConfigTag.THREADS)).verify(manifest, baseDir, algorithm);
+      for (final Map.Entry<File, String> entry : results.getVerified().entrySet()) {
+        getContext().set(entry.getKey().getAbsolutePath() + ChecksumEngine.getExtension(algorithm), entry.getValue());
+      }
+      if (results.isSuccessful()) {
+        Log.info(LogMsg.createMsg(CDX.MSG, "Checksum.manifest_verified", algorithm, results.getVerified().size(), manifest.getAbsolutePath()));
+      } else {
+        msg = LogMsg.createMsg(CDX.MSG, "Checksum.manifest_failed", algorithm, manifest.getAbsolutePath(), results.getFailed(), results.getMissing()).toString();
+      }
+    } catch (final IOException e) {
+      msg = LogMsg.createMsg(CDX.MSG, "Checksum.calculation_error", algorithm, e.getMessage(), getString(ConfigTag.MANIFEST), manifest.getAbsolutePath()).toString();
+    }
+
+    if (msg != null) {
+      if (haltOnError) {
+        throw new TaskException(msg);
+      } else {
+        Log.error(msg);
+      }
+    }
+  }
+
 }
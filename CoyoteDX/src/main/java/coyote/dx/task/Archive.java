@@ -9,9 +9,10 @@ package coyote.dx.task;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.zip.Deflater;
 
 import coyote.commons.StringUtil;
-import coyote.commons.ZipUtil;
+import coyote.commons.zip.ParallelZipWriter;
 import coyote.dx.ConfigTag;
 import coyote.dx.TaskException;
 import coyote.loader.log.Log;
@@ -25,9 +26,16 @@ import coyote.loader.log.Log;
  * by file transfer more messaging tools.
  * 
  * <pre>"PostProcess": {
- *   "Archive" : { "directory": "wrkdir", "target": "wrkdir.zip", "enabled": false  },
+ *   "Archive" : { "source": "wrkdir", "target": "wrkdir.zip", "enabled": false  },
  * }</pre>
  * 
+ * <p>The files are deflated on several threads ({@code threads}, one per 
+ * processor by default) and streamed into the archive, so archiving large 
+ * directories does not require holding them in memory. Directories are 
+ * archived under their own name. Setting {@code append} to true adds the 
+ * files to an existing archive without rewriting the entries already in 
+ * it.</p>
+ * 
  * Goals:
  * Archive a directory to a zip file.
  * Archive a file to a zip file
@@ -49,7 +57,10 @@ public class Archive extends AbstractFileTask {
   @Override
   protected void performTask() throws TaskException {
 
-    final String source = getString(ConfigTag.SOURCE);
+    String source = getString(ConfigTag.SOURCE);
+    if (StringUtil.isBlank(source)) {
+      source = getString(ConfigTag.DIRECTORY);
+    }
     final String target = getString(ConfigTag.TARGET);
 
     //final String pattern = getString(ConfigTag.PATTERN);
@@ -66,9 +77,15 @@ public class Archive extends AbstractFileTask {
           targetFile = new File(sourceFile.getAbsolutePath() + SUFFIX);
         }
 
-        Log.debug("Archiving " + sourceFile.getAbsolutePath() + " to " + targetFile.getAbsolutePath());
-        try {
-          ZipUtil.zip(sourceFile, targetFile);
+        final boolean append = getBoolean(ConfigTag.APPEND);
+        Log.debug("Archiving " + sourceFile.getAbsolutePath() + " to " + targetFile.getAbsolutePath() + (append ? " (append)" : ""));
+        try (ParallelZipWriter writer = new ParallelZipWriter(targetFile, append, Deflater.DEFAULT_COMPRESSION, getInteger(ConfigTag.THREADS))) {
+          if (sourceFile.isDirectory()) {
+            writer.addFiles(sourceFile, sourceFile.getName(), null);
+          } else {
+            writer.addFile(sourceFile.getName(), sourceFile);
+          }
+          Log.debug("Archive " + targetFile.getName() + " contains " + writer.getEntryCount() + " entries");
         } catch (IOException e) {
           throw new TaskException("Could not archive file: " + e.getMessage(), e);
         }
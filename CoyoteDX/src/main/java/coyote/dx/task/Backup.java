@@ -10,7 +10,6 @@ package coyote.dx.task;
 import java.io.File;
 import java.io.IOException;
 
-import coyote.commons.FileUtil;
 import coyote.commons.StringUtil;
 import coyote.dx.ConfigTag;
 import coyote.dx.TaskException;
@@ -30,6 +29,8 @@ import coyote.dx.TaskException;
  * excess files will be removed. A limit of 0 (zero) is effectively 
  * interpreted as no limit. Any negative value is interpreted as zero. The 
  * default limit is zero.
+ * 
+ * <p>The backup is copied channel to channel by {@link FileOperations}.</p>
  */
 public class Backup extends AbstractFileTask {
 
@@ -66,10 +67,13 @@ public class Backup extends AbstractFileTask {
     String filename = getFilename();
     if (StringUtil.isNotBlank(filename)) {
       File file = new File(filename);
+      FileOperations operations = new FileOperations(1);
       try {
-        FileUtil.createGenerationalBackup(file, getLimit());
+        operations.backup(file, getLimit());
       } catch (IOException e) {
         throw new TaskException("Could not backup file: " + e.getMessage(), e);
+      } finally {
+        operations.publish(getContext(), getClass().getSimpleName());
       }
     }
   }
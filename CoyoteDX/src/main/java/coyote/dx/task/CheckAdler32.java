@@ -8,8 +8,6 @@
 package coyote.dx.task;
 
 import java.io.File;
-import java.util.zip.Adler32;
-import java.util.zip.Checksum;
 
 
 /**
@@ -43,12 +41,4 @@ public class CheckAdler32 extends AbstractChecksumTask {
     ALGORITHM = "Adler32";
   }
 
-
-
-
-  @Override
-  public Checksum getChecksum() {
-    return new Adler32();
-  }
-
 }
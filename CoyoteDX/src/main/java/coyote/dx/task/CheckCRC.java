@@ -8,8 +8,6 @@
 package coyote.dx.task;
 
 import java.io.File;
-import java.util.zip.CRC32;
-import java.util.zip.Checksum;
 
 
 /**
@@ -43,12 +41,4 @@ public class CheckCRC extends AbstractChecksumTask {
     ALGORITHM = "CRC32";
   }
 
-
-
-
-  @Override
-  public Checksum getChecksum() {
-    return new CRC32();
-  }
-
 }
@@ -51,15 +51,4 @@ public class CheckMD5 extends AbstractDigestTask {
     ALGORITHM = "MD5";
   }
 
-
-
-
-  @Override
-  MessageDigest getDigest() {
-    try {
-      return MessageDigest.getInstance(ALGORITHM);
-    } catch (final NoSuchAlgorithmException ignore) {}
-    return null;
-  }
-
 }
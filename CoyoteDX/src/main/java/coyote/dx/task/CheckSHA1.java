@@ -48,15 +48,4 @@ public class CheckSHA1 extends AbstractDigestTask {
     ALGORITHM = "SHA-1";
   }
 
-
-
-
-  @Override
-  MessageDigest getDigest() {
-    try {
-      return MessageDigest.getInstance(ALGORITHM);
-    } catch (final NoSuchAlgorithmException ignore) {}
-    return null;
-  }
-
 }
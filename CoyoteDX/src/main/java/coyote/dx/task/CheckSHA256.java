@@ -48,15 +48,4 @@ public class CheckSHA256 extends AbstractDigestTask {
     ALGORITHM = "SHA-256";
   }
 
-
-
-
-  @Override
-  MessageDigest getDigest() {
-    try {
-      return MessageDigest.getInstance(ALGORITHM);
-    } catch (final NoSuchAlgorithmException ignore) {}
-    return null;
-  }
-
 }
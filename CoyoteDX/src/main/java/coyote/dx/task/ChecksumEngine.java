@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
+import coyote.commons.ByteUtil;
+
+
+/**
+ * Calculates checksums and message digests of files, reading each file once
+ * no matter how many algorithms are requested.
+ *
+ * <p>Large files are memory-mapped and small files are read into a direct
+ * buffer, and each block of data is fed to all the requested algorithms
+ * while it is still in the processor cache. Several files are processed at
+ * once on a pool of threads.
+ *
+ * <p>Results are cached by file and revalidated against the size,
+ * modification time and identity of the file, so when several checksum
+ * tasks check the same file, only the first one reads it. The checksum tasks
+ * ask for the algorithms of any checksum files next to the file at the same
+ * time as their own for this reason.
+ *
+ * <p>Checksums ({@code CRC32} and {@code Adler32}) are returned as
+ * hexadecimal numbers and message digests (any algorithm supported by
+ * {@code MessageDigest}) as lowercase hexadecimal strings, the same as the
+ * checksum tasks have always written them.
+ */
+public class ChecksumEngine {
+
+  /** The name of the CRC32 checksum algorithm */
+  public static final String CRC32 = "CRC32";
+
+  /** The name of the Adler32 checksum algorithm */
+  public static final String ADLER32 = "Adler32";
+
+  /** Files at least this large are memory-mapped */
+  private static final long MAP_THRESHOLD = 8L * 1024 * 1024;
+
+  /** The most of a file mapped at one time */
+  private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+  /** The size of the blocks fed to each algorithm in turn */
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  /** The number of files whose results are cached */
+  private static final int CACHE_SIZE = 256;
+
+  private static final Map<String, String> EXTENSIONS = new HashMap<String, String>();
+  private static final Pattern GNU_LINE = Pattern.compile("^([0-9a-fA-F]+) [ *](.+)$");
+  private static final Pattern BSD_LINE = Pattern.compile("^\\S+ \\((.+)\\) = ([0-9a-fA-F]+)$");
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  private static final Map<String, Cached> CACHE = Collections.synchronizedMap(new LinkedHashMap<String, Cached>(CACHE_SIZE, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+
+
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Cached> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  });
+
+  private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocateDirect(BLOCK_SIZE);
+    }
+  };
+
+  static {
+    EXTENSIONS.put(CRC32, ".crc32");
+    EXTENSIONS.put(ADLER32, ".adler32");
+    EXTENSIONS.put("MD5", ".md5");
+    EXTENSIONS.put("SHA-1", ".sha1");
+    EXTENSIONS.put("SHA-256", ".sha256");
+  }
+
+  private final int threads;
+
+
+
+
+  /**
+   * @param threads the number of files processed at once, one per processor
+   *        if less than 1
+   */
+  public ChecksumEngine(final int threads) {
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+
+
+
+  /**
+   * @return the names of the algorithms which have a conventional checksum
+   *         file extension
+   */
+  public static Collection<String> getKnownAlgorithms() {
+    return Collections.unmodifiableCollection(EXTENSIONS.keySet());
+  }
+
+
+
+
+  /**
+   * @param algorithm the name of the algorithm
+   *
+   * @return the extension of the checksum file holding the result of the
+   *         given algorithm, e.g. ".sha256" for "SHA-256"
+   */
+  public static String getExtension(final String algorithm) {
+    final String retval = EXTENSIONS.get(algorithm);
+    return (retval != null) ? retval : "." + algorithm.replace("-", "").toLowerCase();
+  }
+
+
+
+
+  /**
+   * Calculate the result of one algorithm for a file.
+   *
+   * @param file the file to read
+   * @param algorithm the name of the algorithm
+   *
+   * @return the checksum or digest of the file
+   *
+   * @throws IOException if the file could not be read or the algorithm is
+   *         not supported
+   */
+  public String digest(final File file, final String algorithm) throws IOException {
+    return digest(file, Collections.singletonList(algorithm)).get(algorithm);
+  }
+
+
+
+
+  /**
+   * Calculate the results of several algorithms for a file, reading the file
+   * at most once.
+   *
+   * @param file the file to read
+   * @param algorithms the names of the algorithms
+   *
+   * @return the checksum or digest of the file for each algorithm
+   *
+   * @throws IOException if the file could not be read or an algorithm is
+   *         not supported
+   */
+  public Map<String, String> digest(final File file, final Collection<String> algorithms) throws IOException {
+    final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    final String key = file.getCanonicalPath();
+    Cached cached = CACHE.get(key);
+    if (cached == null || !cached.matches(attributes)) {
+      cached = new Cached(attributes);
+      CACHE.put(key, cached);
+    }
+
+    final List<String> missing = new ArrayList<String>();
+    for (final String algorithm : algorithms) {
+      if (!cached.results.containsKey(algorithm) && !missing.contains(algorithm)) {
+        missing.add(algorithm);
+      }
+    }
+    if (!missing.isEmpty()) {
+      cached.results.putAll(calculate(file, missing));
+    }
+
+    final Map<String, String> retval = new LinkedHashMap<String, String>();
+    for (final String algorithm : algorithms) {
+      retval.put(algorithm, cached.results.get(algorithm));
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Calculate the result of one algorithm for a file along with the results
+   * of the other known algorithms which have a checksum file next to it.
+   *
+   * <p>The file is read once, and the other results are cached for the
+   * tasks which will check those checksum files.
+   *
+   * @param file the file to read
+   * @param algorithm the name of the algorithm
+   *
+   * @return the checksum or digest of the file
+   *
+   * @throws IOException if the file could not be read or the algorithm is
+   *         not supported
+   */
+  public String digestWithChecksumFiles(final File file, final String algorithm) throws IOException {
+    final List<String> algorithms = new ArrayList<String>();
+    algorithms.add(algorithm);
+    for (final Map.Entry<String, String> entry : EXTENSIONS.entrySet()) {
+      if (!entry.getKey().equals(algorithm) && new File(file.getPath() + entry.getValue()).exists()) {
+        algorithms.add(entry.getKey());
+      }
+    }
+    return digest(file, algorithms).get(algorithm);
+  }
+
+
+
+
+  /**
+   * Calculate the results of several algorithms for many files, processing
+   * the files concurrently.
+   *
+   * @param files the files to read
+   * @param algorithms the names of the algorithms
+   *
+   * @return the results for each file, in the order of the files
+   *
+   * @throws IOException if any file could not be read or an algorithm is not
+   *         supported
+   */
+  public Map<File, Map<String, String>> digestAll(final Collection<File> files, final Collection<String> algorithms) throws IOException {
+    final Map<File, Future<Map<String, String>>> futures = new LinkedHashMap<File, Future<Map<String, String>>>();
+    final ExecutorService executor = createExecutor();
+    try {
+      for (final File file : files) {
+        futures.put(file, executor.submit(new Callable<Map<String, String>>() {
+          @Override
+          public Map<String, String> call() throws IOException {
+            return digest(file, algorithms);
+          }
+        }));
+      }
+
+      final Map<File, Map<String, String>> retval = new LinkedHashMap<File, Map<String, String>>();
+      for (final Map.Entry<File, Future<Map<String, String>>> entry : futures.entrySet()) {
+        try {
+          retval.put(entry.getKey(), entry.getValue().get());
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted calculating checksums");
+        } catch (final ExecutionException e) {
+          throw new IOException(entry.getKey().getAbsolutePath() + ": " + e.getCause().getMessage(), e.getCause());
+        }
+      }
+      return retval;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+
+
+
+  /**
+   * Check the files listed in a manifest against the digests recorded in it.
+   *
+   * <p>The manifest may be in the format written by the {@code md5sum} and
+   * {@code sha256sum} commands ({@code digest  path}) or in their BSD format
+   * ({@code SHA256 (path) = digest}). Blank lines and lines starting with
+   * {@code #} are ignored. Relative paths are resolved against the given
+   * base directory.
+   *
+   * @param manifest the file listing the digests
+   * @param baseDir the directory containing the files, the directory of the
+   *        manifest if null
+   * @param algorithm the algorithm used to create the manifest
+   *
+   * @return the results of the verification
+   *
+   * @throws IOException if the manifest could not be read or is malformed,
+   *         or the algorithm is not supported
+   */
+  public Verification verify(final File manifest, final File baseDir, final String algorithm) throws IOException {
+    final File directory = (baseDir != null) ? baseDir : manifest.getAbsoluteFile().getParentFile();
+    final Map<File, String> expected = new LinkedHashMap<File, String>();
+    final Verification retval = new Verification();
+
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        line = line.trim();
+        if (line.length() == 0 || line.startsWith("#")) {
+          continue;
+        }
+        String path;
+        String digest;
+        Matcher matcher = GNU_LINE.matcher(line);
+        if (matcher.matches()) {
+          digest = matcher.group(1);
+          path = matcher.group(2);
+        } else {
+          matcher = BSD_LINE.matcher(line);
+          if (matcher.matches()) {
+            path = matcher.group(1);
+            digest = matcher.group(2);
+          } else {
+            throw new IOException("Malformed line " + lineNumber + " in manifest " + manifest.getAbsolutePath());
+          }
+        }
+
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+          file = new File(directory, path);
+        }
+        if (file.isFile()) {
+          expected.put(file, digest);
+        } else {
+          retval.missing.add(path);
+        }
+      }
+    }
+
+    final Map<File, Map<String, String>> results = digestAll(expected.keySet(), Collections.singletonList(algorithm));
+    for (final Map.Entry<File, String> entry : expected.entrySet()) {
+      final String actual = results.get(entry.getKey()).get(algorithm);
+      if (actual.equalsIgnoreCase(entry.getValue())) {
+        retval.verified.put(entry.getKey(), actual);
+      } else {
+        retval.failed.add(entry.getKey().getPath());
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Read the file once, feeding each block to all the algorithms.
+   */
+  private static Map<String, String> calculate(final File file, final List<String> algorithms) throws IOException {
+    final List<Accumulator> accumulators = new ArrayList<Accumulator>();
+    for (final String algorithm : algorithms) {
+      accumulators.add(createAccumulator(algorithm));
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size >= MAP_THRESHOLD) {
+        for (long position = 0; position < size; position += MAP_WINDOW) {
+          final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+          for (int offset = 0; offset < window.limit(); offset += BLOCK_SIZE) {
+            window.limit(Math.min(window.capacity(), offset + BLOCK_SIZE));
+            update(accumulators, window, offset);
+            window.limit(window.capacity());
+          }
+        }
+      } else {
+        final ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+          if (!buffer.hasRemaining()) {
+            buffer.flip();
+            update(accumulators, buffer, 0);
+            buffer.clear();
+          }
+        }
+        buffer.flip();
+        update(accumulators, buffer, 0);
+      }
+    }
+
+    final Map<String, String> retval = new HashMap<String, String>();
+    for (int x = 0; x < algorithms.size(); x++) {
+      retval.put(algorithms.get(x), accumulators.get(x).getValue());
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Feed the data between the offset and the limit of the buffer to each
+   * algorithm.
+   */
+  private static void update(final List<Accumulator> accumulators, final ByteBuffer buffer, final int offset) {
+    for (final Accumulator accumulator : accumulators) {
+      buffer.position(offset);
+      accumulator.update(buffer);
+    }
+  }
+
+
+
+
+  private static Accumulator createAccumulator(final String algorithm) throws IOException {
+    if (CRC32.equalsIgnoreCase(algorithm)) {
+      final CRC32 crc = new CRC32();
+      return new Accumulator() {
+        @Override
+        public void update(final ByteBuffer buffer) {
+          crc.update(buffer);
+        }
+
+
+
+
+        @Override
+        public String getValue() {
+          return Long.toHexString(crc.getValue());
+        }
+      };
+    } else if (ADLER32.equalsIgnoreCase(algorithm)) {
+      final Adler32 adler = new Adler32();
+      return new Accumulator() {
+        @Override
+        public void update(final ByteBuffer buffer) {
+          adler.update(buffer);
+        }
+
+
+
+
+        @Override
+        public String getValue() {
+          return Long.toHexString(adler.getValue());
+        }
+      };
+    } else {
+      final MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance(algorithm);
+      } catch (final NoSuchAlgorithmException e) {
+        throw new IOException("Unsupported checksum algorithm: " + algorithm, e);
+      }
+      return new Accumulator() {
+        @Override
+        public void update(final ByteBuffer buffer) {
+          digest.update(buffer);
+        }
+
+
+
+
+        @Override
+        public String getValue() {
+          return ByteUtil.bytesToHex(digest.digest(), "").toLowerCase();
+        }
+      };
+    }
+  }
+
+
+
+
+  private ExecutorService createExecutor() {
+    final String prefix = "Checksum-" + POOL_COUNT.incrementAndGet() + "-";
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+
+
+
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final Thread retval = new Thread(runnable, prefix + threadCount.incrementAndGet());
+        retval.setDaemon(true);
+        return retval;
+      }
+    });
+  }
+
+
+
+
+  /**
+   * A checksum or message digest being calculated.
+   */
+  private interface Accumulator {
+
+    void update(ByteBuffer buffer);
+
+
+
+
+    String getValue();
+  }
+
+
+
+
+  /**
+   * The results calculated for a file while it had the given attributes.
+   */
+  private static class Cached {
+    final long size;
+    final FileTime modified;
+    final Object fileKey;
+    final Map<String, String> results = new ConcurrentHashMap<String, String>();
+
+
+
+
+    Cached(final BasicFileAttributes attributes) {
+      size = attributes.size();
+      modified = attributes.lastModifiedTime();
+      fileKey = attributes.fileKey();
+    }
+
+
+
+
+    boolean matches(final BasicFileAttributes attributes) {
+      return size == attributes.size() && modified.equals(attributes.lastModifiedTime()) && (fileKey == null ? attributes.fileKey() == null : fileKey.equals(attributes.fileKey()));
+    }
+  }
+
+
+
+
+  /**
+   * The results of checking files against a manifest.
+   */
+  public static class Verification {
+    private final Map<File, String> verified = new LinkedHashMap<File, String>();
+    private final List<String> failed = new ArrayList<String>();
+    private final List<String> missing = new ArrayList<String>();
+
+
+
+
+    /**
+     * @return the files whose digests matched the manifest, with their
+     *         digests
+     */
+    public Map<File, String> getVerified() {
+      return verified;
+    }
+
+
+
+
+    /**
+     * @return the paths of the files whose digests did not match the
+     *         manifest
+     */
+    public List<String> getFailed() {
+      return failed;
+    }
+
+
+
+
+    /**
+     * @return the paths in the manifest which do not exist
+     */
+    public List<String> getMissing() {
+      return missing;
+    }
+
+
+
+
+    /**
+     * @return true if every file in the manifest exists and matches its
+     *         digest
+     */
+    public boolean isSuccessful() {
+      return failed.isEmpty() && missing.isEmpty();
+    }
+  }
+
+}
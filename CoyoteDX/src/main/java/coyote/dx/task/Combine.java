@@ -8,14 +8,22 @@
 package coyote.dx.task;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.Writer;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import coyote.commons.FileUtil;
 import coyote.commons.StringUtil;
@@ -35,15 +43,38 @@ import coyote.loader.log.LogMsg;
  * <p>The order of combination is determined by filename including the path.</p>
  * 
  * "Combine" : { "directory": "\datadir", "pattern": "([^\\s]+(\\.(?i)(csv))$)", "target": "big.csv", "append": true, "recurse": false }
- *  
+ * 
+ * <p>The files are copied to the target channel to channel so the data is 
+ * never decoded and memory use does not depend on the size of the files. A 
+ * line feed is added after any file which does not end with one.</p>
+ * 
+ * <p>If {@code header} is true, the files are expected to start with the 
+ * same header line (as CSV parts usually do) and the first line of each file 
+ * after the first is not copied if it is the same as the first line of the 
+ * first file.</p>
+ * 
+ * <p>Before copying, each file is checked for its size, header and line 
+ * ending. Setting {@code threads} to a value greater than 1 checks that many 
+ * files at once, which helps when combining many files on network or 
+ * parallel storage.</p>
  */
 public class Combine extends AbstractFileTask implements TransformTask {
 
   protected static final String STDOUT = "STDOUT";
   protected static final String STDERR = "STDERR";
-  protected PrintWriter printwriter = null;
+  protected WritableByteChannel output = null;
   protected boolean append = true;
 
+  private static final byte LINE_FEED = '\n';
+  private static final byte CARRIAGE_RETURN = '\r';
+
+  /** The longest header line which will be compared */
+  private static final int MAX_HEADER = 64 * 1024;
+
+  File targetFile = null;
+  boolean header = false;
+  int threads = 1;
+
   File directory = null;
   String pattern = null;
   boolean recurse = false;
@@ -100,8 +131,13 @@ public class Combine extends AbstractFileTask implements TransformTask {
     }
     Log.debug("Append flag is set to " + append);
 
-    // if we don't already have a printwriter, set one up based on the configuration
-    if (printwriter == null) {
+    header = getBoolean(ConfigTag.HEADER);
+    if (configuration.containsIgnoreCase(ConfigTag.THREADS)) {
+      threads = Math.max(1, getInteger(ConfigTag.THREADS));
+    }
+
+    // if we don't already have an output channel, set one up based on the configuration
+    if (output == null) {
       // check for a target in our configuration
       String target = getString(ConfigTag.TARGET);
       Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.using_target", this.getClass().getSimpleName(), target));
@@ -112,13 +148,13 @@ public class Combine extends AbstractFileTask implements TransformTask {
         // Try to parse the target as a URI, failures result in a null
         final URI uri = UriUtil.parse(target);
 
-        File targetFile = null;
+        targetFile = null;
 
         // Check to see if it is STDOUT or STDERR
         if (StringUtil.equalsIgnoreCase(STDOUT, target)) {
-          printwriter = new PrintWriter(System.out);
+          output = Channels.newChannel(System.out);
         } else if (StringUtil.equalsIgnoreCase(STDERR, target)) {
-          printwriter = new PrintWriter(System.err);
+          output = Channels.newChannel(System.err);
         } else if (uri != null) {
           if (UriUtil.isFile(uri)) {
             targetFile = UriUtil.getFile(uri);
@@ -145,9 +181,11 @@ public class Combine extends AbstractFileTask implements TransformTask {
           Log.debug("Using a target file of " + targetFile.getAbsolutePath());
 
           try {
-            final Writer fwriter = new FileWriter(targetFile, append);
-            printwriter = new PrintWriter(fwriter);
-
+            if (append) {
+              output = FileChannel.open(targetFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } else {
+              output = FileChannel.open(targetFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
           } catch (final Exception e) {
             Log.error("Could not create writer: " + e.getMessage());
             context.setError(e.getMessage());
@@ -173,33 +211,112 @@ public class Combine extends AbstractFileTask implements TransformTask {
     // get the list of files
     List<File> flist = FileUtil.getFiles(directory, pattern, recurse);
 
-    // place the filenames in a list
+    // place the filenames in a list, skipping the target if it is in the directory
     List<String> files = new ArrayList<String>(50);
     for (File file : flist) {
-      files.add(file.getAbsolutePath());
+      if (targetFile == null || !file.getAbsoluteFile().equals(targetFile.getAbsoluteFile())) {
+        files.add(file.getAbsolutePath());
+      }
     }
 
     // sort the list of files by complete file name
     Collections.sort(files);
 
-    // for each of the files...
-    for (String fname : files) {
-      // read it completely
-      String contents = FileUtil.fileToString(fname);
-
-      // write its contents to the target
-      printwriter.write(contents);
+    List<Part> parts = scan(files);
 
-      // make sure there is at least a line feed at the end of the contents
-      if (!contents.endsWith("\n")) {
-        printwriter.write(StringUtil.LINE_FEED);
+    long bytes = 0;
+    byte[] firstHeader = null;
+    for (Part part : parts) {
+      boolean skipHeader = false;
+      if (header && part.header != null) {
+        if (firstHeader == null) {
+          firstHeader = part.header;
+        } else {
+          skipHeader = Arrays.equals(firstHeader, part.header);
+        }
       }
+      bytes += copy(part, skipHeader);
+    }
+    Log.debug("Combined " + parts.size() + " files (" + bytes + " bytes)");
+  }
+
 
-      // flush the buffer
-      printwriter.flush();
 
+
+  /**
+   * Check the size, header and line ending of each file, on several threads 
+   * if so configured.
+   */
+  private List<Part> scan(List<String> files) throws TaskException {
+    List<Part> retval = new ArrayList<Part>(files.size());
+    for (String fname : files) {
+      retval.add(new Part(new File(fname)));
+    }
+
+    if (threads > 1 && retval.size() > 1) {
+      ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, retval.size()));
+      try {
+        List<Future<Part>> results = new ArrayList<Future<Part>>(retval.size());
+        for (Part part : retval) {
+          results.add(pool.submit(part));
+        }
+        for (Future<Part> result : results) {
+          result.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TaskException("Interrupted scanning files", e);
+      } catch (ExecutionException e) {
+        throw new TaskException("Could not scan file: " + e.getCause().getMessage(), e.getCause());
+      } finally {
+        pool.shutdownNow();
+      }
+    } else {
+      for (Part part : retval) {
+        try {
+          part.call();
+        } catch (IOException e) {
+          throw new TaskException("Could not scan " + part.file.getAbsolutePath() + ": " + e.getMessage(), e);
+        }
+      }
     }
+    return retval;
+  }
 
+
+
+
+  /**
+   * Copy the file to the output channel.
+   * 
+   * @return the number of bytes copied
+   */
+  private long copy(Part part, boolean skipHeader) throws TaskException {
+    long retval = 0;
+    try (FileChannel in = FileChannel.open(part.file.toPath(), StandardOpenOption.READ)) {
+      long position = skipHeader ? part.headerEnd : 0;
+      // copy only what was there when scanned in case the file is growing
+      while (position < part.size) {
+        long count = in.transferTo(position, part.size - position, output);
+        if (count <= 0) {
+          // the file was truncated after it was scanned
+          break;
+        }
+        position += count;
+        retval += count;
+      }
+
+      // make sure there is at least a line feed at the end of the contents
+      if (!part.endsWithLineFeed && !(skipHeader && part.headerEnd >= part.size)) {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { LINE_FEED });
+        while (buffer.hasRemaining()) {
+          retval += output.write(buffer);
+        }
+      }
+    } catch (IOException e) {
+      throw new TaskException("Could not combine " + part.file.getAbsolutePath() + ": " + e.getMessage(), e);
+    }
+    return retval;
   }
 
 
@@ -207,10 +324,95 @@ public class Combine extends AbstractFileTask implements TransformTask {
 
   @Override
   public void close() throws IOException {
-    if (printwriter != null) {
-      printwriter.flush();
-      printwriter.close();
+    if (output != null) {
+      try {
+        if (output instanceof FileChannel) {
+          output.close();
+        } else {
+          // do not close the console streams
+          System.out.flush();
+          System.err.flush();
+        }
+      } finally {
+        output = null;
+      }
     }
   }
 
+
+
+
+  //
+
+
+
+
+  /**
+   * A file to combine along with the results of checking it.
+   */
+  private class Part implements Callable<Part> {
+    final File file;
+    long size = 0;
+    boolean endsWithLineFeed = false;
+
+    /** The first line of the file without its line terminator, null if header checking is off */
+    byte[] header = null;
+
+    /** The position of the first byte after the first line */
+    long headerEnd = 0;
+
+
+
+
+    Part(File file) {
+      this.file = file;
+    }
+
+
+
+
+    @Override
+    public Part call() throws IOException {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        size = channel.size();
+        if (size > 0) {
+          ByteBuffer last = ByteBuffer.allocate(1);
+          channel.read(last, size - 1);
+          endsWithLineFeed = last.get(0) == LINE_FEED;
+        }
+        if (Combine.this.header && size > 0) {
+          readHeader(channel);
+        }
+      }
+      return this;
+    }
+
+
+
+
+    private void readHeader(FileChannel channel) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(size, MAX_HEADER));
+      while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+        // keep reading until the buffer is full or the end of the file
+      }
+      buffer.flip();
+      for (int x = 0; x < buffer.limit(); x++) {
+        if (buffer.get(x) == LINE_FEED) {
+          int length = (x > 0 && buffer.get(x - 1) == CARRIAGE_RETURN) ? x - 1 : x;
+          header = new byte[length];
+          buffer.get(header, 0, length);
+          headerEnd = x + 1;
+          return;
+        }
+      }
+      // no line terminator, the whole file is the header line
+      if (buffer.limit() == size) {
+        header = new byte[buffer.limit()];
+        buffer.get(header);
+        headerEnd = size;
+      }
+    }
+
+  }
+
 }
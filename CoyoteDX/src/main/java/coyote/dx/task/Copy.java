@@ -7,9 +7,9 @@
  */
 package coyote.dx.task;
 
+import java.io.File;
 import java.io.IOException;
 
-import coyote.commons.FileUtil;
 import coyote.commons.StringUtil;
 import coyote.dx.CDX;
 import coyote.dx.ConfigTag;
@@ -31,9 +31,12 @@ import coyote.loader.log.LogMsg;
  * keepDate = whether to preserve the file date
  * rename = use a generational name for files with the same name preserve=false,overwrite=false defaults to true
  * 
- * <p>All the business logic for copy operations s in the FileUtil class in 
- * Coyote Commons contributed by the Coyote Loader. No file logic is needed in 
- * this library, just argument checks.</p>
+ * threads = the number of threads copying directories, defaults to one per processor
+ * 
+ * <p>The copying is performed by {@link FileOperations} which copies files 
+ * channel to channel and directories on a pool of threads. The number of 
+ * files and bytes copied and the throughput are placed in the transform 
+ * context as {@code Copy.files}, {@code Copy.bytes} and so on.</p>
  */
 public class Copy extends AbstractFileTask {
 
@@ -68,6 +71,21 @@ public class Copy extends AbstractFileTask {
       rename = getBoolean(ConfigTag.RENAME);
     }
 
+    // the number of threads copying directories, defaults to one per processor
+    final FileOperations operations = new FileOperations(getInteger(ConfigTag.THREADS));
+    try {
+      copy(operations, source, fromDir, target, toDir, pattern, recurse, preserveHierarchy, keepDate, overwrite, rename);
+    } finally {
+      operations.publish(getContext(), getClass().getSimpleName());
+      Log.debug("Copied " + operations.getFiles() + " files (" + operations.getBytes() + " bytes) in " + operations.getElapsed() + "ms");
+    }
+  }
+
+
+
+
+  private void copy(FileOperations operations, String source, String fromDir, String target, String toDir, String pattern, boolean recurse, boolean preserveHierarchy, boolean keepDate, boolean overwrite, boolean rename) {
+
     if (StringUtil.isNotBlank(source)) {
       // file based copy
       final String src = resolveArgument(source);
@@ -78,7 +96,7 @@ public class Copy extends AbstractFileTask {
         Log.debug(LogMsg.createMsg(CDX.MSG, "Task.copy_file_to_file", src, tgt));
 
         try {
-          FileUtil.copyFile(src, tgt);
+          operations.copyFile(new File(src), new File(tgt), keepDate);
         } catch (final IOException e) {
           if (haltOnError) {
             getContext().setError(String.format("Copy operation '%s' to '%s' failed: %s", src, tgt, e.getMessage()));
@@ -92,7 +110,8 @@ public class Copy extends AbstractFileTask {
         Log.debug(LogMsg.createMsg(CDX.MSG, "Task.Copying file named {%s} to directory named {%s}", src, tgt));
 
         try {
-          FileUtil.copyFileToDir(src, tgt);
+          final File srcFile = new File(src);
+          operations.copyFile(srcFile, new File(tgt, srcFile.getName()), keepDate);
         } catch (final IOException e) {
           if (haltOnError) {
             getContext().setError(String.format("Copy operation '%s' to '%s' failed: %s", src, tgt, e.getMessage()));
@@ -115,7 +134,7 @@ public class Copy extends AbstractFileTask {
         Log.debug(LogMsg.createMsg(CDX.MSG, "Task.copying_directory", fromDir, toDir, pattern, recurse, preserveHierarchy, keepDate, overwrite, rename));
 
         try {
-          FileUtil.copyDirectory(fromDir, toDir, pattern, recurse, preserveHierarchy, keepDate, overwrite, rename);
+          operations.copyDirectory(new File(fromDir), new File(toDir), pattern, recurse, preserveHierarchy, keepDate, overwrite, rename);
         } catch (final IOException e) {
           if (haltOnError) {
             getContext().setError(String.format("Copy operation '%s' to '%s' failed: %s", fromDir, toDir, e.getMessage()));
@@ -0,0 +1,636 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import coyote.dx.context.TransformContext;
+import coyote.loader.log.Log;
+
+
+/**
+ * Copies, moves and backs up files and directory trees.
+ *
+ * <p>File data is copied from channel to channel with
+ * {@code FileChannel.transferTo} so the operating system can copy the data
+ * without bringing it into the JVM. Directory trees are walked and copied on
+ * a pool of threads; each directory is listed by its own task and its files
+ * are copied in batches, so trees of many small files keep all the threads
+ * busy. Moves within a file system are done as a single rename, falling back
+ * to a copy and delete when the source and target are on different file
+ * systems.
+ *
+ * <p>The number of files, bytes and errors are counted while the operations
+ * run and can be published to the transform context when they complete. An
+ * instance may be used for several operations; the counts accumulate until
+ * {@link #reset()} is called.
+ */
+public class FileOperations {
+
+  /** The number of files copied by each copy task */
+  private static final int BATCH_SIZE = 64;
+
+  /** The most bytes transferred in one call */
+  private static final long TRANSFER_SIZE = 64L * 1024 * 1024;
+
+  private final int threads;
+  private final AtomicLong files = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong elapsed = new AtomicLong();
+  private final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<String>();
+
+
+
+
+  /**
+   * @param threads the number of threads used for directory operations, one
+   *        per processor if less than 1
+   */
+  public FileOperations(final int threads) {
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+
+
+
+  /**
+   * Copy a file.
+   *
+   * @param source the file to copy
+   * @param target the file to create or replace
+   * @param keepDate true to give the target the modification time of the
+   *        source
+   *
+   * @throws IOException if the file could not be copied
+   */
+  public void copyFile(final File source, final File target, final boolean keepDate) throws IOException {
+    final long start = System.nanoTime();
+    try {
+      transfer(source.toPath(), target.toPath(), keepDate);
+    } finally {
+      elapsed.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+
+
+
+  /**
+   * Copy the files in a directory to another directory.
+   *
+   * <p>All the files are attempted even if some fail; the failures are
+   * reported together when the copy is complete.
+   *
+   * @param fromDir the directory to copy
+   * @param toDir the directory to which the files are copied, created if
+   *        necessary
+   * @param pattern regular expression the names of the files to copy must
+   *        match, null copies all files
+   * @param recurse true to copy the files in the sub-directories
+   * @param preserve true to copy the files into the same sub-directories in
+   *        the target, false to copy all files directly into the target
+   * @param keepDate true to give each target the modification time of its
+   *        source
+   * @param overwrite true to replace files which already exist
+   * @param rename true to copy a file to a generational name (e.g.
+   *        {@code name.1}) rather than skip it when the target exists and
+   *        is not to be overwritten
+   *
+   * @throws IOException if the source is not a directory or any file could
+   *         not be copied
+   */
+  public void copyDirectory(final File fromDir, final File toDir, final String pattern, final boolean recurse, final boolean preserve, final boolean keepDate, final boolean overwrite, final boolean rename) throws IOException {
+    if (!fromDir.isDirectory()) {
+      throw new IOException("Source is not a directory: " + fromDir.getAbsolutePath());
+    }
+    final long start = System.nanoTime();
+    final int failures = errors.size();
+    final Pattern filter = (pattern != null && pattern.trim().length() > 0) ? Pattern.compile(pattern) : null;
+    final Options options = new Options(filter, recurse, preserve, keepDate, overwrite, rename);
+    final ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      Files.createDirectories(toDir.toPath());
+      pool.invoke(new DirectoryTask(fromDir.toPath(), toDir.toPath(), options));
+    } finally {
+      pool.shutdown();
+      elapsed.addAndGet(System.nanoTime() - start);
+    }
+    if (errors.size() > failures) {
+      // other operations of this instance may have recorded errors before this one
+      String first = null;
+      int index = 0;
+      for (final String error : errors) {
+        if (index++ == failures) {
+          first = error;
+          break;
+        }
+      }
+      throw new IOException((errors.size() - failures) + " files could not be copied, first: " + first);
+    }
+  }
+
+
+
+
+  /**
+   * Move a file or directory.
+   *
+   * <p>The move is a single rename when the source and target are on the
+   * same file system. Otherwise the source is copied and then deleted; a
+   * file is copied next to the target first and renamed over it, so an
+   * existing target is only replaced once the copy is complete.
+   *
+   * @param source the file or directory to move
+   * @param target the new location, which must not exist unless overwrite
+   *        is true
+   * @param overwrite true to replace an existing target file
+   *
+   * @throws IOException if the source could not be moved
+   */
+  public void move(final File source, final File target, final boolean overwrite) throws IOException {
+    final long start = System.nanoTime();
+    try {
+      final Path from = source.toPath();
+      final Path to = target.toPath();
+      if (to.getParent() != null) {
+        Files.createDirectories(to.getParent());
+      }
+      if (Files.exists(to) && !(overwrite && Files.isRegularFile(to))) {
+        throw new FileAlreadyExistsException(to.toString());
+      }
+      try {
+        // the target is replaced by the rename so it is never missing
+        Files.move(from, to, moveOptions(overwrite));
+        files.incrementAndGet();
+        if (Files.isRegularFile(to)) {
+          bytes.addAndGet(Files.size(to));
+        }
+        return;
+      } catch (final AtomicMoveNotSupportedException e) {
+        Log.debug("Cannot rename " + from + " to " + to + ", copying instead");
+      }
+    } finally {
+      elapsed.addAndGet(System.nanoTime() - start);
+    }
+
+    // different file systems
+    if (source.isDirectory()) {
+      copyDirectory(source, target, null, true, true, true, false, false);
+      delete(source.toPath());
+    } else {
+      final long begin = System.nanoTime();
+      try {
+        replace(source.toPath(), target.toPath(), overwrite);
+      } finally {
+        elapsed.addAndGet(System.nanoTime() - begin);
+      }
+      Files.delete(source.toPath());
+    }
+  }
+
+
+
+
+  /**
+   * Copy a file to a temporary file next to the target and rename it to the
+   * target, so a failed copy leaves any existing target as it was.
+   */
+  private void replace(final Path source, final Path target, final boolean overwrite) throws IOException {
+    final Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+    try {
+      transfer(source, temp, true);
+      try {
+        Files.move(temp, target, moveOptions(overwrite));
+      } catch (final AtomicMoveNotSupportedException e) {
+        if (overwrite) {
+          Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+          Files.move(temp, target);
+        }
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+
+
+
+  private static CopyOption[] moveOptions(final boolean overwrite) {
+    if (overwrite) {
+      return new CopyOption[]{StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING};
+    }
+    return new CopyOption[]{StandardCopyOption.ATOMIC_MOVE};
+  }
+
+
+
+
+  /**
+   * Create a generational backup of a file.
+   *
+   * <p>Each existing backup is renamed to the next generation
+   * ({@code file.1} to {@code file.2} and so on) and the file is copied to
+   * {@code file.1}.
+   *
+   * @param file the file to back up
+   * @param limit the number of generations to keep, 0 for no limit
+   *
+   * @throws IOException if the backup could not be created
+   */
+  public void backup(final File file, final int limit) throws IOException {
+    if (!file.isFile()) {
+      throw new IOException("Not a file: " + file.getAbsolutePath());
+    }
+    final long start = System.nanoTime();
+    try {
+      final String base = file.getAbsolutePath() + ".";
+      int last = 1;
+      while (new File(base + last).exists()) {
+        last++;
+      }
+      // remove the generations beyond the limit
+      if (limit > 0) {
+        for (int x = last - 1; x >= limit; x--) {
+          Files.delete(new File(base + x).toPath());
+        }
+        last = Math.min(last, limit);
+      }
+      for (int x = last - 1; x > 0; x--) {
+        Files.move(new File(base + x).toPath(), new File(base + (x + 1)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      transfer(file.toPath(), new File(base + 1).toPath(), true);
+    } finally {
+      elapsed.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+
+
+
+  /**
+   * Copy the data of one file to another from channel to channel.
+   */
+  private void transfer(final Path source, final Path target, final boolean keepDate) throws IOException {
+    if (target.getParent() != null) {
+      Files.createDirectories(target.getParent());
+    }
+    long count = 0;
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ); FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final long size = in.size();
+      while (count < size) {
+        final long sent = in.transferTo(count, Math.min(TRANSFER_SIZE, size - count), out);
+        if (sent <= 0) {
+          break; // the source was truncated
+        }
+        count += sent;
+      }
+    }
+    if (keepDate) {
+      Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+    }
+    files.incrementAndGet();
+    bytes.addAndGet(count);
+  }
+
+
+
+
+  private static void delete(final Path path) throws IOException {
+    if (Files.isDirectory(path)) {
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+        for (final Path entry : entries) {
+          delete(entry);
+        }
+      }
+    }
+    Files.delete(path);
+  }
+
+
+
+
+  /**
+   * Copy one file of a directory operation, handling an existing target as
+   * configured.
+   */
+  private void copyEntry(final Path source, final Path target, final Options options) {
+    Path reserved = null;
+    try {
+      Path destination = target;
+      if (!options.overwrite) {
+        // reserve the name so files copied on other threads cannot take it
+        Files.createDirectories(target.getParent());
+        try {
+          reserved = Files.createFile(target);
+        } catch (final FileAlreadyExistsException e) {
+          if (options.rename) {
+            destination = nextName(target);
+            reserved = destination;
+          } else {
+            skipped.incrementAndGet();
+            return;
+          }
+        }
+      }
+      if (options.overwrite) {
+        // files of different directories may be flattened onto one target
+        final Object lock = options.lock(destination);
+        synchronized (lock) {
+          transfer(source, destination, options.keepDate);
+        }
+      } else {
+        transfer(source, destination, options.keepDate);
+      }
+    } catch (final IOException e) {
+      final String msg = source + ": " + e.toString();
+      Log.debug("Copy failed: " + msg);
+      errors.add(msg);
+
+      // do not leave an empty or partial file behind under the reserved name
+      if (reserved != null) {
+        try {
+          Files.deleteIfExists(reserved);
+        } catch (final IOException ex) {
+          Log.debug("Could not remove " + reserved + ": " + ex.getMessage());
+        }
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Reserve the first unused name formed by adding a number to the path by 
+   * creating an empty file with that name.
+   * 
+   * @return the path of the reserved file
+   */
+  private static Path nextName(final Path path) throws IOException {
+    int generation = 1;
+    while (true) {
+      final Path retval = path.resolveSibling(path.getFileName() + "." + generation++);
+      try {
+        return Files.createFile(retval);
+      } catch (final FileAlreadyExistsException e) {
+        // try the next generation
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Publish the counts of the operations to the transform context.
+   *
+   * <p>The values are placed in the context using the given prefix, e.g.
+   * {@code Copy.files}, {@code Copy.bytes}, {@code Copy.skipped},
+   * {@code Copy.errors}, {@code Copy.elapsed} (milliseconds) and
+   * {@code Copy.throughput} (bytes per second).
+   *
+   * @param context the context to update, ignored if null
+   * @param prefix the prefix of the names of the values
+   */
+  public void publish(final TransformContext context, final String prefix) {
+    if (context != null) {
+      context.set(prefix + ".files", getFiles());
+      context.set(prefix + ".bytes", getBytes());
+      context.set(prefix + ".skipped", getSkipped());
+      context.set(prefix + ".errors", getErrors().size());
+      context.set(prefix + ".elapsed", getElapsed());
+      context.set(prefix + ".throughput", getThroughput());
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of files copied or moved
+   */
+  public long getFiles() {
+    return files.get();
+  }
+
+
+
+
+  /**
+   * @return the number of bytes copied or moved
+   */
+  public long getBytes() {
+    return bytes.get();
+  }
+
+
+
+
+  /**
+   * @return the number of files not copied because the target existed
+   */
+  public long getSkipped() {
+    return skipped.get();
+  }
+
+
+
+
+  /**
+   * @return the files which could not be copied and why
+   */
+  public List<String> getErrors() {
+    return new ArrayList<String>(errors);
+  }
+
+
+
+
+  /**
+   * @return the time spent in the operations in milliseconds
+   */
+  public long getElapsed() {
+    return elapsed.get() / 1000000;
+  }
+
+
+
+
+  /**
+   * @return the average number of bytes copied per second
+   */
+  public long getThroughput() {
+    final long nanos = elapsed.get();
+    return nanos > 0 ? (long)(bytes.get() * 1000000000D / nanos) : 0;
+  }
+
+
+
+
+  /**
+   * Clear the counts.
+   */
+  public void reset() {
+    files.set(0);
+    bytes.set(0);
+    skipped.set(0);
+    elapsed.set(0);
+    errors.clear();
+  }
+
+
+
+
+  /**
+   * The settings of a directory operation.
+   */
+  private static final class Options {
+    final Pattern pattern;
+    final boolean recurse;
+    final boolean preserve;
+    final boolean keepDate;
+    final boolean overwrite;
+    final boolean rename;
+
+    /** Locks of the targets being overwritten */
+    private final ConcurrentHashMap<Path, Object> targets = new ConcurrentHashMap<Path, Object>();
+
+
+
+
+    Options(final Pattern pattern, final boolean recurse, final boolean preserve, final boolean keepDate, final boolean overwrite, final boolean rename) {
+      this.pattern = pattern;
+      this.recurse = recurse;
+      this.preserve = preserve;
+      this.keepDate = keepDate;
+      this.overwrite = overwrite;
+      this.rename = rename;
+    }
+
+
+
+
+    /**
+     * @return the object to hold while writing the given target
+     */
+    Object lock(final Path target) {
+      final Object retval = new Object();
+      final Object existing = targets.putIfAbsent(target, retval);
+      return (existing != null) ? existing : retval;
+    }
+
+  }
+
+
+
+
+  /**
+   * Lists a directory, forking a task for each sub-directory and for each
+   * batch of files.
+   */
+  private final class DirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final Path source;
+    private final Path target;
+    private final Options options;
+
+
+
+
+    DirectoryTask(final Path source, final Path target, final Options options) {
+      this.source = source;
+      this.target = target;
+      this.options = options;
+    }
+
+
+
+
+    @Override
+    protected void compute() {
+      final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+      List<Path> batch = new ArrayList<Path>(BATCH_SIZE);
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(source)) {
+        for (final Path entry : entries) {
+          if (Files.isDirectory(entry)) {
+            if (options.recurse) {
+              tasks.add(new DirectoryTask(entry, options.preserve ? target.resolve(entry.getFileName().toString()) : target, options));
+            }
+          } else if (options.pattern == null || options.pattern.matcher(entry.getFileName().toString()).matches()) {
+            batch.add(entry);
+            if (batch.size() == BATCH_SIZE) {
+              tasks.add(new BatchTask(batch, target, options));
+              batch = new ArrayList<Path>(BATCH_SIZE);
+            }
+          }
+        }
+      } catch (final IOException e) {
+        errors.add(source + ": " + e.toString());
+      }
+      if (batch.size() > 0) {
+        tasks.add(new BatchTask(batch, target, options));
+      }
+      invokeAll(tasks);
+    }
+
+  }
+
+
+
+
+  /**
+   * Copies a batch of files from one directory.
+   */
+  private final class BatchTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final List<Path> sources;
+    private final Path target;
+    private final Options options;
+
+
+
+
+    BatchTask(final List<Path> sources, final Path target, final Options options) {
+      this.sources = sources;
+      this.target = target;
+      this.options = options;
+    }
+
+
+
+
+    @Override
+    protected void compute() {
+      for (final Path source : sources) {
+        copyEntry(source, target.resolve(source.getFileName().toString()), options);
+      }
+    }
+
+  }
+
+}
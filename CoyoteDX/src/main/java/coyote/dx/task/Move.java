@@ -7,7 +7,13 @@
  */
 package coyote.dx.task;
 
+import java.io.File;
+import java.io.IOException;
+
+import coyote.commons.StringUtil;
+import coyote.dx.ConfigTag;
 import coyote.dx.TaskException;
+import coyote.loader.log.Log;
 
 
 /**
@@ -15,6 +21,16 @@ import coyote.dx.TaskException;
  * 
  * <p>When the operation is complete, the source file will not exist unless the 
  * target could not be created.</p>
+ * 
+ * source = source file or directory (or fromdir)
+ * target = target file or directory
+ * todir = directory into which the source is moved keeping its name
+ * overwrite = replace an existing target file, defaults to false
+ * threads = the number of threads copying directories between file systems
+ * 
+ * <p>Moves within a file system are a single atomic rename. Moves between 
+ * file systems copy the source and then delete it. See 
+ * {@link FileOperations}.</p>
  */
 public class Move extends AbstractFileTask {
 
@@ -23,8 +39,39 @@ public class Move extends AbstractFileTask {
   */
   @Override
   protected void performTask() throws TaskException {
-    // TODO Auto-generated method stub
+    String source = getSourceOrFile();
+    if (StringUtil.isBlank(source)) {
+      source = getString(ConfigTag.FROMDIR);
+    }
+    final String target = getString(ConfigTag.TARGET);
+    final String toDir = getString(ConfigTag.TODIR);
+
+    if (StringUtil.isBlank(source)) {
+      throw new TaskException("Move operation failed: no source argument");
+    }
+    final File sourceFile = getAbsoluteFile(resolveArgument(source));
+    if (!sourceFile.exists()) {
+      throw new TaskException("Source does not exist: " + sourceFile.getAbsolutePath());
+    }
+
+    final File targetFile;
+    if (StringUtil.isNotBlank(target)) {
+      targetFile = getAbsoluteFile(resolveArgument(target));
+    } else if (StringUtil.isNotBlank(toDir)) {
+      targetFile = new File(getAbsoluteFile(resolveArgument(toDir)), sourceFile.getName());
+    } else {
+      throw new TaskException("Move operation failed: no target argument");
+    }
 
+    final FileOperations operations = new FileOperations(getInteger(ConfigTag.THREADS));
+    try {
+      Log.debug("Moving " + sourceFile.getAbsolutePath() + " to " + targetFile.getAbsolutePath());
+      operations.move(sourceFile, targetFile, getBoolean(ConfigTag.OVERWRITE));
+    } catch (final IOException e) {
+      throw new TaskException(String.format("Move operation '%s' to '%s' failed: %s", sourceFile, targetFile, e.getMessage()), e);
+    } finally {
+      operations.publish(getContext(), getClass().getSimpleName());
+    }
   }
 
 }
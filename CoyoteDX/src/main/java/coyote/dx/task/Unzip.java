@@ -11,7 +11,7 @@ import java.io.File;
 import java.io.IOException;
 
 import coyote.commons.StringUtil;
-import coyote.commons.ZipUtil;
+import coyote.commons.zip.ParallelZipExtractor;
 import coyote.dx.CDX;
 import coyote.dx.ConfigTag;
 import coyote.dx.TaskException;
@@ -21,6 +21,10 @@ import coyote.loader.log.LogMsg;
 
 /**
  * Unzip the given file.
+ * 
+ * <p>Entries are extracted on several threads ({@code threads}, one per 
+ * processor by default), each streaming its entry to disk through a fixed 
+ * size buffer.</p>
  */
 public class Unzip extends AbstractFileTask {
 
@@ -39,7 +43,8 @@ public class Unzip extends AbstractFileTask {
         if (file.canRead()) {
           if (file.length() > 0) {
             try {
-              ZipUtil.unzip(file, getDirectory());
+              final int count = new ParallelZipExtractor(getInteger(ConfigTag.THREADS)).extract(file, getDirectory());
+              Log.debug(getClass().getSimpleName() + " extracted " + count + " files from " + file.getName());
             } catch (IOException e) {
               throw new TaskException("Could not unzip file: " + e.getMessage(), e);
             }
@@ -11,6 +11,7 @@ import java.math.BigDecimal;
 
 import coyote.commons.StringUtil;
 import coyote.dataframe.DataField;
+import coyote.dx.FrameBatch;
 import coyote.dx.TransformException;
 
 
@@ -93,6 +94,29 @@ public abstract class AbstractMathTransform extends AbstractFieldTransform {
 
 
 
+  /**
+   * Retrieve the values of a numeric column as doubles, widening integral 
+   * values.
+   * 
+   * @param column a {@link FrameBatch#LONG} or {@link FrameBatch#DOUBLE} column
+   * 
+   * @return the values of the column as doubles
+   */
+  protected double[] asDoubles(FrameBatch.Column column) {
+    if (column.getType() == FrameBatch.DOUBLE) {
+      return column.getDoubles();
+    }
+    long[] values = column.getLongs();
+    double[] retval = new double[values.length];
+    for (int x = 0; x < values.length; x++) {
+      retval[x] = values[x];
+    }
+    return retval;
+  }
+
+
+
+
   protected double getDouble(String token) throws TransformException {
     double retval = 0D;
     try {
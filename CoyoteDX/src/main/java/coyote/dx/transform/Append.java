@@ -8,9 +8,9 @@
 package coyote.dx.transform;
 
 import coyote.commons.StringUtil;
-import coyote.commons.template.Template;
 import coyote.dataframe.DataFrame;
 import coyote.dx.CDX;
+import coyote.dx.CompiledTemplate;
 import coyote.dx.ConfigTag;
 import coyote.dx.FrameTransform;
 import coyote.dx.TransformException;
@@ -117,7 +117,7 @@ public class Append extends AbstractFieldTransform implements FrameTransform {
       b.append(resolveArgument(fieldValue));
     } else {
       // use the field value and treat is like a template, but pre-process it
-      b.append(Template.preProcess(fval, getContext().getSymbols()));
+      b.append(CompiledTemplate.preProcess(fval, getContext().getSymbols()));
     }
 
     frame.put(getFieldName(), b.toString());
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import coyote.commons.StringUtil;
+import coyote.dataframe.DataField;
+import coyote.dataframe.DataFrame;
+import coyote.dx.CDX;
+import coyote.dx.ConfigTag;
+import coyote.dx.FrameReader;
+import coyote.dx.FrameTransform;
+import coyote.dx.TransformException;
+import coyote.dx.context.TransactionContext;
+import coyote.dx.context.TransformContext;
+import coyote.dx.reader.AbstractFrameReader;
+import coyote.loader.cfg.Config;
+import coyote.loader.cfg.ConfigurationException;
+import coyote.loader.log.Log;
+
+
+/**
+ * Enrich the working frame with fields from a reference data set by joining
+ * on a key field.
+ *
+ * <p>The reference data is read once when the transform is opened and placed
+ * in a compact off-heap index so each working frame is enriched with a
+ * single hash lookup instead of a query against the reference source. Any
+ * reader may supply the reference data (e.g. CsvReader, JsonReader or
+ * JdbcReader):<pre>
+ * "Lookup": {
+ *   "field": "dept_id",
+ *   "key": "id",
+ *   "fields": "name,location",
+ *   "prefix": "dept_",
+ *   "index": "departments.idx",
+ *   "Reader": { "class": "CsvReader", "source": "departments.csv", "header": true }
+ * }</pre>
+ *
+ * <p>The {@code field} attribute names the working frame field holding the
+ * key and {@code key} the field in the reference data to match; it defaults
+ * to the name of the working field. The {@code fields} attribute limits the
+ * reference fields copied to the working frame, otherwise all the fields of
+ * the first reference record (other than the key) are copied. Copied fields
+ * are named with the optional {@code prefix}. All copied values are strings.
+ *
+ * <p>If no reader is configured, the index is built from the frames of the
+ * job's preloader.
+ *
+ * <p>If an {@code index} file is configured, the index is saved to that file
+ * (relative to the job directory) after it is built. Later runs memory-map
+ * the saved index instead of reading the reference data again unless
+ * {@code rebuild} is set to true.
+ *
+ * <p>If no reference record matches the key, the working frame is passed on
+ * unchanged.
+ */
+public class Lookup extends AbstractFieldTransform implements FrameTransform {
+  private static final String KEY = "key";
+  private static final String PREFIX = "prefix";
+  private static final String INDEX = "index";
+  private static final String REBUILD = "rebuild";
+  private static final String READER_PKG = AbstractFrameReader.class.getPackage().getName();
+
+  private String keyName = null;
+  private String prefix = "";
+  private String[] columns = null;
+  private LookupIndex index = null;
+  private File indexFile = null;
+  private boolean indexBuilt = false;
+
+
+
+
+  /**
+   * @see coyote.dx.transform.AbstractFieldTransform#setConfiguration(coyote.loader.cfg.Config)
+   */
+  @Override
+  public void setConfiguration(Config cfg) throws ConfigurationException {
+    super.setConfiguration(cfg);
+
+    keyName = getConfiguration().getString(KEY);
+    if (StringUtil.isBlank(keyName)) {
+      keyName = getFieldName();
+    }
+
+    String value = getConfiguration().getString(PREFIX);
+    if (value != null) {
+      prefix = value;
+    }
+
+    value = getConfiguration().getString(ConfigTag.FIELDS);
+    if (StringUtil.isNotBlank(value)) {
+      List<String> names = new ArrayList<String>();
+      for (String name : value.split(",")) {
+        if (StringUtil.isNotBlank(name)) {
+          names.add(name.trim());
+        }
+      }
+      columns = names.toArray(new String[names.size()]);
+    }
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.transform.AbstractFieldTransform#open(coyote.dx.context.TransformContext)
+   */
+  @Override
+  public void open(TransformContext context) {
+    super.open(context);
+
+    String filename = getString(INDEX);
+    if (StringUtil.isNotBlank(filename)) {
+      indexFile = new File(filename);
+      if (!indexFile.isAbsolute()) {
+        indexFile = new File(getJobDirectory(), filename);
+      }
+    }
+
+    if (indexFile != null && indexFile.exists() && !getBoolean(REBUILD)) {
+      try {
+        index = LookupIndex.load(indexFile);
+        Log.debug("Lookup mapped " + index.size() + " records from " + indexFile.getAbsolutePath());
+        return;
+      } catch (IOException e) {
+        Log.warn("Lookup could not load index, rebuilding: " + e.getMessage());
+      }
+    }
+
+    DataField field = getConfiguration().getFieldIgnoreCase(ConfigTag.READER);
+    if (field != null) {
+      if (field.isFrame()) {
+        loadReference((DataFrame)field.getObjectValue());
+      } else {
+        context.setError("Lookup " + ConfigTag.READER + " configuration must be a section");
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Read all the frames from the configured reader into the index.
+   *
+   * @param cfg the configuration of the reader
+   */
+  private void loadReference(DataFrame cfg) {
+    DataFrame readerConfig = (DataFrame)cfg.clone();
+    String className = readerConfig.getAsString(ConfigTag.CLASS);
+    if (className != null && StringUtil.countOccurrencesOf(className, ".") < 1) {
+      readerConfig.put(ConfigTag.CLASS, READER_PKG + "." + className);
+    }
+
+    Object object = CDX.createComponent(readerConfig);
+    if (object instanceof FrameReader) {
+      FrameReader reader = (FrameReader)object;
+      try {
+        reader.open(getContext());
+        while (getContext().isNotInError() && !reader.eof()) {
+          DataFrame frame = reader.read(new TransactionContext(getContext()));
+          add(frame);
+        }
+      } finally {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          Log.warn("Lookup could not close reference reader: " + e.getMessage());
+        }
+      }
+      Log.debug("Lookup indexed " + (index != null ? index.size() : 0) + " reference records");
+      saveIndex();
+    } else {
+      getContext().setError("Lookup could not create reference reader '" + className + "'");
+    }
+  }
+
+
+
+
+  /**
+   * Add the given reference frame to the index, creating the index from the
+   * layout of the frame if necessary.
+   *
+   * @param frame the reference frame to add
+   */
+  private void add(DataFrame frame) {
+    if (frame == null) {
+      return;
+    }
+
+    DataField keyField = frame.getField(keyName);
+    if (keyField == null || keyField.getStringValue() == null) {
+      Log.debug("Lookup reference record missing key '" + keyName + "'");
+      return;
+    }
+
+    if (index == null) {
+      if (columns == null) {
+        List<String> names = new ArrayList<String>();
+        for (DataField field : frame.getFields()) {
+          if (field.getName() != null && !field.getName().equals(keyName)) {
+            names.add(field.getName());
+          }
+        }
+        columns = names.toArray(new String[names.size()]);
+      }
+      index = new LookupIndex(columns);
+      indexBuilt = true;
+    }
+
+    if (!index.isReadOnly()) {
+      String[] values = new String[columns.length];
+      for (int x = 0; x < columns.length; x++) {
+        DataField field = frame.getField(columns[x]);
+        if (field != null) {
+          values[x] = field.getStringValue();
+        }
+      }
+      index.put(keyField.getStringValue(), values);
+    }
+  }
+
+
+
+
+  /**
+   * Build the index from the frames of the preloader if no reader was
+   * configured.
+   *
+   * @see coyote.dx.transform.AbstractFrameTransform#preload(coyote.dataframe.DataFrame)
+   */
+  @Override
+  public void preload(DataFrame frame) {
+    if (getConfiguration().getFieldIgnoreCase(ConfigTag.READER) == null) {
+      add(frame);
+    }
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.transform.AbstractFieldTransform#performTransform(coyote.dataframe.DataFrame)
+   */
+  @Override
+  protected DataFrame performTransform(DataFrame frame) throws TransformException {
+    if (frame != null && index != null) {
+      DataField keyField = frame.getField(getFieldName());
+      if (keyField != null) {
+        String[] values = index.get(keyField.getStringValue());
+        if (values != null) {
+          String[] names = index.getColumns();
+          for (int x = 0; x < names.length; x++) {
+            frame.put(prefix + names[x], values[x]);
+          }
+        } else if (Log.isLogging(Log.DEBUG_EVENTS)) {
+          Log.debug("Lookup found no reference record for '" + keyField.getStringValue() + "'");
+        }
+      }
+    }
+    return frame;
+  }
+
+
+
+
+  /**
+   * Persist a newly built index if an index file is configured.
+   */
+  private void saveIndex() {
+    if (indexBuilt && index != null && indexFile != null) {
+      try {
+        index.save(indexFile);
+        indexBuilt = false;
+        Log.debug("Lookup saved " + index.size() + " records to " + indexFile.getAbsolutePath());
+      } catch (IOException e) {
+        Log.warn("Lookup could not save index to " + indexFile.getAbsolutePath() + ": " + e.getMessage());
+      }
+    }
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.transform.AbstractFrameTransform#close()
+   */
+  @Override
+  public void close() throws IOException {
+    // index built from preloaded frames
+    saveIndex();
+    index = null;
+    super.close();
+  }
+
+
+
+
+  /**
+   * @return the number of reference records in the index
+   */
+  public int getIndexSize() {
+    return index != null ? index.size() : 0;
+  }
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * A compact, string-keyed hash index of reference records used to join data
+ * to working frames.
+ *
+ * <p>Records are serialized into a single off-heap (direct) buffer as
+ * length-prefixed UTF-8 strings and located through an open-addressing hash
+ * table made of two primitive arrays; one holding the hash of each key and
+ * the other the offset of its record in the buffer. This keeps millions of
+ * reference records out of the object heap and avoids the per-entry
+ * overhead of a {@code HashMap<String, DataFrame>}.
+ *
+ * <p>An index can be saved to a file and later loaded through a read-only
+ * memory mapping, allowing large reference data sets to be reused across
+ * runs without re-reading and re-indexing the source.
+ *
+ * <p>When the same key is added more than once, the last record wins.
+ */
+public class LookupIndex {
+
+  /** Identifies the format of a persisted index file */
+  private static final byte[] MAGIC = "CDXLKUP1".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int INITIAL_DATA_SIZE = 64 * 1024;
+
+  /** Marks a null value in a serialized record */
+  private static final int NULL_LENGTH = -1;
+
+  private final String[] columns;
+  private IntBuffer hashes;
+  private IntBuffer offsets;
+  private ByteBuffer data;
+  private int size = 0;
+  private final boolean readOnly;
+
+
+
+
+  /**
+   * Create an empty index holding records with the given columns.
+   *
+   * @param columns the names of the values stored with each key
+   */
+  public LookupIndex(final String[] columns) {
+    this.columns = columns.clone();
+    hashes = IntBuffer.allocate(INITIAL_CAPACITY);
+    offsets = IntBuffer.allocate(INITIAL_CAPACITY);
+    data = ByteBuffer.allocateDirect(INITIAL_DATA_SIZE);
+    readOnly = false;
+  }
+
+
+
+
+  private LookupIndex(final String[] columns, final int size, final IntBuffer hashes, final IntBuffer offsets, final ByteBuffer data) {
+    this.columns = columns;
+    this.size = size;
+    this.hashes = hashes;
+    this.offsets = offsets;
+    this.data = data;
+    readOnly = true;
+  }
+
+
+
+
+  /**
+   * @return the names of the values stored with each key
+   */
+  public String[] getColumns() {
+    return columns.clone();
+  }
+
+
+
+
+  /**
+   * @return the number of keys in the index
+   */
+  public int size() {
+    return size;
+  }
+
+
+
+
+  /**
+   * @return true if records cannot be added (i.e. the index was loaded from
+   *         a file)
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+
+
+
+  /**
+   * Add the record with the given key to the index.
+   *
+   * @param key the key of the record
+   * @param values the values of the record in column order; may contain
+   *        nulls and may be shorter than the number of columns
+   *
+   * @throws IllegalStateException if the index is read-only
+   */
+  public void put(final String key, final String[] values) {
+    if (readOnly) {
+      throw new IllegalStateException("Index is read-only");
+    }
+    if ((size + 1) * 4 > hashes.capacity() * 3) {
+      rehash(hashes.capacity() * 2);
+    }
+
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    final int hash = hash(key);
+    final int offset = append(keyBytes, values);
+
+    final int mask = hashes.capacity() - 1;
+    int slot = hash & mask;
+    while (offsets.get(slot) != 0) {
+      if (hashes.get(slot) == hash && keyEquals(offsets.get(slot) - 1, keyBytes)) {
+        offsets.put(slot, offset + 1);
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    hashes.put(slot, hash);
+    offsets.put(slot, offset + 1);
+    size++;
+  }
+
+
+
+
+  /**
+   * Retrieve the record with the given key.
+   *
+   * @param key the key of the record to retrieve
+   *
+   * @return the values of the record in column order or null if the key is
+   *         not in the index
+   */
+  public String[] get(final String key) {
+    if (key == null || size == 0) {
+      return null;
+    }
+    final int offset = find(key);
+    if (offset < 0) {
+      return null;
+    }
+
+    final String[] retval = new String[columns.length];
+    int position = offset;
+    position += 4 + data.getInt(position); // skip the key
+    for (int x = 0; x < columns.length; x++) {
+      final int length = data.getInt(position);
+      position += 4;
+      if (length != NULL_LENGTH) {
+        retval[x] = decode(position, length);
+        position += length;
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * @param key the key to check
+   *
+   * @return true if the index contains a record with the given key
+   */
+  public boolean containsKey(final String key) {
+    return key != null && size > 0 && find(key) >= 0;
+  }
+
+
+
+
+  /**
+   * Write this index to the given file so it can be mapped with {@link
+   * #load(File)} later.
+   *
+   * @param file the file to create or overwrite
+   *
+   * @throws IOException if the file could not be written
+   */
+  public void save(final File file) throws IOException {
+    final byte[][] names = new byte[columns.length][];
+    int headerSize = MAGIC.length + 4;
+    for (int x = 0; x < columns.length; x++) {
+      names[x] = columns[x].getBytes(StandardCharsets.UTF_8);
+      headerSize += 4 + names[x].length;
+    }
+    headerSize += 12;
+
+    final int capacity = hashes.capacity();
+    final ByteBuffer header = ByteBuffer.allocate(headerSize + capacity * 8);
+    header.put(MAGIC);
+    header.putInt(columns.length);
+    for (int x = 0; x < names.length; x++) {
+      header.putInt(names[x].length);
+      header.put(names[x]);
+    }
+    header.putInt(size);
+    header.putInt(capacity);
+    header.putInt(dataLength());
+    for (int x = 0; x < capacity; x++) {
+      header.putInt(hashes.get(x));
+    }
+    for (int x = 0; x < capacity; x++) {
+      header.putInt(offsets.get(x));
+    }
+    header.flip();
+
+    final ByteBuffer records = data.duplicate();
+    records.position(0);
+    records.limit(dataLength());
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+      channel.truncate(0);
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      while (records.hasRemaining()) {
+        channel.write(records);
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Map a previously saved index into memory.
+   *
+   * <p>The returned index is read-only and its records are paged in by the
+   * operating system as they are accessed.
+   *
+   * @param file the file written by {@link #save(File)}
+   *
+   * @return the index mapped from the file
+   *
+   * @throws IOException if the file could not be read or is not an index
+   */
+  public static LookupIndex load(final File file) throws IOException {
+    final ByteBuffer buffer;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    try {
+      final byte[] magic = new byte[MAGIC.length];
+      buffer.get(magic);
+      if (!Arrays.equals(MAGIC, magic)) {
+        throw new IOException("Not a lookup index: " + file.getAbsolutePath());
+      }
+      final String[] columns = new String[buffer.getInt()];
+      for (int x = 0; x < columns.length; x++) {
+        final byte[] name = new byte[buffer.getInt()];
+        buffer.get(name);
+        columns[x] = new String(name, StandardCharsets.UTF_8);
+      }
+      final int size = buffer.getInt();
+      final int capacity = buffer.getInt();
+      final int dataLength = buffer.getInt();
+
+      final IntBuffer hashes = slice(buffer, capacity * 4).asIntBuffer();
+      final IntBuffer offsets = slice(buffer, capacity * 4).asIntBuffer();
+      final ByteBuffer data = slice(buffer, dataLength);
+      return new LookupIndex(columns, size, hashes, offsets, data);
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt lookup index: " + file.getAbsolutePath() + " - " + e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * @return the offset of the record with the given key or -1 if not found
+   */
+  private int find(final String key) {
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    final int hash = hash(key);
+    final int mask = hashes.capacity() - 1;
+    int slot = hash & mask;
+    int offset;
+    while ((offset = offsets.get(slot)) != 0) {
+      if (hashes.get(slot) == hash && keyEquals(offset - 1, keyBytes)) {
+        return offset - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+
+
+
+  /**
+   * Serialize the record at the end of the data buffer.
+   *
+   * @return the offset of the record
+   */
+  private int append(final byte[] keyBytes, final String[] values) {
+    final byte[][] encoded = new byte[columns.length][];
+    int length = 4 + keyBytes.length;
+    for (int x = 0; x < columns.length; x++) {
+      if (values != null && x < values.length && values[x] != null) {
+        encoded[x] = values[x].getBytes(StandardCharsets.UTF_8);
+        length += encoded[x].length;
+      }
+      length += 4;
+    }
+
+    ensureDataCapacity(length);
+    final int offset = data.position();
+    data.putInt(keyBytes.length);
+    data.put(keyBytes);
+    for (int x = 0; x < encoded.length; x++) {
+      if (encoded[x] != null) {
+        data.putInt(encoded[x].length);
+        data.put(encoded[x]);
+      } else {
+        data.putInt(NULL_LENGTH);
+      }
+    }
+    return offset;
+  }
+
+
+
+
+  private void ensureDataCapacity(final int length) {
+    if (data.remaining() < length) {
+      long newSize = data.capacity();
+      while (newSize - data.position() < length) {
+        newSize *= 2;
+      }
+      if (newSize > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Lookup index exceeds the maximum size of " + Integer.MAX_VALUE + " bytes");
+      }
+      final ByteBuffer larger = ByteBuffer.allocateDirect((int)newSize);
+      data.flip();
+      larger.put(data);
+      data = larger;
+    }
+  }
+
+
+
+
+  private void rehash(final int capacity) {
+    final IntBuffer newHashes = IntBuffer.allocate(capacity);
+    final IntBuffer newOffsets = IntBuffer.allocate(capacity);
+    final int mask = capacity - 1;
+    for (int x = 0; x < offsets.capacity(); x++) {
+      final int offset = offsets.get(x);
+      if (offset != 0) {
+        int slot = hashes.get(x) & mask;
+        while (newOffsets.get(slot) != 0) {
+          slot = (slot + 1) & mask;
+        }
+        newHashes.put(slot, hashes.get(x));
+        newOffsets.put(slot, offset);
+      }
+    }
+    hashes = newHashes;
+    offsets = newOffsets;
+  }
+
+
+
+
+  private boolean keyEquals(final int offset, final byte[] keyBytes) {
+    if (data.getInt(offset) != keyBytes.length) {
+      return false;
+    }
+    for (int x = 0; x < keyBytes.length; x++) {
+      if (data.get(offset + 4 + x) != keyBytes[x]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+
+
+  private String decode(final int position, final int length) {
+    final byte[] bytes = new byte[length];
+    final ByteBuffer view = data.duplicate();
+    view.position(position);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+
+
+
+  private int dataLength() {
+    return readOnly ? data.capacity() : data.position();
+  }
+
+
+
+
+  private static ByteBuffer slice(final ByteBuffer buffer, final int length) {
+    final ByteBuffer retval = buffer.slice();
+    retval.limit(length);
+    buffer.position(buffer.position() + length);
+    return retval.slice();
+  }
+
+
+
+
+  /**
+   * Spread the bits of the hash so keys with similar hash codes do not
+   * cluster in the table.
+   */
+  private static int hash(final String key) {
+    final int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -7,6 +7,9 @@
  */
 package coyote.dx.transform;
 
+import java.util.regex.PatternSyntaxException;
+
+import coyote.commons.PatternCache;
 import coyote.commons.StringUtil;
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
@@ -29,7 +32,8 @@ import coyote.loader.log.LogMsg;
  * 
  * <p>If a {@code target} is specified, the Java String Replace method is used 
  * to perform the transformation. If the {@code pattern} attribute is used 
- * instead, the Java String ReplaceAll method is used. 
+ * instead, the pattern is compiled once during configuration and its 
+ * ReplaceAll method is used. 
  * 
  * <p>Replace can be configured thusly:<pre>
  * "Replace":{"field":"somefield","target":"\n","value":" "}
@@ -38,6 +42,7 @@ import coyote.loader.log.LogMsg;
 public class Replace extends AbstractFieldTransform implements FrameTransform {
   private String target = null;
   private String regex = null;
+  private java.util.regex.Pattern regexPattern = null;
   private String replacement = null;
 
 
@@ -72,6 +77,14 @@ public class Replace extends AbstractFieldTransform implements FrameTransform {
     if (replacement == null) {
       replacement = "";
     }
+
+    if (regex != null) {
+      try {
+        regexPattern = PatternCache.compile(regex);
+      } catch (final PatternSyntaxException e) {
+        throw new ConfigurationException("Replace transform pattern is not valid: " + e.getMessage());
+      }
+    }
   }
 
 
@@ -126,7 +139,7 @@ public class Replace extends AbstractFieldTransform implements FrameTransform {
           if (target != null) {
             newval = value.replace(target, replacement);
           } else {
-            newval = value.replaceAll(regex, replacement);
+            newval = regexPattern.matcher(value).replaceAll(replacement);
           }
           retval.add(new DataField(field.getName(), newval));
           if (Log.isLogging(Log.DEBUG_EVENTS) && value.length() != newval.length()) {
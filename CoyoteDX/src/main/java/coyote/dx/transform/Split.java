@@ -7,6 +7,7 @@
  */
 package coyote.dx.transform;
 
+import coyote.commons.PatternCache;
 import coyote.commons.StringUtil;
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
@@ -64,7 +65,7 @@ public class Split extends AbstractFieldTransform implements FrameTransform {
     } else {
       String data = field.getStringValue();
       if (data != null) {
-        String[] tokens = data.split(getDelimiter());
+        String[] tokens = PatternCache.compile(getDelimiter()).split(data);
         for (int x = 0; x < tokens.length; x++) {
           retval.put(field.getName() + "." + x, tokens[x]);
         }
@@ -7,8 +7,12 @@
  */
 package coyote.dx.transform;
 
+import java.util.List;
+
 import coyote.commons.StringUtil;
 import coyote.dataframe.DataFrame;
+import coyote.dx.BatchFrameTransform;
+import coyote.dx.FrameBatch;
 import coyote.dx.FrameTransform;
 import coyote.dx.TransformException;
 import coyote.loader.cfg.Config;
@@ -29,8 +33,12 @@ import coyote.loader.log.Log;
  * "Subtract": { "field": "Profit", "minuend": "Price", "subtrahend ": "Cost", "setsymbol": false }
  * "Subtract": { "field": "Profit", "minuend": "71.25", "subtrahend ": "Cost", "setsymbol": false }
  * </pre>
+ * 
+ * <p>When the engine passes a batch of frames whose operands are all numeric
+ * and of one kind, the whole batch is subtracted in one pass over its 
+ * columns.
  */
-public class Subtract extends AbstractMathTransform implements FrameTransform {
+public class Subtract extends AbstractMathTransform implements FrameTransform, BatchFrameTransform {
 
   public static final String MINUEND = "minuend";
   public static final String SUBTRAHEND = "subtrahend";
@@ -106,6 +114,47 @@ public class Subtract extends AbstractMathTransform implements FrameTransform {
 
 
 
+  /**
+   * @see coyote.dx.BatchFrameTransform#process(java.util.List)
+   */
+  @Override
+  public List<DataFrame> process(List<DataFrame> frames) throws TransformException {
+    if (!isEnabled() || isSetSymbol()) {
+      return null;
+    }
+
+    FrameBatch batch = new FrameBatch(frames);
+    FrameBatch.Column minuends = batch.getColumnOrConstant(getMinuend());
+    FrameBatch.Column subtrahends = batch.getColumnOrConstant(getSubtrahend());
+    if (minuends.getType() == FrameBatch.OBJECT || minuends.hasNulls() || subtrahends.getType() == FrameBatch.OBJECT || subtrahends.hasNulls()) {
+      return null;
+    }
+
+    if (minuends.getType() == FrameBatch.LONG && subtrahends.getType() == FrameBatch.LONG) {
+      long[] min = minuends.getLongs();
+      long[] sub = subtrahends.getLongs();
+      FrameBatch.Column results = batch.createColumn(getFieldName(), FrameBatch.LONG);
+      long[] difference = results.getLongs();
+      for (int x = 0; x < difference.length; x++) {
+        difference[x] = min[x] - sub[x];
+      }
+      results.setNotNull();
+    } else {
+      double[] min = asDoubles(minuends);
+      double[] sub = asDoubles(subtrahends);
+      FrameBatch.Column results = batch.createColumn(getFieldName(), FrameBatch.DOUBLE);
+      double[] difference = results.getDoubles();
+      for (int x = 0; x < difference.length; x++) {
+        difference[x] = min[x] - sub[x];
+      }
+      results.setNotNull();
+    }
+    return batch.toFrames();
+  }
+
+
+
+
   private double subtractDouble(String minuend, String subtrahend) throws TransformException {
     double retval = 0L;
     double min = getDouble(minuend);
@@ -134,6 +134,7 @@ public abstract class AbstractValidator extends AbstractConfigurableComponent im
   @Override
   public void setConfiguration(Config cfg) throws ConfigurationException {
     configuration = cfg;
+    invalidateConfiguration();
 
     // All validators need to know which fields to validate
     if (cfg.contains(ConfigTag.FIELD)) {
@@ -7,6 +7,9 @@
  */
 package coyote.dx.validate;
 
+import java.io.IOException;
+
+import coyote.commons.PatternCache;
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dx.ConfigTag;
@@ -30,6 +33,10 @@ import coyote.loader.cfg.ConfigurationException;
  * 
  * match pattern: must match to return true; false if no match
  * avoid pattern: must not match to return true; false if a match is found (PII)
+ * 
+ * <p>All the Pattern validators in a job share one multi-pattern matcher so 
+ * each value is scanned once for the literal prefixes of all the patterns 
+ * and only the patterns which could match are evaluated.
  */
 public class Pattern extends AbstractValidator implements FrameValidator {
 
@@ -37,6 +44,8 @@ public class Pattern extends AbstractValidator implements FrameValidator {
   private boolean avoid = true;
   private java.util.regex.Pattern fieldPattern = null;
   private java.util.regex.Pattern valuePattern = null;
+  private PatternSet patternSet = null;
+  private int patternIndex = -1;
 
 
 
@@ -129,8 +138,26 @@ public class Pattern extends AbstractValidator implements FrameValidator {
    */
   @Override
   public void open(TransformContext context) {
-    fieldPattern = java.util.regex.Pattern.compile(getFieldName());
-    valuePattern = java.util.regex.Pattern.compile(getValueRegEx());
+    fieldPattern = PatternCache.compile(getFieldName());
+    valuePattern = PatternCache.compile(getValueRegEx());
+    patternSet = PatternSet.forContext(context);
+    patternIndex = patternSet.register(getValueRegEx());
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.validate.AbstractValidator#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if (patternSet != null) {
+      patternSet.unregister(patternIndex);
+      patternSet = null;
+      patternIndex = -1;
+    }
+    super.close();
   }
 
 
@@ -158,14 +185,14 @@ public class Pattern extends AbstractValidator implements FrameValidator {
 
           if (isAvoiding()) {
             // we are avoiding a match so if there is a match, log a failure
-            if (valuePattern.matcher(value).matches()) {
+            if (patternSet.matches(patternIndex, value)) {
               retval = false;
               fail(context, fieldName);
             }
           } else {
             // we are not avoiding (i.e requiring) a match so log a failure if 
             // it does not match
-            if (!valuePattern.matcher(value).matches()) {
+            if (!patternSet.matches(patternIndex, value)) {
               retval = false;
               fail(context, fieldName);
             }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.validate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import coyote.commons.MultiPatternMatcher;
+import coyote.dx.context.TransformContext;
+
+
+/**
+ * The value expressions of all the Pattern validators opened in a transform
+ * context, compiled into one multi-pattern matcher.
+ * 
+ * <p>Jobs scanning for PII commonly stack many Pattern validators on the same
+ * fields. Rather than each validator running its own regular expression, a
+ * value is scanned once for the literal prefixes of all the expressions and
+ * only the candidate expressions are evaluated. The candidates for the last
+ * value scanned are retained so the next validator checking the same value
+ * does not rescan it.
+ */
+final class PatternSet {
+
+  /** Sets shared by the validators of each transform context */
+  private static final Map<TransformContext, PatternSet> SETS = new WeakHashMap<TransformContext, PatternSet>();
+
+  private final List<String> expressions = new ArrayList<String>();
+  private MultiPatternMatcher matcher = null;
+  private final BitSet candidates = new BitSet();
+  private String lastValue = null;
+
+
+
+
+  /**
+   * Retrieve the set shared by all the validators in the given context.
+   * 
+   * @param context the transform context, may be null
+   * 
+   * @return the set for the context or a new unshared set if the context is
+   *         null
+   */
+  static PatternSet forContext(final TransformContext context) {
+    if (context == null) {
+      return new PatternSet();
+    }
+    synchronized (SETS) {
+      PatternSet retval = SETS.get(context);
+      if (retval == null) {
+        retval = new PatternSet();
+        SETS.put(context, retval);
+      }
+      return retval;
+    }
+  }
+
+
+
+
+  /**
+   * Add an expression to the set.
+   * 
+   * @param regex the value expression of a validator
+   * 
+   * @return the index the validator uses to check its expression
+   */
+  synchronized int register(final String regex) {
+    expressions.add(regex);
+    matcher = null;
+    return expressions.size() - 1;
+  }
+
+
+
+
+  /**
+   * Remove the expression at the given index from the set; the indexes of
+   * the other expressions are not affected.
+   * 
+   * @param index the index returned from {@link #register(String)}
+   */
+  synchronized void unregister(final int index) {
+    if (index >= 0 && index < expressions.size()) {
+      expressions.set(index, null);
+      matcher = null;
+    }
+  }
+
+
+
+
+  /**
+   * Determine if the registered expression matches the entire value.
+   * 
+   * @param index the index returned from {@link #register(String)}
+   * @param value the value to test
+   * 
+   * @return true if the expression matches the value, false otherwise
+   */
+  synchronized boolean matches(final int index, final String value) {
+    if (value == null) {
+      return false;
+    }
+    if (matcher == null) {
+      matcher = new MultiPatternMatcher(expressions, true);
+      lastValue = null;
+    }
+    if (!value.equals(lastValue)) {
+      matcher.candidates(value, candidates);
+      lastValue = value;
+    }
+    return matcher.matches(index, value, candidates);
+  }
+
+}
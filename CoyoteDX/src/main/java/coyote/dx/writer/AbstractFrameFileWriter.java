@@ -8,7 +8,6 @@
 package coyote.dx.writer;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
@@ -18,6 +17,7 @@ import coyote.commons.StringUtil;
 import coyote.commons.UriUtil;
 import coyote.dataframe.DataFrameException;
 import coyote.dx.CDX;
+import coyote.dx.Compression;
 import coyote.dx.ConfigTag;
 import coyote.dx.FrameWriter;
 import coyote.dx.context.TransformContext;
@@ -29,6 +29,10 @@ import coyote.loader.log.LogMsg;
 
 /**
  * Base class for all frame writers writing frames to files
+ * 
+ * <p>Targets with a compressed file extension ({@code .gz}, {@code .gzip}, 
+ * {@code .deflate}, {@code .zz} or {@code .zlib}) are compressed as they are 
+ * written. See {@link Compression}.
  */
 public abstract class AbstractFrameFileWriter extends AbstractFrameWriter implements FrameWriter {
 
@@ -152,8 +156,9 @@ public abstract class AbstractFrameFileWriter extends AbstractFrameWriter implem
         }
 
         try {
-          final Writer fwriter = new FileWriter(targetFile, isAppending());
-          printwriter = new PrintWriter(fwriter, isAppending());
+          final Writer fwriter = Compression.openWriter(targetFile, isAppending());
+          // flushing each line would write a compressed block for each line
+          printwriter = new PrintWriter(fwriter, isAppending() && !Compression.isCompressed(targetFile));
         } catch (final Exception e) {
           Log.error("Could not create writer: " + e.getMessage());
           context.setError(e.getMessage());
@@ -232,6 +237,7 @@ public abstract class AbstractFrameFileWriter extends AbstractFrameWriter implem
    */
   public void setAppendFlag(final boolean flag) {
     configuration.put(ConfigTag.APPEND, flag);
+    invalidateConfiguration();
   }
 
 
@@ -33,7 +33,7 @@ public abstract class AbstractFrameWriter extends AbstractConfigurableComponent
    */
   @Override
   public void open(TransformContext context) {
-    super.context = context;
+    setContext(context);
 
     evaluator.setContext(context);
 
@@ -72,6 +72,7 @@ public abstract class AbstractFrameWriter extends AbstractConfigurableComponent
    */
   public void setTarget(final String value) {
     configuration.put(ConfigTag.TARGET, value);
+    invalidateConfiguration();
   }
 
 
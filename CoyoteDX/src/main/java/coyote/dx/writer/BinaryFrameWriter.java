@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import coyote.commons.StringUtil;
+import coyote.commons.UriUtil;
+import coyote.dataframe.DataFrame;
+import coyote.dx.BinaryFrameFormat;
+import coyote.dx.CDX;
+import coyote.dx.ConfigTag;
+import coyote.dx.FrameWriter;
+import coyote.dx.context.TransformContext;
+import coyote.loader.log.Log;
+import coyote.loader.log.LogMsg;
+
+
+/**
+ * Writes frames to a compact binary file which can be read back with the
+ * {@code BinaryFrameReader}.
+ *
+ * <p>The schema of the first frame is written in the file header and the
+ * frames are written in blocks of rows with the repeated strings of each
+ * block written only once. Blocks are compressed unless the {@code compress}
+ * attribute is set to false. An index of the blocks is written when the
+ * writer is closed so readers can seek to any block. See
+ * {@link BinaryFrameFormat} for the layout of the file.
+ *
+ * <p>The {@code blocksize} attribute sets the number of frames in each block
+ * (default 4096). Larger blocks compress better; smaller blocks allow finer
+ * splitting of the file between readers.
+ *
+ * <p>This writer always creates a new file; appending is not supported.
+ */
+public class BinaryFrameWriter extends AbstractFrameWriter implements FrameWriter {
+
+  private static final String BLOCKSIZE = "blocksize";
+  private static final String COMPRESS = "compress";
+  private static final int DEFAULT_BLOCKSIZE = 4096;
+
+  /** The largest a block may grow before it is written regardless of the block size */
+  private static final int MAX_BLOCK_BYTES = 16 * 1024 * 1024;
+
+  private DataOutputStream output = null;
+  private BinaryFrameFormat.BlockEncoder encoder = null;
+  private final List<BinaryFrameFormat.BlockInfo> blocks = new ArrayList<BinaryFrameFormat.BlockInfo>();
+  private int blockSize = DEFAULT_BLOCKSIZE;
+  private boolean compress = true;
+  private long position = 0;
+  private long rows = 0;
+
+
+
+
+  /**
+   * @see coyote.dx.writer.AbstractFrameWriter#open(coyote.dx.context.TransformContext)
+   */
+  @Override
+  public void open(final TransformContext context) {
+    super.open(context);
+
+    if (containsIgnoreCase(BLOCKSIZE)) {
+      final int size = getInteger(BLOCKSIZE);
+      if (size > 0) {
+        blockSize = size;
+      } else {
+        Log.warn("Invalid block size of '" + getString(BLOCKSIZE) + "' using " + DEFAULT_BLOCKSIZE);
+      }
+    }
+    if (containsIgnoreCase(COMPRESS)) {
+      compress = getBoolean(COMPRESS);
+    }
+
+    final String target = getString(ConfigTag.TARGET);
+    Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.using_target", getClass().getSimpleName(), target));
+    if (StringUtil.isNotBlank(target)) {
+      File targetFile = null;
+      final URI uri = UriUtil.parse(target);
+      if (uri != null && UriUtil.isFile(uri)) {
+        targetFile = UriUtil.getFile(uri);
+      }
+      if (targetFile == null) {
+        targetFile = new File(target);
+      }
+      if (!targetFile.isAbsolute()) {
+        targetFile = new File(getJobDirectory(), targetFile.getPath());
+      }
+      Log.debug(LogMsg.createMsg(CDX.MSG, "Writer.using_target_file", getClass().getSimpleName(), targetFile.getAbsolutePath()));
+
+      try {
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(targetFile, false), 64 * 1024));
+      } catch (final IOException e) {
+        Log.error("Could not create writer: " + e.getMessage());
+        context.setError(e.getMessage());
+      }
+    } else {
+      Log.error("No target specified");
+      context.setError(getClass().getName() + " could not determine target");
+    }
+  }
+
+
+
+
+  /**
+   * @see coyote.dx.writer.AbstractFrameWriter#write(coyote.dataframe.DataFrame)
+   */
+  @Override
+  public void write(final DataFrame frame) {
+    if (expression != null) {
+      try {
+        if (evaluator.evaluateBoolean(expression)) {
+          writeFrame(frame);
+        }
+      } catch (final IllegalArgumentException e) {
+        Log.warn(LogMsg.createMsg(CDX.MSG, "Writer.boolean_evaluation_error", expression, e.getMessage()));
+      }
+    } else {
+      writeFrame(frame);
+    }
+  }
+
+
+
+
+  private void writeFrame(final DataFrame frame) {
+    if (output == null || frame == null) {
+      return;
+    }
+    try {
+      if (encoder == null) {
+        start(frame);
+      }
+      encoder.add(frame);
+      if (encoder.getRows() >= blockSize || encoder.getSize() >= MAX_BLOCK_BYTES) {
+        writeBlock();
+      }
+    } catch (final IOException e) {
+      Log.error("Could not write frame: " + e.getMessage());
+      getContext().setError(e.getMessage());
+    }
+  }
+
+
+
+
+  /**
+   * Write the header using the schema of the first frame.
+   */
+  private void start(final DataFrame frame) throws IOException {
+    final BinaryFrameFormat.Schema schema = BinaryFrameFormat.writeHeader(output, frame);
+    position = output.size();
+    encoder = new BinaryFrameFormat.BlockEncoder(schema, compress);
+  }
+
+
+
+
+  private void writeBlock() throws IOException {
+    if (encoder.getRows() > 0) {
+      final int count = encoder.getRows();
+      blocks.add(new BinaryFrameFormat.BlockInfo(position, rows, count));
+      position += encoder.writeBlock(output);
+      rows += count;
+    }
+  }
+
+
+
+
+  /**
+   * Write the last block and the block index, then close the file.
+   *
+   * @see coyote.dx.writer.AbstractFrameWriter#close()
+   */
+  @Override
+  public void close() throws IOException {
+    if (output != null) {
+      try {
+        if (encoder == null) {
+          start(null);
+        }
+        writeBlock();
+        BinaryFrameFormat.writeIndex(output, blocks, position);
+        output.flush();
+        Log.debug("Wrote " + rows + " frames in " + blocks.size() + " blocks");
+      } finally {
+        output.close();
+        output = null;
+        if (encoder != null) {
+          encoder.end();
+          encoder = null;
+        }
+      }
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of frames written in each block
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+
+
+
+  /**
+   * @return true if the blocks are compressed
+   */
+  public boolean isCompressing() {
+    return compress;
+  }
+
+}
@@ -8,12 +8,12 @@
 package coyote.dx.writer;
 
 import coyote.commons.StringUtil;
-import coyote.commons.template.Template;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.marshal.CSVMarshaler;
 import coyote.dataframe.marshal.JSONMarshaler;
 import coyote.dataframe.marshal.XMLMarshaler;
 import coyote.dx.CDX;
+import coyote.dx.CompiledTemplate;
 import coyote.dx.ConfigTag;
 import coyote.loader.log.Log;
 import coyote.loader.log.LogMsg;
@@ -116,7 +116,7 @@ public class ConsoleWriter extends AbstractFrameWriter {
     }
 
     if (StringUtil.isNotEmpty(getMessage())) {
-      String message = Template.resolve(getMessage(), getContext().getSymbols());
+      String message = CompiledTemplate.resolve(getMessage(), getContext().getSymbols());
       System.out.println(message);
     }
   }
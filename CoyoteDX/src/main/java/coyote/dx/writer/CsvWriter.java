@@ -308,6 +308,7 @@ public class CsvWriter extends AbstractFrameFileWriter implements FrameWriter, C
    */
   public void setHeaderFlag(final boolean flag) {
     configuration.put(ConfigTag.HEADER, flag);
+    invalidateConfiguration();
   }
 
 
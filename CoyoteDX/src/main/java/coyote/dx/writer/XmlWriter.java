@@ -11,10 +11,10 @@ import java.io.IOException;
 import java.text.MessageFormat;
 
 import coyote.commons.StringUtil;
-import coyote.commons.template.Template;
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dx.CDX;
+import coyote.dx.CompiledTemplate;
 import coyote.dx.ConfigTag;
 import coyote.dx.ConfigurableComponent;
 import coyote.dx.FrameWriter;
@@ -191,7 +191,7 @@ public class XmlWriter extends AbstractFrameFileWriter implements FrameWriter, C
     b.append(rootElement);
     if (StringUtil.isNotBlank(rootAttributes)) {
       b.append(" ");
-      b.append(Template.resolve(rootAttributes, context.getSymbols()).trim());
+      b.append(CompiledTemplate.resolve(rootAttributes, context.getSymbols()).trim());
     }
     b.append(">");
     printwriter.write(b.toString());
@@ -315,7 +315,7 @@ public class XmlWriter extends AbstractFrameFileWriter implements FrameWriter, C
     b.append(rowElement);
     if (StringUtil.isNotBlank(rowAttributes)) {
       b.append(" ");
-      b.append(Template.resolve(rowAttributes, context.getSymbols()).trim());
+      b.append(CompiledTemplate.resolve(rowAttributes, context.getSymbols()).trim());
     }
 
     b.append(">");
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * 
+ */
+public class MultiPatternMatcherTest {
+
+  private static final List<String> PII = Arrays.asList( //
+      "^(\\d{3}-?\\d{2}-?\\d{4})$", // SSN
+      "^4[0-9]{12}(?:[0-9]{3})?$", // Visa
+      "^5[1-5][0-9]{14}$", // MasterCard
+      "^3[47][0-9]{13}$", // Amex
+      "^(?:2131|1800|35\\d{3})\\d{11}$" // JCB
+  );
+
+
+
+
+  @Test
+  public void literalPrefix() {
+    assertEquals("4", MultiPatternMatcher.literalPrefix("^4[0-9]{12}(?:[0-9]{3})?$"));
+    assertEquals("abc", MultiPatternMatcher.literalPrefix("abc"));
+    assertEquals("ab", MultiPatternMatcher.literalPrefix("abc*d"));
+    assertEquals("ab", MultiPatternMatcher.literalPrefix("abc?d"));
+    assertEquals("abc", MultiPatternMatcher.literalPrefix("abc+d"));
+    assertNull(MultiPatternMatcher.literalPrefix("^(?:2131|1800)\\d{11}$"));
+    assertNull(MultiPatternMatcher.literalPrefix("abc|def"));
+    assertNull(MultiPatternMatcher.literalPrefix("\\d+"));
+    assertNull(MultiPatternMatcher.literalPrefix(""));
+    assertNull(MultiPatternMatcher.literalPrefix("a?bc"));
+    assertNull(MultiPatternMatcher.literalPrefix("^a*b"));
+    assertNull(MultiPatternMatcher.literalPrefix(null));
+    assertEquals("a", MultiPatternMatcher.literalPrefix("a[|]b"));
+  }
+
+
+
+
+  @Test
+  public void fullMatch() {
+    MultiPatternMatcher matcher = new MultiPatternMatcher(PII, true);
+    assertEquals(5, matcher.size());
+
+    BitSet result = matcher.match("4539605594999243");
+    assertEquals(1, result.cardinality());
+    assertTrue(result.get(1));
+
+    result = matcher.match("376774996208282");
+    assertEquals(1, result.cardinality());
+    assertTrue(result.get(3));
+
+    result = matcher.match("123-45-6789");
+    assertEquals(1, result.cardinality());
+    assertTrue(result.get(0));
+
+    assertTrue(matcher.match("hello").isEmpty());
+    assertTrue(matcher.match("").isEmpty());
+  }
+
+
+
+
+  @Test
+  public void candidates() {
+    MultiPatternMatcher matcher = new MultiPatternMatcher(PII, true);
+    BitSet candidates = new BitSet();
+
+    // anchored prefixes only match at the start of the value
+    matcher.candidates("x4539605594999243", candidates);
+    assertFalse(candidates.get(1));
+
+    // expressions without a prefix are always candidates
+    assertTrue(candidates.get(0));
+    assertTrue(candidates.get(4));
+
+    // the set is cleared between scans
+    matcher.candidates("4539605594999243", candidates);
+    assertTrue(candidates.get(1));
+    assertFalse(candidates.get(2));
+    assertTrue(matcher.matches(1, "4539605594999243", candidates));
+    assertFalse(matcher.matches(2, "4539605594999243", candidates));
+  }
+
+
+
+
+  @Test
+  public void find() {
+    MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("he", "she", "his", "hers", null), false);
+
+    BitSet result = matcher.match("ushers");
+    assertEquals(3, result.cardinality());
+    assertTrue(result.get(0));
+    assertTrue(result.get(1));
+    assertTrue(result.get(3));
+
+    result = matcher.match("this");
+    assertEquals(1, result.cardinality());
+    assertTrue(result.get(2));
+
+    assertTrue(matcher.match("nothing").isEmpty());
+    assertTrue(matcher.match(null).isEmpty());
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.commons.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ *
+ */
+public class ParallelZipWriterTest {
+
+  private static File testDir = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    testDir = Files.createTempDirectory("parallelzip").toFile();
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    delete(testDir);
+  }
+
+
+
+
+  private static void delete(final File file) {
+    final File[] children = file.listFiles();
+    if (children != null) {
+      for (final File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+
+
+
+  private static byte[] load(final ZipFile zip, final String name) throws IOException {
+    final ZipEntry entry = zip.getEntry(name);
+    assertNotNull(name, entry);
+    final byte[] retval = new byte[(int)entry.getSize()];
+    try (InputStream in = zip.getInputStream(entry)) {
+      int offset = 0;
+      while (offset < retval.length) {
+        offset += in.read(retval, offset, retval.length - offset);
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  @Test
+  public void writeAndAppend() throws IOException {
+    final File source = new File(testDir, "source");
+    for (int x = 0; x < 200; x++) {
+      final File file = new File(source, "dir" + (x % 5) + "/file" + x + ".txt");
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), ("data for file " + x).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // large enough to spill to a temporary file
+    final byte[] large = new byte[ParallelZipWriter.DEFAULT_SPILL_SIZE + 1024];
+    new Random(42).nextBytes(large);
+
+    final File archive = new File(testDir, "test.zip");
+    try (ParallelZipWriter writer = new ParallelZipWriter(archive, false, 6, 4)) {
+      assertEquals(200, writer.addFiles(source, "source", null));
+      writer.addEntry("large.bin", large);
+      writer.addDirectory("empty");
+      try {
+        writer.addEntry("large.bin", new byte[0]);
+        fail("duplicate names should be rejected");
+      } catch (final IOException expected) {
+        // expected
+      }
+    }
+
+    try (ZipFile zip = new ZipFile(archive)) {
+      assertEquals(202, zip.size());
+      assertEquals("data for file 42", new String(load(zip, "source/dir2/file42.txt"), StandardCharsets.UTF_8));
+      assertArrayEquals(large, load(zip, "large.bin"));
+      assertTrue(zip.getEntry("empty/").isDirectory());
+    }
+
+    // appending keeps the existing entries as they are
+    try (ParallelZipWriter writer = new ParallelZipWriter(archive, true, 6, 2)) {
+      writer.addEntry("appended.txt", "appended".getBytes(StandardCharsets.UTF_8));
+      assertEquals(203, writer.getEntryCount());
+    }
+
+    try (ZipFile zip = new ZipFile(archive)) {
+      assertEquals(203, zip.size());
+      assertEquals("appended", new String(load(zip, "appended.txt"), StandardCharsets.UTF_8));
+      assertEquals("data for file 7", new String(load(zip, "source/dir2/file7.txt"), StandardCharsets.UTF_8));
+    }
+
+    final File target = new File(testDir, "extracted");
+    assertEquals(202, new ParallelZipExtractor(3).extract(archive, target));
+    assertEquals("data for file 199", new String(Files.readAllBytes(new File(target, "source/dir4/file199.txt").toPath()), StandardCharsets.UTF_8));
+    assertEquals(large.length, new File(target, "large.bin").length());
+    assertTrue(new File(target, "empty").isDirectory());
+  }
+
+
+
+
+  @Test
+  public void rejectEntriesOutsideTarget() throws IOException {
+    final File archive = new File(testDir, "slip.zip");
+    try (ParallelZipWriter writer = new ParallelZipWriter(archive, false)) {
+      writer.addEntry("../escaped.txt", "escaped".getBytes(StandardCharsets.UTF_8));
+    }
+
+    try {
+      new ParallelZipExtractor().extract(archive, new File(testDir, "slip"));
+      fail("entries outside the target directory should be rejected");
+    } catch (final IOException expected) {
+      // expected
+    }
+    assertFalse(new File(testDir, "escaped.txt").exists());
+  }
+
+}
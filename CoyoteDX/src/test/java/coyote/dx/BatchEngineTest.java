@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import coyote.dataframe.DataFrame;
+import coyote.dx.context.TransactionContext;
+import coyote.dx.listener.AbstractListener;
+import coyote.dx.reader.AbstractFrameReader;
+import coyote.dx.transform.AbstractFrameTransform;
+import coyote.dx.writer.AbstractFrameWriter;
+
+
+/**
+ *
+ */
+public class BatchEngineTest extends AbstractTest {
+
+  @Test
+  public void batches() throws Exception {
+    DataFrame config = new DataFrame() //
+        .set(ConfigTag.BATCH, 4) //
+        .set(ConfigTag.READER, new DataFrame() //
+            .set(ConfigTag.CLASS, "StaticReader") //
+            .set(ConfigTag.LIMIT, 10) //
+            .set(ConfigTag.FIELDS, new DataFrame().set("value", 2)));
+
+    TransformEngine engine = createEngine(config);
+    BatchTransform transform = new BatchTransform();
+    BatchWriter writer = new BatchWriter();
+    final List<Long> rows = new ArrayList<Long>();
+    engine.addTransformer(transform);
+    engine.addWriter(writer);
+    engine.addListener(new AbstractListener() {
+      @Override
+      public void onWrite(TransactionContext context, FrameWriter writer) {
+        rows.add(context.getRow());
+      }
+    });
+    turnOver(engine);
+    assertFalse(engine.getContext().isInError());
+
+    // the last frame flushes the partial batch
+    assertEquals("[4, 4, 2]", transform.sizes.toString());
+    assertEquals("[4, 4, 2]", writer.sizes.toString());
+    assertEquals(10, writer.frames.size());
+    assertEquals(20, writer.frames.get(9).getAsInt("value"));
+
+    // listeners still see each frame with its own row number
+    assertEquals(10, rows.size());
+    for (int x = 0; x < rows.size(); x++) {
+      assertEquals(x + 1, rows.get(x).longValue());
+    }
+  }
+
+
+
+
+  @Test
+  public void checkpoints() throws Exception {
+    DataFrame config = new DataFrame().set(ConfigTag.BATCH, 4);
+    TransformEngine engine = createEngine(config);
+    BatchWriter writer = new BatchWriter();
+    CountingReader reader = new CountingReader(10, writer);
+    engine.setReader(reader);
+    engine.addWriter(writer);
+    turnOver(engine);
+    assertFalse(engine.getContext().isInError());
+
+    // the reader is only told to checkpoint when every frame it returned has been written
+    assertFalse(reader.checkpoints.isEmpty());
+    for (String checkpoint : reader.checkpoints) {
+      String[] counts = checkpoint.split(":");
+      assertEquals(counts[0], counts[1]);
+    }
+    assertEquals("10:10", reader.checkpoints.get(reader.checkpoints.size() - 1));
+  }
+
+
+
+
+  @Test
+  public void partialWrite() throws Exception {
+    DataFrame config = new DataFrame() //
+        .set(ConfigTag.BATCH, 4) //
+        .set(ConfigTag.READER, new DataFrame() //
+            .set(ConfigTag.CLASS, "StaticReader") //
+            .set(ConfigTag.LIMIT, 4) //
+            .set(ConfigTag.FIELDS, new DataFrame().set("value", 2)));
+
+    TransformEngine engine = createEngine(config);
+    engine.addWriter(new BatchWriter() {
+      @Override
+      public void write(List<DataFrame> batch) {
+        super.write(batch.subList(0, 2));
+        throw new BatchWriteException("third frame rejected", 2);
+      }
+    });
+    final List<Long> written = new ArrayList<Long>();
+    engine.addListener(new AbstractListener() {
+      @Override
+      public void onWrite(TransactionContext context, FrameWriter writer) {
+        written.add(context.getRow());
+      }
+    });
+    turnOver(engine);
+
+    // only the frames from the failed one on are in error
+    assertEquals("[1, 2]", written.toString());
+    assertTrue(engine.getContext().isInError());
+    assertTrue(engine.getContext().getErrorMessage().contains("2 transaction errors"));
+  }
+
+
+
+
+  private static class CountingReader extends AbstractFrameReader implements CheckpointFrameReader {
+    final List<String> checkpoints = new ArrayList<String>();
+    final int limit;
+    final BatchWriter writer;
+    int count = 0;
+
+
+
+
+    CountingReader(int limit, BatchWriter writer) {
+      this.limit = limit;
+      this.writer = writer;
+    }
+
+
+
+
+    @Override
+    public DataFrame read(TransactionContext context) {
+      count++;
+      if (count == limit) {
+        context.setLastFrame(true);
+      }
+      return new DataFrame().set("value", count);
+    }
+
+
+
+
+    @Override
+    public boolean eof() {
+      return count >= limit;
+    }
+
+
+
+
+    @Override
+    public void checkpoint() {
+      checkpoints.add(count + ":" + writer.frames.size());
+    }
+  }
+
+
+
+
+  private static class BatchTransform extends AbstractFrameTransform implements BatchFrameTransform {
+    final List<Integer> sizes = new ArrayList<Integer>();
+
+
+
+
+    @Override
+    public DataFrame process(DataFrame frame) throws TransformException {
+      frame.put("value", frame.getAsInt("value") * 10);
+      return frame;
+    }
+
+
+
+
+    @Override
+    public List<DataFrame> process(List<DataFrame> frames) throws TransformException {
+      sizes.add(frames.size());
+      for (DataFrame frame : frames) {
+        process(frame);
+      }
+      return frames;
+    }
+  }
+
+
+
+
+  private static class BatchWriter extends AbstractFrameWriter implements BatchFrameWriter {
+    final List<Integer> sizes = new ArrayList<Integer>();
+    final List<DataFrame> frames = new ArrayList<DataFrame>();
+
+
+
+
+    @Override
+    public void write(DataFrame frame) {
+      sizes.add(1);
+      frames.add(frame);
+    }
+
+
+
+
+    @Override
+    public void write(List<DataFrame> batch) {
+      sizes.add(batch.size());
+      frames.addAll(batch);
+    }
+
+
+
+
+    @Override
+    public void close() throws IOException {}
+  }
+
+}
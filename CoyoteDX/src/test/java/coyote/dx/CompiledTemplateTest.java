@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import coyote.commons.template.SymbolTable;
+import coyote.commons.template.Template;
+
+
+/**
+ * 
+ */
+public class CompiledTemplateTest {
+
+  @Test
+  public void symbols() {
+    SymbolTable symbols = new SymbolTable();
+    symbols.put("host", "example.com");
+    symbols.put("port", "8080");
+
+    String text = "http://[#$host#]:[#$port#]/api?page=[#$page#]";
+    CompiledTemplate template = CompiledTemplate.compile(text);
+    assertSame(template, CompiledTemplate.compile(text));
+    assertFalse(template.isLiteral());
+
+    assertEquals(Template.preProcess(text, symbols), template.preProcess(symbols));
+    assertEquals(Template.resolve(text, symbols), template.resolve(symbols));
+    assertEquals("http://example.com:8080/api?page=[#$page#]", template.preProcess(symbols));
+
+    symbols.put("page", "2");
+    assertEquals("http://example.com:8080/api?page=2", template.resolve(symbols));
+  }
+
+
+
+
+  @Test
+  public void literals() {
+    CompiledTemplate template = CompiledTemplate.compile("no tokens [# here");
+    assertTrue(template.isLiteral());
+    assertEquals("no tokens [# here", template.resolve(new SymbolTable()));
+    assertEquals("", CompiledTemplate.resolve("", null));
+    assertEquals(null, CompiledTemplate.preProcess(null, null));
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+
+/**
+ *
+ */
+public class CompressionTest {
+
+  private static String sample() {
+    StringBuilder b = new StringBuilder();
+    for (int x = 0; x < 50000; x++) {
+      b.append(x).append(",name").append(x % 7).append(",").append(x * 3).append('\n');
+    }
+    return b.toString();
+  }
+
+
+
+
+  @Test
+  public void parallelMembers() throws IOException {
+    String text = sample();
+    byte[] data = text.getBytes("UTF-8");
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream out = new ParallelGzipOutputStream(compressed, 4096, 6, 4)) {
+      out.write(data);
+    }
+    assertTrue(compressed.size() < data.length);
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        result.write(buffer, 0, count);
+      }
+    }
+    assertEquals(text, new String(result.toByteArray(), "UTF-8"));
+  }
+
+
+
+
+  @Test
+  public void transparent() throws IOException {
+    String text = sample();
+    File file = File.createTempFile("compression", ".csv.gz");
+    try {
+      try (Writer writer = Compression.openWriter(file, false)) {
+        writer.write(text);
+      }
+      try (Writer writer = Compression.openWriter(file, true)) {
+        writer.write("appended\n");
+      }
+      try (InputStream in = new FileInputStream(file)) {
+        assertEquals(0x1f, in.read());
+        assertEquals(0x8b, in.read());
+      }
+      assertEquals(text + "appended\n", Compression.readText(file));
+    } finally {
+      file.delete();
+    }
+
+    file = File.createTempFile("compression", ".txt");
+    try {
+      try (Writer writer = Compression.openWriter(file, false)) {
+        writer.write("x^plain");
+      }
+      assertEquals(7, file.length());
+      assertEquals("x^plain", Compression.readText(file));
+    } finally {
+      file.delete();
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import coyote.commons.template.SymbolTable;
+import coyote.dataframe.DataFrame;
+import coyote.dx.context.TransformContext;
+import coyote.loader.cfg.Config;
+import coyote.loader.cfg.ConfigurationException;
+
+
+/**
+ * 
+ */
+public class ConfigurableComponentTest {
+
+  private static class Component extends AbstractConfigurableComponent {
+    @Override
+    public void open(TransformContext context) {
+      setContext(context);
+    }
+
+
+
+
+    @Override
+    public void close() {}
+  }
+
+
+
+
+  @Test
+  public void resolvedValues() throws ConfigurationException {
+    TransformContext context = new TransformContext();
+    context.setSymbols(new SymbolTable());
+    context.set("HostRef", "example.com");
+
+    Component component = new Component();
+    component.setConfiguration(new Config(new DataFrame().set("host", "HostRef").set("port", "8080").set("path", "/[#$dir#]")));
+    component.open(context);
+
+    assertEquals("example.com", component.getString("Host"));
+    assertEquals(8080, component.getInteger("port"));
+    assertEquals(8080L, component.getLong("PORT"));
+    assertFalse(component.getBoolean("host"));
+    assertNull(component.getString("missing"));
+
+    // context changes are seen
+    context.set("HostRef", "example.org");
+    context.set("missing", "found");
+    assertEquals("example.org", component.getString("host"));
+    assertEquals("found", component.getString("missing"));
+
+    // templates are resolved on each call
+    context.getSymbols().put("dir", "one");
+    assertEquals("/one", component.getString("path"));
+    context.getSymbols().put("dir", "two");
+    assertEquals("/two", component.getString("path"));
+
+    // values are resolved when opened, so configuration changes require invalidation
+    component.getConfiguration().put("port", "9090");
+    assertEquals(8080, component.getInteger("port"));
+    component.invalidateConfiguration();
+    assertEquals(9090, component.getInteger("port"));
+  }
+
+}
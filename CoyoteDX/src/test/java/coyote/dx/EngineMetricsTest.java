@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import coyote.dataframe.DataFrame;
+
+
+/**
+ *
+ */
+public class EngineMetricsTest {
+
+  @Test
+  public void buckets() {
+    // every value must fall in a bucket whose upper bound is at least the value
+    for (long value = 0; value < 100000; value += 7) {
+      final int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.upperBoundOf(index) >= value);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.upperBoundOf(index - 1) < value);
+      }
+    }
+  }
+
+
+
+
+  @Test
+  public void percentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int x = 1; x <= 1000; x++) {
+      histogram.record(x * 1000L);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000L, histogram.getMax());
+    final long median = histogram.getPercentile(50);
+    assertTrue(median >= 500000L && median <= 500000L * 1.125);
+    final long p99 = histogram.getPercentile(99);
+    assertTrue(p99 >= 990000L && p99 <= 1000000L);
+    assertEquals(1000000L, histogram.getPercentile(100));
+
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(50));
+  }
+
+
+
+
+  @Test
+  public void export() {
+    final EngineMetrics metrics = EngineMetrics.forJob("MetricsTest");
+    assertSame(metrics, EngineMetrics.forJob("MetricsTest"));
+    try {
+      metrics.started();
+      final EngineMetrics.Timer timer = metrics.getTimer(EngineMetrics.Stage.WRITE, 1, this);
+      assertSame(timer, metrics.getTimer(EngineMetrics.Stage.WRITE, 1, this));
+      timer.stop(System.nanoTime() - 2000000);
+      timer.error();
+      metrics.setGauge("depth", new EngineMetrics.Gauge() {
+        @Override
+        public long getValue() {
+          return 3;
+        }
+      });
+
+      final String text = EngineMetrics.toPrometheus();
+      assertTrue(text.contains("coyote_dx_stage_seconds_count{job=\"MetricsTest\",stage=\"write\",component=\"EngineMetricsTest-1\"} 1"));
+      assertTrue(text.contains("coyote_dx_stage_errors_total{job=\"MetricsTest\",stage=\"write\",component=\"EngineMetricsTest-1\"} 1"));
+      assertTrue(text.contains("coyote_dx_gauge{job=\"MetricsTest\",name=\"depth\"} 3"));
+
+      final DataFrame frame = EngineMetrics.toFrame();
+      assertNotNull(frame.getObject("MetricsTest"));
+    } finally {
+      EngineMetrics.remove("MetricsTest");
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+
+/**
+ *
+ */
+public class FieldDefinitionTest {
+
+  @Test
+  public void convertRanges() {
+    String record = "ABC  -1234567890123 00042 12.5 2018-03-04 ";
+    assertEquals("ABC", new FieldDefinition("name", 0, 5, "STR", null, true).convert(record, 0, 5));
+    assertEquals("ABC  ", new FieldDefinition("name", 0, 5, "STR", null, false).convert(record, 0, 5));
+    assertEquals(-1234567890123L, new FieldDefinition("long", 5, 14, "LONG", null, true).convert(record, 5, 19));
+    assertEquals(42, new FieldDefinition("int", 19, 6, "INT", null, true).convert(record, 19, 25));
+    assertEquals(12.5D, new FieldDefinition("dbl", 25, 5, "DOUBLE", null, true).convert(record, 25, 30));
+    assertEquals(0, new FieldDefinition("int", 0, 3, "INT", null, true).convert("   ", 0, 3));
+    assertEquals(Long.MIN_VALUE, new FieldDefinition("long", 0, 20, "LONG", null, true).convert("-9223372036854775808"));
+    assertEquals(0L, new FieldDefinition("long", 0, 19, "LONG", null, true).convert("9223372036854775808"));
+    assertEquals(0, new FieldDefinition("int", 0, 10, "INT", null, true).convert("2147483648"));
+    assertEquals(1234, new FieldDefinition("int", 0, 5, "INT", "#,##0", true).convert("1,234"));
+  }
+
+
+
+
+  @Test
+  public void convertDates() throws Exception {
+    FieldDefinition def = new FieldDefinition("date", 0, 10, "DATE", "yyyy-MM-dd", true);
+    assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2018-03-04"), def.convert("x2018-03-04 ", 1, 12));
+    assertNull(def.convert("          "));
+
+    // patterns the formatter reads differently are parsed as before
+    def = new FieldDefinition("date", 0, 8, "DATE", "MM/dd/yy", true);
+    assertEquals(new SimpleDateFormat("MM/dd/yy").parse("03/04/69"), def.convert("03/04/69"));
+    def = new FieldDefinition("date", 0, 8, "DATE", "hh:mm", true);
+    assertEquals(new SimpleDateFormat("hh:mm").parse("11:30"), def.convert("11:30"));
+
+    def = new FieldDefinition("date", 0, 19, "DATE", "yyyy-MM-dd HH:mm:ss", true);
+    assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse("2018-03-04 13:14:15"), def.convert("2018-03-04 13:14:15"));
+    assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse("2018-03-04 24:00:00"), def.convert("2018-03-04 24:00:00"));
+  }
+
+
+
+
+  @Test
+  public void convertOutOfRangeDates() throws Exception {
+    // values outside their range roll over as they do with a lenient SimpleDateFormat
+    FieldDefinition def = new FieldDefinition("date", 0, 10, "DATE", "yyyy-MM-dd", true);
+    assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2018-03-02"), def.convert("2018-02-30"));
+    assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2018-02-30"), def.convert("2018-02-30"));
+
+    def = new FieldDefinition("date", 0, 10, "DATE", "MM/dd/yyyy", true);
+    assertEquals(new SimpleDateFormat("MM/dd/yyyy").parse("13/45/2018"), def.convert("13/45/2018"));
+    assertEquals(new SimpleDateFormat("yyyy-MM-dd").parse("2019-02-14"), def.convert("13/45/2018"));
+  }
+
+
+
+
+  @Test
+  public void concurrentConversion() throws Exception {
+    final FieldDefinition date = new FieldDefinition("date", 0, 10, "DATE", "yyyy-MM-dd", true);
+    final FieldDefinition number = new FieldDefinition("number", 0, 8, "DOUBLE", "#,##0.00", true);
+    final SimpleDateFormat expected = new SimpleDateFormat("yyyy-MM-dd");
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int x = 0; x < 8; x++) {
+        final int day = x + 1;
+        results.add(pool.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            String text = "2018-01-0" + day;
+            Date value = new SimpleDateFormat("yyyy-MM-dd").parse(text);
+            for (int y = 0; y < 10000; y++) {
+              if (!value.equals(date.convert(text)) || !Double.valueOf(day * 1000.5).equals(number.convert(String.format("%,.2f", day * 1000.5)))) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertEquals(true, result.get());
+      }
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(expected.parse("2018-01-01"), date.convert("2018-01-01"));
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import coyote.dataframe.DataFrame;
+
+
+/**
+ *
+ */
+public class FrameBatchTest {
+
+  @Test
+  public void columnTypes() {
+    List<DataFrame> frames = new ArrayList<DataFrame>();
+    frames.add(new DataFrame().set("int", 1).set("text", "2").set("dbl", 1.5D).set("mixed", "3").set("word", "abc"));
+    frames.add(new DataFrame().set("int", 2L).set("text", "-7").set("dbl", "2.25").set("mixed", "3.5").set("word", 4));
+    FrameBatch batch = new FrameBatch(frames);
+
+    assertEquals(FrameBatch.LONG, batch.getColumn("int").getType());
+    assertEquals(2L, batch.getColumn("int").getLongs()[1]);
+    assertEquals(FrameBatch.LONG, batch.getColumn("text").getType());
+    assertEquals(-7L, batch.getColumn("text").getLongs()[1]);
+    assertEquals(FrameBatch.DOUBLE, batch.getColumn("dbl").getType());
+    assertEquals(2.25D, batch.getColumn("dbl").getDoubles()[1], 0D);
+
+    // integral and fractional values are not mixed in a primitive column
+    assertEquals(FrameBatch.OBJECT, batch.getColumn("mixed").getType());
+    assertEquals("3.5", batch.getColumn("mixed").getObject(1));
+    assertEquals(FrameBatch.OBJECT, batch.getColumn("word").getType());
+  }
+
+
+
+
+  @Test
+  public void nulls() {
+    List<DataFrame> frames = new ArrayList<DataFrame>();
+    frames.add(new DataFrame().set("value", 1));
+    frames.add(new DataFrame().set("other", 1));
+    FrameBatch batch = new FrameBatch(frames);
+
+    FrameBatch.Column column = batch.getColumn("value");
+    assertEquals(FrameBatch.LONG, column.getType());
+    assertTrue(column.hasNulls());
+    assertFalse(column.isNull(0));
+    assertTrue(column.isNull(1));
+    assertNull(column.getObject(1));
+    assertFalse(column.isMissing());
+    assertTrue(batch.getColumn("none").isMissing());
+  }
+
+
+
+
+  @Test
+  public void constants() {
+    List<DataFrame> frames = new ArrayList<DataFrame>();
+    frames.add(new DataFrame().set("value", 1));
+    frames.add(new DataFrame().set("value", 2));
+    FrameBatch batch = new FrameBatch(frames);
+
+    assertEquals(2L, batch.getColumnOrConstant("value").getLongs()[1]);
+    FrameBatch.Column column = batch.getColumnOrConstant("12");
+    assertEquals(FrameBatch.LONG, column.getType());
+    assertFalse(column.hasNulls());
+    assertEquals(12L, column.getLongs()[1]);
+    assertEquals(FrameBatch.DOUBLE, batch.getColumnOrConstant("0.5").getType());
+    assertEquals(FrameBatch.OBJECT, batch.getColumnOrConstant("Cost").getType());
+  }
+
+
+
+
+  @Test
+  public void toFrames() {
+    List<DataFrame> frames = new ArrayList<DataFrame>();
+    for (int x = 0; x < 5; x++) {
+      frames.add(new DataFrame().set("value", x));
+    }
+    FrameBatch batch = new FrameBatch(frames);
+    long[] values = batch.getColumn("value").getLongs();
+
+    FrameBatch.Column result = batch.createColumn("square", FrameBatch.LONG);
+    long[] squares = result.getLongs();
+    for (int x = 0; x < squares.length; x++) {
+      squares[x] = values[x] * values[x];
+      result.setNull(x, x == 2);
+    }
+    List<DataFrame> results = batch.toFrames();
+
+    assertEquals(16L, results.get(4).getAsLong("square"));
+    assertTrue(results.get(1).contains("square"));
+    assertFalse(results.get(2).contains("square"));
+  }
+
+}
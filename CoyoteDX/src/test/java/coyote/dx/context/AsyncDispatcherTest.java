@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import coyote.dataframe.DataFrame;
+import coyote.dx.listener.AbstractListener;
+import coyote.loader.cfg.Config;
+
+
+/**
+ *
+ */
+public class AsyncDispatcherTest {
+
+  /** Records the value of the working frame of each mapped transaction */
+  public static class Recorder extends AbstractListener implements AsyncSafe {
+    final List<Object> values = Collections.synchronizedList(new ArrayList<Object>());
+    final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+
+
+
+    @Override
+    public void onMap(final TransactionContext txnContext) {
+      values.add(txnContext.getWorkingFrame().getObject("value"));
+      threads.add(Thread.currentThread());
+    }
+  }
+
+  /** The same listener without the async-safe marker */
+  public static class Mutator extends AbstractListener {
+
+  }
+
+
+
+
+  @Test
+  public void wrapping() throws Exception {
+    final Config cfg = new Config();
+    final Recorder recorder = new Recorder();
+    recorder.setConfiguration(cfg);
+    assertSame(recorder, AsyncDispatcher.wrap(recorder));
+
+    cfg.put(AsyncDispatcher.ASYNC, true);
+    cfg.put(AsyncDispatcher.OVERFLOW, "drop");
+    recorder.setConfiguration(cfg);
+    final ContextListener wrapped = AsyncDispatcher.wrap(recorder);
+    assertTrue(wrapped instanceof AsyncDispatcher);
+    assertEquals(AsyncDispatcher.Overflow.DROP, ((AsyncDispatcher)wrapped).getOverflow());
+
+    final Mutator mutator = new Mutator();
+    mutator.setConfiguration(cfg);
+    assertSame(mutator, AsyncDispatcher.wrap(mutator));
+  }
+
+
+
+
+  @Test
+  public void snapshots() throws Exception {
+    final TransformContext context = new TransformContext();
+    final Recorder recorder = new Recorder();
+    final AsyncDispatcher dispatcher = new AsyncDispatcher(recorder, 4, AsyncDispatcher.Overflow.BLOCK, 0);
+    dispatcher.open(context);
+
+    final TransactionContext txn = new TransactionContext(context);
+    final DataFrame frame = new DataFrame();
+    txn.setWorkingFrame(frame);
+    for (int x = 0; x < 100; x++) {
+      // the same frame is changed for each event, the listener must see each value
+      frame.put("value", x);
+      dispatcher.onMap(txn);
+    }
+    dispatcher.close();
+
+    assertEquals(100, recorder.values.size());
+    for (int x = 0; x < 100; x++) {
+      assertEquals(x, ((Number)recorder.values.get(x)).intValue());
+    }
+    assertEquals(100, dispatcher.getDelivered());
+    assertEquals(0, dispatcher.getDropped());
+    assertNotSame(Thread.currentThread(), recorder.threads.get(0));
+  }
+
+
+
+
+  @Test
+  public void snapshotIsDetached() {
+    final TransformContext context = new TransformContext();
+    final TransactionContext txn = new TransactionContext(context);
+    final DataFrame frame = new DataFrame();
+    frame.put("value", 1);
+    txn.setWorkingFrame(frame);
+    txn.set("key", "one");
+    txn.setRow(7);
+
+    final TransactionContext copy = txn.snapshot();
+    frame.put("value", 2);
+    txn.set("key", "two");
+    txn.setRow(8);
+    txn.setError("failed");
+
+    assertEquals(1, ((Number)copy.getWorkingFrame().getObject("value")).intValue());
+    assertEquals("one", copy.get("key"));
+    assertEquals(7, copy.getRow());
+    assertFalse(copy.isInError());
+  }
+
+
+
+
+  @Test
+  public void snapshotWithoutFrames() {
+    final TransactionContext txn = new TransactionContext(new TransformContext());
+    txn.setWorkingFrame(new DataFrame().set("value", 1));
+    txn.set("key", "one");
+
+    final TransactionContext copy = txn.snapshot(false);
+    assertNull(copy.getWorkingFrame());
+    assertEquals("one", copy.get("key"));
+  }
+
+}
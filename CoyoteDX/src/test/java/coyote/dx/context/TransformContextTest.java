@@ -8,8 +8,10 @@
 
 package coyote.dx.context;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.Date;
 import java.util.Hashtable;
@@ -122,4 +124,46 @@ public class TransformContextTest {
 
   }
 
+
+
+
+
+  @Test
+  public void accessors() {
+    FieldAccessor accessor = transformContext.getAccessor("Working.Field4");
+    assertSame(accessor, transformContext.getAccessor("Working.Field4"));
+    assertEquals("Value4", accessor.getString(transformContext));
+    assertEquals("value1", transformContext.getAccessor("Source.field1").getValue(transformContext));
+    assertEquals(123L, transformContext.getAccessor("Target.LongField").getValue(transformContext));
+    assertEquals("chick", transformContext.getAccessor("Nested.egg.baby").getValue(transformContext));
+    assertEquals("Bob", transformContext.getAccessor("Transform.name").getValue(transformContext));
+    assertNull(transformContext.getAccessor("Working.field4").getValue(transformContext));
+
+    // case insensitive names, found in frames with different layouts
+    FieldAccessor insensitive = FieldAccessor.compileIgnoreCase("Working.field4");
+    assertEquals("Value4", insensitive.getString(transformContext));
+    TransactionContext txn = new TransactionContext(transformContext);
+    txn.setWorkingFrame(new DataFrame().set("extra", "x").set("FIELD4", "Other"));
+    transformContext.setTransaction(txn);
+    try {
+      assertEquals("Other", insensitive.getString(transformContext));
+      assertNull(accessor.getValue(transformContext));
+    } finally {
+      transformContext.setTransaction(context);
+    }
+  }
+
+
+
+
+  @Test
+  public void accessorCacheKeepsRecentTokens() {
+    FieldAccessor accessor = transformContext.getAccessor("Working.Field4");
+    for (int x = 0; x < 4096; x++) {
+      transformContext.getAccessor("Working.cold" + x);
+      // a token in regular use survives any number of tokens used once
+      assertSame(accessor, transformContext.getAccessor("Working.Field4"));
+    }
+  }
+
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import coyote.dataframe.DataFrame;
+import coyote.dx.AbstractTest;
+import coyote.dx.ConfigTag;
+import coyote.dx.FrameMapper;
+import coyote.dx.context.TransactionContext;
+import coyote.loader.cfg.Config;
+import coyote.loader.cfg.ConfigurationException;
+
+
+/**
+ * 
+ */
+public class FrameMapperTest extends AbstractTest {
+
+  private DataFrame map(FrameMapper mapper, DataFrame working) throws MappingException {
+    TransactionContext context = new TransactionContext(getTransformContext());
+    context.setWorkingFrame(working);
+    context.setTargetFrame(new DataFrame());
+    mapper.process(context);
+    return context.getTargetFrame();
+  }
+
+
+
+
+  @Test
+  public void segments() throws ConfigurationException, IOException, MappingException {
+    DataFrame cfg = new DataFrame().set(ConfigTag.FIELDS, new DataFrame().set("*.phone", "phones").set("name", "name"));
+
+    try (SegmentMapper mapper = new SegmentMapper()) {
+      mapper.setConfiguration(new Config(cfg));
+      mapper.open(getTransformContext());
+
+      DataFrame result = map(mapper, new DataFrame().set("home.phone", "555-1234").set("name", "Bob").set("work.phone", "555-9876"));
+      assertEquals("555-1234, 555-9876", result.getAsString("phones"));
+      assertEquals("Bob", result.getAsString("name"));
+
+      // same layout reuses the plan
+      result = map(mapper, new DataFrame().set("home.phone", "555-0000").set("name", "Sue").set("work.phone", ""));
+      assertEquals("555-0000", result.getAsString("phones"));
+      assertEquals("Sue", result.getAsString("name"));
+
+      // a different layout gets its own plan
+      result = map(mapper, new DataFrame().set("name", "Tom").set("cell.phone", "555-4321"));
+      assertEquals("555-4321", result.getAsString("phones"));
+      assertEquals("Tom", result.getAsString("name"));
+    }
+  }
+
+
+
+
+  @Test
+  public void defaultMapper() throws ConfigurationException, IOException, MappingException {
+    DataFrame cfg = new DataFrame().set(ConfigTag.FIELDS, new DataFrame().set("first", "FirstName").set("last", "LastName"));
+
+    try (DefaultFrameMapper mapper = new DefaultFrameMapper()) {
+      mapper.setConfiguration(new Config(cfg));
+      mapper.open(getTransformContext());
+
+      DataFrame result = map(mapper, new DataFrame().set("first", "Bob").set("last", "Smith"));
+      assertEquals("Bob", result.getAsString("FirstName"));
+      assertEquals("Smith", result.getAsString("LastName"));
+
+      result = map(mapper, new DataFrame().set("last", "Jones").set("age", 42));
+      assertNull(result.getObject("FirstName"));
+      assertEquals("Jones", result.getAsString("LastName"));
+    }
+  }
+
+}
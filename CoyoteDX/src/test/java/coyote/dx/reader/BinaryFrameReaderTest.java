@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import coyote.dataframe.DataFrame;
+import coyote.dx.AbstractTest;
+import coyote.dx.context.TransactionContext;
+import coyote.dx.writer.BinaryFrameWriter;
+import coyote.loader.cfg.ConfigurationException;
+
+
+/**
+ *
+ */
+public class BinaryFrameReaderTest extends AbstractTest {
+
+  private static final int FRAMES = 35;
+  private static File dataFile = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    dataFile = File.createTempFile("BinaryFrame", ".cdx");
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    dataFile.delete();
+  }
+
+
+
+
+  private String path() {
+    return dataFile.getAbsolutePath().replace('\\', '/');
+  }
+
+
+
+
+  private void writeFrames() throws ConfigurationException, IOException {
+    try (BinaryFrameWriter writer = new BinaryFrameWriter()) {
+      writer.setConfiguration(parseConfiguration("{ \"target\" : \"" + path() + "\", \"blocksize\" : 10 }"));
+      writer.open(getTransformContext());
+      for (int x = 0; x < FRAMES; x++) {
+        writer.write(new DataFrame() //
+            .set("id", x) //
+            .set("name", "name" + (x % 3)) //
+            .set("amount", x * 1.5D) //
+            .set("active", x % 2 == 0) //
+            .set("created", new Date(1000L * x)) //
+            .set("detail", new DataFrame().set("code", "C" + x)));
+      }
+    }
+  }
+
+
+
+
+  private BinaryFrameReader openReader(String extra) throws ConfigurationException {
+    BinaryFrameReader reader = new BinaryFrameReader();
+    reader.setConfiguration(parseConfiguration("{ \"source\" : \"" + path() + "\"" + extra + " }"));
+    reader.open(getTransformContext());
+    return reader;
+  }
+
+
+
+
+  @Test
+  public void roundTrip() throws Exception {
+    writeFrames();
+    try (BinaryFrameReader reader = openReader("")) {
+      assertEquals(6, reader.getSchema().size());
+      assertEquals("id", reader.getSchema().getName(0));
+      assertEquals(4, reader.getBlocks().size());
+
+      TransactionContext context = createTransactionContext();
+      int count = 0;
+      while (!reader.eof()) {
+        DataFrame frame = reader.read(context);
+        assertNotNull(frame);
+        assertEquals(count, frame.getAsInt("id"));
+        assertEquals("name" + (count % 3), frame.getAsString("name"));
+        assertEquals(count * 1.5D, frame.getAsDouble("amount"), 0);
+        assertEquals(count % 2 == 0, frame.getAsBoolean("active"));
+        assertEquals(new Date(1000L * count), frame.getAsDate("created"));
+        assertEquals("C" + count, ((DataFrame)frame.getObject("detail")).getAsString("code"));
+        count++;
+      }
+      assertEquals(FRAMES, count);
+      assertTrue(context.isLastFrame());
+    }
+  }
+
+
+
+
+  @Test
+  public void splits() throws Exception {
+    writeFrames();
+    int total = 0;
+    for (int split = 0; split < 3; split++) {
+      try (BinaryFrameReader reader = openReader(", \"split\" : " + split + ", \"splits\" : 3")) {
+        TransactionContext context = createTransactionContext();
+        while (!reader.eof()) {
+          DataFrame frame = reader.read(context);
+          assertNotNull(frame);
+          total++;
+        }
+      }
+    }
+    assertEquals(FRAMES, total);
+  }
+
+
+
+
+  @Test
+  public void seek() throws Exception {
+    writeFrames();
+    try (BinaryFrameReader reader = openReader("")) {
+      TransactionContext context = createTransactionContext();
+      reader.seek(23);
+      assertFalse(reader.eof());
+      assertEquals(23, reader.read(context).getAsInt("id"));
+      reader.seek(FRAMES);
+      assertTrue(reader.eof());
+    }
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import coyote.commons.FileUtil;
+import coyote.dataframe.DataFrame;
+import coyote.dx.AbstractTest;
+import coyote.dx.ConfigTag;
+import coyote.dx.Symbols;
+import coyote.dx.TransformEngine;
+import coyote.dx.context.TransactionContext;
+import coyote.dx.context.TransformContext;
+
+
+/**
+ *
+ */
+public class CsvDirectoryReaderTest extends AbstractTest {
+
+  private static File testDir = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    testDir = new File(FileUtil.getCurrentWorkingDirectory(), "csvdirtest");
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    deleteWorkDirectory(testDir);
+  }
+
+
+
+
+  @Test
+  public void readAndMove() throws Exception {
+    resetDirectory(testDir);
+    File inbox = new File(testDir, "inbox");
+    File done = new File(testDir, "done");
+    inbox.mkdirs();
+    for (int x = 0; x < 10; x++) {
+      StringBuilder data = new StringBuilder("file,row\n");
+      for (int y = 0; y < 100; y++) {
+        data.append(x).append(',').append(y).append('\n');
+        if (y % 10 == 0) {
+          data.append('\n');
+        }
+      }
+      Files.write(new File(inbox, "data" + x + ".csv").toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    DataFrame config = new DataFrame().set(ConfigTag.READER, new DataFrame() //
+        .set(ConfigTag.CLASS, "CsvDirectoryReader") //
+        .set(ConfigTag.DIRECTORY, inbox.getAbsolutePath()) //
+        .set(ConfigTag.PATTERN, ".*\\.csv") //
+        .set(ConfigTag.TODIR, done.getAbsolutePath()) //
+        .set(ConfigTag.THREADS, 3) //
+        .set(ConfigTag.HEADER, true) //
+    );
+
+    TransformEngine engine = createEngine(config);
+    TransformContext engineContext = engine.contextInit();
+    CsvDirectoryReader reader = (CsvDirectoryReader)engine.getReader();
+    reader.open(engineContext);
+
+    Set<String> rows = new HashSet<String>();
+    TransactionContext context = new TransactionContext(engineContext);
+    while (!reader.eof()) {
+      DataFrame frame = reader.read(context);
+      assertNotNull(frame);
+      String file = frame.getAsString("file");
+      String row = frame.getAsString("row");
+      assertTrue(context.getAsString(Symbols.SOURCE_FILE).endsWith("data" + file + ".csv"));
+
+      // one header line plus a blank line after every tenth row
+      int line = Integer.parseInt(row);
+      assertEquals(line + 2 + (line + 9) / 10, ((Number)context.get(Symbols.SOURCE_LINE)).intValue());
+      assertTrue(rows.add(file + ":" + row));
+    }
+    assertTrue(context.isLastFrame());
+    assertEquals(1000, rows.size());
+    reader.close();
+
+    assertEquals(0, inbox.listFiles().length);
+    assertEquals(10, done.listFiles().length);
+    assertFalse(engineContext.isInError());
+  }
+
+
+
+
+  @Test
+  public void skipUnreadableFile() throws Exception {
+    resetDirectory(testDir);
+    File inbox = new File(testDir, "inbox");
+    File done = new File(testDir, "done");
+    inbox.mkdirs();
+    for (int x = 0; x < 2; x++) {
+      StringBuilder data = new StringBuilder("file,row\n");
+      for (int y = 0; y < 100; y++) {
+        data.append(x).append(',').append(y).append('\n');
+      }
+      Files.write(new File(inbox, "data" + x + ".csv").toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    Files.write(new File(inbox, "bad.csv").toPath(), "file,row\n\"never closed,1\n".getBytes(StandardCharsets.UTF_8));
+
+    DataFrame config = new DataFrame().set(ConfigTag.READER, new DataFrame() //
+        .set(ConfigTag.CLASS, "CsvDirectoryReader") //
+        .set(ConfigTag.DIRECTORY, inbox.getAbsolutePath()) //
+        .set(ConfigTag.PATTERN, ".*\\.csv") //
+        .set(ConfigTag.TODIR, done.getAbsolutePath()) //
+        .set(ConfigTag.THREADS, 2) //
+        .set(ConfigTag.HEADER, true) //
+    );
+
+    TransformEngine engine = createEngine(config);
+    TransformContext engineContext = engine.contextInit();
+    CsvDirectoryReader reader = (CsvDirectoryReader)engine.getReader();
+    reader.open(engineContext);
+
+    int count = 0;
+    TransactionContext context = new TransactionContext(engineContext);
+    while (!reader.eof()) {
+      assertNotNull(reader.read(context));
+      if (!context.getAsString(Symbols.SOURCE_FILE).endsWith("bad.csv")) {
+        count++;
+      }
+    }
+    reader.close();
+
+    // the other files are read and moved, the bad one is left in place
+    assertEquals(200, count);
+    assertFalse(engineContext.isInError());
+    assertEquals(2, done.listFiles().length);
+    assertTrue(new File(inbox, "bad.csv").exists());
+  }
+
+}
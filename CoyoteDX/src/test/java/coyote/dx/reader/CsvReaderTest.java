@@ -8,12 +8,17 @@
 package coyote.dx.reader;
 
 //import static org.junit.Assert.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 
 import org.junit.BeforeClass;
@@ -85,4 +90,50 @@ public class CsvReaderTest extends AbstractTest {
 
   }
 
+
+
+
+  @Test
+  public void tailRotation() throws Exception {
+    File dir = Files.createTempDirectory("csvtail").toFile();
+    File file = new File(dir, "data.csv");
+    Files.write(file.toPath(), "a,b\n1,2\n".getBytes(StandardCharsets.UTF_8));
+
+    DataFrame config = new DataFrame().set(ConfigTag.READER,
+        new DataFrame() //
+            .set(ConfigTag.CLASS, "CsvReader") //
+            .set(ConfigTag.SOURCE, file.getAbsolutePath()) //
+            .set(ConfigTag.HEADER, true) //
+            .set(ConfigTag.TAIL, true) //
+            .set(ConfigTag.TIMEOUT, 1000) //
+    );
+
+    TransformEngine engine = createEngine(config);
+    TransformContext engineContext = engine.contextInit();
+    CsvReader reader = (CsvReader)engine.getReader();
+    reader.open(engineContext);
+    try {
+      TransactionContext context = new TransactionContext(engineContext);
+      DataFrame frame = reader.read(context);
+      assertEquals("2", frame.getAsString("b"));
+
+      // the new file starts with its own header
+      assertTrue(file.renameTo(new File(dir, "data.csv.1")));
+      Files.write(file.toPath(), "c,d\n3,4\n".getBytes(StandardCharsets.UTF_8));
+      frame = reader.read(context);
+      assertNotNull(frame);
+      assertEquals("4", frame.getAsString("d"));
+      assertFalse(frame.contains("b"));
+
+      // as does a truncated one
+      Files.write(file.toPath(), "e\n5\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+      frame = reader.read(context);
+      assertNotNull(frame);
+      assertEquals("5", frame.getAsString("e"));
+    } finally {
+      reader.close();
+      deleteWorkDirectory(dir);
+    }
+  }
+
 }
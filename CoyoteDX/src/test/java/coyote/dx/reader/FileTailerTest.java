@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import coyote.commons.FileUtil;
+import coyote.dx.AbstractTest;
+import coyote.dx.context.TransformContext;
+
+
+/**
+ *
+ */
+public class FileTailerTest extends AbstractTest {
+
+  private static File testDir = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    testDir = new File(FileUtil.getCurrentWorkingDirectory(), "tailertest");
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    deleteWorkDirectory(testDir);
+  }
+
+
+
+
+  private static void append(final File file, final String text) throws IOException {
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+
+
+
+  @Test
+  public void followAndResume() throws Exception {
+    resetDirectory(testDir);
+    final File file = new File(testDir, "follow.log");
+    append(file, "one\r\ntwo\nthr");
+
+    final TransformContext context = new TransformContext();
+    try (FileTailer tailer = FileTailer.resume(file, context, StandardCharsets.UTF_8)) {
+      assertEquals("one", tailer.nextLine());
+      assertEquals("two", tailer.nextLine());
+      // the partial line is held until it is complete
+      assertNull(tailer.nextLine());
+      assertEquals(9, tailer.getOffset());
+
+      append(file, "ee\nfour\n");
+      assertEquals("three", tailer.nextLine());
+      tailer.checkpoint(context, tailer.getOffset());
+      assertEquals("four", tailer.nextLine());
+      assertNull(tailer.nextLine());
+    }
+
+    // a new tailer resumes after the last checkpoint
+    try (FileTailer tailer = FileTailer.resume(file, context, StandardCharsets.UTF_8)) {
+      assertEquals("four", tailer.nextLine());
+      assertNull(tailer.nextLine());
+    }
+  }
+
+
+
+
+  @Test
+  public void rotationAndTruncation() throws Exception {
+    resetDirectory(testDir);
+    final File file = new File(testDir, "rotate.log");
+    append(file, "first\nsecond\n");
+
+    try (FileTailer tailer = new FileTailer(file, 0, null, StandardCharsets.UTF_8)) {
+      assertEquals("first", tailer.nextLine());
+      assertEquals("second", tailer.nextLine());
+      assertNull(tailer.nextLine());
+
+      // rotate the file away and start a new one
+      append(file, "last");
+      assertTrue(file.renameTo(new File(testDir, "rotate.log.1")));
+      append(file, "new\n");
+      assertEquals("last", tailer.nextLine());
+      // the unterminated line was read from the old file
+      assertEquals(0, tailer.getLineRotations());
+      assertEquals("new", tailer.nextLine());
+      assertEquals(1, tailer.getRotations());
+      assertEquals(1, tailer.getLineRotations());
+
+      // truncate the current file
+      Files.write(file.toPath(), "x\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals("x", tailer.nextLine());
+      assertEquals(2, tailer.getRotations());
+      assertEquals(2, tailer.getLineRotations());
+      assertEquals(2, tailer.getOffset());
+    }
+  }
+
+
+
+
+  @Test
+  public void rewrittenPastOffset() throws Exception {
+    resetDirectory(testDir);
+    final File file = new File(testDir, "rewrite.log");
+    append(file, "first\nsecond\n");
+
+    try (FileTailer tailer = new FileTailer(file, 0, null, StandardCharsets.UTF_8)) {
+      assertEquals("first", tailer.nextLine());
+      assertEquals("second", tailer.nextLine());
+      assertNull(tailer.nextLine());
+
+      // truncate the file and write more than was read before
+      Files.write(file.toPath(), "replaced\ncontent\nlonger\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals("replaced", tailer.nextLine());
+      assertEquals(1, tailer.getRotations());
+      assertEquals(1, tailer.getLineRotations());
+      assertEquals("content", tailer.nextLine());
+      assertEquals("longer", tailer.nextLine());
+      assertNull(tailer.nextLine());
+
+      // appended data is still read normally
+      append(file, "more\n");
+      assertEquals("more", tailer.nextLine());
+      assertEquals(1, tailer.getRotations());
+    }
+  }
+
+
+
+
+  @Test
+  public void ignoreOffsetOfReplacedFile() throws Exception {
+    resetDirectory(testDir);
+    final File file = new File(testDir, "replaced.log");
+    append(file, "alpha\nbeta\n");
+    final String key;
+    try (FileTailer tailer = new FileTailer(file, 0, null, StandardCharsets.UTF_8)) {
+      key = tailer.getFileKey();
+    }
+    assertTrue(file.delete());
+    append(file, "gamma\ndelta\nepsilon\n");
+
+    // the recorded key no longer matches so the new file is read from its start
+    try (FileTailer tailer = new FileTailer(file, 6, key, StandardCharsets.UTF_8)) {
+      if (key != null && !key.equals(tailer.getFileKey())) {
+        assertEquals("gamma", tailer.nextLine());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.BitSet;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import coyote.commons.csv.CSVReader;
+import coyote.dataframe.DataFrame;
+
+
+/**
+ *
+ */
+public class SplitFileParserTest {
+
+  private static final int RECORDS = 200000;
+  private static File testFile = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    // large enough to be split, with quoted line feeds and doubled quotes
+    testFile = Files.createTempFile("split", ".csv").toFile();
+    try (BufferedWriter out = new BufferedWriter(new FileWriter(testFile))) {
+      out.write("id,text,pad\n");
+      for (int x = 0; x < RECORDS; x++) {
+        out.write(Integer.toString(x));
+        if (x % 7 == 0) {
+          out.write(",\"line one\nline \"\"two\"\"\n\",");
+        } else {
+          out.write(",plain text,");
+        }
+        out.write("padding to make the file large enough to split\n");
+        if (x % 1000 == 0) {
+          out.write("\n");
+        }
+      }
+    }
+    assertTrue(SplitFileParser.isSplittable(testFile, 4));
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    testFile.delete();
+  }
+
+
+
+
+  private static SplitFileParser createParser(final boolean ordered) throws IOException {
+    final long body = SplitFileParser.recordEnd(testFile, 0, true);
+    return new SplitFileParser(testFile, body, StandardCharsets.UTF_8, 4, true, ordered) {
+      @Override
+      protected void parse(final BufferedReader range, final Sink sink) throws Exception {
+        final CSVReader reader = new CSVReader(range);
+        reader.consumeEmptyLines();
+        String[] data;
+        while ((data = reader.readNext()) != null) {
+          reader.consumeEmptyLines();
+          final int id = Integer.parseInt(data[0]);
+          final String expected = (id % 7 == 0) ? "line one\nline \"two\"\n" : "plain text";
+          if (data.length != 3 || !expected.equals(data[1])) {
+            throw new IOException("Record " + id + " was split");
+          }
+          sink.put(new DataFrame().set("id", id));
+        }
+      }
+    };
+  }
+
+
+
+
+  @Test
+  public void ordered() throws Exception {
+    try (SplitFileParser parser = createParser(true)) {
+      parser.start();
+      for (int x = 0; x < RECORDS; x++) {
+        assertEquals(x, parser.take().getAsInt("id"));
+      }
+      assertNull(parser.take());
+    }
+  }
+
+
+
+
+  @Test
+  public void unordered() throws Exception {
+    final BitSet seen = new BitSet(RECORDS);
+    try (SplitFileParser parser = createParser(false)) {
+      parser.start();
+      DataFrame frame;
+      while ((frame = parser.take()) != null) {
+        seen.set(frame.getAsInt("id"));
+      }
+    }
+    assertEquals(RECORDS, seen.cardinality());
+  }
+
+}
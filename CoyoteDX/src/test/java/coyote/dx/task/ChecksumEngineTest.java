@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import coyote.commons.FileUtil;
+import coyote.dx.AbstractTest;
+
+
+/**
+ *
+ */
+public class ChecksumEngineTest extends AbstractTest {
+
+  private static File testDir = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    testDir = new File(FileUtil.getCurrentWorkingDirectory(), "checksumtest");
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    deleteWorkDirectory(testDir);
+  }
+
+
+
+
+  private static String hex(final String algorithm, final byte[] data) throws Exception {
+    final byte[] digest = MessageDigest.getInstance(algorithm).digest(data);
+    return String.format("%0" + (digest.length * 2) + "x", new BigInteger(1, digest));
+  }
+
+
+
+
+  @Test
+  public void multipleDigests() throws Exception {
+    resetDirectory(testDir);
+    final List<File> files = new ArrayList<File>();
+    final List<byte[]> contents = new ArrayList<byte[]>();
+    final Random random = new Random(7);
+    // one file large enough to be memory-mapped in more than one block
+    for (final int size : new int[]{0, 10, 1024 * 1024 + 3, 9 * 1024 * 1024 + 17}) {
+      final byte[] data = new byte[size];
+      random.nextBytes(data);
+      final File file = new File(testDir, "data" + size + ".bin");
+      Files.write(file.toPath(), data);
+      files.add(file);
+      contents.add(data);
+    }
+
+    final ChecksumEngine engine = new ChecksumEngine(3);
+    final Map<File, Map<String, String>> results = engine.digestAll(files, Arrays.asList(ChecksumEngine.CRC32, "MD5", "SHA-256"));
+    for (int x = 0; x < files.size(); x++) {
+      final Map<String, String> result = results.get(files.get(x));
+      final CRC32 crc = new CRC32();
+      crc.update(contents.get(x));
+      assertEquals(Long.toHexString(crc.getValue()), result.get(ChecksumEngine.CRC32));
+      assertEquals(hex("MD5", contents.get(x)), result.get("MD5"));
+      assertEquals(hex("SHA-256", contents.get(x)), result.get("SHA-256"));
+    }
+  }
+
+
+
+
+  @Test
+  public void manifest() throws Exception {
+    resetDirectory(testDir);
+    final StringBuilder manifest = new StringBuilder("# test manifest\n");
+    for (int x = 0; x < 20; x++) {
+      final byte[] data = ("file number " + x).getBytes(StandardCharsets.UTF_8);
+      Files.write(new File(testDir, "file" + x + ".txt").toPath(), data);
+      if (x % 2 == 0) {
+        manifest.append(hex("SHA-256", data)).append("  file").append(x).append(".txt\n");
+      } else {
+        manifest.append("SHA256 (file").append(x).append(".txt) = ").append(hex("SHA-256", data)).append('\n');
+      }
+    }
+    final File list = new File(testDir, "SHA256SUMS");
+    Files.write(list.toPath(), manifest.toString().getBytes(StandardCharsets.UTF_8));
+
+    final ChecksumEngine engine = new ChecksumEngine(4);
+    ChecksumEngine.Verification results = engine.verify(list, null, "SHA-256");
+    assertTrue(results.isSuccessful());
+    assertEquals(20, results.getVerified().size());
+
+    manifest.append("0000  missing.txt\n");
+    Files.write(list.toPath(), manifest.toString().getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(testDir, "file3.txt").toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+    results = engine.verify(list, null, "SHA-256");
+    assertFalse(results.isSuccessful());
+    assertEquals(19, results.getVerified().size());
+    assertEquals(1, results.getFailed().size());
+    assertEquals(Arrays.asList("missing.txt"), results.getMissing());
+  }
+
+
+
+
+  @Test(expected = IOException.class)
+  public void unsupportedAlgorithm() throws IOException {
+    resetDirectory(testDir);
+    final File file = new File(testDir, "data.txt");
+    Files.write(file.toPath(), "data".getBytes(StandardCharsets.UTF_8));
+    new ChecksumEngine(1).digest(file, "NOPE");
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import coyote.commons.FileUtil;
+import coyote.dx.AbstractTest;
+import coyote.dx.ConfigTag;
+import coyote.dx.context.TransformContext;
+import coyote.loader.cfg.Config;
+
+
+/**
+ *
+ */
+public class CombineTaskTest extends AbstractTest {
+
+  private static File testDir = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    testDir = new File(FileUtil.getCurrentWorkingDirectory(), "combinetest");
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    deleteWorkDirectory(testDir);
+  }
+
+
+
+
+  private static void write(String name, String text) throws IOException {
+    Files.write(new File(testDir, name).toPath(), text.getBytes(StandardCharsets.UTF_8));
+  }
+
+
+
+
+  private String combine(boolean header, int threads) throws Exception {
+    File target = new File(testDir, "combined.txt");
+    Config cfg = new Config();
+    cfg.put(ConfigTag.DIRECTORY, testDir.getAbsolutePath());
+    cfg.put(ConfigTag.PATTERN, "part.*\\.csv$");
+    cfg.put(ConfigTag.TARGET, target.getAbsolutePath());
+    cfg.put(ConfigTag.APPEND, false);
+    cfg.put(ConfigTag.HEADER, header);
+    cfg.put(ConfigTag.THREADS, threads);
+
+    TransformContext context = new TransformContext();
+    try (Combine task = new Combine()) {
+      task.setConfiguration(cfg);
+      task.open(context);
+      task.execute();
+    }
+    assertFalse(context.isInError());
+    return new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8);
+  }
+
+
+
+
+  @Test
+  public void combine() throws Exception {
+    resetDirectory(testDir);
+    write("part1.csv", "id,name\r\n1,one\r\n");
+    write("part2.csv", "id,name\r\n2,two");
+    write("part3.csv", "id,name\n3,three\n");
+    write("part4.csv", "id,name");
+
+    assertEquals("id,name\r\n1,one\r\nid,name\r\n2,two\nid,name\n3,three\nid,name\n", combine(false, 1));
+    assertEquals("id,name\r\n1,one\r\n2,two\n3,three\n", combine(true, 1));
+    assertEquals("id,name\r\n1,one\r\n2,two\n3,three\n", combine(true, 4));
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import coyote.commons.FileUtil;
+import coyote.dx.AbstractTest;
+import coyote.dx.context.TransformContext;
+
+
+/**
+ *
+ */
+public class FileOperationsTest extends AbstractTest {
+
+  private static File testDir = null;
+
+
+
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    testDir = new File(FileUtil.getCurrentWorkingDirectory(), "fileopstest");
+  }
+
+
+
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    deleteWorkDirectory(testDir);
+  }
+
+
+
+
+  private static void write(File file, String text) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+  }
+
+
+
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+
+
+
+  @Test
+  public void copyDirectory() throws IOException {
+    resetDirectory(testDir);
+    File source = new File(testDir, "source");
+    for (int x = 0; x < 3; x++) {
+      for (int y = 0; y < 100; y++) {
+        write(new File(source, "dir" + x + "/file" + y + ".txt"), "data" + x + y);
+      }
+      write(new File(source, "dir" + x + "/skip.dat"), "skip");
+    }
+
+    FileOperations operations = new FileOperations(4);
+    File target = new File(testDir, "preserved");
+    operations.copyDirectory(source, target, ".*\\.txt$", true, true, true, false, false);
+    assertEquals(300, operations.getFiles());
+    assertEquals("data142", read(new File(target, "dir1/file42.txt")));
+    assertFalse(new File(target, "dir1/skip.dat").exists());
+
+    // flattened copies of files with the same name get generational names
+    operations.reset();
+    target = new File(testDir, "flat");
+    operations.copyDirectory(source, target, ".*\\.txt$", true, false, false, false, true);
+    assertEquals(300, operations.getFiles());
+    assertEquals(300, target.list().length);
+    assertTrue(new File(target, "file7.txt.2").exists());
+
+    // existing files are skipped when not overwriting or renaming
+    operations.reset();
+    operations.copyDirectory(source, target, ".*\\.txt$", true, false, false, false, false);
+    assertEquals(0, operations.getFiles());
+    assertEquals(300, operations.getSkipped());
+
+    TransformContext context = new TransformContext();
+    operations.publish(context, "Copy");
+    assertEquals(300L, context.get("Copy.skipped"));
+  }
+
+
+
+
+  @Test
+  public void moveAndBackup() throws IOException {
+    resetDirectory(testDir);
+    File file = new File(testDir, "data.txt");
+    write(file, "one");
+
+    FileOperations operations = new FileOperations(1);
+    for (int x = 0; x < 4; x++) {
+      operations.backup(file, 2);
+    }
+    assertTrue(new File(testDir, "data.txt.1").exists());
+    assertTrue(new File(testDir, "data.txt.2").exists());
+    assertFalse(new File(testDir, "data.txt.3").exists());
+
+    File moved = new File(testDir, "moved/data.txt");
+    operations.move(file, moved, false);
+    assertFalse(file.exists());
+    assertEquals("one", read(moved));
+  }
+
+
+
+
+  @Test
+  public void overwriteFlattened() throws IOException {
+    resetDirectory(testDir);
+    File source = new File(testDir, "source");
+    int size = 2 * 1024 * 1024;
+    for (int x = 0; x < 16; x++) {
+      byte[] data = new byte[size];
+      Arrays.fill(data, (byte)x);
+      new File(source, "dir" + x).mkdirs();
+      Files.write(new File(source, "dir" + x + "/same.dat").toPath(), data);
+    }
+
+    // every file is copied onto the one target, which must end up holding one of them whole
+    FileOperations operations = new FileOperations(16);
+    File target = new File(testDir, "flat");
+    operations.copyDirectory(source, target, null, true, false, false, true, false);
+    assertEquals(16, operations.getFiles());
+    byte[] data = Files.readAllBytes(new File(target, "same.dat").toPath());
+    assertEquals(size, data.length);
+    for (int x = 1; x < size; x++) {
+      assertEquals(data[0], data[x]);
+    }
+  }
+
+
+
+
+  @Test
+  public void failedMoveKeepsTarget() throws IOException {
+    resetDirectory(testDir);
+    File target = new File(testDir, "target.txt");
+    write(target, "kept");
+
+    FileOperations operations = new FileOperations(1);
+    try {
+      operations.move(new File(testDir, "missing.txt"), target, true);
+      fail("moved a file which does not exist");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals("kept", read(target));
+
+    File source = new File(testDir, "source.txt");
+    write(source, "replaced");
+    operations.move(source, target, true);
+    assertFalse(source.exists());
+    assertEquals("replaced", read(target));
+  }
+
+}
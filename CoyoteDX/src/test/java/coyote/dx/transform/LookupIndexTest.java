@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.transform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+
+/**
+ * 
+ */
+public class LookupIndexTest {
+
+  @Test
+  public void basic() {
+    LookupIndex index = new LookupIndex(new String[]{"name", "location"});
+    index.put("1", new String[]{"Sales", "Atlanta"});
+    index.put("2", new String[]{"Engineering", null});
+    index.put("3", new String[]{"Legal"});
+
+    assertEquals(3, index.size());
+    assertArrayEquals(new String[]{"Sales", "Atlanta"}, index.get("1"));
+    assertArrayEquals(new String[]{"Engineering", null}, index.get("2"));
+    assertArrayEquals(new String[]{"Legal", null}, index.get("3"));
+    assertNull(index.get("4"));
+    assertNull(index.get(null));
+    assertTrue(index.containsKey("2"));
+    assertFalse(index.containsKey("5"));
+
+    // last one wins
+    index.put("1", new String[]{"Marketing", "Dallas"});
+    assertEquals(3, index.size());
+    assertArrayEquals(new String[]{"Marketing", "Dallas"}, index.get("1"));
+  }
+
+
+
+
+  @Test
+  public void growth() {
+    LookupIndex index = new LookupIndex(new String[]{"value"});
+    for (int x = 0; x < 50000; x++) {
+      index.put("key" + x, new String[]{"\u00e9value" + x});
+    }
+    assertEquals(50000, index.size());
+    for (int x = 0; x < 50000; x += 997) {
+      assertEquals("\u00e9value" + x, index.get("key" + x)[0]);
+    }
+  }
+
+
+
+
+  @Test
+  public void persisted() throws Exception {
+    File file = File.createTempFile("lookup", ".idx");
+    file.deleteOnExit();
+
+    LookupIndex index = new LookupIndex(new String[]{"name", "location"});
+    for (int x = 0; x < 5000; x++) {
+      index.put(Integer.toString(x), new String[]{"name" + x, (x % 2 == 0) ? null : "loc" + x});
+    }
+    index.save(file);
+
+    LookupIndex mapped = LookupIndex.load(file);
+    assertTrue(mapped.isReadOnly());
+    assertEquals(5000, mapped.size());
+    assertArrayEquals(new String[]{"name", "location"}, mapped.getColumns());
+    assertArrayEquals(new String[]{"name42", null}, mapped.get("42"));
+    assertArrayEquals(new String[]{"name4999", "loc4999"}, mapped.get("4999"));
+    assertNull(mapped.get("5000"));
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ * 
+ * This program and the accompanying materials are made available under the 
+ * terms of the MIT License which accompanies this distribution, and is 
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.dx.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import coyote.dataframe.DataFrame;
+import coyote.dx.AbstractTest;
+import coyote.dx.ConfigTag;
+import coyote.dx.TransformException;
+import coyote.loader.cfg.Config;
+import coyote.loader.cfg.ConfigurationException;
+
+
+/**
+ * 
+ */
+public class LookupTest extends AbstractTest {
+
+  @Test
+  public void preloaded() throws ConfigurationException, IOException, TransformException {
+    DataFrame cfg = new DataFrame().set(ConfigTag.FIELD, "dept").set("key", "id").set("prefix", "dept_");
+    Config configuration = new Config(cfg);
+
+    try (Lookup transformer = new Lookup()) {
+      transformer.setConfiguration(configuration);
+      transformer.open(getTransformContext());
+
+      transformer.preload(new DataFrame().set("id", "10").set("name", "Sales").set("location", "Atlanta"));
+      transformer.preload(new DataFrame().set("id", "20").set("name", "Legal").set("location", "Dallas"));
+      assertEquals(2, transformer.getIndexSize());
+
+      DataFrame result = transformer.process(new DataFrame().set("emp", "Bob").set("dept", "20"));
+      assertNotNull(result);
+      assertEquals("Legal", result.getAsString("dept_name"));
+      assertEquals("Dallas", result.getAsString("dept_location"));
+      assertNull(result.getField("dept_id"));
+
+      result = transformer.process(new DataFrame().set("emp", "Sue").set("dept", "30"));
+      assertNull(result.getField("dept_name"));
+      assertEquals("Sue", result.getAsString("emp"));
+    }
+  }
+
+}
@@ -7,10 +7,14 @@
  */
 package coyote.dx.transform;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -107,4 +111,33 @@ public class MultiplyTest extends AbstractTest {
     }
   }
 
+
+
+
+  @Test
+  public void batch() throws IOException, ConfigurationException, TransformException, DataFrameException {
+    String cfgData = "{ \"field\" : \"TotalCost\",  \"source\" : \"Count\",  \"factor\" : \"Cost\" }";
+    Config configuration = parseConfiguration(cfgData);
+
+    List<DataFrame> frames = new ArrayList<DataFrame>();
+    for (int x = 0; x < 10; x++) {
+      frames.add(new DataFrame().set("Count", x).set("Cost", "3"));
+    }
+
+    try (Multiply transformer = new Multiply()) {
+      transformer.setConfiguration(configuration);
+      transformer.open(getTransformContext());
+
+      List<DataFrame> results = transformer.process(frames);
+      assertNotNull(results);
+      assertEquals(10, results.size());
+      for (int x = 0; x < 10; x++) {
+        assertEquals(x * 3L, results.get(x).getAsLong("TotalCost"));
+      }
+
+      // fractional values are left to the single frame path
+      frames.get(4).put("Cost", "3.5");
+      assertNull(transformer.process(frames));
+    }
+  }
 }
@@ -7,10 +7,14 @@
  */
 package coyote.dx.transform;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -107,4 +111,32 @@ public class SubtractTest extends AbstractTest {
     }
   }
 
+
+
+
+  @Test
+  public void batch() throws IOException, ConfigurationException, TransformException, DataFrameException {
+    String cfgData = "{ \"field\" : \"Profit\",  \"minuend\" : \"Price\",  \"subtrahend\" : \"Cost\" }";
+    Config configuration = parseConfiguration(cfgData);
+
+    List<DataFrame> frames = new ArrayList<DataFrame>();
+    for (int x = 0; x < 10; x++) {
+      frames.add(new DataFrame().set("Price", x + 0.5D).set("Cost", 2));
+    }
+
+    try (Subtract transformer = new Subtract()) {
+      transformer.setConfiguration(configuration);
+      transformer.open(getTransformContext());
+
+      List<DataFrame> results = transformer.process(frames);
+      assertNotNull(results);
+      for (int x = 0; x < 10; x++) {
+        assertEquals(x - 1.5D, results.get(x).getAsDouble("Profit"), 0D);
+      }
+
+      // frames without a value are left to the single frame path
+      frames.get(4).put("Cost", null);
+      assertNull(transformer.process(frames));
+    }
+  }
 }
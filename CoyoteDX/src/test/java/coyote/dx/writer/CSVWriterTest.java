@@ -7,15 +7,23 @@
  */
 package coyote.dx.writer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import org.junit.Test;
 
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.DataFrameException;
 import coyote.dx.AbstractTest;
+import coyote.dx.Compression;
+import coyote.dx.ParallelGzipOutputStream;
 import coyote.dx.TransformException;
 import coyote.dx.context.TransactionContext;
 import coyote.loader.cfg.Config;
@@ -47,4 +55,60 @@ public class CSVWriterTest extends AbstractTest {
 
   }
 
+
+
+
+  @Test
+  public void compressedTarget() throws Exception {
+    File file = File.createTempFile("csvwriter", ".csv.gz");
+    try {
+      Config configuration = parseConfiguration("{ \"target\" : \"" + file.getAbsolutePath() + "\", \"header\" : true }");
+      try (CsvWriter writer = new CsvWriter()) {
+        writer.setConfiguration(configuration);
+        writer.open(getTransformContext());
+        for (int x = 0; x < 100000; x++) {
+          writer.write(new DataFrame().set("id", x).set("name", "name" + (x % 7)).set("amount", x * 3));
+        }
+      }
+
+      // the writer flushes each row, which must not produce a member per row
+      byte[] compressed = Files.readAllBytes(file.toPath());
+      int length = Compression.readText(file).getBytes(StandardCharsets.UTF_8).length;
+      int blocks = (length + ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE - 1) / ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
+      assertEquals(blocks, countMembers(compressed));
+      assertTrue(compressed.length < length / 2);
+    } finally {
+      file.delete();
+    }
+  }
+
+
+
+
+  /**
+   * Count the gzip members in the given data.
+   */
+  private static int countMembers(byte[] data) throws DataFormatException {
+    int retval = 0;
+    int position = 0;
+    byte[] buffer = new byte[64 * 1024];
+    while (position < data.length) {
+      assertEquals(0x1f, data[position] & 0xFF);
+      assertEquals(0x8b, data[position + 1] & 0xFF);
+      Inflater inflater = new Inflater(true);
+      try {
+        // a 10 byte header without optional fields, the deflate data and an 8 byte trailer
+        inflater.setInput(data, position + 10, data.length - position - 10);
+        while (!inflater.finished()) {
+          inflater.inflate(buffer);
+        }
+        position = data.length - inflater.getRemaining() + 8;
+      } finally {
+        inflater.end();
+      }
+      retval++;
+    }
+    return retval;
+  }
+
 }
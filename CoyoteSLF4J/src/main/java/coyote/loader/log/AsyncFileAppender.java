@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.loader.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import coyote.dataframe.DataField;
+
+
+/**
+ * A file appender which writes its events on a thread of its own.
+ *
+ * <p>Events are formatted on the calling thread (so the formatter can still
+ * see the location of the caller) and placed in a bounded queue. A writer
+ * thread takes them from the queue, encodes them into a reusable buffer and
+ * writes the buffer to a file channel when it fills, when the flush interval
+ * elapses or when the queue is empty. The calling thread never waits on the
+ * disk unless the queue is full and the overflow policy is to block.
+ *
+ * <p>If the writer thread fails (e.g. the disk is full), the appender writes
+ * any queued and later events to standard error instead so logging threads
+ * are never left waiting on a queue nobody takes from.
+ *
+ * <p>The file is rotated when it reaches its maximum size; the current file
+ * becomes generation 1 ({@code target.1}), generation 1 becomes 2 and so on
+ * up to the configured number of generations.
+ *
+ * <p>Configuration attributes:<ul>
+ * <li>{@code target} - the file to write (required)</li>
+ * <li>{@code capacity} - the number of events the queue holds (default
+ * 8192)</li>
+ * <li>{@code overflow} - {@code block} the caller when the queue is full
+ * (default) or {@code drop} the event</li>
+ * <li>{@code buffer} - the size of the write buffer in bytes (default
+ * 64KB)</li>
+ * <li>{@code flush} - the maximum number of milliseconds events are held in
+ * the buffer (default 1000)</li>
+ * <li>{@code maxsize} - the size at which the file is rotated, e.g.
+ * {@code 2MB}; 0 or missing disables rotation</li>
+ * <li>{@code generations} - the number of rotated files kept (default
+ * 5)</li></ul>
+ */
+public class AsyncFileAppender extends AbstractLogger {
+
+  private static final String TARGET = "target";
+  private static final String CAPACITY = "capacity";
+  private static final String OVERFLOW = "overflow";
+  private static final String BUFFER = "buffer";
+  private static final String FLUSH = "flush";
+  private static final String MAXSIZE = "maxsize";
+  private static final String GENERATIONS = "generations";
+  private static final String DROP = "drop";
+
+  private static final int DEFAULT_CAPACITY = 8192;
+  private static final int DEFAULT_BUFFER = 64 * 1024;
+  private static final long DEFAULT_FLUSH = 1000;
+  private static final int DEFAULT_GENERATIONS = 5;
+
+  /** How long a blocked caller waits before checking the writer is alive */
+  private static final long OFFER_INTERVAL = 100;
+
+  /** How long terminate waits for the queue and the writer thread */
+  private static final long TERMINATE_TIMEOUT = 5000;
+
+  /** Placed on the queue to stop the writer thread */
+  private static final String STOP = new String();
+
+  private BlockingQueue<String> queue = null;
+  private boolean dropOnOverflow = false;
+  private int bufferSize = DEFAULT_BUFFER;
+  private long flushInterval = DEFAULT_FLUSH;
+  private long maxSize = 0;
+  private int generations = DEFAULT_GENERATIONS;
+  private File targetFile = null;
+  private final AtomicLong dropped = new AtomicLong();
+  private volatile Thread writer = null;
+
+  /** Set when the writer thread exits without being stopped */
+  private volatile boolean dead = false;
+
+  // used only by the writer thread
+  private FileChannel channel = null;
+  private ByteBuffer bytes = null;
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+  private long fileSize = 0;
+  private long lastFlush = 0;
+
+
+
+
+  /**
+   * @see coyote.loader.log.AbstractLogger#initialize()
+   */
+  @Override
+  public void initialize() {
+    final String target = getString( TARGET );
+    if ( target == null || target.trim().length() == 0 ) {
+      System.err.println( getClass().getSimpleName() + ": no target file configured" );
+      return;
+    }
+    targetFile = new File( target.trim() );
+    final File parent = targetFile.getAbsoluteFile().getParentFile();
+    if ( parent != null && !parent.exists() ) {
+      parent.mkdirs();
+    }
+
+    queue = new ArrayBlockingQueue<String>( (int)getLong( CAPACITY, DEFAULT_CAPACITY ) );
+    dropOnOverflow = DROP.equalsIgnoreCase( getString( OVERFLOW ) );
+    bufferSize = (int)getLong( BUFFER, DEFAULT_BUFFER );
+    flushInterval = getLong( FLUSH, DEFAULT_FLUSH );
+    maxSize = parseSize( getString( MAXSIZE ) );
+    generations = (int)getLong( GENERATIONS, DEFAULT_GENERATIONS );
+
+    final Thread thread = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        drain();
+      }
+    }, getClass().getSimpleName() + "-" + targetFile.getName() );
+    thread.setDaemon( true );
+    writer = thread;
+    thread.start();
+  }
+
+
+
+
+  /**
+   * Format the event and queue it for writing.
+   *
+   * @see coyote.loader.log.AbstractLogger#append(java.lang.String, java.lang.Object, java.lang.Throwable)
+   */
+  @Override
+  public void append( final String category, final Object event, final Throwable cause ) {
+    final BlockingQueue<String> events = queue;
+    if ( events == null || writer == null ) {
+      return;
+    }
+    final String text = formatter.format( event, category, cause );
+    if ( dead ) {
+      System.err.print( text );
+    } else if ( dropOnOverflow ) {
+      if ( !events.offer( text ) ) {
+        dropped.incrementAndGet();
+      }
+    } else {
+      try {
+        // wait in intervals so a writer which died does not block us forever
+        while ( !events.offer( text, OFFER_INTERVAL, TimeUnit.MILLISECONDS ) ) {
+          if ( dead ) {
+            System.err.print( text );
+            break;
+          }
+        }
+      } catch ( final InterruptedException e ) {
+        dropped.incrementAndGet();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Write all the queued events, stop the writer thread and close the file.
+   *
+   * @see coyote.loader.log.AbstractLogger#terminate()
+   */
+  @Override
+  public void terminate() {
+    final Thread thread = writer;
+    if ( thread != null ) {
+      writer = null;
+      try {
+        if ( !dead && !queue.offer( STOP, TERMINATE_TIMEOUT, TimeUnit.MILLISECONDS ) ) {
+          System.err.println( getClass().getSimpleName() + ": timed out stopping the writer of " + targetFile );
+        }
+        thread.join( TERMINATE_TIMEOUT );
+      } catch ( final InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+
+
+
+  /**
+   * @return the number of events dropped because the queue was full
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+
+
+
+  /**
+   * The body of the writer thread.
+   */
+  private void drain() {
+    boolean stopped = false;
+    bytes = ByteBuffer.allocateDirect( bufferSize > 0 ? bufferSize : DEFAULT_BUFFER );
+    try {
+      open();
+      lastFlush = System.currentTimeMillis();
+      while ( true ) {
+        String text = queue.poll( flushInterval, TimeUnit.MILLISECONDS );
+        if ( text == STOP ) {
+          stopped = true;
+          break;
+        }
+        if ( text != null ) {
+          encode( text );
+        }
+        // flush when idle or when events have waited long enough
+        if ( queue.isEmpty() || System.currentTimeMillis() - lastFlush >= flushInterval ) {
+          flush();
+        }
+      }
+      flush();
+    } catch ( final InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } catch ( final IOException e ) {
+      System.err.println( getClass().getSimpleName() + ": could not write to " + targetFile + " - " + e.getMessage() );
+    } finally {
+      close();
+      if ( !stopped ) {
+        // nobody takes from the queue any more; send what is left to stderr
+        dead = true;
+        String text;
+        while ( ( text = queue.poll() ) != null ) {
+          if ( text != STOP ) {
+            System.err.print( text );
+          }
+        }
+      }
+    }
+  }
+
+
+
+
+  private void open() throws IOException {
+    channel = FileChannel.open( targetFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND );
+    fileSize = channel.size();
+  }
+
+
+
+
+  private void close() {
+    if ( channel != null ) {
+      try {
+        channel.close();
+      } catch ( final IOException ignore ) {
+        // nothing we can do
+      }
+      channel = null;
+    }
+  }
+
+
+
+
+  /**
+   * Encode the text into the buffer, writing the buffer out as it fills.
+   */
+  private void encode( final String text ) throws IOException {
+    final CharBuffer chars = CharBuffer.wrap( text );
+    encoder.reset();
+    while ( true ) {
+      final CoderResult result = encoder.encode( chars, bytes, true );
+      if ( result.isOverflow() ) {
+        flush();
+      } else {
+        break;
+      }
+    }
+    encoder.flush( bytes );
+  }
+
+
+
+
+  /**
+   * Write the buffer to the file, rotating the file first if the data would
+   * take it past its maximum size.
+   */
+  private void flush() throws IOException {
+    bytes.flip();
+    if ( bytes.hasRemaining() ) {
+      if ( maxSize > 0 && fileSize > 0 && fileSize + bytes.remaining() > maxSize ) {
+        rotate();
+      }
+      while ( bytes.hasRemaining() ) {
+        fileSize += channel.write( bytes );
+      }
+    }
+    bytes.clear();
+    lastFlush = System.currentTimeMillis();
+  }
+
+
+
+
+  /**
+   * Close the current file, shift the generations and open a new file.
+   */
+  private void rotate() throws IOException {
+    close();
+    final String path = targetFile.getPath();
+    final File oldest = new File( path + "." + generations );
+    if ( oldest.exists() ) {
+      oldest.delete();
+    }
+    for ( int x = generations - 1; x > 0; x-- ) {
+      final File file = new File( path + "." + x );
+      if ( file.exists() ) {
+        file.renameTo( new File( path + "." + ( x + 1 ) ) );
+      }
+    }
+    if ( generations > 0 ) {
+      targetFile.renameTo( new File( path + ".1" ) );
+    } else {
+      targetFile.delete();
+    }
+    open();
+  }
+
+
+
+
+  private String getString( final String name ) {
+    if ( getConfig() != null ) {
+      final DataField field = getConfig().getFieldIgnoreCase( name );
+      if ( field != null ) {
+        return field.getStringValue();
+      }
+    }
+    return null;
+  }
+
+
+
+
+  private long getLong( final String name, final long defaultValue ) {
+    final String value = getString( name );
+    if ( value != null ) {
+      try {
+        final long retval = Long.parseLong( value.trim() );
+        return retval > 0 ? retval : defaultValue;
+      } catch ( final NumberFormatException e ) {
+        System.err.println( getClass().getSimpleName() + ": invalid " + name + " of '" + value + "' using " + defaultValue );
+      }
+    }
+    return defaultValue;
+  }
+
+
+
+
+  /**
+   * Parse a size such as {@code 500KB}, {@code 2MB} or {@code 1GB}.
+   *
+   * @param value the size
+   *
+   * @return the number of bytes, 0 if the value is missing or invalid
+   */
+  static long parseSize( final String value ) {
+    if ( value == null || value.trim().length() == 0 ) {
+      return 0;
+    }
+    String text = value.trim().toUpperCase();
+    long multiplier = 1;
+    if ( text.endsWith( "B" ) ) {
+      text = text.substring( 0, text.length() - 1 );
+    }
+    if ( text.endsWith( "K" ) ) {
+      multiplier = 1024;
+    } else if ( text.endsWith( "M" ) ) {
+      multiplier = 1024 * 1024;
+    } else if ( text.endsWith( "G" ) ) {
+      multiplier = 1024 * 1024 * 1024;
+    }
+    if ( multiplier > 1 ) {
+      text = text.substring( 0, text.length() - 1 );
+    }
+    try {
+      return Long.parseLong( text.trim() ) * multiplier;
+    } catch ( final NumberFormatException e ) {
+      return 0;
+    }
+  }
+
+}
@@ -18,6 +18,12 @@ import org.slf4j.Marker;
 /**
  * This is a logger which intercepts logging requests via the SLF4J API and 
  * sends them to a category logger.
+ * 
+ * <p>The level of each request is checked before its message is formatted so 
+ * disabled levels cost no more than the check. Messages use the SLF4J 
+ * {@code {}} placeholders and are formatted by {@link PlaceholderFormatter}; 
+ * a trailing throwable argument not used by a placeholder is logged as the 
+ * cause of the event.
  */
 public class CategoryLogger implements Logger {
 
@@ -38,7 +44,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final Marker marker, final String msg ) {
-    LogKernel.append( Log.DEBUG_EVENTS, msg, null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, msg, null );
+    }
   }
 
 
@@ -49,7 +57,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final Marker marker, final String format, final Object arg ) {
-    LogKernel.append( Log.DEBUG_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -60,7 +70,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final Marker marker, final String format, final Object... arguments ) {
-    LogKernel.append( Log.DEBUG_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -71,7 +83,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final Marker marker, final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.DEBUG_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -82,7 +96,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final Marker marker, final String msg, final Throwable t ) {
-    LogKernel.append( Log.DEBUG_EVENTS, msg, t );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, msg, t );
+    }
   }
 
 
@@ -93,7 +109,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final String msg ) {
-    LogKernel.append( Log.DEBUG_EVENTS, msg, null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, msg, null );
+    }
   }
 
 
@@ -104,7 +122,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final String format, final Object arg ) {
-    LogKernel.append( Log.DEBUG_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -115,7 +135,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final String format, final Object... arguments ) {
-    LogKernel.append( Log.DEBUG_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -126,7 +148,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.DEBUG_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -137,7 +161,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void debug( final String msg, final Throwable t ) {
-    LogKernel.append( Log.DEBUG_EVENTS, msg, t );
+    if ( Log.isLogging( Log.DEBUG_EVENTS ) ) {
+      LogKernel.append( Log.DEBUG_EVENTS, msg, t );
+    }
   }
 
 
@@ -148,7 +174,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final Marker marker, final String msg ) {
-    LogKernel.append( Log.ERROR_EVENTS, msg, null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, msg, null );
+    }
   }
 
 
@@ -159,7 +187,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final Marker marker, final String format, final Object arg ) {
-    LogKernel.append( Log.ERROR_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -170,7 +200,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final Marker marker, final String format, final Object... arguments ) {
-    LogKernel.append( Log.ERROR_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -181,7 +213,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final Marker marker, final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.ERROR_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -192,7 +226,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final Marker marker, final String msg, final Throwable t ) {
-    LogKernel.append( Log.ERROR_EVENTS, msg, t );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, msg, t );
+    }
   }
 
 
@@ -203,7 +239,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final String msg ) {
-    LogKernel.append( Log.ERROR_EVENTS, msg, null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, msg, null );
+    }
   }
 
 
@@ -214,7 +252,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final String format, final Object arg ) {
-    LogKernel.append( Log.ERROR_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -225,7 +265,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final String format, final Object... arguments ) {
-    LogKernel.append( Log.ERROR_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -236,7 +278,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.ERROR_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -247,7 +291,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void error( final String msg, final Throwable t ) {
-    LogKernel.append( Log.ERROR_EVENTS, msg, t );
+    if ( Log.isLogging( Log.ERROR_EVENTS ) ) {
+      LogKernel.append( Log.ERROR_EVENTS, msg, t );
+    }
   }
 
 
@@ -269,7 +315,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final Marker marker, final String msg ) {
-    LogKernel.append( Log.INFO_EVENTS, msg, null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, msg, null );
+    }
   }
 
 
@@ -280,7 +328,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final Marker marker, final String format, final Object arg ) {
-    LogKernel.append( Log.INFO_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -291,7 +341,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final Marker marker, final String format, final Object... arguments ) {
-    LogKernel.append( Log.INFO_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -302,7 +354,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final Marker marker, final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.INFO_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -313,7 +367,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final Marker marker, final String msg, final Throwable t ) {
-    LogKernel.append( Log.INFO_EVENTS, msg, t );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, msg, t );
+    }
   }
 
 
@@ -324,7 +380,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final String msg ) {
-    LogKernel.append( Log.INFO_EVENTS, msg, null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, msg, null );
+    }
   }
 
 
@@ -335,7 +393,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final String format, final Object arg ) {
-    LogKernel.append( Log.INFO_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -346,7 +406,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final String format, final Object... arguments ) {
-    LogKernel.append( Log.INFO_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -357,7 +419,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.INFO_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -368,7 +432,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void info( final String msg, final Throwable t ) {
-    LogKernel.append( Log.INFO_EVENTS, msg, t );
+    if ( Log.isLogging( Log.INFO_EVENTS ) ) {
+      LogKernel.append( Log.INFO_EVENTS, msg, t );
+    }
   }
 
 
@@ -489,7 +555,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final Marker marker, final String msg ) {
-    LogKernel.append( Log.TRACE_EVENTS, msg, null );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, msg, null );
+    }
   }
 
 
@@ -500,7 +568,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final Marker marker, final String format, final Object arg ) {
-    LogKernel.append( Log.TRACE_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -511,7 +581,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final Marker marker, final String format, final Object... arguments ) {
-    LogKernel.append( Log.TRACE_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -522,7 +594,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final Marker marker, final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.TRACE_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -533,7 +607,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final Marker marker, final String msg, final Throwable t ) {
-    LogKernel.append( Log.TRACE_EVENTS, msg, t );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, msg, t );
+    }
   }
 
 
@@ -544,7 +620,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final String msg ) {
-    LogKernel.append( Log.TRACE_EVENTS, msg );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, msg, null );
+    }
   }
 
 
@@ -555,7 +633,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final String format, final Object arg ) {
-    LogKernel.append( Log.TRACE_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -566,7 +646,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final String format, final Object... arguments ) {
-    LogKernel.append( Log.TRACE_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -577,7 +659,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.TRACE_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -588,7 +672,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void trace( final String msg, final Throwable t ) {
-    LogKernel.append( Log.TRACE_EVENTS, msg, t );
+    if ( Log.isLogging( Log.TRACE_EVENTS ) ) {
+      LogKernel.append( Log.TRACE_EVENTS, msg, t );
+    }
   }
 
 
@@ -599,7 +685,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final Marker marker, final String msg ) {
-    LogKernel.append( Log.WARN_EVENTS, msg, null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, msg, null );
+    }
   }
 
 
@@ -610,7 +698,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final Marker marker, final String format, final Object arg ) {
-    LogKernel.append( Log.WARN_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -621,7 +711,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final Marker marker, final String format, final Object... arguments ) {
-    LogKernel.append( Log.WARN_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -632,7 +724,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final Marker marker, final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.WARN_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -643,7 +737,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final Marker marker, final String msg, final Throwable t ) {
-    LogKernel.append( Log.WARN_EVENTS, msg, t );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, msg, t );
+    }
   }
 
 
@@ -654,7 +750,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final String msg ) {
-    LogKernel.append( Log.WARN_EVENTS, msg, null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, msg, null );
+    }
   }
 
 
@@ -665,7 +763,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final String format, final Object arg ) {
-    LogKernel.append( Log.WARN_EVENTS, String.format( format, arg ), null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, PlaceholderFormatter.format( format, arg ), PlaceholderFormatter.getThrowable( format, 1, arg ) );
+    }
   }
 
 
@@ -676,7 +776,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final String format, final Object... arguments ) {
-    LogKernel.append( Log.WARN_EVENTS, String.format( format, arguments ), null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, PlaceholderFormatter.format( format, arguments ), PlaceholderFormatter.getThrowable( format, arguments ) );
+    }
   }
 
 
@@ -687,7 +789,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final String format, final Object arg1, final Object arg2 ) {
-    LogKernel.append( Log.WARN_EVENTS, String.format( format, arg1, arg2 ), null );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, PlaceholderFormatter.format( format, arg1, arg2 ), PlaceholderFormatter.getThrowable( format, 2, arg2 ) );
+    }
   }
 
 
@@ -698,7 +802,9 @@ public class CategoryLogger implements Logger {
    */
   @Override
   public void warn( final String msg, final Throwable t ) {
-    LogKernel.append( Log.WARN_EVENTS, msg, t );
+    if ( Log.isLogging( Log.WARN_EVENTS ) ) {
+      LogKernel.append( Log.WARN_EVENTS, msg, t );
+    }
   }
 
 }
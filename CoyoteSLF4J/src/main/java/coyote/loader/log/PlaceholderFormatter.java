@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.loader.log;
+
+import java.util.Arrays;
+
+
+/**
+ * Formats SLF4J messages by replacing each {@code {}} placeholder in the
+ * pattern with the next argument.
+ *
+ * <p>A placeholder preceded by a backslash ({@code \{}}) is written as the
+ * literal text {@code {}}. Placeholders without a matching argument are left
+ * in the message. Array arguments are written with their contents.
+ *
+ * <p>Messages are built in a per-thread buffer which is reused for every
+ * message formatted on that thread, so formatting allocates only the
+ * resulting string. Callers are expected to check the level of the message
+ * before formatting it.
+ */
+public final class PlaceholderFormatter {
+
+  private static final char DELIM_START = '{';
+  private static final char DELIM_STOP = '}';
+  private static final char ESCAPE = '\\';
+
+  /** Buffers larger than this are not kept for reuse */
+  private static final int MAX_RETAINED = 8 * 1024;
+
+  private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+    @Override
+    protected StringBuilder initialValue() {
+      return new StringBuilder( 256 );
+    }
+  };
+
+
+
+
+  private PlaceholderFormatter() {
+    // only static methods
+  }
+
+
+
+
+  /**
+   * Format a pattern with one argument.
+   *
+   * @param pattern the message pattern
+   * @param arg the argument
+   *
+   * @return the formatted message
+   */
+  public static String format( final String pattern, final Object arg ) {
+    if ( pattern == null ) {
+      return null;
+    }
+    final StringBuilder buffer = getBuffer();
+    int position = 0;
+    position = appendNext( buffer, pattern, position, arg );
+    return finish( buffer, pattern, position );
+  }
+
+
+
+
+  /**
+   * Format a pattern with two arguments.
+   *
+   * @param pattern the message pattern
+   * @param arg1 the first argument
+   * @param arg2 the second argument
+   *
+   * @return the formatted message
+   */
+  public static String format( final String pattern, final Object arg1, final Object arg2 ) {
+    if ( pattern == null ) {
+      return null;
+    }
+    final StringBuilder buffer = getBuffer();
+    int position = 0;
+    position = appendNext( buffer, pattern, position, arg1 );
+    position = appendNext( buffer, pattern, position, arg2 );
+    return finish( buffer, pattern, position );
+  }
+
+
+
+
+  /**
+   * Format a pattern with any number of arguments.
+   *
+   * @param pattern the message pattern
+   * @param args the arguments, may be null
+   *
+   * @return the formatted message
+   */
+  public static String format( final String pattern, final Object[] args ) {
+    if ( pattern == null ) {
+      return null;
+    }
+    final StringBuilder buffer = getBuffer();
+    int position = 0;
+    if ( args != null ) {
+      for ( int x = 0; x < args.length; x++ ) {
+        position = appendNext( buffer, pattern, position, args[x] );
+      }
+    }
+    return finish( buffer, pattern, position );
+  }
+
+
+
+
+  /**
+   * Return the throwable to be logged with a message.
+   *
+   * <p>Following the SLF4J convention, the last argument is taken to be the
+   * cause of the event if it is a throwable and there are more arguments than
+   * placeholders in the pattern.
+   *
+   * @param pattern the message pattern
+   * @param args the arguments
+   *
+   * @return the throwable or null if the arguments do not end with an unused
+   *         throwable
+   */
+  public static Throwable getThrowable( final String pattern, final Object[] args ) {
+    if ( args == null || args.length == 0 ) {
+      return null;
+    }
+    return getThrowable( pattern, args.length, args[args.length - 1] );
+  }
+
+
+
+
+  /**
+   * Return the throwable to be logged with a message.
+   *
+   * @param pattern the message pattern
+   * @param count the number of arguments
+   * @param last the last argument
+   *
+   * @return the last argument if it is a throwable not used by a placeholder,
+   *         null otherwise
+   */
+  public static Throwable getThrowable( final String pattern, final int count, final Object last ) {
+    if ( last instanceof Throwable && countPlaceholders( pattern ) < count ) {
+      return (Throwable)last;
+    }
+    return null;
+  }
+
+
+
+
+  /**
+   * @return the number of unescaped placeholders in the pattern
+   */
+  static int countPlaceholders( final String pattern ) {
+    int retval = 0;
+    if ( pattern != null ) {
+      int index = pattern.indexOf( DELIM_START );
+      while ( index >= 0 && index + 1 < pattern.length() ) {
+        if ( pattern.charAt( index + 1 ) == DELIM_STOP && !isEscaped( pattern, index ) ) {
+          retval++;
+        }
+        index = pattern.indexOf( DELIM_START, index + 1 );
+      }
+    }
+    return retval;
+  }
+
+
+
+
+  private static StringBuilder getBuffer() {
+    final StringBuilder retval = BUFFER.get();
+    retval.setLength( 0 );
+    return retval;
+  }
+
+
+
+
+  /**
+   * Append the pattern up to the next placeholder and the argument in place
+   * of the placeholder.
+   *
+   * @return the position in the pattern after the placeholder or of the 
+   *         remaining text if there were no more placeholders
+   */
+  private static int appendNext( final StringBuilder buffer, final String pattern, final int start, final Object arg ) {
+    int position = start;
+    while ( true ) {
+      final int index = pattern.indexOf( DELIM_START, position );
+      if ( index < 0 || index + 1 >= pattern.length() ) {
+        // no more placeholders, the rest is appended when the message is finished
+        return position;
+      }
+      if ( pattern.charAt( index + 1 ) != DELIM_STOP ) {
+        buffer.append( pattern, position, index + 1 );
+        position = index + 1;
+        continue;
+      }
+      if ( isEscaped( pattern, index ) ) {
+        // drop the escape character and keep the braces
+        buffer.append( pattern, position, index - 1 );
+        buffer.append( DELIM_START );
+        position = index + 1;
+        continue;
+      }
+      buffer.append( pattern, position, index );
+      appendArgument( buffer, arg );
+      return index + 2;
+    }
+  }
+
+
+
+
+  private static boolean isEscaped( final String pattern, final int index ) {
+    return index > 0 && pattern.charAt( index - 1 ) == ESCAPE && !( index > 1 && pattern.charAt( index - 2 ) == ESCAPE );
+  }
+
+
+
+
+  private static void appendArgument( final StringBuilder buffer, final Object arg ) {
+    if ( arg == null ) {
+      buffer.append( "null" );
+    } else if ( arg.getClass().isArray() ) {
+      if ( arg instanceof Object[] ) {
+        buffer.append( Arrays.deepToString( (Object[])arg ) );
+      } else if ( arg instanceof int[] ) {
+        buffer.append( Arrays.toString( (int[])arg ) );
+      } else if ( arg instanceof long[] ) {
+        buffer.append( Arrays.toString( (long[])arg ) );
+      } else if ( arg instanceof byte[] ) {
+        buffer.append( Arrays.toString( (byte[])arg ) );
+      } else if ( arg instanceof short[] ) {
+        buffer.append( Arrays.toString( (short[])arg ) );
+      } else if ( arg instanceof char[] ) {
+        buffer.append( Arrays.toString( (char[])arg ) );
+      } else if ( arg instanceof boolean[] ) {
+        buffer.append( Arrays.toString( (boolean[])arg ) );
+      } else if ( arg instanceof float[] ) {
+        buffer.append( Arrays.toString( (float[])arg ) );
+      } else if ( arg instanceof double[] ) {
+        buffer.append( Arrays.toString( (double[])arg ) );
+      }
+    } else {
+      try {
+        buffer.append( arg.toString() );
+      } catch ( final RuntimeException e ) {
+        buffer.append( "[FAILED toString() of " ).append( arg.getClass().getName() ).append( ']' );
+      }
+    }
+  }
+
+
+
+
+  /**
+   * Append the rest of the pattern and return the message, releasing the
+   * buffer if it grew too large to keep.
+   */
+  private static String finish( final StringBuilder buffer, final String pattern, final int position ) {
+    appendRemainder( buffer, pattern, position );
+    final String retval = buffer.toString();
+    if ( buffer.capacity() > MAX_RETAINED ) {
+      BUFFER.remove();
+    }
+    return retval;
+  }
+
+
+
+
+  /**
+   * Append the rest of the pattern, un-escaping any escaped placeholders.
+   */
+  private static void appendRemainder( final StringBuilder buffer, final String pattern, final int start ) {
+    int position = start;
+    int index = pattern.indexOf( DELIM_START, position );
+    while ( index >= 0 ) {
+      if ( index + 1 < pattern.length() && pattern.charAt( index + 1 ) == DELIM_STOP && isEscaped( pattern, index ) ) {
+        buffer.append( pattern, position, index - 1 );
+        position = index;
+      }
+      index = pattern.indexOf( DELIM_START, index + 1 );
+    }
+    buffer.append( pattern, position, pattern.length() );
+  }
+
+}
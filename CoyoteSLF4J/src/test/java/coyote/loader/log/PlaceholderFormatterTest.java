@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018 Stephan D. Cote' - All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License which accompanies this distribution, and is
+ * available at http://creativecommons.org/licenses/MIT/
+ */
+package coyote.loader.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+
+/**
+ *
+ */
+public class PlaceholderFormatterTest {
+
+  @Test
+  public void placeholders() {
+    assertEquals( "a 1 b x c", PlaceholderFormatter.format( "a {} b {} c", 1, "x" ) );
+    assertEquals( "a 1 b", PlaceholderFormatter.format( "a {} b", 1, "x" ) );
+    assertEquals( "a 1 b null {}", PlaceholderFormatter.format( "a {} b {} {}", new Object[] { 1, null } ) );
+    assertEquals( "no args", PlaceholderFormatter.format( "no args", "x" ) );
+    assertEquals( "{x} {", PlaceholderFormatter.format( "{x} {", "v" ) );
+    assertEquals( "arr [1, 2]", PlaceholderFormatter.format( "arr {}", (Object)new int[] { 1, 2 } ) );
+    assertNull( PlaceholderFormatter.format( null, "x" ) );
+  }
+
+
+
+
+  @Test
+  public void escapes() {
+    assertEquals( "esc {} then v and {}", PlaceholderFormatter.format( "esc \\{} then {} and \\{}", "v" ) );
+  }
+
+
+
+
+  @Test
+  public void throwables() {
+    final Exception e = new Exception( "test" );
+    assertSame( e, PlaceholderFormatter.getThrowable( "failed", 1, e ) );
+    assertNull( PlaceholderFormatter.getThrowable( "failed: {}", 1, e ) );
+    assertSame( e, PlaceholderFormatter.getThrowable( "failed: {}", new Object[] { "x", e } ) );
+    assertNull( PlaceholderFormatter.getThrowable( "failed: {} {}", new Object[] { "x", e } ) );
+  }
+
+
+
+
+  @Test
+  public void sizes() {
+    assertEquals( 2 * 1024 * 1024, AsyncFileAppender.parseSize( "2MB" ) );
+    assertEquals( 500 * 1024, AsyncFileAppender.parseSize( "500k" ) );
+    assertEquals( 100, AsyncFileAppender.parseSize( "100" ) );
+    assertEquals( 0, AsyncFileAppender.parseSize( "lots" ) );
+  }
+
+}
@@ -23,6 +23,7 @@ import coyote.dx.http.responder.HealthCheckResponder;
 import coyote.dx.http.responder.Logging;
 import coyote.dx.http.responder.Login;
 import coyote.dx.http.responder.Logout;
+import coyote.dx.http.responder.MetricsResponder;
 import coyote.dx.http.responder.PingResponder;
 import coyote.loader.cfg.Config;
 import coyote.loader.log.Log;
@@ -89,6 +90,8 @@ public class CoyoteHttpManager extends HTTPDRouter implements HttpManager {
     addRoute("/api/cmd/:command", CommandResponder.class, service);
     addRoute("/api/ping/:id", PingResponder.class, service);
     addRoute("/api/health", HealthCheckResponder.class, service);
+    addRoute("/api/metrics", MetricsResponder.class, service);
+    addRoute("/api/metrics/:format", MetricsResponder.class, service);
 
     addRoute("/", Dashboard.class, service);
     addRoute("/login", Login.class, service);
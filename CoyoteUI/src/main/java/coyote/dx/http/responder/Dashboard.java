@@ -55,6 +55,11 @@ public class Dashboard extends ViewResponder implements Responder {
     // Add more symbols to our table, like other page fragments:
     getSymbols().put("Menu", loadFragment("fragments/menu2.html"));
 
+    // a place for the job metrics, filled from /api/metrics/json by the page
+    if (!getSymbols().containsKey("PageContent")) {
+      getSymbols().put("PageContent", "<div id=\"metrics\"></div>");
+    }
+
     // modify the template as we see fit
 
     //
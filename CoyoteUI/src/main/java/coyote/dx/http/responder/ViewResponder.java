@@ -22,7 +22,7 @@ import coyote.commons.network.http.responder.DefaultResponder;
 import coyote.commons.network.http.responder.Resource;
 import coyote.commons.network.http.responder.Responder;
 import coyote.commons.template.SymbolTable;
-import coyote.commons.template.Template;
+import coyote.dx.CompiledTemplate;
 import coyote.loader.log.Log;
 
 
@@ -141,9 +141,9 @@ public abstract class ViewResponder extends DefaultResponder implements Responde
   private String resolve(String template) {
     String retval;
     if (this.isPreProcessing()) {
-      retval = Template.preProcess(template, symbolTable);
+      retval = CompiledTemplate.preProcess(template, symbolTable);
     } else {
-      retval = Template.resolve(template, symbolTable);
+      retval = CompiledTemplate.resolve(template, symbolTable);
     }
     return retval;
   }
@@ -19,12 +19,12 @@ import java.util.List;
 import coyote.commons.DataFrameUtil;
 import coyote.commons.StringUtil;
 import coyote.commons.template.SymbolTable;
-import coyote.commons.template.Template;
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dataframe.selector.FrameSelector;
 import coyote.dx.CDX;
 import coyote.dx.CWS;
+import coyote.dx.CompiledTemplate;
 import coyote.dx.ConfigTag;
 import coyote.dx.ConfigurableComponent;
 import coyote.dx.FrameReader;
@@ -193,7 +193,7 @@ public class WebServiceReader extends AbstractFrameReader implements FrameReader
     try {
 
       // treat the source as a template
-      String url = Template.resolve(resourceUrl, getContext().getSymbols());
+      String url = CompiledTemplate.resolve(resourceUrl, getContext().getSymbols());
 
       // Create a new web resource
       resource = new Resource(url, protocol, proxy);
@@ -285,7 +285,7 @@ public class WebServiceReader extends AbstractFrameReader implements FrameReader
     do {
       retrieved = 0;
       symbols.merge(pagination.toSymbolTable());
-      String uri = Template.preProcess(resourceUrl, symbols);
+      String uri = CompiledTemplate.preProcess(resourceUrl, symbols);
       Log.debug("Retrieving batch for " + uri);
       try {
         resource.setBaseUri(uri);
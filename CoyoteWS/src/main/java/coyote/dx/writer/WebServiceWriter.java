@@ -20,12 +20,12 @@ import java.util.List;
 import coyote.commons.DataFrameUtil;
 import coyote.commons.ExceptionUtil;
 import coyote.commons.StringUtil;
-import coyote.commons.template.Template;
 import coyote.dataframe.DataField;
 import coyote.dataframe.DataFrame;
 import coyote.dx.AbstractConfigurableComponent;
 import coyote.dx.CDX;
 import coyote.dx.CWS;
+import coyote.dx.CompiledTemplate;
 import coyote.dx.ConfigTag;
 import coyote.dx.ConfigurableComponent;
 import coyote.dx.FrameWriter;
@@ -354,7 +354,7 @@ public class WebServiceWriter extends AbstractConfigurableComponent implements F
     // This sets the path portion of the resource using a template
     if (StringUtil.isNotBlank(servicePath)) {
       try {
-        resource.setPath(Template.resolve(servicePath, getContext().getTransaction().getSymbols()));
+        resource.setPath(CompiledTemplate.resolve(servicePath, getContext().getTransaction().getSymbols()));
       } catch (URISyntaxException e) {
         super.context.setError("The Writer could not generate URI path: " + e.getMessage());
         super.context.setState("Resource Path Error");